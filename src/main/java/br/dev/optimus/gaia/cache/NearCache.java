@@ -0,0 +1,244 @@
+package br.dev.optimus.gaia.cache;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import br.dev.optimus.gaia.model.Group;
+import br.dev.optimus.gaia.model.User;
+import br.dev.optimus.gaia.response.CacheStatsResponse;
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Bounded in-process cache of groups and users.
+ *
+ * Entries expire after a configurable TTL and are evicted once the configured
+ * size is reached. Writes invalidate the local entries right away and publish
+ * the invalidation on the {@value #CHANNEL} PostgreSQL channel within the
+ * writing transaction, so every instance drops its entries once the write
+ * commits. Cached entities are detached and must not be modified.
+ */
+@ApplicationScoped
+public class NearCache {
+
+    public static final String CHANNEL = "gaia_cache";
+    private static final Logger log = LoggerFactory.getLogger(NearCache.class);
+    private static final String ALL = "*";
+
+    private final Cache<Integer, Group> groupsById;
+    private final Cache<String, Group> groupsByName;
+    private final Cache<String, User> usersByUsername;
+    private final EntityManager em;
+    private final AgroalDataSource dataSource;
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile boolean running;
+    private Thread listener;
+
+    public NearCache(EntityManager em,
+                     AgroalDataSource dataSource,
+                     @ConfigProperty(name = "gaia.cache.ttl", defaultValue = "PT5M") Duration ttl,
+                     @ConfigProperty(name = "gaia.cache.max-size", defaultValue = "10000") long maxSize) {
+        this.em = em;
+        this.dataSource = dataSource;
+        this.groupsById = Caffeine.newBuilder().expireAfterWrite(ttl).maximumSize(maxSize).recordStats().build();
+        this.groupsByName = Caffeine.newBuilder().expireAfterWrite(ttl).maximumSize(maxSize).recordStats().build();
+        this.usersByUsername = Caffeine.newBuilder().expireAfterWrite(ttl).maximumSize(maxSize).recordStats().build();
+    }
+
+    public Group group(Integer id, Function<Integer, Group> loader) {
+        return get(groupsById, id, loader);
+    }
+
+    public Group groupByName(String name, Function<String, Group> loader) {
+        return get(groupsByName, name, loader);
+    }
+
+    public Optional<User> userByUsername(String username, Function<String, Optional<User>> loader) {
+        return Optional.ofNullable(get(usersByUsername, username, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Loads a missing entry outside of the cache. {@link Cache#get} would run
+     * the loader, and so its query, inside the map's bin lock, pinning the
+     * carrier of a virtual thread for the whole round trip. Concurrent misses
+     * on the same key may therefore load it more than once. A value loaded
+     * while an invalidation was applied is returned but dropped from the
+     * cache again, since it may predate the write.
+     */
+    private <K, V> V get(Cache<K, V> cache, K key, Function<K, V> loader) {
+        var value = cache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        var generation = invalidations.get();
+        value = loader.apply(key);
+        if (value != null) {
+            cache.put(key, value);
+            if (invalidations.get() != generation) {
+                cache.invalidate(key);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Invalidates a group, and the cached users belonging to it, on every
+     * instance.
+     *
+     * @param id the ID of the group
+     */
+    public void invalidateGroup(Integer id) {
+        publish(groupPayload(id));
+    }
+
+    /**
+     * Invalidates a user on every instance.
+     *
+     * @param id the ID of the user
+     */
+    public void invalidateUser(Long id) {
+        publish(userPayload(id));
+    }
+
+    /**
+     * Returns the payload invalidating a group, for writers publishing on
+     * {@value #CHANNEL} from their own connection.
+     */
+    public static String groupPayload(Integer id) {
+        return "group:" + id;
+    }
+
+    /**
+     * Returns the payload invalidating a user, for writers publishing on
+     * {@value #CHANNEL} from their own connection.
+     */
+    public static String userPayload(Long id) {
+        return "user:" + id;
+    }
+
+    /**
+     * Invalidates every entry on every instance, e.g. after a bulk update.
+     */
+    public void invalidateAll() {
+        publish(ALL);
+    }
+
+    public Map<String, CacheStatsResponse> stats() {
+        return Map.of(
+                "groups_by_id", stats(groupsById),
+                "groups_by_name", stats(groupsByName),
+                "users_by_username", stats(usersByUsername));
+    }
+
+    private static CacheStatsResponse stats(Cache<?, ?> cache) {
+        var stats = cache.stats();
+        return new CacheStatsResponse(stats.hitCount(), stats.missCount(), stats.evictionCount(), cache.estimatedSize());
+    }
+
+    private void publish(String payload) {
+        apply(payload);
+        em.unwrap(Session.class).doWork(connection -> {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                try (var statement = connection.prepareStatement("select pg_notify(?, ?)")) {
+                    statement.setString(1, CHANNEL);
+                    statement.setString(2, payload);
+                    statement.execute();
+                }
+            }
+        });
+    }
+
+    private void apply(String payload) {
+        invalidations.incrementAndGet();
+        var separator = payload.indexOf(':');
+        var kind = separator < 0 ? payload : payload.substring(0, separator);
+        switch (kind) {
+            case "group" -> {
+                var id = Integer.valueOf(payload.substring(separator + 1));
+                groupsById.invalidate(id);
+                groupsByName.asMap().values().removeIf(group -> id.equals(group.getId()));
+                usersByUsername.asMap().values().removeIf(user -> user.getGroup() != null && id.equals(user.getGroup().getId()));
+            }
+            case "user" -> {
+                var id = Long.valueOf(payload.substring(separator + 1));
+                usersByUsername.asMap().values().removeIf(user -> id.equals(user.getId()));
+            }
+            default -> clear();
+        }
+    }
+
+    private void clear() {
+        invalidations.incrementAndGet();
+        groupsById.invalidateAll();
+        groupsByName.invalidateAll();
+        usersByUsername.invalidateAll();
+    }
+
+    void start(@Observes StartupEvent event) {
+        running = true;
+        listener = Thread.ofPlatform().daemon().name("near-cache-listener").start(this::listen);
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    /**
+     * Applies the invalidations published by every instance, including this
+     * one. Entries are dropped whenever the connection is (re)established,
+     * since notifications sent while disconnected are lost.
+     */
+    private void listen() {
+        while (running) {
+            try (var connection = dataSource.getConnection()) {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    log.info("near cache invalidation disabled, datasource is not PostgreSQL");
+                    return;
+                }
+                var pg = connection.unwrap(PGConnection.class);
+                try (var statement = connection.createStatement()) {
+                    statement.execute("listen " + CHANNEL);
+                }
+                clear();
+                while (running) {
+                    var notifications = pg.getNotifications(1000);
+                    if (notifications != null) {
+                        for (var notification : notifications) {
+                            apply(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("near cache listener disconnected, retrying", e);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+}
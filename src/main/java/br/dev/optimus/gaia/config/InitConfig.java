@@ -4,23 +4,40 @@ import br.dev.optimus.gaia.model.Group;
 import br.dev.optimus.gaia.model.User;
 import br.dev.optimus.gaia.repository.GroupRepository;
 import br.dev.optimus.gaia.repository.UserRepository;
+import br.dev.optimus.gaia.service.PasswordHasher;
 import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.event.Observes;
 import jakarta.inject.Singleton;
 import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Optional;
+
+/**
+ * Seeds the built-in groups and users on first start.
+ *
+ * No working credentials are shipped: root gets the password configured in
+ * {@code gaia.auth.bootstrap-password}, and stays locked without a password
+ * until one is configured. admin starts locked without a password, for root to
+ * set.
+ */
 @Singleton
 public class InitConfig {
     private static final Logger log = LoggerFactory.getLogger(InitConfig.class);
     private final GroupRepository groupRepository;
     private final UserRepository userRepository;
+    private final PasswordHasher hasher;
+    private final Optional<String> bootstrapPassword;
 
 
-    public InitConfig(GroupRepository groupRepository, UserRepository userRepository) {
+    public InitConfig(GroupRepository groupRepository, UserRepository userRepository, PasswordHasher hasher,
+                      @ConfigProperty(name = "gaia.auth.bootstrap-password") Optional<String> bootstrapPassword) {
         this.groupRepository = groupRepository;
         this.userRepository = userRepository;
+        this.hasher = hasher;
+        this.bootstrapPassword = bootstrapPassword;
     }
 
     @Transactional
@@ -30,6 +47,7 @@ public class InitConfig {
             createInitialGroups();
             createInitialUsers();
         }
+        bootstrapRoot();
     }
 
     private void createInitialGroups() {
@@ -67,7 +85,6 @@ public class InitConfig {
                 .name("root")
                 .email("root@change.me")
                 .username("root")
-                .password("root")
                 .editable(false)
                 .visible(false)
                 .locked(true)
@@ -78,11 +95,41 @@ public class InitConfig {
                 .name("admin")
                 .email("admin@change.me")
                 .username("admin")
-                .password("admin")
                 .editable(false)
                 .visible(true)
                 .locked(true)
                 .build());
 
     }
+
+    /**
+     * Sets the bootstrap password on root while it has none, or still has the
+     * default one seeded by earlier versions, and unlocks it. A password set
+     * through the API is never overwritten.
+     */
+    private void bootstrapRoot() {
+        var root = userRepository.find("username = ?1 and deletedAt = 0", "root").firstResultOptional();
+        if (root.isEmpty()) {
+            return;
+        }
+        var user = root.get();
+        var current = user.getPassword();
+        var unset = current == null || hasher.verify("root", current);
+        if (!unset) {
+            return;
+        }
+        if (bootstrapPassword.isEmpty()) {
+            log.warn("root has no password, set gaia.auth.bootstrap-password to log in");
+            if (current != null || !user.isLocked()) {
+                user.setPasswordHash(null);
+                user.setLocked(true);
+                userRepository.update(user);
+            }
+            return;
+        }
+        log.info("set root bootstrap password");
+        user.setPasswordHash(hasher.hash(bootstrapPassword.get()));
+        user.setLocked(false);
+        userRepository.update(user);
+    }
 }
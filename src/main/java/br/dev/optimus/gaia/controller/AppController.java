@@ -1,34 +1,91 @@
 package br.dev.optimus.gaia.controller;
 
 import jakarta.ws.rs.*;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
 
-import br.dev.optimus.gaia.service.DockerService;
+import br.dev.optimus.gaia.docker.AppDeployer;
+import br.dev.optimus.gaia.logs.LogArchiver;
+import br.dev.optimus.gaia.logs.LogHub;
+import br.dev.optimus.gaia.model.App;
+import br.dev.optimus.gaia.repository.AppRepository;
+import br.dev.optimus.gaia.response.LogResponse;
+import br.dev.optimus.gaia.security.PermissionRegistry;
+import br.dev.optimus.gaia.service.ReactiveDockerService;
+import br.dev.optimus.gaia.stats.StatsCollector;
+import io.quarkus.security.PermissionsAllowed;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.common.annotation.NonBlocking;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
 import java.util.UUID;
 
 @Path("/app")
+@PermissionsAllowed(PermissionRegistry.APP)
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 public class AppController {
-    @RestClient
-    DockerService dockerService;
+    @Inject
+    ReactiveDockerService dockerService;
+    @Inject
+    StatsCollector statsCollector;
+    @Inject
+    LogHub logHub;
+    @Inject
+    LogArchiver logArchiver;
+    @Inject
+    AppRepository appRepository;
+    @Inject
+    AppDeployer appDeployer;
 
     @GET
+    @RunOnVirtualThread
     public Response index() {
         return null;
     }
 
     @GET
     @Path("/docker/info")
-    public Response info() {
-        return Response.ok(dockerService.getInfo()).build();
+    public Uni<Response> info() {
+        return dockerService.getInfo().map(info -> Response.ok(info).build());
+    }
+
+    @GET
+    @Path("/{id}/stats")
+    @NonBlocking
+    public Response stats(@PathParam("id") UUID id, @QueryParam("range") String range) {
+        return Response.ok(statsCollector.stats(id, range)).build();
+    }
+
+    @GET
+    @Path("/{id}/logs")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Blocking
+    public Multi<LogResponse> logs(@PathParam("id") UUID id, @QueryParam("follow") boolean follow, @QueryParam("tail") Integer tail,
+                                   @QueryParam("since") String since, @QueryParam("until") String until,
+                                   @QueryParam("grep") String grep, @QueryParam("limit") Integer limit) {
+        var app = appRepository.get(id);
+        if (app.getContainer() == null) {
+            throw new NotFoundException("app has no container");
+        }
+        if (since != null || until != null || grep != null || limit != null) {
+            var archived = logArchiver.search(app.getContainer(), since, until, grep, limit);
+            return Multi.createFrom().iterable(archived).map(LogResponse::of);
+        }
+        var chunks = follow
+                ? logHub.follow(app.getContainer())
+                : logHub.tail(app.getContainer(), tail == null ? LogHub.DEFAULT_TAIL : tail);
+        return chunks.map(LogResponse::of);
     }
 
     @POST
-    public Response create(@PathParam("id")UUID id) {
-        return null;
+    @RunOnVirtualThread
+    public Response create(App.DTO dto) {
+        return Response.status(Response.Status.CREATED).entity(appDeployer.deploy(dto)).build();
     }
 }
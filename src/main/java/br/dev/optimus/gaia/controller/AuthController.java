@@ -0,0 +1,30 @@
+package br.dev.optimus.gaia.controller;
+
+import br.dev.optimus.gaia.request.LoginRequest;
+import br.dev.optimus.gaia.service.AuthService;
+import jakarta.annotation.security.PermitAll;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("auth")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+@PermitAll
+public class AuthController {
+
+    private final AuthService service;
+
+    public AuthController(AuthService service) {
+        this.service = service;
+    }
+
+    @POST
+    @Path("login")
+    public Response login(LoginRequest request) {
+        return Response.ok(service.login(request)).build();
+    }
+}
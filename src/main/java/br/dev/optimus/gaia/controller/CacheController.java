@@ -0,0 +1,27 @@
+package br.dev.optimus.gaia.controller;
+
+import br.dev.optimus.gaia.cache.NearCache;
+import br.dev.optimus.gaia.security.PermissionRegistry;
+import io.quarkus.security.PermissionsAllowed;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("cache")
+@PermissionsAllowed(PermissionRegistry.CACHE)
+@Produces(MediaType.APPLICATION_JSON)
+public class CacheController {
+
+    private final NearCache cache;
+
+    public CacheController(NearCache cache) {
+        this.cache = cache;
+    }
+
+    @GET
+    public Response stats() {
+        return Response.ok(cache.stats()).build();
+    }
+}
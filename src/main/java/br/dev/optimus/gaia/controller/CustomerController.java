@@ -1,33 +1,100 @@
 package br.dev.optimus.gaia.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
 import br.dev.optimus.gaia.model.Customer;
 import br.dev.optimus.gaia.repository.CustomerRepository;
+import br.dev.optimus.gaia.request.BulkRequest;
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.search.CustomerSuggestIndex;
+import br.dev.optimus.gaia.security.PermissionRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.security.PermissionsAllowed;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 @Path("customer")
+@PermissionsAllowed(PermissionRegistry.CUSTOMER)
+@RunOnVirtualThread
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 public class CustomerController {
 
     private final CustomerRepository repository;
+    private final ObjectMapper mapper;
+    private final CustomerSuggestIndex suggestIndex;
 
-    public CustomerController(CustomerRepository repository) {
+    public CustomerController(CustomerRepository repository, ObjectMapper mapper, CustomerSuggestIndex suggestIndex) {
         this.repository = repository;
+        this.mapper = mapper;
+        this.suggestIndex = suggestIndex;
+    }
+
+    @GET
+    public Response index(@QueryParam("cursor") String cursor,
+                          @QueryParam("limit") Integer limit,
+                          @QueryParam("sort") String sort) {
+        return Response.ok(repository.page(new PageRequest(cursor, limit, sort))).build();
+    }
+
+    @GET
+    @Produces("application/x-ndjson")
+    public Response export() {
+        StreamingOutput output = stream -> repository.export(mapper, stream);
+        return Response.ok(output).build();
+    }
+
+    @GET
+    @Path("dump")
+    @Produces({"text/csv", "application/x-ndjson"})
+    public Response dump(@QueryParam("format") @DefaultValue("csv") String format,
+                         @QueryParam("updated_since") Long updatedSince,
+                         @QueryParam("updated_until") Long updatedUntil) {
+        var dumpFormat = CustomerRepository.DumpFormat.of(format);
+        repository.checkDump(updatedSince, updatedUntil);
+        StreamingOutput output = stream -> repository.dump(dumpFormat, updatedSince, updatedUntil, stream);
+        return Response.ok(output, dumpFormat.mediaType()).build();
     }
 
     @GET
-    public Response index() {
-        return Response.ok(repository.list()).build();
+    @Path("search/contact")
+    public Response searchContact(@QueryParam("email") String email, @QueryParam("phone") String phone) {
+        return Response.ok(repository.searchContact(email, phone, mapper)).build();
+    }
+
+    @GET
+    @Path("suggest")
+    public Response suggest(@QueryParam("q") String query, @QueryParam("limit") Integer limit) {
+        return Response.ok(suggestIndex.suggest(query, limit)).build();
+    }
+
+    @GET
+    @Path("suggest/stats")
+    public Response suggestStats() {
+        return Response.ok(suggestIndex.stats()).build();
+    }
+
+    @POST
+    @Path("suggest/rebuild")
+    public Response rebuildSuggest() {
+        suggestIndex.rebuild();
+        return Response.ok(suggestIndex.stats()).build();
     }
 
     @GET
@@ -42,6 +109,22 @@ public class CustomerController {
         return Response.status(Response.Status.CREATED).entity(repository.create(dto)).build();
     }
 
+    @POST
+    @Path("import")
+    @Consumes("application/x-ndjson")
+    @Transactional
+    public Response importNdjson(InputStream body) throws IOException {
+        return Response.ok(repository.importNdjson(new InputStreamReader(body, StandardCharsets.UTF_8), mapper)).build();
+    }
+
+    @POST
+    @Path("import")
+    @Consumes("text/csv")
+    @Transactional
+    public Response importCsv(InputStream body) throws IOException {
+        return Response.ok(repository.importCsv(new InputStreamReader(body, StandardCharsets.UTF_8), mapper)).build();
+    }
+
     @PUT
     @Path("{id}")
     @Transactional
@@ -63,4 +146,18 @@ public class CustomerController {
     public Response restore(@PathParam("id") Long id) {
         return Response.ok(repository.restore(id)).build();
     }
+
+    @POST
+    @Path("bulk-delete")
+    @Transactional
+    public Response bulkDelete(BulkRequest<Long> request) {
+        return Response.ok(repository.bulkDelete(request)).build();
+    }
+
+    @POST
+    @Path("bulk-restore")
+    @Transactional
+    public Response bulkRestore(BulkRequest<Long> request) {
+        return Response.ok(repository.bulkRestore(request)).build();
+    }
 }
@@ -0,0 +1,28 @@
+package br.dev.optimus.gaia.controller;
+
+import br.dev.optimus.gaia.diagnostics.ThreadDiagnostics;
+import br.dev.optimus.gaia.security.PermissionRegistry;
+import io.quarkus.security.PermissionsAllowed;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("diagnostics")
+@PermissionsAllowed(PermissionRegistry.DIAGNOSTICS)
+@Produces(MediaType.APPLICATION_JSON)
+public class DiagnosticsController {
+
+    private final ThreadDiagnostics threads;
+
+    public DiagnosticsController(ThreadDiagnostics threads) {
+        this.threads = threads;
+    }
+
+    @GET
+    @Path("threads")
+    public Response threads() {
+        return Response.ok(threads.report()).build();
+    }
+}
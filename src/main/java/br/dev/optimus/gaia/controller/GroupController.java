@@ -2,6 +2,12 @@ package br.dev.optimus.gaia.controller;
 
 import br.dev.optimus.gaia.model.Group;
 import br.dev.optimus.gaia.repository.GroupRepository;
+import br.dev.optimus.gaia.request.BulkRequest;
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.security.PermissionRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.security.PermissionsAllowed;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
@@ -11,23 +17,38 @@ import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 @Path("group")
+@PermissionsAllowed(PermissionRegistry.GROUP)
+@RunOnVirtualThread
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 public class GroupController {
 
     private final GroupRepository repository;
+    private final ObjectMapper mapper;
 
-    public GroupController(GroupRepository repository) {
+    public GroupController(GroupRepository repository, ObjectMapper mapper) {
         this.repository = repository;
+        this.mapper = mapper;
     }
 
     @GET
-    public Response index() {
-        return Response.ok(repository.list()).build();
+    public Response index(@QueryParam("cursor") String cursor,
+                          @QueryParam("limit") Integer limit,
+                          @QueryParam("sort") String sort) {
+        return Response.ok(repository.page(new PageRequest(cursor, limit, sort))).build();
+    }
+
+    @GET
+    @Produces("application/x-ndjson")
+    public Response export() {
+        StreamingOutput output = stream -> repository.export(mapper, stream);
+        return Response.ok(output).build();
     }
 
     @GET
@@ -63,4 +84,18 @@ public class GroupController {
     public Response restore(@PathParam("id") Integer id) {
         return Response.ok(repository.restore(id)).build();
     }
+
+    @POST
+    @Path("bulk-delete")
+    @Transactional
+    public Response bulkDelete(BulkRequest<Integer> request) {
+        return Response.ok(repository.bulkDelete(request)).build();
+    }
+
+    @POST
+    @Path("bulk-restore")
+    @Transactional
+    public Response bulkRestore(BulkRequest<Integer> request) {
+        return Response.ok(repository.bulkRestore(request)).build();
+    }
 }
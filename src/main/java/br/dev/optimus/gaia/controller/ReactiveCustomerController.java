@@ -0,0 +1,70 @@
+package br.dev.optimus.gaia.controller;
+
+import br.dev.optimus.gaia.model.Customer;
+import br.dev.optimus.gaia.repository.ReactiveCustomerRepository;
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.security.PermissionRegistry;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.security.PermissionsAllowed;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("reactive/customer")
+@PermissionsAllowed(PermissionRegistry.CUSTOMER)
+@IfBuildProperty(name = "gaia.persistence.reactive.enabled", stringValue = "true")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class ReactiveCustomerController {
+
+    private final ReactiveCustomerRepository repository;
+
+    public ReactiveCustomerController(ReactiveCustomerRepository repository) {
+        this.repository = repository;
+    }
+
+    @GET
+    public Uni<Response> index(@QueryParam("cursor") String cursor,
+                               @QueryParam("limit") Integer limit,
+                               @QueryParam("sort") String sort) {
+        return repository.page(new PageRequest(cursor, limit, sort)).map(page -> Response.ok(page).build());
+    }
+
+    @GET
+    @Path("{id}")
+    public Uni<Response> show(@PathParam("id") Long id) {
+        return repository.get(id).map(data -> Response.ok(data).build());
+    }
+
+    @POST
+    public Uni<Response> create(Customer.DTO dto) {
+        return repository.create(dto).map(data -> Response.status(Response.Status.CREATED).entity(data).build());
+    }
+
+    @PUT
+    @Path("{id}")
+    public Uni<Response> update(@PathParam("id") Long id, Customer.DTO dto) {
+        return repository.update(id, dto).map(data -> Response.ok(data).build());
+    }
+
+    @DELETE
+    @Path("{id}")
+    public Uni<Response> delete(@PathParam("id") Long id) {
+        return repository.delete(id).map(nothing -> Response.noContent().build());
+    }
+
+    @POST
+    @Path("{id}/restore")
+    public Uni<Response> restore(@PathParam("id") Long id) {
+        return repository.restore(id).map(data -> Response.ok(data).build());
+    }
+}
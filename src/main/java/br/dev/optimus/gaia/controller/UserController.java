@@ -2,6 +2,12 @@ package br.dev.optimus.gaia.controller;
 
 import br.dev.optimus.gaia.model.User;
 import br.dev.optimus.gaia.repository.UserRepository;
+import br.dev.optimus.gaia.request.BulkRequest;
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.security.PermissionRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.security.PermissionsAllowed;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
@@ -11,29 +17,44 @@ import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 @Path("user")
+@PermissionsAllowed(PermissionRegistry.USER)
+@RunOnVirtualThread
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 public class UserController {
 
     private final UserRepository repository;
+    private final ObjectMapper mapper;
 
-    public UserController(UserRepository repository) {
+    public UserController(UserRepository repository, ObjectMapper mapper) {
         this.repository = repository;
+        this.mapper = mapper;
     }
 
     @GET
-    public Response index() {
-        return Response.ok(repository.list()).build();
+    public Response index(@QueryParam("cursor") String cursor,
+                          @QueryParam("limit") Integer limit,
+                          @QueryParam("sort") String sort) {
+        return Response.ok(repository.page(new PageRequest(cursor, limit, sort))).build();
+    }
+
+    @GET
+    @Produces("application/x-ndjson")
+    public Response export() {
+        StreamingOutput output = stream -> repository.export(mapper, stream);
+        return Response.ok(output).build();
     }
 
     @GET
     @Path("{id}")
     public Response show(@PathParam("id") Long id) {
-        return Response.ok(repository.get(id)).build();
+        return Response.ok(repository.view(id)).build();
     }
 
     @POST
@@ -64,4 +85,18 @@ public class UserController {
     public Response restore(@PathParam("id") Long id) {
         return Response.ok(repository.restore(id)).build();
     }
+
+    @POST
+    @Path("bulk-delete")
+    @Transactional
+    public Response bulkDelete(BulkRequest<Long> request) {
+        return Response.ok(repository.bulkDelete(request)).build();
+    }
+
+    @POST
+    @Path("bulk-restore")
+    @Transactional
+    public Response bulkRestore(BulkRequest<Long> request) {
+        return Response.ok(repository.bulkRestore(request)).build();
+    }
 }
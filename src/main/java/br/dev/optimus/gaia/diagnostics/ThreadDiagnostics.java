@@ -0,0 +1,145 @@
+package br.dev.optimus.gaia.diagnostics;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.dev.optimus.gaia.response.ThreadDiagnosticsResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Records virtual threads pinned to their carrier and samples carrier usage.
+ *
+ * Pinning is observed through the {@code jdk.VirtualThreadPinned} JFR event,
+ * streamed in process while virtual threads are enabled. Events are grouped
+ * by their top frames so the code holding a monitor across a blocking call
+ * stands out. Carrier usage is the CPU time of the scheduler's carrier
+ * threads between two reports.
+ */
+@ApplicationScoped
+public class ThreadDiagnostics {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadDiagnostics.class);
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final String CARRIER = "jdk.internal.misc.CarrierThread";
+    private static final int FRAMES = 8;
+    private static final int MAX_STACKS = 100;
+    private static final int TOP_STACKS = 20;
+
+    private final boolean virtualThreads;
+    private final Duration threshold;
+    private final Counter pinned;
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final Map<List<String>, LongAdder> stacks = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+    private long sampledAt = System.nanoTime();
+    private long sampledCpu;
+
+    public ThreadDiagnostics(@ConfigProperty(name = "quarkus.virtual-threads.enabled") boolean virtualThreads,
+                             @ConfigProperty(name = "gaia.diagnostics.pinning-threshold", defaultValue = "PT0.02S") Duration threshold,
+                             MeterRegistry registry) {
+        this.virtualThreads = virtualThreads;
+        this.threshold = threshold;
+        this.pinned = Counter.builder("gaia.threads.pinned").description("virtual threads pinned while blocking").register(registry);
+    }
+
+    public ThreadDiagnosticsResponse report() {
+        var top = stacks.entrySet().stream()
+                .map(entry -> new ThreadDiagnosticsResponse.Stack(entry.getKey(), entry.getValue().sum()))
+                .sorted(Comparator.comparingLong(ThreadDiagnosticsResponse.Stack::count).reversed())
+                .limit(TOP_STACKS)
+                .toList();
+        var pinning = new ThreadDiagnosticsResponse.Pinning(threshold.toMillis(), (long) pinned.count(),
+                pinnedNanos.sum() / 1e6, maxNanos.get() / 1e6, top);
+        return new ThreadDiagnosticsResponse(virtualThreads, pinning, carriers());
+    }
+
+    private synchronized ThreadDiagnosticsResponse.Carriers carriers() {
+        var parallelism = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        var threads = ManagementFactory.getThreadMXBean();
+        var live = 0;
+        var cpu = 0L;
+        for (var thread : Thread.getAllStackTraces().keySet()) {
+            if (CARRIER.equals(thread.getClass().getName())) {
+                live++;
+                cpu += Math.max(threads.getThreadCpuTime(thread.threadId()), 0);
+            }
+        }
+        var now = System.nanoTime();
+        var elapsed = now - sampledAt;
+        var utilization = elapsed > 0 ? Math.max(cpu - sampledCpu, 0) / ((double) elapsed * parallelism) : 0;
+        sampledAt = now;
+        sampledCpu = cpu;
+        return new ThreadDiagnosticsResponse.Carriers(parallelism, live, Math.min(utilization, 1));
+    }
+
+    private void record(RecordedEvent event) {
+        var nanos = event.getDuration().toNanos();
+        pinned.increment();
+        pinnedNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        var frames = frames(event.getStackTrace());
+        var count = stacks.get(frames);
+        if (count == null && stacks.size() < MAX_STACKS) {
+            count = stacks.computeIfAbsent(frames, key -> new LongAdder());
+        }
+        if (count != null) {
+            count.increment();
+        }
+    }
+
+    private static List<String> frames(RecordedStackTrace trace) {
+        if (trace == null) {
+            return List.of();
+        }
+        var frames = new ArrayList<String>(FRAMES);
+        for (var frame : trace.getFrames()) {
+            if (frames.size() == FRAMES) {
+                break;
+            }
+            var method = frame.getMethod();
+            frames.add(method.getType().getName() + "." + method.getName() + ":" + frame.getLineNumber());
+        }
+        return List.copyOf(frames);
+    }
+
+    void start(@Observes StartupEvent event) {
+        if (!virtualThreads) {
+            return;
+        }
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED).withThreshold(threshold).withStackTrace();
+            stream.onEvent(PINNED, this::record);
+            stream.startAsync();
+        } catch (RuntimeException e) {
+            log.warn("virtual thread pinning events are unavailable", e);
+        }
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
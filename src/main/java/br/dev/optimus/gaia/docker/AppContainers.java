@@ -0,0 +1,159 @@
+package br.dev.optimus.gaia.docker;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+
+/**
+ * The containers of the apps that have not been deleted, reloaded from the
+ * database every {@code gaia.apps.refresh} for the background collectors
+ * that follow them.
+ *
+ * Reloads hold no lock: each queries on its own and then swaps in its
+ * result, unless a reload that started later has swapped in a newer one
+ * already. A {@link Refreshed} event with the latest containers is then
+ * fired on the reloading thread, one at a time: a reload finishing while
+ * another thread is firing leaves the event to that thread, which fires
+ * again once done.
+ */
+@ApplicationScoped
+public class AppContainers {
+
+    /**
+     * Fired after the containers are reloaded.
+     *
+     * @param containers the IDs of all the app containers
+     */
+    public record Refreshed(Set<String> containers) {
+    }
+
+    /**
+     * The result of a reload, numbered in the order the reloads started.
+     */
+    private record Snapshot(long generation, Map<UUID, List<String>> apps, Set<String> containers) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AppContainers.class);
+    private static final String SELECT = "select a.id, c.container from apps a "
+            + "cross join lateral jsonb_array_elements_text(coalesce(a.containers, jsonb_build_array(a.container))) as c (container) "
+            + "where a.deleted_at = 0 and a.container is not null";
+
+    private final AgroalDataSource dataSource;
+    private final Duration refresh;
+    private final Event<Refreshed> refreshed;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("app-containers").factory());
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(0, Map.of(), Set.of()));
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public AppContainers(AgroalDataSource dataSource,
+                         @ConfigProperty(name = "gaia.apps.refresh", defaultValue = "PT10S") Duration refresh,
+                         Event<Refreshed> refreshed) {
+        this.dataSource = dataSource;
+        this.refresh = refresh;
+        this.refreshed = refreshed;
+    }
+
+    /**
+     * Retrieves the containers of an app, as of the last reload.
+     *
+     * @param app the app ID
+     * @return the container IDs, or empty if the app is unknown or deleted
+     */
+    public Optional<List<String>> containers(UUID app) {
+        return Optional.ofNullable(snapshot.get().apps().get(app));
+    }
+
+    public Set<String> containers() {
+        return snapshot.get().containers();
+    }
+
+    /**
+     * Reloads the containers now, e.g. right after deploying an app, rather
+     * than at the next scheduled reload. Keeps the current ones if the
+     * database is unavailable.
+     */
+    public void refresh() {
+        var generation = generations.incrementAndGet();
+        var apps = new HashMap<UUID, List<String>>();
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(SELECT);
+             var rows = statement.executeQuery()) {
+            while (rows.next()) {
+                apps.computeIfAbsent(rows.getObject("id", UUID.class), id -> new ArrayList<>()).add(rows.getString("container"));
+            }
+        } catch (SQLException e) {
+            log.warn("could not load app containers, keeping the current ones", e);
+            return;
+        }
+        var containers = new HashSet<String>();
+        apps.values().forEach(containers::addAll);
+        var loaded = new Snapshot(generation, Map.copyOf(apps), Set.copyOf(containers));
+        var current = snapshot.get();
+        while (current.generation() < generation) {
+            if (snapshot.compareAndSet(current, loaded)) {
+                fire();
+                return;
+            }
+            current = snapshot.get();
+        }
+    }
+
+    /**
+     * Fires the latest containers, unless another thread is firing, in which
+     * case that thread fires once more for this reload.
+     */
+    private void fire() {
+        if (pending.getAndIncrement() != 0) {
+            return;
+        }
+        var missed = 1;
+        do {
+            try {
+                refreshed.fire(new Refreshed(snapshot.get().containers()));
+            } catch (RuntimeException e) {
+                log.warn("app containers observer failed", e);
+            }
+            missed = pending.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    void start(@Observes StartupEvent event) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.warn("app containers refresh failed", e);
+            }
+        }, 0, refresh.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,303 @@
+package br.dev.optimus.gaia.docker;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import br.dev.optimus.gaia.model.App;
+import br.dev.optimus.gaia.repository.AppRepository;
+import br.dev.optimus.gaia.request.DockerRequest;
+import br.dev.optimus.gaia.service.ReactiveDockerService;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.ServerErrorException;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Deploys a new app: pulls its image once through {@link ImagePuller}, then
+ * creates and starts every replica at once, at most
+ * {@code gaia.docker.concurrency} at a time, and waits for them to run, and
+ * become healthy when the image has a health check. Only then is the app
+ * saved, with all its containers, in a single transaction.
+ *
+ * Every replica exposes the container port, given or else the single TCP
+ * port the image exposes. The first publishes it on the app port of the
+ * host, and the others on ports the daemon picks, as a host port can only be
+ * bound by one container.
+ *
+ * If any replica fails, or the app cannot be saved, every container created
+ * for it is removed and the failure is rethrown, so a deploy either fully
+ * happens or leaves nothing behind.
+ */
+@ApplicationScoped
+public class AppDeployer {
+
+    public static final String APP_LABEL = "gaia.app";
+    public static final String REPLICA_LABEL = "gaia.replica";
+    public static final String SPEC_LABEL = "gaia.spec";
+    public static final int MAX_REPLICAS = 100;
+    private static final int PORT_ATTEMPTS = 3;
+    private static final Logger log = LoggerFactory.getLogger(AppDeployer.class);
+    private static final Duration READY_POLL = Duration.ofMillis(250);
+
+    /**
+     * The outcome of one replica: the container created, if any, and the
+     * failure, if any.
+     */
+    private record Replica(String container, Throwable failure) {
+    }
+
+    private final ReactiveDockerService docker;
+    private final FanOut fanOut;
+    private final AppRepository repository;
+    private final AppContainers containers;
+    private final ImagePuller images;
+    private final PortAllocator ports;
+    private final Duration readyTimeout;
+
+    public AppDeployer(ReactiveDockerService docker, FanOut fanOut, AppRepository repository, AppContainers containers,
+                       ImagePuller images, PortAllocator ports,
+                       @ConfigProperty(name = "gaia.deploy.ready-timeout", defaultValue = "PT1M") Duration readyTimeout) {
+        this.docker = docker;
+        this.fanOut = fanOut;
+        this.repository = repository;
+        this.containers = containers;
+        this.images = images;
+        this.ports = ports;
+        this.readyTimeout = readyTimeout;
+    }
+
+    /**
+     * Deploys an app. Blocks until it is running or has been rolled back, so
+     * it must be called on a worker or virtual thread.
+     *
+     * @param dto the app; replicas below one deploy a single container, and
+     * port 0 gets a free port from {@link PortAllocator}, and another one
+     * should another instance have taken it meanwhile; container port 0
+     * takes the port the image exposes
+     * @return the saved app
+     * @throws BadRequestException if the name or image is missing, a port is
+     * invalid, there are too many replicas, or no container port is given
+     * and the image exposes none or several
+     * @throws ClientErrorException 409 if the port is in use
+     */
+    public App deploy(App.DTO dto) {
+        if (dto.name() == null || dto.name().isBlank() || dto.image() == null || dto.image().isBlank()) {
+            throw new BadRequestException("name and image are required");
+        }
+        if (dto.replicas() > MAX_REPLICAS) {
+            throw new BadRequestException("replicas must be at most " + MAX_REPLICAS);
+        }
+        if (dto.port() < 0 || dto.port() > 65535) {
+            throw new BadRequestException("port must be between 1 and 65535, or 0 for any");
+        }
+        if (dto.containerPort() < 0 || dto.containerPort() > 65535) {
+            throw new BadRequestException("container_port must be between 1 and 65535, or 0 for the image's");
+        }
+        for (var attempt = 1; ; attempt++) {
+            var port = dto.port() == 0 ? ports.allocate() : dto.port();
+            if (dto.port() != 0 && !ports.claim(port)) {
+                throw new ClientErrorException("port " + port + " is in use", Response.Status.CONFLICT);
+            }
+            try {
+                return deploy(dto, port);
+            } catch (RuntimeException e) {
+                if (!PortAllocator.taken(e)) {
+                    ports.cancel(port);
+                    throw e;
+                }
+                // taken by another instance, so left reserved here
+                if (dto.port() != 0 || attempt == PORT_ATTEMPTS) {
+                    throw new ClientErrorException("port " + port + " is in use", Response.Status.CONFLICT, e);
+                }
+                log.info("port {} of {} was taken by another instance, deploying on another one", port, dto.name());
+            }
+        }
+    }
+
+    private App deploy(App.DTO dto, int port) {
+        var app = App.builder()
+                .name(dto.name())
+                .port(port)
+                .image(dto.image())
+                .replicas(Math.max(dto.replicas(), 1))
+                .environments(dto.environments())
+                .volumes(dto.volumes())
+                .active(true)
+                .build();
+        var image = images.pull(app.getImage()).await().indefinitely();
+        app.setContainerPort(dto.containerPort() != 0 ? dto.containerPort() : exposedPort(app.getImage(), image));
+        var replicas = start(app);
+        var created = replicas.stream().map(Replica::container).filter(Objects::nonNull).toList();
+        var failure = replicas.stream().map(Replica::failure).filter(Objects::nonNull).findFirst().orElse(null);
+        if (failure == null) {
+            app.setContainer(created.getFirst());
+            app.setContainers(created);
+            try {
+                repository.create(app);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            remove(app.getName(), created);
+            throw failure instanceof RuntimeException e ? e
+                    : new ServerErrorException("deploy failed: " + failure.getMessage(), Response.Status.BAD_GATEWAY, failure);
+        }
+        containers.refresh();
+        return app;
+    }
+
+    /**
+     * Creates, starts and waits for every replica, letting each one finish
+     * even when another fails so that all the containers created are known.
+     */
+    private List<Replica> start(App app) {
+        var deadline = System.nanoTime() + readyTimeout.toNanos();
+        var indexes = IntStream.range(0, app.getReplicas()).boxed().toList();
+        return fanOut.all(indexes, index -> docker.createContainer(containerName(app, index), request(app, index))
+                .onItem().transformToUni(created -> docker.startContainer(created.id())
+                        .chain(() -> ready(created.id(), deadline))
+                        .map(ignored -> new Replica(created.id(), null))
+                        .onFailure().recoverWithItem(e -> new Replica(created.id(), e)))
+                .onFailure().recoverWithItem(e -> new Replica(null, e)))
+                .await().indefinitely();
+    }
+
+    /**
+     * @return the single TCP port the image exposes
+     * @throws BadRequestException if it exposes none or several
+     */
+    static int exposedPort(String name, ImagePuller.Image image) {
+        var tcp = image.exposedPorts().stream()
+                .filter(port -> !port.contains("/") || port.endsWith("/tcp"))
+                .map(port -> port.split("/")[0])
+                .distinct()
+                .toList();
+        if (tcp.isEmpty()) {
+            throw new BadRequestException("image " + name + " exposes no port, container_port is required");
+        }
+        if (tcp.size() > 1) {
+            throw new BadRequestException("image " + name + " exposes several ports " + tcp + ", container_port is required");
+        }
+        try {
+            return Integer.parseInt(tcp.getFirst());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("image " + name + " exposes port " + tcp.getFirst() + ", container_port is required");
+        }
+    }
+
+    static String containerName(App app, int index) {
+        return index == 0 ? app.getName() : app.getName() + "-" + index;
+    }
+
+    /**
+     * Builds the creation request of a replica, labelled with the app, the
+     * replica index and the {@link #spec} the container was created from,
+     * and publishing the container port on the app port of the host.
+     */
+    static DockerRequest.ContainerCreate request(App app, int index) {
+        var port = containerPort(app) + "/tcp";
+        var binding = new DockerRequest.PortBinding(index == 0 ? String.valueOf(app.getPort()) : "");
+        return new DockerRequest.ContainerCreate(app.getImage(), null, app.getEnvironments(), app.getVolumes(), null,
+                Map.of(APP_LABEL, app.getName(), REPLICA_LABEL, String.valueOf(index), SPEC_LABEL, spec(app)),
+                Map.of(port, Map.of()),
+                new DockerRequest.HostConfig(Map.of(port, List.of(binding))));
+    }
+
+    /**
+     * Hashes what a container is created from, the image, ports, environment
+     * and volumes of its app, so that a container no longer matching its app
+     * can be told from its labels alone. An app without a container port
+     * hashes as before it had one, so its containers are not recreated.
+     */
+    static String spec(App app) {
+        var spec = new StringBuilder(app.getImage()).append('\n').append(app.getPort()).append('\n');
+        if (app.getContainerPort() != 0) {
+            spec.append(app.getContainerPort()).append('\n');
+        }
+        Objects.requireNonNullElse(app.getEnvironments(), List.<String>of()).forEach(env -> spec.append(env).append('\0'));
+        spec.append('\n');
+        for (var volume : Objects.requireNonNullElse(app.getVolumes(), List.<HashMap<String, String>>of())) {
+            spec.append(new TreeMap<>(volume)).append('\0');
+        }
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(spec.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the port the containers of an app listen on; apps deployed
+     * before it was kept listen on the app port itself
+     */
+    private static int containerPort(App app) {
+        return app.getContainerPort() != 0 ? app.getContainerPort() : app.getPort();
+    }
+
+    /**
+     * Polls a started container until it runs, and is healthy if it has a
+     * health check.
+     */
+    private Uni<Void> ready(String container, long deadline) {
+        return docker.inspectContainer(container).onItem().transformToUni(inspected -> {
+            var state = inspected.path("State");
+            var health = state.path("Health").path("Status").asText("");
+            if (state.path("Running").asBoolean() && (health.isEmpty() || health.equals("healthy"))) {
+                return Uni.createFrom().voidItem();
+            }
+            var failure = failure(container, state, health);
+            if (failure == null && System.nanoTime() - deadline > 0) {
+                failure = "container " + container + " was not ready within " + readyTimeout.toSeconds() + "s";
+            }
+            if (failure != null) {
+                return Uni.createFrom().failure(new ServerErrorException(failure, Response.Status.BAD_GATEWAY));
+            }
+            return Uni.createFrom().voidItem().onItem().delayIt().by(READY_POLL)
+                    .chain(() -> ready(container, deadline));
+        });
+    }
+
+    private static String failure(String container, JsonNode state, String health) {
+        if (health.equals("unhealthy")) {
+            return "container " + container + " is unhealthy";
+        }
+        var status = state.path("Status").asText();
+        if (status.equals("exited") || status.equals("dead")) {
+            return "container " + container + " " + status + " with code " + state.path("ExitCode").asInt();
+        }
+        return null;
+    }
+
+    private void remove(String app, List<String> created) {
+        if (created.isEmpty()) {
+            return;
+        }
+        var removed = fanOut.all(created, container -> docker.removeContainer(container, true)
+                .map(ignored -> true)
+                .onFailure().recoverWithItem(e -> {
+                    log.warn("could not remove container {} of failed deploy of {}", container, app, e);
+                    return false;
+                })).await().indefinitely();
+        log.info("rolled back deploy of {}: removed {} of {} containers", app,
+                removed.stream().filter(Boolean::booleanValue).count(), created.size());
+    }
+}
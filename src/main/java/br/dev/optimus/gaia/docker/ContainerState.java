@@ -0,0 +1,33 @@
+package br.dev.optimus.gaia.docker;
+
+/**
+ * The last known state of a container.
+ *
+ * @param id the container ID
+ * @param name the container name, without the leading slash
+ * @param state the Docker state: created, running, paused, restarting,
+ * exited, dead, or removed once the container is gone
+ * @param health the health check status, or null when it has none
+ * @param changedAt the time of the event that set the state, in nanoseconds
+ * since the epoch
+ */
+public record ContainerState(String id, String name, String state, String health, long changedAt) {
+
+    public static final String REMOVED = "removed";
+
+    public boolean running() {
+        return "running".equals(state);
+    }
+
+    /**
+     * Whether the container is running and, if it has a health check, passing
+     * it.
+     */
+    public boolean listening() {
+        return running() && (health == null || "healthy".equals(health));
+    }
+
+    ContainerState with(String state, String health, long changedAt) {
+        return new ContainerState(id, name, state, health, changedAt);
+    }
+}
@@ -0,0 +1,356 @@
+package br.dev.optimus.gaia.docker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.service.DockerService;
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+/**
+ * Live view of the state of every container on the daemon, kept up to date
+ * from the Docker {@code /events} stream instead of polling.
+ *
+ * A subscriber thread lists all containers, then follows the container
+ * events from just before the listing, so nothing is missed in between.
+ * Events are parsed one at a time off the stream, reading only the fields in
+ * use. When the stream drops the subscriber reconnects with a backoff and
+ * lists the containers again.
+ *
+ * Changes to whether a container is running or listening are written back to
+ * {@code apps.active} and {@code apps.listening} every
+ * {@code gaia.docker.events.flush-interval}, in a single statement for all
+ * the apps holding a container that changed since the previous flush. A
+ * container changing several times in between is written once, with its
+ * latest state. An app runs one container per replica, so it is active if
+ * any of its replicas runs and listening if any of them is healthy.
+ */
+@ApplicationScoped
+public class ContainerStateCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ContainerStateCache.class);
+    private static final String FILTERS = URLEncoder.encode("{\"type\":[\"container\"]}", StandardCharsets.UTF_8);
+    private static final String HEALTH = "health_status:";
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+    // ?? is the jsonb ? operator escaped for JDBC
+    private static final String UPDATE = "update apps a set active = s.active, listening = s.listening, updated_at = ? "
+            + "from (select r.id, bool_or(c.active) as active, bool_or(c.listening) as listening "
+            + "from apps r join unnest(?::varchar[], ?::boolean[], ?::boolean[]) as c(container, active, listening) "
+            + "on r.containers ?? c.container "
+            + "where r.deleted_at = 0 and r.containers ??| ?::text[] group by r.id) as s "
+            + "where a.id = s.id and (a.active, a.listening) is distinct from (s.active, s.listening)";
+
+    private final DockerService docker;
+    private final DockerStreams streams;
+    private final AgroalDataSource dataSource;
+    private final ObjectMapper mapper;
+    private final boolean enabled;
+    private final Duration flushInterval;
+    private final Counter events;
+    private final Map<String, ContainerState> states = new ConcurrentHashMap<>();
+    private final Map<String, ContainerState> dirty = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("container-state-flush").factory());
+    private volatile boolean running;
+    private volatile InputStream stream;
+    private Thread subscriber;
+
+    public ContainerStateCache(DockerService docker, DockerStreams streams, AgroalDataSource dataSource, ObjectMapper mapper,
+                               @ConfigProperty(name = "gaia.docker.events.enabled", defaultValue = "true") boolean enabled,
+                               @ConfigProperty(name = "gaia.docker.events.flush-interval", defaultValue = "PT0.25S") Duration flushInterval,
+                               MeterRegistry registry) {
+        this.docker = docker;
+        this.streams = streams;
+        this.dataSource = dataSource;
+        this.mapper = mapper;
+        this.enabled = enabled;
+        this.flushInterval = flushInterval;
+        this.events = Counter.builder("gaia.docker.events").description("container events received from the daemon").register(registry);
+        registry.gauge("gaia.docker.containers", states, Map::size);
+        registry.gauge("gaia.docker.containers.pending", dirty, Map::size);
+    }
+
+    /**
+     * Retrieves the last known state of a container.
+     *
+     * @param id the container ID
+     * @return the state, or empty if the container is unknown or removed
+     */
+    public Optional<ContainerState> state(String id) {
+        return Optional.ofNullable(states.get(id));
+    }
+
+    public Collection<ContainerState> states() {
+        return states.values();
+    }
+
+    private void subscribe() {
+        var backoff = MIN_BACKOFF;
+        while (running) {
+            try {
+                var since = Instant.now().getEpochSecond() - 1;
+                resync();
+                try (var in = streams.open("/events?since=" + since + "&filters=" + FILTERS)) {
+                    stream = in;
+                    backoff = MIN_BACKOFF;
+                    follow(in);
+                }
+                if (running) {
+                    log.warn("docker events stream ended, reconnecting");
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("docker events subscriber disconnected, retrying in {}", backoff, e);
+            } finally {
+                stream = null;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+        }
+    }
+
+    /**
+     * Replaces the known states with a listing of all containers. Containers
+     * missing from it are marked removed.
+     */
+    private void resync() {
+        var seen = new HashSet<String>();
+        for (var container : docker.listContainers(true, null)) {
+            var id = container.path("Id").asText();
+            var state = new ContainerState(id, name(container.path("Names")), container.path("State").asText(),
+                    health(container.path("Status").asText()), 0);
+            seen.add(id);
+            states.put(id, state);
+            dirty.put(id, state);
+        }
+        for (var state : states.values()) {
+            if (!seen.contains(state.id())) {
+                remove(state.with(ContainerState.REMOVED, null, 0));
+            }
+        }
+    }
+
+    private void follow(InputStream in) throws IOException {
+        try (var parser = mapper.getFactory().createParser(in)) {
+            JsonToken token;
+            while (running && (token = parser.nextToken()) != null) {
+                if (token == JsonToken.START_OBJECT) {
+                    event(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads one event, positioned on its opening brace, and applies it.
+     */
+    private void event(JsonParser parser) throws IOException {
+        String type = null;
+        String action = null;
+        String id = null;
+        String name = null;
+        var time = 0L;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "Type" -> type = parser.getText();
+                case "Action" -> action = parser.getText();
+                case "timeNano" -> time = parser.getLongValue();
+                case "Actor" -> {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        var actorField = parser.currentName();
+                        parser.nextToken();
+                        if ("ID".equals(actorField)) {
+                            id = parser.getText();
+                        } else if ("Attributes".equals(actorField) && parser.currentToken() == JsonToken.START_OBJECT) {
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                var attribute = parser.currentName();
+                                parser.nextToken();
+                                if ("name".equals(attribute)) {
+                                    name = parser.getText();
+                                } else {
+                                    parser.skipChildren();
+                                }
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if ("container".equals(type) && id != null && action != null) {
+            events.increment();
+            apply(id, name, action, time);
+        }
+    }
+
+    private void apply(String id, String name, String action, long time) {
+        var current = states.get(id);
+        if (current != null && time < current.changedAt()) {
+            return;
+        }
+        var base = current != null ? current : new ContainerState(id, name, "created", null, 0);
+        if (action.startsWith(HEALTH)) {
+            update(base.with(base.state(), action.substring(HEALTH.length()).strip(), time));
+            return;
+        }
+        switch (action) {
+            case "create" -> update(base.with("created", null, time));
+            case "start", "restart", "unpause" -> update(base.with("running", base.health(), time));
+            case "pause" -> update(base.with("paused", base.health(), time));
+            case "die", "stop" -> update(base.with("exited", base.health(), time));
+            case "destroy" -> remove(base.with(ContainerState.REMOVED, null, time));
+            default -> {
+                // exec, attach, resize and the like leave the state as is
+            }
+        }
+    }
+
+    private void update(ContainerState state) {
+        var previous = states.put(state.id(), state);
+        if (previous == null || previous.running() != state.running() || previous.listening() != state.listening()) {
+            dirty.put(state.id(), state);
+        }
+    }
+
+    private void remove(ContainerState state) {
+        states.remove(state.id());
+        dirty.put(state.id(), state);
+    }
+
+    /**
+     * Writes the changes gathered since the last flush. They are kept for the
+     * next one if the database is unavailable.
+     *
+     * The apps holding a changed container are recomputed from every replica,
+     * so the states of all known containers are sent along with the changed
+     * ones. Removed containers are sent as stopped.
+     */
+    private void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        var batch = new ArrayList<ContainerState>(dirty.size());
+        for (var entry : dirty.entrySet()) {
+            if (dirty.remove(entry.getKey(), entry.getValue())) {
+                batch.add(entry.getValue());
+            }
+        }
+        var known = new HashMap<>(states);
+        var changed = new String[batch.size()];
+        for (var i = 0; i < batch.size(); i++) {
+            changed[i] = batch.get(i).id();
+            known.putIfAbsent(changed[i], batch.get(i));
+        }
+        var containers = new String[known.size()];
+        var active = new Boolean[known.size()];
+        var listening = new Boolean[known.size()];
+        var i = 0;
+        for (var state : known.values()) {
+            containers[i] = state.id();
+            active[i] = state.running();
+            listening[i] = state.listening();
+            i++;
+        }
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(UPDATE)) {
+            statement.setLong(1, Instant.now().getEpochSecond());
+            statement.setArray(2, connection.createArrayOf("varchar", containers));
+            statement.setArray(3, connection.createArrayOf("boolean", active));
+            statement.setArray(4, connection.createArrayOf("boolean", listening));
+            statement.setArray(5, connection.createArrayOf("varchar", changed));
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            log.warn("could not write {} container states, retrying on the next flush", batch.size(), e);
+            batch.forEach(state -> dirty.putIfAbsent(state.id(), state));
+        }
+    }
+
+    private static String name(JsonNode names) {
+        var name = names.path(0).asText(null);
+        return name != null && name.startsWith("/") ? name.substring(1) : name;
+    }
+
+    /**
+     * Reads the health status from the human readable status of a listed
+     * container, such as {@code Up 2 minutes (healthy)}.
+     */
+    private static String health(String status) {
+        if (status.endsWith("(healthy)")) {
+            return "healthy";
+        }
+        if (status.endsWith("(unhealthy)")) {
+            return "unhealthy";
+        }
+        if (status.endsWith("(health: starting)")) {
+            return "starting";
+        }
+        return null;
+    }
+
+    void start(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        subscriber = Thread.ofPlatform().daemon().name("docker-events").start(this::subscribe);
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        running = false;
+        var in = stream;
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // the subscriber is exiting anyway
+            }
+        }
+        if (subscriber != null) {
+            subscriber.interrupt();
+        }
+        flusher.shutdown();
+    }
+}
@@ -0,0 +1,40 @@
+package br.dev.optimus.gaia.docker;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.ws.rs.ServerErrorException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Maps failed exchanges with the daemon to the exceptions the REST client
+ * would throw, whatever the transport.
+ */
+final class DockerErrors {
+
+    private DockerErrors() {
+    }
+
+    /**
+     * Builds the exception for an error response, carrying the daemon's
+     * status and message.
+     */
+    static WebApplicationException response(ObjectMapper mapper, int status, byte[] body) {
+        var message = "docker responded with " + status;
+        try {
+            var error = mapper.readTree(body);
+            if (error != null && error.hasNonNull("message")) {
+                message = error.get("message").asText();
+            }
+        } catch (IOException ignored) {
+            // keep the generic message
+        }
+        return new WebApplicationException(message, status);
+    }
+
+    static ServerErrorException unreachable(IOException e) {
+        return new ServerErrorException("docker daemon is unreachable: " + e.getMessage(), Response.Status.BAD_GATEWAY, e);
+    }
+}
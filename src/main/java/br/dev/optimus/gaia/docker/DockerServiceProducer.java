@@ -0,0 +1,56 @@
+package br.dev.optimus.gaia.docker;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import br.dev.optimus.gaia.service.DockerService;
+import br.dev.optimus.gaia.service.ReactiveDockerService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.Produces;
+
+/**
+ * Selects the {@link DockerService}, {@link ReactiveDockerService} and
+ * {@link DockerStreams} transport with {@code gaia.docker.transport}: {@code unix} for the daemon
+ * socket, or {@code tcp} for the daemon configured under
+ * {@code quarkus.rest-client.docker}.
+ */
+@ApplicationScoped
+public class DockerServiceProducer {
+
+    @Produces
+    @ApplicationScoped
+    DockerService dockerService(@ConfigProperty(name = "gaia.docker.transport", defaultValue = "unix") String transport,
+                                Instance<UnixSocketDockerService> unix,
+                                @RestClient Instance<DockerService> tcp) {
+        return switch (transport) {
+            case "unix" -> unix.get();
+            case "tcp" -> tcp.get();
+            default -> throw new IllegalStateException("gaia.docker.transport must be unix or tcp, not " + transport);
+        };
+    }
+
+    @Produces
+    @ApplicationScoped
+    ReactiveDockerService reactiveDockerService(@ConfigProperty(name = "gaia.docker.transport", defaultValue = "unix") String transport,
+                                                Instance<UnixSocketReactiveDockerService> unix,
+                                                @RestClient Instance<ReactiveDockerService> tcp) {
+        return switch (transport) {
+            case "unix" -> unix.get();
+            case "tcp" -> tcp.get();
+            default -> throw new IllegalStateException("gaia.docker.transport must be unix or tcp, not " + transport);
+        };
+    }
+
+    @Produces
+    @ApplicationScoped
+    DockerStreams dockerStreams(@ConfigProperty(name = "gaia.docker.transport", defaultValue = "unix") String transport,
+                                Instance<UnixSocketDockerStreams> unix,
+                                Instance<HttpDockerStreams> tcp) {
+        return switch (transport) {
+            case "unix" -> unix.get();
+            case "tcp" -> tcp.get();
+            default -> throw new IllegalStateException("gaia.docker.transport must be unix or tcp, not " + transport);
+        };
+    }
+}
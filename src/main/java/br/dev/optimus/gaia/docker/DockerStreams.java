@@ -0,0 +1,24 @@
+package br.dev.optimus.gaia.docker;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import jakarta.ws.rs.WebApplicationException;
+
+/**
+ * Opens Docker API responses that stream for a long time, such as
+ * {@code /events}, as blocking input streams to be read on a thread of their
+ * own.
+ */
+public interface DockerStreams {
+
+    /**
+     * Sends a GET request and returns the response body as it arrives.
+     *
+     * @param target the path and query
+     * @return the body, which the caller must close to end the request
+     * @throws IOException if the daemon cannot be reached
+     * @throws WebApplicationException if the daemon responds with an error
+     */
+    InputStream open(String target) throws IOException;
+}
@@ -0,0 +1,74 @@
+package br.dev.optimus.gaia.docker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Runs one asynchronous Docker call per item with at most
+ * {@code gaia.docker.concurrency} of them in flight, so that inspecting every
+ * container of an app or creating its replicas takes about as long as the
+ * slowest call rather than the sum of them, without flooding the daemon.
+ */
+@ApplicationScoped
+public class FanOut {
+
+    private record Indexed<R>(int index, R value) {
+    }
+
+    private final int concurrency;
+
+    public FanOut(@ConfigProperty(name = "gaia.docker.concurrency", defaultValue = "8") int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("gaia.docker.concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Calls the task for every item and collects the results.
+     *
+     * @param items the items
+     * @param task the call to make for an item
+     * @return the results, in the order of the items, or the first failure,
+     * in which case the calls still in flight are cancelled
+     */
+    public <T, R> Uni<List<R>> all(List<T> items, Function<? super T, Uni<R>> task) {
+        if (items.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return Multi.createFrom().range(0, items.size())
+                .onItem().transformToUni(index -> task.apply(items.get(index)).map(value -> new Indexed<>(index, value)))
+                .merge(concurrency)
+                .collect().asList()
+                .map(results -> {
+                    var ordered = new ArrayList<R>(Collections.nCopies(items.size(), null));
+                    results.forEach(result -> ordered.set(result.index(), result.value()));
+                    return ordered;
+                });
+    }
+
+    /**
+     * Calls the task for every item and emits the results as they complete.
+     *
+     * @param items the items
+     * @param task the call to make for an item
+     * @return the results, in completion order
+     */
+    public <T, R> Multi<R> stream(List<T> items, Function<? super T, Uni<R>> task) {
+        return Multi.createFrom().iterable(items)
+                .onItem().transformToUni(task::apply)
+                .merge(concurrency);
+    }
+
+    public int concurrency() {
+        return concurrency;
+    }
+}
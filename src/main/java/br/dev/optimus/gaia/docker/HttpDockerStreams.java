@@ -0,0 +1,54 @@
+package br.dev.optimus.gaia.docker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+
+/**
+ * {@link DockerStreams} over TCP, against the same daemon as the REST client
+ * configured under {@code quarkus.rest-client.docker}.
+ */
+@ApplicationScoped
+@Typed(HttpDockerStreams.class)
+public class HttpDockerStreams implements DockerStreams {
+
+    private final Optional<URI> url;
+    private final ObjectMapper mapper;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    public HttpDockerStreams(@ConfigProperty(name = "quarkus.rest-client.docker.url") Optional<URI> url, ObjectMapper mapper) {
+        this.url = url;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public InputStream open(String target) throws IOException {
+        var base = url.orElseThrow(() -> new IllegalStateException("quarkus.rest-client.docker.url is not set"));
+        var request = HttpRequest.newBuilder(base.resolve(target)).header("Accept", "application/json").GET().build();
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted opening " + target);
+        }
+        if (response.statusCode() >= 400) {
+            try (var body = response.body()) {
+                throw DockerErrors.response(mapper, response.statusCode(), body.readAllBytes());
+            }
+        }
+        return response.body();
+    }
+}
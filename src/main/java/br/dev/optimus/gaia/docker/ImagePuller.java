@@ -0,0 +1,161 @@
+package br.dev.optimus.gaia.docker;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import br.dev.optimus.gaia.service.ReactiveDockerService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.ServerErrorException;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Makes images available locally, pulling each at most once at a time.
+ *
+ * Concurrent requests for the same image reference share a single pull and
+ * inspect, and its result is then kept for {@code gaia.images.ttl}, so
+ * deploying many apps from the same image, or redeploying one, does not ask
+ * the daemon again until the entry expires. A moving tag such as
+ * {@code latest} is therefore only pulled again once that long has passed.
+ * Failures are not kept, and a pull is given up after
+ * {@code gaia.images.pull-timeout}.
+ *
+ * When a pull fails but the daemon already has the image, such as one built
+ * on the host, the local image is used.
+ */
+@ApplicationScoped
+public class ImagePuller {
+
+    /**
+     * The metadata of a local image.
+     *
+     * @param id the image ID
+     * @param digest the repository digest, or null for an image never pushed
+     * or pulled by digest
+     * @param size the size in bytes
+     * @param exposedPorts the ports the image exposes, such as {@code 80/tcp}
+     */
+    public record Image(String id, String digest, long size, List<String> exposedPorts) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ImagePuller.class);
+
+    private final ReactiveDockerService docker;
+    private final ObjectMapper mapper;
+    private final AsyncCache<String, Image> images;
+    private final Duration pullTimeout;
+    private final Counter pulls;
+
+    public ImagePuller(ReactiveDockerService docker, ObjectMapper mapper,
+                       @ConfigProperty(name = "gaia.images.ttl", defaultValue = "PT5M") Duration ttl,
+                       @ConfigProperty(name = "gaia.images.max-size", defaultValue = "1000") long maxSize,
+                       @ConfigProperty(name = "gaia.images.pull-timeout", defaultValue = "PT10M") Duration pullTimeout,
+                       MeterRegistry registry) {
+        this.docker = docker;
+        this.mapper = mapper;
+        this.pullTimeout = pullTimeout;
+        this.images = Caffeine.newBuilder().expireAfterWrite(ttl).maximumSize(maxSize).buildAsync();
+        this.pulls = registry.counter("gaia.images.pulls");
+        registry.gauge("gaia.images.cached", images, cache -> cache.synchronous().estimatedSize());
+    }
+
+    /**
+     * Pulls an image, unless it was pulled within the TTL or is being pulled
+     * already, in which case the result of that pull is shared.
+     *
+     * @param image the image reference, with an optional tag or digest
+     * @return the image metadata
+     */
+    public Uni<Image> pull(String image) {
+        // each caller gets its own copy, so one cancelling leaves the shared pull running
+        return Uni.createFrom().completionStage(() -> pulling(image).copy());
+    }
+
+    /**
+     * Retrieves the shared pull of an image, starting it if needed. A failed
+     * pull is only removed from the cache once its callers have been told,
+     * so one started earlier and still found there is replaced rather than
+     * failing again.
+     */
+    private CompletableFuture<Image> pulling(String image) {
+        var started = new boolean[1];
+        var pulling = images.get(image, (key, executor) -> {
+            started[0] = true;
+            return load(key);
+        });
+        if (!started[0] && pulling.isCompletedExceptionally()) {
+            images.asMap().remove(image, pulling);
+            pulling = images.get(image, (key, executor) -> load(key));
+        }
+        return pulling;
+    }
+
+    /**
+     * Drops the cached metadata of an image, so the next pull goes to the
+     * daemon.
+     */
+    public void invalidate(String image) {
+        images.synchronous().invalidate(image);
+    }
+
+    private CompletableFuture<Image> load(String image) {
+        pulls.increment();
+        var at = image.indexOf('@');
+        var colon = image.lastIndexOf(':');
+        var tagged = at < 0 && colon > image.lastIndexOf('/');
+        var reference = tagged ? image.substring(0, colon) : image;
+        var tag = at >= 0 ? null : tagged ? image.substring(colon + 1) : "latest";
+        return docker.pullImage(reference, tag)
+                .invoke(progress -> failed(image, progress))
+                .ifNoItem().after(pullTimeout).failWith(() -> new ServerErrorException(
+                        "pulling " + image + " took longer than " + pullTimeout.toSeconds() + "s", Response.Status.GATEWAY_TIMEOUT))
+                .chain(() -> docker.inspectImage(image))
+                .onFailure().recoverWithUni(e -> docker.inspectImage(image)
+                        .invoke(() -> log.info("could not pull {}, using the local image: {}", image, e.getMessage()))
+                        .onFailure().transform(ignored -> e))
+                .map(ImagePuller::image)
+                .subscribeAsCompletionStage();
+    }
+
+    /**
+     * Checks the pull progress, which reports a failed pull in the
+     * {@code error} member of its last line rather than in the status.
+     */
+    private void failed(String image, String progress) {
+        var lines = progress.strip().split("\n");
+        JsonNode last;
+        try {
+            last = mapper.readTree(lines[lines.length - 1]);
+        } catch (IOException e) {
+            throw new ServerErrorException("docker pull response is not valid JSON", Response.Status.BAD_GATEWAY, e);
+        }
+        if (last != null && last.hasNonNull("error")) {
+            throw new ServerErrorException("could not pull " + image + ": " + last.get("error").asText(),
+                    Response.Status.BAD_GATEWAY);
+        }
+    }
+
+    private static Image image(JsonNode inspected) {
+        var digests = inspected.path("RepoDigests");
+        var ports = new ArrayList<String>();
+        inspected.path("Config").path("ExposedPorts").fieldNames().forEachRemaining(ports::add);
+        return new Image(inspected.path("Id").asText(),
+                digests.isEmpty() ? null : digests.get(0).asText(),
+                inspected.path("Size").asLong(),
+                List.copyOf(ports));
+    }
+}
@@ -0,0 +1,212 @@
+package br.dev.optimus.gaia.docker;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.ws.rs.ServiceUnavailableException;
+
+/**
+ * Hands out the host ports of apps from {@code gaia.ports.first} to
+ * {@code gaia.ports.last}, so a deploy picks a port known to be free
+ * instead of guessing against the unique index on {@code apps.port}.
+ *
+ * The ports in use are only known to this instance: those of the live apps
+ * when it started, and those it reserved since. With several instances
+ * sharing the database, a port one of them allocates may have been taken by
+ * another in the meantime, which the unique index then rejects; see
+ * {@link #taken}. Such a port stays reserved here, as it is in use, until
+ * the next restart.
+ *
+ * The ports in use are one bit each in an {@link AtomicLongArray}, set and
+ * cleared with compare-and-set, so allocation never locks. The search starts
+ * at the word the last allocation came from, which keeps it constant time on
+ * average until the range is nearly full. The bits are rebuilt from the live
+ * apps at startup.
+ *
+ * A port is reserved when allocated or claimed. A deploy that fails cancels
+ * its reservation, freeing the port at once, while the port of a deleted app
+ * is only freed after {@code gaia.ports.cooldown}, so clients still pointing
+ * at it do not reach the next app right away.
+ */
+@ApplicationScoped
+public class PortAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(PortAllocator.class);
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String PORT_INDEX = "apps_port_live_idx";
+
+    private final AgroalDataSource dataSource;
+    private final int first;
+    private final int last;
+    private final Duration cooldown;
+    private final AtomicLongArray bits;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final AtomicInteger used = new AtomicInteger();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("port-allocator").factory());
+
+    public PortAllocator(AgroalDataSource dataSource,
+                         @ConfigProperty(name = "gaia.ports.first", defaultValue = "20000") int first,
+                         @ConfigProperty(name = "gaia.ports.last", defaultValue = "29999") int last,
+                         @ConfigProperty(name = "gaia.ports.cooldown", defaultValue = "PT5M") Duration cooldown,
+                         MeterRegistry registry) {
+        if (first < 1 || last > 65535 || first > last) {
+            throw new IllegalArgumentException("gaia.ports.first and gaia.ports.last must be a range within 1-65535");
+        }
+        this.dataSource = dataSource;
+        this.first = first;
+        this.last = last;
+        this.cooldown = cooldown;
+        this.bits = new AtomicLongArray((last - first) / Long.SIZE + 1);
+        registry.gauge("gaia.ports.used", used);
+    }
+
+    /**
+     * Reserves a free port.
+     *
+     * @return the port
+     * @throws ServiceUnavailableException if every port of the range is in
+     * use
+     */
+    public int allocate() {
+        var words = bits.length();
+        var start = cursor.get();
+        for (var i = 0; i < words; i++) {
+            var index = (start + i) % words;
+            while (true) {
+                var word = bits.get(index);
+                var free = ~word & mask(index);
+                if (free == 0) {
+                    break;
+                }
+                var bit = Long.numberOfTrailingZeros(free);
+                if (bits.compareAndSet(index, word, word | 1L << bit)) {
+                    cursor.set(index);
+                    used.incrementAndGet();
+                    return first + index * Long.SIZE + bit;
+                }
+            }
+        }
+        throw new ServiceUnavailableException("no free port between " + first + " and " + last);
+    }
+
+    /**
+     * Reserves a given port. Ports outside the range are not tracked and are
+     * always granted, leaving the unique index to reject duplicates.
+     *
+     * @return false if the port is in use
+     */
+    public boolean claim(int port) {
+        if (port < first || port > last) {
+            return true;
+        }
+        var index = (port - first) / Long.SIZE;
+        var bit = 1L << (port - first) % Long.SIZE;
+        while (true) {
+            var word = bits.get(index);
+            if ((word & bit) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(index, word, word | bit)) {
+                used.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees a reservation that was never used, such as the port of a failed
+     * deploy.
+     */
+    public void cancel(int port) {
+        clear(port);
+    }
+
+    /**
+     * Frees the port of a deleted app once the cooldown has passed.
+     */
+    public void release(int port) {
+        scheduler.schedule(() -> clear(port), cooldown.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void clear(int port) {
+        if (port < first || port > last) {
+            return;
+        }
+        var index = (port - first) / Long.SIZE;
+        var bit = 1L << (port - first) % Long.SIZE;
+        while (true) {
+            var word = bits.get(index);
+            if ((word & bit) == 0) {
+                return;
+            }
+            if (bits.compareAndSet(index, word, word & ~bit)) {
+                used.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells whether saving an app failed because its port is taken by another
+     * live app, one saved by another instance for an allocated port.
+     *
+     * @param failure the failure, or one caused by it
+     */
+    public static boolean taken(Throwable failure) {
+        for (var cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException e && UNIQUE_VIOLATION.equals(e.getSQLState())
+                    && String.valueOf(e.getMessage()).contains(PORT_INDEX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The bits of a word that stand for ports of the range; only the last
+     * word can be partial.
+     */
+    private long mask(int index) {
+        var ports = last - first + 1 - index * Long.SIZE;
+        return ports >= Long.SIZE ? -1L : (1L << ports) - 1;
+    }
+
+    /**
+     * Marks the ports of the live apps as used, keeping any reserved since.
+     */
+    void start(@Observes StartupEvent event) {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement("select port from apps where deleted_at = 0 and port between ? and ?")) {
+            statement.setInt(1, first);
+            statement.setInt(2, last);
+            try (var rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    claim(rows.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("could not load the ports in use", e);
+        }
+        log.info("{} of {} app ports in use", used.get(), last - first + 1);
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        scheduler.shutdownNow();
+    }
+}
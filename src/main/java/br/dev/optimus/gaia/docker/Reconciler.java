@@ -0,0 +1,400 @@
+package br.dev.optimus.gaia.docker;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.model.App;
+import br.dev.optimus.gaia.service.ReactiveDockerService;
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+/**
+ * Keeps the containers of every app matching the app.
+ *
+ * Every {@code gaia.reconcile.interval} the apps are read from the database
+ * in one query and their containers listed with one
+ * {@code /containers/json} call, filtered on the {@value AppDeployer#APP_LABEL}
+ * label. Comparing the two gives the fixes to make, which run at most
+ * {@code gaia.docker.concurrency} at a time:
+ * <ul>
+ * <li>a missing replica is created and started;</li>
+ * <li>a replica whose {@value AppDeployer#SPEC_LABEL} label no longer matches
+ * the image, port, environment and volumes of its app is recreated;</li>
+ * <li>a stopped replica is started;</li>
+ * <li>replicas beyond the app's count, duplicates, and the containers of
+ * deleted apps are removed.</li>
+ * </ul>
+ * Containers younger than {@code gaia.reconcile.grace} are left alone, so a
+ * deploy still in progress is not mistaken for leftovers. Apps whose
+ * containers changed get their container IDs updated.
+ *
+ * Only one instance reconciles at a time: the one holding the
+ * {@link #LOCK} PostgreSQL advisory lock, on a connection kept for as long
+ * as it leads. Should that connection drop, the lock is freed and another
+ * instance takes over on its next tick. As that connection comes from the
+ * pool, the lock is released before it goes back on shutdown.
+ */
+@ApplicationScoped
+public class Reconciler {
+
+    public static final long LOCK = 0x6761696172656331L;
+    private static final Logger log = LoggerFactory.getLogger(Reconciler.class);
+    private static final TypeReference<List<String>> STRINGS = new TypeReference<>() {
+    };
+    private static final TypeReference<List<HashMap<String, String>>> VOLUMES = new TypeReference<>() {
+    };
+
+    /**
+     * A fix to make.
+     *
+     * @param kind create, recreate, start or remove
+     * @param app the app, or null for the container of a deleted app
+     * @param index the replica to create or recreate
+     * @param container the container to recreate, start or remove
+     */
+    private record Action(String kind, App app, int index, String container) {
+    }
+
+    private final AgroalDataSource dataSource;
+    private final ReactiveDockerService docker;
+    private final FanOut fanOut;
+    private final AppContainers containers;
+    private final ObjectMapper mapper;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final Duration interval;
+    private final Duration grace;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("reconciler").factory());
+    private volatile Connection leader;
+
+    public Reconciler(AgroalDataSource dataSource, ReactiveDockerService docker, FanOut fanOut, AppContainers containers,
+                      ObjectMapper mapper, MeterRegistry registry,
+                      @ConfigProperty(name = "gaia.reconcile.enabled", defaultValue = "true") boolean enabled,
+                      @ConfigProperty(name = "gaia.reconcile.interval", defaultValue = "PT30S") Duration interval,
+                      @ConfigProperty(name = "gaia.reconcile.grace", defaultValue = "PT2M") Duration grace) {
+        this.dataSource = dataSource;
+        this.docker = docker;
+        this.fanOut = fanOut;
+        this.containers = containers;
+        this.mapper = mapper;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.grace = grace;
+        registry.gauge("gaia.reconcile.leader", this, reconciler -> reconciler.leader != null ? 1 : 0);
+    }
+
+    private void tick() {
+        try {
+            if (lead()) {
+                reconcile();
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.warn("reconciliation failed", e);
+        }
+    }
+
+    /**
+     * Takes the advisory lock if no instance holds it, or checks that the
+     * connection holding it is still up.
+     *
+     * @return whether this instance leads
+     */
+    private boolean lead() throws SQLException {
+        if (leader != null) {
+            if (leader.isValid(5)) {
+                return true;
+            }
+            log.warn("lost the reconciliation lock with its connection");
+            resign();
+        }
+        var connection = dataSource.getConnection();
+        try (var statement = connection.prepareStatement("select pg_try_advisory_lock(?)")) {
+            statement.setLong(1, LOCK);
+            try (var rows = statement.executeQuery()) {
+                if (rows.next() && rows.getBoolean(1)) {
+                    log.info("took the reconciliation lock");
+                    leader = connection;
+                    return true;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        connection.close();
+        return false;
+    }
+
+    /**
+     * Gives up the lead. The connection goes back to the pool with its
+     * session, and the lock, still open, so the lock is released first. If
+     * that fails the connection is aborted, which keeps the pool from handing
+     * it out again and ends the session.
+     */
+    private void resign() {
+        var connection = leader;
+        leader = null;
+        try {
+            try (var statement = connection.prepareStatement("select pg_advisory_unlock(?)")) {
+                statement.setLong(1, LOCK);
+                try (var rows = statement.executeQuery()) {
+                    if (rows.next() && rows.getBoolean(1)) {
+                        log.info("released the reconciliation lock");
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                log.warn("could not release the reconciliation lock, dropping its connection", e);
+                abort(connection);
+            }
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.debug("could not close the reconciliation connection", e);
+            }
+        }
+    }
+
+    private static void abort(Connection connection) {
+        try {
+            connection.abort(Runnable::run);
+        } catch (SQLException e) {
+            log.debug("could not abort the reconciliation connection", e);
+        }
+    }
+
+    private void reconcile() throws SQLException {
+        var apps = desired();
+        var actual = docker.listContainers(true, "{\"label\":[\"" + AppDeployer.APP_LABEL + "\"]}")
+                .await().atMost(interval);
+        var cutoff = Instant.now().minus(grace).getEpochSecond();
+        var byApp = new HashMap<String, List<JsonNode>>();
+        for (var container : actual) {
+            byApp.computeIfAbsent(container.path("Labels").path(AppDeployer.APP_LABEL).asText(), name -> new ArrayList<>())
+                    .add(container);
+        }
+        var actions = new ArrayList<Action>();
+        for (var app : apps.values()) {
+            diff(app, byApp.getOrDefault(app.getName(), List.of()), cutoff, actions);
+        }
+        byApp.forEach((name, orphans) -> {
+            if (!apps.containsKey(name)) {
+                orphans.stream()
+                        .filter(container -> container.path("Created").asLong() < cutoff)
+                        .forEach(container -> actions.add(new Action("remove", null, -1, container.path("Id").asText())));
+            }
+        });
+        if (actions.isEmpty()) {
+            return;
+        }
+        var results = fanOut.all(actions, this::apply).await().indefinitely();
+        var changed = new TreeMap<UUID, App>();
+        for (var i = 0; i < actions.size(); i++) {
+            var action = actions.get(i);
+            if (action.app() != null && !action.kind().equals("start") && results.get(i) != null) {
+                changed.put(action.app().getId(), action.app());
+            }
+        }
+        if (!changed.isEmpty()) {
+            update(changed.values());
+        }
+        log.info("reconciled {} containers of {} apps", actions.size(), changed.size());
+    }
+
+    /**
+     * Reads the live apps in one query.
+     */
+    private Map<String, App> desired() throws SQLException {
+        var apps = new HashMap<String, App>();
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(
+                     "select id, name, port, container_port, image, replicas, environments, volumes from apps where deleted_at = 0");
+             var rows = statement.executeQuery()) {
+            while (rows.next()) {
+                var app = App.builder()
+                        .name(rows.getString("name"))
+                        .port(rows.getInt("port"))
+                        .containerPort(rows.getInt("container_port"))
+                        .image(rows.getString("image"))
+                        .replicas(Math.max(rows.getInt("replicas"), 1))
+                        .environments(json(rows.getString("environments"), STRINGS))
+                        .volumes(json(rows.getString("volumes"), VOLUMES))
+                        .build();
+                app.setId(rows.getObject("id", UUID.class));
+                apps.put(app.getName(), app);
+            }
+        }
+        return apps;
+    }
+
+    private <T> T json(String value, TypeReference<T> type) {
+        try {
+            return value == null ? null : mapper.readValue(value, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("malformed app column: " + value, e);
+        }
+    }
+
+    /**
+     * Adds the fixes making the containers of an app match it.
+     */
+    private void diff(App app, List<JsonNode> actual, long cutoff, List<Action> actions) {
+        var spec = AppDeployer.spec(app);
+        var replicas = new HashMap<Integer, JsonNode>();
+        // newest first, so the replica kept among duplicates is the latest one
+        for (var container : newestFirst(actual)) {
+            var id = container.path("Id").asText();
+            var index = container.path("Labels").path(AppDeployer.REPLICA_LABEL).asInt(-1);
+            if (container.path("Created").asLong() >= cutoff) {
+                replicas.putIfAbsent(index, container);
+            } else if (index < 0 || index >= app.getReplicas() || replicas.putIfAbsent(index, container) != null) {
+                actions.add(new Action("remove", app, index, id));
+            }
+        }
+        for (var index = 0; index < app.getReplicas(); index++) {
+            var container = replicas.get(index);
+            if (container == null) {
+                actions.add(new Action("create", app, index, null));
+                continue;
+            }
+            if (container.path("Created").asLong() >= cutoff) {
+                continue;
+            }
+            var id = container.path("Id").asText();
+            var labels = container.path("Labels");
+            var matches = labels.has(AppDeployer.SPEC_LABEL)
+                    ? labels.path(AppDeployer.SPEC_LABEL).asText().equals(spec)
+                    : container.path("Image").asText().equals(app.getImage());
+            if (!matches) {
+                actions.add(new Action("recreate", app, index, id));
+            } else if (!container.path("State").asText().equals("running")) {
+                actions.add(new Action("start", app, index, id));
+            }
+        }
+    }
+
+    private static List<JsonNode> newestFirst(Iterable<JsonNode> containers) {
+        var sorted = new ArrayList<JsonNode>();
+        containers.forEach(sorted::add);
+        sorted.sort(Comparator.comparingLong((JsonNode container) -> container.path("Created").asLong()).reversed());
+        return sorted;
+    }
+
+    /**
+     * Makes one fix.
+     *
+     * @return the container created, started or removed, or null if the fix
+     * failed
+     */
+    private Uni<String> apply(Action action) {
+        var result = switch (action.kind()) {
+            case "create" -> create(action.app(), action.index());
+            case "recreate" -> docker.removeContainer(action.container(), true)
+                    .chain(() -> create(action.app(), action.index()));
+            case "start" -> docker.startContainer(action.container()).replaceWith(action.container());
+            default -> docker.removeContainer(action.container(), true).replaceWith(action.container());
+        };
+        return result
+                .invoke(() -> registry.counter("gaia.reconcile.actions", "action", action.kind()).increment())
+                .onFailure().recoverWithItem(e -> {
+                    log.warn("could not {} {}", action.kind(), action.container() != null
+                            ? action.container()
+                            : AppDeployer.containerName(action.app(), action.index()), e);
+                    return null;
+                });
+    }
+
+    private Uni<String> create(App app, int index) {
+        return docker.createContainer(AppDeployer.containerName(app, index), AppDeployer.request(app, index))
+                .call(created -> docker.startContainer(created.id()))
+                .map(created -> created.id());
+    }
+
+    /**
+     * Stores the container IDs of the apps whose containers changed, listing
+     * them again to pick up the new ones.
+     */
+    private void update(Iterable<App> apps) throws SQLException {
+        var actual = newestFirst(docker.listContainers(true, "{\"label\":[\"" + AppDeployer.APP_LABEL + "\"]}")
+                .await().atMost(interval));
+        var now = Instant.now().getEpochSecond();
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(
+                     "update apps set container = ?, containers = ?::jsonb, updated_at = ? where id = ? and deleted_at = 0")) {
+            for (var app : apps) {
+                var ids = new String[app.getReplicas()];
+                for (var container : actual) {
+                    var labels = container.path("Labels");
+                    var index = labels.path(AppDeployer.REPLICA_LABEL).asInt(-1);
+                    if (labels.path(AppDeployer.APP_LABEL).asText().equals(app.getName()) && index >= 0 && index < ids.length
+                            && ids[index] == null) {
+                        ids[index] = container.path("Id").asText();
+                    }
+                }
+                var list = Arrays.stream(ids).filter(Objects::nonNull).toList();
+                if (list.isEmpty()) {
+                    continue;
+                }
+                statement.setString(1, list.getFirst());
+                statement.setString(2, mapper.writeValueAsString(list));
+                statement.setLong(3, now);
+                statement.setObject(4, app.getId());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        containers.refresh();
+    }
+
+    void start(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::tick, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        scheduler.shutdownNow();
+        try {
+            // let a tick holding the connection finish before resigning with it
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (leader != null) {
+            resign();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package br.dev.optimus.gaia.docker;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.request.DockerRequest;
+import br.dev.optimus.gaia.response.DockerResponse;
+import br.dev.optimus.gaia.service.DockerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import jakarta.ws.rs.ServerErrorException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * {@link DockerService} talking to the daemon over its Unix domain socket
+ * through a pool of keep-alive connections, so the API does not need to be
+ * exposed over TCP.
+ *
+ * Error responses surface as {@link WebApplicationException}s carrying the
+ * daemon's status and message, as with the REST client. A daemon that
+ * cannot be reached surfaces as a 502.
+ */
+@ApplicationScoped
+@Typed(UnixSocketDockerService.class)
+public class UnixSocketDockerService implements DockerService {
+
+    private final UnixSocketHttpClient client;
+    private final ObjectMapper mapper;
+
+    public UnixSocketDockerService(@ConfigProperty(name = "gaia.docker.socket", defaultValue = "/var/run/docker.sock") Path socket,
+                                   @ConfigProperty(name = "gaia.docker.pool.max-size", defaultValue = "16") int maxSize,
+                                   @ConfigProperty(name = "gaia.docker.pool.acquire-timeout", defaultValue = "PT5S") Duration acquireTimeout,
+                                   @ConfigProperty(name = "gaia.docker.pool.idle-timeout", defaultValue = "PT30S") Duration idleTimeout,
+                                   MeterRegistry registry,
+                                   ObjectMapper mapper) {
+        this.client = new UnixSocketHttpClient(socket, maxSize, acquireTimeout, idleTimeout, registry);
+        this.mapper = mapper;
+    }
+
+    @Override
+    public JsonNode getInfo() {
+        return read(body(send(UnixSocketHttpClient.Request.get("/info"))), JsonNode.class);
+    }
+
+    @Override
+    public DockerResponse.ContainerCreate createContainer(String name, DockerRequest.ContainerCreate request) {
+        var target = "/containers/create";
+        if (name != null) {
+            target += "?name=" + URLEncoder.encode(name, StandardCharsets.UTF_8);
+        }
+        var response = send(UnixSocketHttpClient.Request.post(target, json(request)));
+        return read(body(response), DockerResponse.ContainerCreate.class);
+    }
+
+    @Override
+    public JsonNode listContainers(boolean all, String filters) {
+        var target = "/containers/json?all=" + all;
+        if (filters != null) {
+            target += "&filters=" + URLEncoder.encode(filters, StandardCharsets.UTF_8);
+        }
+        return read(body(send(UnixSocketHttpClient.Request.get(target))), JsonNode.class);
+    }
+
+    @Override
+    public JsonNode inspectContainer(String id) {
+        return read(body(send(UnixSocketHttpClient.Request.get("/containers/" + segment(id) + "/json"))), JsonNode.class);
+    }
+
+    @Override
+    public void startContainer(String id) {
+        body(send(UnixSocketHttpClient.Request.post("/containers/" + segment(id) + "/start", new byte[0])));
+    }
+
+    @Override
+    public void removeContainer(String id, boolean force) {
+        body(send(UnixSocketHttpClient.Request.delete("/containers/" + segment(id) + "?force=" + force)));
+    }
+
+    @Override
+    public String pullImage(String image, String tag) {
+        var target = "/images/create?fromImage=" + URLEncoder.encode(image, StandardCharsets.UTF_8);
+        if (tag != null) {
+            target += "&tag=" + URLEncoder.encode(tag, StandardCharsets.UTF_8);
+        }
+        return new String(body(send(UnixSocketHttpClient.Request.post(target, new byte[0]))), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public JsonNode inspectImage(String name) {
+        return read(body(send(UnixSocketHttpClient.Request.get("/images/" + segment(name) + "/json"))), JsonNode.class);
+    }
+
+    static String segment(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    UnixSocketHttpClient client() {
+        return client;
+    }
+
+    UnixSocketHttpClient.Response send(UnixSocketHttpClient.Request request) {
+        try {
+            return client.send(request);
+        } catch (IOException e) {
+            throw DockerErrors.unreachable(e);
+        }
+    }
+
+    byte[] body(UnixSocketHttpClient.Response response) {
+        if (response.status() >= 400) {
+            throw DockerErrors.response(mapper, response.status(), response.body());
+        }
+        return response.body();
+    }
+
+    <T> T read(byte[] body, Class<T> type) {
+        try {
+            return mapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new ServerErrorException("docker response is not valid JSON", Response.Status.BAD_GATEWAY, e);
+        }
+    }
+
+    private byte[] json(Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        client.close();
+    }
+}
@@ -0,0 +1,37 @@
+package br.dev.optimus.gaia.docker;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+
+/**
+ * {@link DockerStreams} over the daemon's Unix domain socket. Each stream
+ * gets a connection of its own, so it does not take one from the pool.
+ */
+@ApplicationScoped
+@Typed(UnixSocketDockerStreams.class)
+public class UnixSocketDockerStreams implements DockerStreams {
+
+    private final UnixSocketDockerService docker;
+    private final ObjectMapper mapper;
+
+    public UnixSocketDockerStreams(UnixSocketDockerService docker, ObjectMapper mapper) {
+        this.docker = docker;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public InputStream open(String target) throws IOException {
+        var stream = docker.client().open(UnixSocketHttpClient.Request.get(target));
+        if (stream.status() >= 400) {
+            try (stream) {
+                throw DockerErrors.response(mapper, stream.status(), stream.body().readAllBytes());
+            }
+        }
+        return stream.body();
+    }
+}
@@ -0,0 +1,541 @@
+package br.dev.optimus.gaia.docker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.ws.rs.ServiceUnavailableException;
+
+/**
+ * Minimal HTTP/1.1 client over a Unix domain socket with a pool of
+ * keep-alive connections.
+ *
+ * At most {@code maxSize} connections are open at once; callers wait up to
+ * {@code acquireTimeout} for one and get a 503 after that. Idle connections
+ * are reused most recently used first and closed once idle for longer than
+ * {@code idleTimeout}. A request failing on a reused connection before any
+ * response byte arrives is retried once on a new connection when it is safe
+ * to repeat, since the daemon may have closed the idle connection.
+ *
+ * Interrupting the calling thread closes the connection in use, as the
+ * socket channel is interruptible, and fails the exchange without a retry.
+ *
+ * Safe requests can also be pipelined: written back to back on a single
+ * connection and their responses read in order. Long-lived streaming
+ * responses get a connection of their own outside the pool.
+ */
+public class UnixSocketHttpClient implements AutoCloseable {
+
+    /**
+     * A request. The body, when present, is sent as JSON.
+     *
+     * @param method the HTTP method
+     * @param target the path and query
+     * @param body the request body, or null
+     */
+    public record Request(String method, String target, byte[] body) {
+
+        public static Request get(String target) {
+            return new Request("GET", target, null);
+        }
+
+        public static Request post(String target, byte[] body) {
+            return new Request("POST", target, body);
+        }
+
+        public static Request delete(String target) {
+            return new Request("DELETE", target, null);
+        }
+
+        boolean safe() {
+            return "GET".equals(method) || "HEAD".equals(method);
+        }
+    }
+
+    /**
+     * A response.
+     *
+     * @param status the status code
+     * @param headers the headers, with lower cased names
+     * @param body the body, empty when there is none
+     */
+    public record Response(int status, Map<String, String> headers, byte[] body) {
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final InputStream in;
+        final OutputStream out;
+        long idleSince;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = new BufferedInputStream(Channels.newInputStream(channel), 8192);
+            this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 8192);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+
+    private final UnixDomainSocketAddress address;
+    private final Duration acquireTimeout;
+    private final long idleTimeoutNanos;
+    private final Semaphore permits;
+    private final ArrayDeque<Connection> idle = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicInteger open = new AtomicInteger();
+    private final Counter opened;
+    private final Counter reused;
+    private final Counter retried;
+    private final Timer timer;
+
+    public UnixSocketHttpClient(Path socket, int maxSize, Duration acquireTimeout, Duration idleTimeout,
+                                MeterRegistry registry) {
+        this.address = UnixDomainSocketAddress.of(socket);
+        this.acquireTimeout = acquireTimeout;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.permits = new Semaphore(maxSize, true);
+        this.opened = Counter.builder("gaia.docker.pool.opened").description("connections opened to the daemon").register(registry);
+        this.reused = Counter.builder("gaia.docker.pool.reused").description("requests served on a pooled connection").register(registry);
+        this.retried = Counter.builder("gaia.docker.pool.retried").description("requests retried after a stale connection").register(registry);
+        this.timer = Timer.builder("gaia.docker.request").description("Docker API request latency").register(registry);
+        registry.gauge("gaia.docker.pool.open", open);
+        registry.gauge("gaia.docker.pool.idle", this, client -> client.idleCount());
+        registry.gauge("gaia.docker.pool.waiting", permits, Semaphore::getQueueLength);
+    }
+
+    /**
+     * Sends a request and reads the whole response.
+     *
+     * @param request the request
+     * @return the response
+     * @throws IOException if the daemon cannot be reached or the exchange
+     * fails
+     * @throws ServiceUnavailableException if no connection frees up in time
+     */
+    public Response send(Request request) throws IOException {
+        return pipeline(List.of(request)).getFirst();
+    }
+
+    /**
+     * Sends requests on a single connection without waiting for each
+     * response, then reads the responses in order. Only safe methods may be
+     * pipelined; a single unsafe request is sent on its own.
+     *
+     * @param requests the requests
+     * @return the responses, in the order of the requests
+     * @throws IllegalArgumentException if several requests are given and one
+     * of them is not safe
+     * @throws IOException if the daemon cannot be reached or the exchange
+     * fails
+     * @throws ServiceUnavailableException if no connection frees up in time
+     */
+    public List<Response> pipeline(List<Request> requests) throws IOException {
+        if (requests.size() > 1 && !requests.stream().allMatch(Request::safe)) {
+            throw new IllegalArgumentException("only GET and HEAD requests can be pipelined");
+        }
+        acquire();
+        var sample = Timer.start();
+        try {
+            var connection = pooled();
+            if (connection != null) {
+                reused.increment();
+                try {
+                    return exchange(connection, requests);
+                } catch (StaleConnectionException e) {
+                    discard(connection);
+                    if (!requests.stream().allMatch(Request::safe) || Thread.currentThread().isInterrupted()) {
+                        throw e.getCause();
+                    }
+                    retried.increment();
+                }
+            }
+            connection = connect();
+            try {
+                return exchange(connection, requests);
+            } catch (StaleConnectionException e) {
+                discard(connection);
+                throw e.getCause();
+            }
+        } finally {
+            sample.stop(timer);
+            permits.release();
+        }
+    }
+
+    /**
+     * Sends a request on a connection of its own and returns once the
+     * response head is read, leaving the body to be consumed as it arrives.
+     * Meant for responses that stream for a long time, such as events or
+     * logs, which would otherwise hold a pooled connection. The connection is
+     * closed with the stream.
+     *
+     * @param request the request
+     * @return the open response
+     * @throws IOException if the daemon cannot be reached or the exchange
+     * fails
+     */
+    public Stream open(Request request) throws IOException {
+        var connection = connect();
+        try {
+            write(connection.out, request);
+            connection.out.flush();
+            var head = head(connection.in);
+            InputStream body;
+            if (!hasBody(request, head.status())) {
+                body = InputStream.nullInputStream();
+            } else if (isChunked(head.headers())) {
+                body = new ChunkedInputStream(connection.in);
+            } else if (head.headers().containsKey("content-length")) {
+                body = new ByteArrayInputStream(connection.in.readNBytes(Integer.parseInt(head.headers().get("content-length"))));
+            } else {
+                body = connection.in;
+            }
+            return new Stream(connection, head, body);
+        } catch (IOException | RuntimeException e) {
+            discard(connection);
+            throw e;
+        }
+    }
+
+    private List<Response> exchange(Connection connection, List<Request> requests) throws IOException {
+        var responses = new ArrayList<Response>(requests.size());
+        var keepAlive = true;
+        try {
+            try {
+                for (var request : requests) {
+                    write(connection.out, request);
+                }
+                connection.out.flush();
+                connection.in.mark(1);
+                if (connection.in.read() == -1) {
+                    throw new EOFException("connection closed by the daemon");
+                }
+                connection.in.reset();
+            } catch (IOException e) {
+                throw new StaleConnectionException(e);
+            }
+            for (var request : requests) {
+                var response = read(connection.in, request);
+                var framed = !hasBody(request, response.status()) || isChunked(response.headers())
+                        || response.headers().containsKey("content-length");
+                keepAlive &= framed && !"close".equalsIgnoreCase(response.headers().get("connection"));
+                responses.add(response);
+            }
+        } catch (StaleConnectionException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            discard(connection);
+            throw e;
+        }
+        if (keepAlive) {
+            release(connection);
+        } else {
+            discard(connection);
+        }
+        return responses;
+    }
+
+    private static void write(OutputStream out, Request request) throws IOException {
+        var head = new StringBuilder()
+                .append(request.method()).append(' ').append(request.target()).append(" HTTP/1.1\r\n")
+                .append("Host: docker\r\n")
+                .append("Accept: application/json\r\n");
+        if (request.body() != null) {
+            head.append("Content-Type: application/json\r\n")
+                    .append("Content-Length: ").append(request.body().length).append("\r\n");
+        }
+        head.append("\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+        if (request.body() != null) {
+            out.write(request.body());
+        }
+    }
+
+    private static Response read(InputStream in, Request request) throws IOException {
+        var head = head(in);
+        byte[] body;
+        if (!hasBody(request, head.status())) {
+            body = new byte[0];
+        } else if (isChunked(head.headers())) {
+            body = new ChunkedInputStream(in).readAllBytes();
+        } else if (head.headers().containsKey("content-length")) {
+            body = in.readNBytes(Integer.parseInt(head.headers().get("content-length")));
+        } else {
+            body = in.readAllBytes();
+        }
+        return new Response(head.status(), head.headers(), body);
+    }
+
+    private static Head head(InputStream in) throws IOException {
+        var statusLine = line(in);
+        var parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/1.")) {
+            throw new IOException("malformed status line: " + statusLine);
+        }
+        var status = Integer.parseInt(parts[1]);
+        var headers = new HashMap<String, String>();
+        String line;
+        while (!(line = line(in)).isEmpty()) {
+            var colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).strip().toLowerCase(Locale.ROOT), line.substring(colon + 1).strip());
+            }
+        }
+        if (status / 100 == 1) {
+            return head(in);
+        }
+        return new Head(status, headers);
+    }
+
+    private static boolean hasBody(Request request, int status) {
+        return !"HEAD".equals(request.method()) && status != 204 && status != 304;
+    }
+
+    private static boolean isChunked(Map<String, String> headers) {
+        var encoding = headers.get("transfer-encoding");
+        return encoding != null && encoding.toLowerCase(Locale.ROOT).endsWith("chunked");
+    }
+
+    private static String line(InputStream in) throws IOException {
+        var line = new ByteArrayOutputStream(64);
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                var bytes = line.toByteArray();
+                var length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+            }
+            line.write(c);
+        }
+        throw new EOFException("connection closed mid response");
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new ServiceUnavailableException("docker connection pool exhausted");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("interrupted waiting for a docker connection");
+        }
+    }
+
+    private Connection pooled() {
+        var now = System.nanoTime();
+        var expired = new ArrayList<Connection>();
+        Connection connection = null;
+        lock.lock();
+        try {
+            while (!idle.isEmpty()) {
+                var candidate = idle.pollFirst();
+                if (now - candidate.idleSince > idleTimeoutNanos) {
+                    expired.add(candidate);
+                } else {
+                    connection = candidate;
+                    break;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        expired.forEach(this::discard);
+        return connection;
+    }
+
+    private Connection connect() throws IOException {
+        var channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(address);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        opened.increment();
+        open.incrementAndGet();
+        return new Connection(channel);
+    }
+
+    private void release(Connection connection) {
+        connection.idleSince = System.nanoTime();
+        lock.lock();
+        try {
+            idle.addFirst(connection);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void discard(Connection connection) {
+        connection.close();
+        open.decrementAndGet();
+    }
+
+    private int idleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            idle.forEach(this::discard);
+            idle.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A response whose body is read as it arrives. Closing the body closes
+     * the stream.
+     */
+    public final class Stream implements AutoCloseable {
+
+        private final Connection connection;
+        private final Head head;
+        private final InputStream body;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Stream(Connection connection, Head head, InputStream body) {
+            this.connection = connection;
+            this.head = head;
+            this.body = new FilterInputStream(body) {
+                @Override
+                public void close() {
+                    Stream.this.close();
+                }
+            };
+        }
+
+        public int status() {
+            return head.status();
+        }
+
+        public Map<String, String> headers() {
+            return head.headers();
+        }
+
+        public InputStream body() {
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                discard(connection);
+            }
+        }
+    }
+
+    private record Head(int status, Map<String, String> headers) {
+    }
+
+    /**
+     * Decodes a chunked body as it is read, ending at the last chunk.
+     */
+    private static final class ChunkedInputStream extends InputStream {
+
+        private final InputStream in;
+        private int remaining;
+        private boolean done;
+
+        ChunkedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (done || remaining == 0 && !next()) {
+                return -1;
+            }
+            var read = in.read(buffer, offset, Math.min(length, remaining));
+            if (read == -1) {
+                throw new EOFException("connection closed mid chunk");
+            }
+            remaining -= read;
+            if (remaining == 0 && !line(in).isEmpty()) {
+                throw new IOException("malformed chunk");
+            }
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return done ? 0 : Math.min(remaining, in.available());
+        }
+
+        private boolean next() throws IOException {
+            var size = line(in);
+            var extension = size.indexOf(';');
+            remaining = Integer.parseInt((extension < 0 ? size : size.substring(0, extension)).strip(), 16);
+            if (remaining == 0) {
+                while (!line(in).isEmpty()) {
+                    // trailers are ignored
+                }
+                done = true;
+            }
+            return !done;
+        }
+    }
+
+    private static final class StaleConnectionException extends IOException {
+
+        StaleConnectionException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
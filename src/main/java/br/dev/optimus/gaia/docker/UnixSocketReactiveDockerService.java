@@ -0,0 +1,106 @@
+package br.dev.optimus.gaia.docker;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import br.dev.optimus.gaia.request.DockerRequest;
+import br.dev.optimus.gaia.response.DockerResponse;
+import br.dev.optimus.gaia.service.ReactiveDockerService;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+
+/**
+ * {@link ReactiveDockerService} over the daemon's Unix domain socket.
+ *
+ * Each call runs the pooled blocking exchange of
+ * {@link UnixSocketDockerService} on its own virtual thread, so the caller's
+ * thread is never held and concurrent calls are bounded only by the
+ * connection pool. Errors are the same as the blocking service's.
+ *
+ * Cancelling a call interrupts its thread, which closes the connection it
+ * is using, so the exchange is aborted rather than left to finish unseen and
+ * the connection never goes back to the pool half read.
+ */
+@ApplicationScoped
+@Typed(UnixSocketReactiveDockerService.class)
+public class UnixSocketReactiveDockerService implements ReactiveDockerService {
+
+    private final UnixSocketDockerService docker;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public UnixSocketReactiveDockerService(UnixSocketDockerService docker) {
+        this.docker = docker;
+    }
+
+    @Override
+    public Uni<JsonNode> getInfo() {
+        return call(docker::getInfo);
+    }
+
+    @Override
+    public Uni<DockerResponse.ContainerCreate> createContainer(String name, DockerRequest.ContainerCreate request) {
+        return call(() -> docker.createContainer(name, request));
+    }
+
+    @Override
+    public Uni<JsonNode> listContainers(boolean all, String filters) {
+        return call(() -> docker.listContainers(all, filters));
+    }
+
+    @Override
+    public Uni<JsonNode> inspectContainer(String id) {
+        return call(() -> docker.inspectContainer(id));
+    }
+
+    @Override
+    public Uni<Void> startContainer(String id) {
+        return call(() -> {
+            docker.startContainer(id);
+            return null;
+        });
+    }
+
+    @Override
+    public Uni<Void> removeContainer(String id, boolean force) {
+        return call(() -> {
+            docker.removeContainer(id, force);
+            return null;
+        });
+    }
+
+    @Override
+    public Uni<String> pullImage(String image, String tag) {
+        return call(() -> docker.pullImage(image, tag));
+    }
+
+    @Override
+    public Uni<JsonNode> inspectImage(String name) {
+        return call(() -> docker.inspectImage(name));
+    }
+
+    private <T> Uni<T> call(Supplier<T> exchange) {
+        return Uni.createFrom().deferred(() -> {
+            var result = new CompletableFuture<T>();
+            var task = executor.submit(() -> {
+                try {
+                    result.complete(exchange.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            return Uni.createFrom().completionStage(result)
+                    .onCancellation().invoke(() -> task.cancel(true));
+        });
+    }
+
+    @PreDestroy
+    void close() {
+        executor.shutdownNow();
+    }
+}
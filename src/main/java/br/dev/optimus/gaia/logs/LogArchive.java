@@ -0,0 +1,259 @@
+package br.dev.optimus.gaia.logs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The archived output of one container: a directory of {@link LogSegment}s
+ * named after their first timestamp.
+ *
+ * Records are gathered in a block until it reaches {@code blockBytes} or is
+ * flushed, then deflated and appended to the newest segment, which is sealed
+ * once it grows past {@code segmentBytes}. Output becomes searchable when its
+ * block is written.
+ *
+ * Writers take a {@link ReentrantLock} rather than the monitor, as they
+ * deflate and write to disk holding it, and run on virtual threads. Reads
+ * take no lock: a segment deleted by {@link #retain} before a read maps it
+ * is skipped, and one mapped already stays readable until the read ends.
+ */
+final class LogArchive {
+
+    private static final int RECORD_HEADER = Long.BYTES + 1 + Integer.BYTES;
+
+    private final Path dir;
+    private final int blockBytes;
+    private final long segmentBytes;
+    private final List<LogSegment> segments = new CopyOnWriteArrayList<>();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final ReentrantLock lock = new ReentrantLock();
+    private LogSegment active;
+    private byte[] block;
+    private byte[] compressed;
+    private int length;
+    private long blockFirst;
+    private long blockLast;
+    private volatile long lastTimestamp;
+
+    private LogArchive(Path dir, int blockBytes, long segmentBytes) {
+        this.dir = dir;
+        this.blockBytes = blockBytes;
+        this.segmentBytes = segmentBytes;
+        this.block = new byte[blockBytes];
+        this.compressed = new byte[blockBytes];
+    }
+
+    /**
+     * Opens the archive in a directory, creating it if needed. Existing
+     * segments are only read; new output goes to a new segment.
+     */
+    static LogArchive open(Path dir, int blockBytes, long segmentBytes) throws IOException {
+        Files.createDirectories(dir);
+        var archive = new LogArchive(dir, blockBytes, segmentBytes);
+        try (var files = Files.list(dir)) {
+            var paths = files.filter(path -> path.getFileName().toString().endsWith(LogSegment.SUFFIX))
+                    .sorted(Comparator.comparing(Path::getFileName))
+                    .toList();
+            for (var path : paths) {
+                archive.segments.add(LogSegment.open(path));
+            }
+        }
+        if (!archive.segments.isEmpty()) {
+            archive.lastTimestamp = archive.segments.getLast().lastTimestamp();
+        }
+        return archive;
+    }
+
+    /**
+     * The timestamp of the latest record, written or not, or 0 if there is
+     * none.
+     */
+    long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    void append(long time, int stream, byte[] data, int offset, int count) throws IOException {
+        lock.lock();
+        try {
+            var needed = RECORD_HEADER + count;
+            if (length > 0 && length + needed > blockBytes) {
+                flush();
+            }
+            if (length + needed > block.length) {
+                block = Arrays.copyOf(block, length + needed);
+            }
+            ByteBuffer.wrap(block, length, RECORD_HEADER).putLong(time).put((byte) stream).putInt(count);
+            System.arraycopy(data, offset, block, length + RECORD_HEADER, count);
+            if (length == 0) {
+                blockFirst = time;
+            }
+            blockLast = Math.max(blockLast, time);
+            lastTimestamp = Math.max(lastTimestamp, time);
+            length += needed;
+            if (length >= blockBytes) {
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Compresses and writes the pending records, if any.
+     */
+    void flush() throws IOException {
+        lock.lock();
+        try {
+            if (length == 0) {
+                return;
+            }
+            if (active == null || active.size() >= segmentBytes) {
+                if (active != null) {
+                    active.seal();
+                }
+                active = LogSegment.create(dir, blockFirst);
+                segments.add(active);
+            }
+            deflater.reset();
+            deflater.setInput(block, 0, length);
+            deflater.finish();
+            var size = 0;
+            while (!deflater.finished()) {
+                if (size == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                size += deflater.deflate(compressed, size, compressed.length - size);
+            }
+            active.append(compressed, size, length, blockFirst, blockLast);
+            length = 0;
+            blockLast = 0;
+            if (block.length > blockBytes) {
+                block = new byte[blockBytes];
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the records written between two timestamps, oldest first, only
+     * inflating the blocks whose time range overlaps them.
+     *
+     * @param since the first timestamp, inclusive
+     * @param until the last timestamp, inclusive
+     * @param grep text the output must contain, or null
+     * @param limit the maximum number of records
+     * @param sink receives the matching records
+     * @return the number of records read
+     */
+    int read(long since, long until, String grep, int limit, Consumer<LogChunk> sink) throws IOException {
+        var found = 0;
+        var inflater = new Inflater();
+        try {
+            for (var segment : segments) {
+                var blocks = segment.blocks();
+                if (blocks.count() == 0 || blocks.last()[blocks.count() - 1] < since || segment.start() > until) {
+                    continue;
+                }
+                MappedByteBuffer mapped;
+                try {
+                    mapped = segment.map(blocks.size());
+                } catch (NoSuchFileException e) {
+                    // deleted by retain since the read started
+                    continue;
+                }
+                for (var i = 0; i < blocks.count(); i++) {
+                    if (blocks.first()[i] > until) {
+                        break;
+                    }
+                    if (blocks.last()[i] < since) {
+                        continue;
+                    }
+                    var raw = LogSegment.inflate(mapped, blocks.offsets()[i], inflater);
+                    var records = ByteBuffer.wrap(raw);
+                    while (records.remaining() >= RECORD_HEADER) {
+                        var time = records.getLong();
+                        var stream = records.get();
+                        var count = records.getInt();
+                        var position = records.position();
+                        records.position(position + count);
+                        if (time < since || time > until) {
+                            continue;
+                        }
+                        if (grep != null && !new String(raw, position, count, StandardCharsets.UTF_8).contains(grep)) {
+                            continue;
+                        }
+                        sink.accept(new LogChunk(time, stream, Arrays.copyOfRange(raw, position, position + count)));
+                        if (++found == limit) {
+                            return found;
+                        }
+                    }
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return found;
+    }
+
+    /**
+     * Deletes the sealed segments holding nothing newer than {@code before},
+     * then the oldest ones until the archive fits in {@code maxBytes}.
+     *
+     * @return the number of segments deleted
+     */
+    int retain(long before, long maxBytes) throws IOException {
+        lock.lock();
+        try {
+            var deleted = new ArrayList<LogSegment>();
+            var total = segments.stream().mapToLong(LogSegment::size).sum();
+            for (var segment : segments) {
+                if (segment == active) {
+                    break;
+                }
+                if (segment.lastTimestamp() < before || total > maxBytes) {
+                    total -= segment.size();
+                    deleted.add(segment);
+                }
+            }
+            for (var segment : deleted) {
+                segments.remove(segment);
+                segment.delete();
+            }
+            return deleted.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() throws IOException {
+        lock.lock();
+        try {
+            try {
+                flush();
+                if (active != null) {
+                    active.seal();
+                    active = null;
+                }
+            } finally {
+                deflater.end();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package br.dev.optimus.gaia.logs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.dev.optimus.gaia.docker.AppContainers;
+import br.dev.optimus.gaia.docker.ContainerStateCache;
+import br.dev.optimus.gaia.docker.DockerStreams;
+import br.dev.optimus.gaia.service.DockerService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.WebApplicationException;
+
+/**
+ * Keeps the output of the app containers on disk for longer than the daemon
+ * does.
+ *
+ * Each container listed by {@link AppContainers} gets a virtual thread
+ * following its {@code /containers/{id}/logs} with timestamps, resuming after
+ * the latest archived line when the stream drops or the server restarts, and
+ * appending every line to a {@link LogArchive} under
+ * {@code gaia.logs.archive.dir}. Pending lines are written every
+ * {@code gaia.logs.archive.flush-interval}, and segments older than
+ * {@code gaia.logs.archive.retention} or beyond
+ * {@code gaia.logs.archive.max-bytes} per container are deleted in the
+ * background. Archives of deleted apps are kept until retention removes them.
+ */
+@ApplicationScoped
+public class LogArchiver {
+
+    public static final int DEFAULT_LIMIT = 1000;
+    public static final int MAX_LIMIT = 10000;
+    private static final Logger log = LoggerFactory.getLogger(LogArchiver.class);
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration RETENTION_SWEEP = Duration.ofMinutes(10);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DockerService docker;
+    private final DockerStreams streams;
+    private final ContainerStateCache states;
+    private final AppContainers apps;
+    private final boolean enabled;
+    private final Path dir;
+    private final int blockBytes;
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final Duration retention;
+    private final Duration flushInterval;
+    private final Duration refresh;
+    private final Counter lines;
+    private final Map<String, Ingest> ingests = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("log-archiver").factory());
+    private volatile boolean running;
+
+    public LogArchiver(DockerService docker, DockerStreams streams, ContainerStateCache states, AppContainers apps,
+                       @ConfigProperty(name = "gaia.logs.archive.enabled", defaultValue = "true") boolean enabled,
+                       @ConfigProperty(name = "gaia.logs.archive.dir", defaultValue = "/var/lib/gaia/logs") Path dir,
+                       @ConfigProperty(name = "gaia.logs.archive.block-bytes", defaultValue = "65536") int blockBytes,
+                       @ConfigProperty(name = "gaia.logs.archive.segment-bytes", defaultValue = "67108864") long segmentBytes,
+                       @ConfigProperty(name = "gaia.logs.archive.max-bytes", defaultValue = "1073741824") long maxBytes,
+                       @ConfigProperty(name = "gaia.logs.archive.retention", defaultValue = "P14D") Duration retention,
+                       @ConfigProperty(name = "gaia.logs.archive.flush-interval", defaultValue = "PT5S") Duration flushInterval,
+                       @ConfigProperty(name = "gaia.apps.refresh", defaultValue = "PT10S") Duration refresh,
+                       MeterRegistry registry) {
+        this.docker = docker;
+        this.streams = streams;
+        this.states = states;
+        this.apps = apps;
+        this.enabled = enabled;
+        this.dir = dir;
+        this.blockBytes = blockBytes;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        this.retention = retention;
+        this.flushInterval = flushInterval;
+        this.refresh = refresh;
+        this.lines = registry.counter("gaia.logs.archived");
+        registry.gauge("gaia.logs.archives", ingests, Map::size);
+    }
+
+    /**
+     * Searches the archived output of a container. Output is searchable once
+     * written, up to {@code gaia.logs.archive.flush-interval} after the
+     * container printed it.
+     *
+     * @param container the container ID
+     * @param since the earliest output, as epoch seconds or an ISO-8601
+     * instant; null for the oldest kept
+     * @param until the latest output, in the same format; null for now
+     * @param grep text the lines must contain, or null for all of them
+     * @param limit the maximum number of lines; null for the default of 1000
+     * @return the lines, oldest first
+     * @throws BadRequestException if a parameter is malformed or out of range
+     */
+    public List<LogChunk> search(String container, String since, String until, String grep, Integer limit) {
+        var from = since == null ? 0 : timestamp("since", since);
+        var to = until == null ? Long.MAX_VALUE : timestamp("until", until);
+        var max = limit == null ? DEFAULT_LIMIT : limit;
+        if (max < 1 || max > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (from > to) {
+            throw new BadRequestException("since must not be after until");
+        }
+        var found = new ArrayList<LogChunk>();
+        var ingest = ingests.get(container);
+        var archive = ingest == null ? null : ingest.archive;
+        try {
+            if (archive != null) {
+                archive.read(from, to, grep == null || grep.isEmpty() ? null : grep, max, found::add);
+            } else if (Files.isDirectory(dir.resolve(container))) {
+                var stored = LogArchive.open(dir.resolve(container), blockBytes, segmentBytes);
+                try {
+                    stored.read(from, to, grep == null || grep.isEmpty() ? null : grep, max, found::add);
+                } finally {
+                    stored.close();
+                }
+            }
+        } catch (IOException e) {
+            throw new WebApplicationException("could not read the log archive", e);
+        }
+        return found;
+    }
+
+    private static long timestamp(String name, String value) {
+        try {
+            var instant = value.chars().allMatch(Character::isDigit)
+                    ? Instant.ofEpochSecond(Long.parseLong(value))
+                    : Instant.parse(value);
+            return Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L) + instant.getNano();
+        } catch (DateTimeParseException | ArithmeticException | NumberFormatException e) {
+            throw new BadRequestException(name + " must be epoch seconds or an ISO-8601 instant");
+        }
+    }
+
+    /**
+     * Starts archiving each new app container and stops archiving those no
+     * longer referenced.
+     */
+    void sync(@Observes AppContainers.Refreshed refreshed) {
+        if (!running) {
+            return;
+        }
+        for (var container : refreshed.containers()) {
+            ingests.computeIfAbsent(container, Ingest::new);
+        }
+        ingests.values().removeIf(ingest -> {
+            if (refreshed.containers().contains(ingest.container)) {
+                return false;
+            }
+            ingest.stop();
+            return true;
+        });
+    }
+
+    private void flush() {
+        for (var ingest : ingests.values()) {
+            var archive = ingest.archive;
+            if (archive == null) {
+                continue;
+            }
+            try {
+                archive.flush();
+            } catch (IOException e) {
+                log.warn("could not write the log archive of container {}", ingest.container, e);
+            }
+        }
+    }
+
+    /**
+     * Applies the retention limits to every archive, including those of
+     * containers no longer followed, and removes the directories left empty.
+     * The directory of a followed container is only ever handled through its
+     * own archive, and skipped while that is still opening, as deleting its
+     * segments behind it would fail its reads.
+     */
+    private void sweep() {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        var before = Instant.now().minus(retention);
+        var cutoff = before.getEpochSecond() * 1_000_000_000L + before.getNano();
+        try (var dirs = Files.list(dir)) {
+            for (var path : dirs.filter(Files::isDirectory).toList()) {
+                var container = path.getFileName().toString();
+                var ingest = ingests.get(container);
+                if (ingest != null) {
+                    var archive = ingest.archive;
+                    if (archive != null) {
+                        archive.retain(cutoff, maxBytes);
+                    }
+                    continue;
+                }
+                var stored = LogArchive.open(path, blockBytes, segmentBytes);
+                try {
+                    stored.retain(cutoff, maxBytes);
+                } finally {
+                    stored.close();
+                }
+                try (var files = Files.list(path)) {
+                    if (files.findAny().isEmpty()) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("log archive retention failed", e);
+        }
+    }
+
+    /**
+     * The archiving of one container, on its own virtual thread.
+     */
+    private final class Ingest {
+
+        final String container;
+        final Thread thread;
+        volatile LogArchive archive;
+        volatile boolean active = true;
+        volatile InputStream in;
+        private byte[] partial = new byte[0];
+
+        Ingest(String container) {
+            this.container = container;
+            this.thread = Thread.ofVirtual().name("log-archive-" + container).start(this::run);
+        }
+
+        private void run() {
+            try {
+                archive = LogArchive.open(dir.resolve(container), blockBytes, segmentBytes);
+            } catch (IOException e) {
+                log.error("could not open the log archive of container {}", container, e);
+                return;
+            }
+            var buffer = new byte[BUFFER_SIZE];
+            var backoff = MIN_BACKOFF;
+            while (running && active) {
+                var state = states.state(container);
+                if (state.isPresent() && !state.get().running()) {
+                    if (!pause(refresh)) {
+                        break;
+                    }
+                    continue;
+                }
+                var after = archive.lastTimestamp();
+                try {
+                    var tty = docker.inspectContainer(container).path("Config").path("Tty").asBoolean();
+                    try (var body = streams.open("/containers/" + container
+                            + "/logs?follow=true&stdout=true&stderr=true&timestamps=true&since=" + since(after))) {
+                        in = body;
+                        partial = new byte[0];
+                        new LogDemuxer(body, buffer).demux(tty, chunk -> append(chunk, tty, after));
+                    }
+                    backoff = MIN_BACKOFF;
+                } catch (WebApplicationException e) {
+                    log.debug("no logs for container {}: {}", container, e.getMessage());
+                    backoff = refresh;
+                } catch (IOException | RuntimeException e) {
+                    if (!running || !active) {
+                        break;
+                    }
+                    log.debug("log stream of container {} dropped", container, e);
+                } finally {
+                    in = null;
+                }
+                if (!pause(backoff)) {
+                    break;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+            }
+            try {
+                archive.close();
+            } catch (IOException e) {
+                log.warn("could not close the log archive of container {}", container, e);
+            }
+        }
+
+        /**
+         * Archives each line of a chunk, dropping those at or before the
+         * latest line archived when the stream was opened, which the daemon
+         * sends again. Every line is led by its RFC 3339 timestamp; without
+         * a TTY a chunk is one line, with one it may end mid line, and the
+         * rest is kept for the next chunk.
+         */
+        private void append(LogChunk chunk, boolean tty, long after) {
+            var data = chunk.data();
+            if (partial.length > 0) {
+                var joined = Arrays.copyOf(partial, partial.length + data.length);
+                System.arraycopy(data, 0, joined, partial.length, data.length);
+                data = joined;
+                partial = new byte[0];
+            }
+            var position = 0;
+            while (position < data.length) {
+                var newline = indexOf(data, (byte) '\n', position, data.length);
+                if (newline < 0 && tty) {
+                    partial = Arrays.copyOfRange(data, position, data.length);
+                    return;
+                }
+                var end = newline < 0 ? data.length : newline + 1;
+                var space = indexOf(data, (byte) ' ', position, end);
+                var time = space < 0 ? -1 : parse(data, position, space);
+                var text = time < 0 ? position : space + 1;
+                if (time < 0) {
+                    time = Math.max(archive.lastTimestamp(), 1);
+                }
+                if (time > after) {
+                    try {
+                        archive.append(time, chunk.stream(), data, text, end - text);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    lines.increment();
+                }
+                position = end;
+            }
+        }
+
+        private boolean pause(Duration duration) {
+            try {
+                Thread.sleep(duration);
+                return true;
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+
+        void stop() {
+            active = false;
+            var body = in;
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    // the thread is exiting anyway
+                }
+            }
+            thread.interrupt();
+        }
+    }
+
+    private static int indexOf(byte[] data, byte value, int from, int to) {
+        for (var i = from; i < to; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a line timestamp into nanoseconds since the epoch.
+     *
+     * @return the timestamp, or -1 if the bytes are not one
+     */
+    private static long parse(byte[] data, int from, int to) {
+        try {
+            var instant = Instant.parse(new String(data, from, to - from, StandardCharsets.US_ASCII));
+            return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Formats a timestamp as the seconds and fraction the daemon expects.
+     */
+    private static String since(long time) {
+        return time / 1_000_000_000L + "." + String.format("%09d", time % 1_000_000_000L);
+    }
+
+    void start(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        sync(new AppContainers.Refreshed(apps.containers()));
+        scheduler.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::sweep, 0, RETENTION_SWEEP.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        running = false;
+        scheduler.shutdownNow();
+        for (var ingest : ingests.values()) {
+            ingest.stop();
+            try {
+                ingest.thread.join(Duration.ofSeconds(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package br.dev.optimus.gaia.logs;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A piece of container output, as framed by the daemon. A chunk may hold
+ * several lines, or part of one.
+ *
+ * @param time when the output was written, in nanoseconds since the epoch,
+ * or 0 when the daemon did not say
+ * @param stream {@link #STDOUT}, {@link #STDERR}, or {@link #GAP} for output
+ * skipped because the viewer fell behind
+ * @param data the output bytes; shared between viewers, so never modified
+ */
+public record LogChunk(long time, int stream, byte[] data) {
+
+    public static final int GAP = 0;
+    public static final int STDOUT = 1;
+    public static final int STDERR = 2;
+
+    static LogChunk gap(long skipped) {
+        return new LogChunk(0, GAP, (skipped + " bytes skipped").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public String streamName() {
+        return switch (stream) {
+            case STDOUT -> "stdout";
+            case STDERR -> "stderr";
+            default -> "gap";
+        };
+    }
+
+    public String text() {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+package br.dev.optimus.gaia.logs;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Splits the log stream of a container into chunks.
+ *
+ * Without a TTY the daemon multiplexes stdout and stderr into frames, each
+ * led by an 8-byte header: the stream in the first byte and the payload size
+ * in the last four, big endian. Frames are parsed in place in the read
+ * buffer and each payload is copied out once, whatever number of lines it
+ * holds. With a TTY the stream is raw stdout.
+ */
+final class LogDemuxer {
+
+    private static final int HEADER = 8;
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int start;
+    private int end;
+
+    LogDemuxer(InputStream in, byte[] buffer) {
+        this.in = in;
+        this.buffer = buffer;
+    }
+
+    void demux(boolean tty, Consumer<LogChunk> sink) throws IOException {
+        if (tty) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                sink.accept(new LogChunk(0, LogChunk.STDOUT, Arrays.copyOf(buffer, read)));
+            }
+            return;
+        }
+        while (fill(HEADER)) {
+            var stream = buffer[start];
+            var size = (buffer[start + 4] & 0xff) << 24 | (buffer[start + 5] & 0xff) << 16
+                    | (buffer[start + 6] & 0xff) << 8 | buffer[start + 7] & 0xff;
+            if (size < 0) {
+                throw new IOException("malformed log frame of " + Integer.toUnsignedString(size) + " bytes");
+            }
+            start += HEADER;
+            byte[] payload;
+            if (size <= buffer.length) {
+                if (!fill(size)) {
+                    throw new EOFException("log stream ended mid frame");
+                }
+                payload = Arrays.copyOfRange(buffer, start, start + size);
+                start += size;
+            } else {
+                payload = new byte[size];
+                var buffered = end - start;
+                System.arraycopy(buffer, start, payload, 0, buffered);
+                start = end = 0;
+                if (in.readNBytes(payload, buffered, size - buffered) < size - buffered) {
+                    throw new EOFException("log stream ended mid frame");
+                }
+            }
+            if (size > 0) {
+                sink.accept(new LogChunk(0, stream == LogChunk.STDERR ? LogChunk.STDERR : LogChunk.STDOUT, payload));
+            }
+        }
+    }
+
+    /**
+     * Reads until at least {@code length} bytes are buffered, moving the
+     * buffered bytes to the front first if they would not fit.
+     *
+     * @return false if the stream ended cleanly before any of them
+     */
+    private boolean fill(int length) throws IOException {
+        if (end - start >= length) {
+            return true;
+        }
+        if (start + length > buffer.length) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        while (end - start < length) {
+            var read = in.read(buffer, end, buffer.length - end);
+            if (read == -1) {
+                if (end == start) {
+                    return false;
+                }
+                throw new EOFException("log stream ended mid frame");
+            }
+            end += read;
+        }
+        return true;
+    }
+}
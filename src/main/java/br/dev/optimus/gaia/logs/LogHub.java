@@ -0,0 +1,283 @@
+package br.dev.optimus.gaia.logs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.dev.optimus.gaia.docker.DockerStreams;
+import br.dev.optimus.gaia.service.DockerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Multi;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.BadRequestException;
+
+/**
+ * Streams container logs to any number of clients.
+ *
+ * Clients following the same container share a single upstream
+ * {@code /containers/{id}/logs} request, opened by the first of them and
+ * closed when the last one leaves. Each channel keeps the latest
+ * {@code gaia.logs.replay-bytes} of output, which a client joining it
+ * receives first. Every client has its own bounded queue, see {@link Viewer}.
+ *
+ * Upstream streams are read on virtual threads into buffers taken from a
+ * shared pool.
+ */
+@ApplicationScoped
+public class LogHub {
+
+    public static final int DEFAULT_TAIL = 100;
+    public static final int MAX_TAIL = 10000;
+    private static final Logger log = LoggerFactory.getLogger(LogHub.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int POOLED_BUFFERS = 64;
+
+    private final DockerService docker;
+    private final DockerStreams streams;
+    private final long viewerBytes;
+    private final long replayBytes;
+    private final ArrayBlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(POOLED_BUFFERS);
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    public LogHub(DockerService docker, DockerStreams streams,
+                  @ConfigProperty(name = "gaia.logs.viewer-bytes", defaultValue = "1048576") long viewerBytes,
+                  @ConfigProperty(name = "gaia.logs.replay-bytes", defaultValue = "65536") long replayBytes,
+                  MeterRegistry registry) {
+        this.docker = docker;
+        this.streams = streams;
+        this.viewerBytes = viewerBytes;
+        this.replayBytes = replayBytes;
+        registry.gauge("gaia.logs.channels", channels, Map::size);
+        registry.gauge("gaia.logs.viewers", channels, map -> map.values().stream().mapToInt(channel -> channel.viewers.size()).sum());
+    }
+
+    /**
+     * Follows the output of a container: the latest output kept for it, then
+     * new output as it is written, until the container stops or the client
+     * cancels.
+     *
+     * @param container the container ID
+     * @return the chunks
+     */
+    public Multi<LogChunk> follow(String container) {
+        return Multi.createFrom().publisher(subscriber -> {
+            var joined = new AtomicReference<Channel>();
+            var viewer = new Viewer(subscriber, viewerBytes, cancelled -> {
+                var channel = joined.get();
+                if (channel != null) {
+                    channel.leave(cancelled);
+                }
+            });
+            subscriber.onSubscribe(viewer);
+            while (true) {
+                var channel = channels.computeIfAbsent(container, Channel::new);
+                joined.set(channel);
+                if (channel.join(viewer)) {
+                    return;
+                }
+                // lost a race with the channel closing, open a new one
+                channels.remove(container, channel);
+            }
+        });
+    }
+
+    /**
+     * Reads the latest output of a container and completes.
+     *
+     * @param container the container ID
+     * @param tail the number of lines to read
+     * @return the chunks
+     * @throws BadRequestException if tail is out of range
+     */
+    public Multi<LogChunk> tail(String container, int tail) {
+        if (tail < 1 || tail > MAX_TAIL) {
+            throw new BadRequestException("tail must be between 1 and " + MAX_TAIL);
+        }
+        return Multi.createFrom().publisher(subscriber -> {
+            var upstream = new Upstream();
+            var viewer = new Viewer(subscriber, viewerBytes, cancelled -> upstream.close());
+            subscriber.onSubscribe(viewer);
+            Thread.ofVirtual().name("logs-" + container).start(() -> {
+                try {
+                    upstream.read(container, "tail=" + tail, viewer::offer);
+                    viewer.complete();
+                } catch (IOException | RuntimeException e) {
+                    viewer.fail(e);
+                }
+            });
+        });
+    }
+
+    private byte[] buffer() {
+        var buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * One upstream log request, closed from another thread to stop reading.
+     */
+    private final class Upstream {
+
+        private volatile InputStream in;
+        private volatile boolean closed;
+
+        void read(String container, String query, Consumer<LogChunk> sink) throws IOException {
+            var tty = docker.inspectContainer(container).path("Config").path("Tty").asBoolean();
+            var buffer = buffer();
+            try (var body = streams.open("/containers/" + container + "/logs?stdout=true&stderr=true&" + query)) {
+                in = body;
+                if (closed) {
+                    return;
+                }
+                new LogDemuxer(body, buffer).demux(tty, sink);
+            } catch (IOException e) {
+                if (!closed) {
+                    throw e;
+                }
+            } finally {
+                in = null;
+                buffers.offer(buffer);
+            }
+        }
+
+        void close() {
+            closed = true;
+            var body = in;
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    // the reader is exiting anyway
+                }
+            }
+        }
+    }
+
+    /**
+     * The shared upstream of the clients following one container.
+     *
+     * Chunks are queued to the viewers holding the lock, which keeps every
+     * viewer's replay ahead of the live output, and handed to the clients
+     * after releasing it, so a client slow to take a chunk does not hold up
+     * the viewers joining or leaving meanwhile.
+     */
+    private final class Channel {
+
+        final String container;
+        final Set<Viewer> viewers = ConcurrentHashMap.newKeySet();
+        final ArrayDeque<LogChunk> replay = new ArrayDeque<>();
+        final Upstream upstream = new Upstream();
+        final ReentrantLock lock = new ReentrantLock();
+        long replayed;
+        boolean open = true;
+        boolean started;
+
+        Channel(String container) {
+            this.container = container;
+        }
+
+        boolean join(Viewer viewer) {
+            lock.lock();
+            try {
+                if (!open) {
+                    return false;
+                }
+                if (viewer.isCancelled()) {
+                    return true;
+                }
+                replay.forEach(viewer::add);
+                viewers.add(viewer);
+                if (!started) {
+                    started = true;
+                    Thread.ofVirtual().name("logs-" + container).start(this::run);
+                }
+            } finally {
+                lock.unlock();
+            }
+            viewer.drain();
+            return true;
+        }
+
+        void leave(Viewer viewer) {
+            lock.lock();
+            try {
+                viewers.remove(viewer);
+            } finally {
+                lock.unlock();
+            }
+            close(null, true);
+        }
+
+        private void run() {
+            Throwable failure = null;
+            try {
+                upstream.read(container, "follow=true&tail=" + DEFAULT_TAIL, this::publish);
+            } catch (IOException | RuntimeException e) {
+                log.debug("log stream of container {} failed", container, e);
+                failure = e;
+            }
+            close(failure, false);
+        }
+
+        private void publish(LogChunk chunk) {
+            List<Viewer> targets;
+            lock.lock();
+            try {
+                replay.addLast(chunk);
+                replayed += chunk.data().length;
+                while (replayed > replayBytes && replay.size() > 1) {
+                    replayed -= replay.removeFirst().data().length;
+                }
+                targets = List.copyOf(viewers);
+                targets.forEach(viewer -> viewer.add(chunk));
+            } finally {
+                lock.unlock();
+            }
+            targets.forEach(Viewer::drain);
+        }
+
+        /**
+         * Ends every viewer and the upstream, unless already closed.
+         *
+         * @param failure the error to end the viewers with, or null to
+         * complete them
+         * @param idle whether to close only if no viewer is left
+         */
+        void close(Throwable failure, boolean idle) {
+            List<Viewer> ended;
+            lock.lock();
+            try {
+                if (!open || idle && !viewers.isEmpty()) {
+                    return;
+                }
+                open = false;
+                channels.remove(container, this);
+                ended = List.copyOf(viewers);
+                ended.forEach(viewer -> viewer.end(failure));
+                viewers.clear();
+            } finally {
+                lock.unlock();
+            }
+            upstream.close();
+            ended.forEach(Viewer::drain);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        channels.values().forEach(channel -> channel.close(null, false));
+    }
+}
@@ -0,0 +1,263 @@
+package br.dev.optimus.gaia.logs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * An append-only file of compressed log blocks, with a sparse index of the
+ * time range and offset of each block.
+ *
+ * A block starts with a 24-byte header: the compressed and raw lengths as
+ * ints, then the first and last timestamps as longs. The deflated records
+ * follow, each a timestamp long, a stream byte, a length int and the output
+ * bytes. The index lives next to the segment, one 24-byte entry per block:
+ * first timestamp, last timestamp and offset. It is rebuilt from the block
+ * headers if it is missing or behind, and a torn block at the end of a
+ * segment left by a crash is ignored.
+ *
+ * Only one thread appends; readers see the blocks indexed when they start.
+ * The appender writes to disk holding no lock, and only takes the one
+ * guarding the in-memory index to add the block to it, so readers never
+ * wait for the disk.
+ */
+final class LogSegment {
+
+    static final String SUFFIX = ".seg";
+    static final String INDEX = ".idx";
+    private static final int HEADER = 24;
+    private static final int ENTRY = 24;
+
+    /**
+     * The blocks of a segment at a point in time.
+     */
+    record Blocks(long[] first, long[] last, long[] offsets, int count, long size) {
+    }
+
+    private final Path path;
+    private final Path index;
+    private final long start;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long[] first = new long[64];
+    private long[] last = new long[64];
+    private long[] offsets = new long[64];
+    private int count;
+    private long size;
+    private FileChannel data;
+    private FileChannel entries;
+
+    private LogSegment(Path path, long start) {
+        this.path = path;
+        this.index = path.resolveSibling(path.getFileName().toString().replace(SUFFIX, INDEX));
+        this.start = start;
+    }
+
+    /**
+     * Creates an empty segment open for appending.
+     *
+     * @param dir the directory of the container archive
+     * @param start the timestamp of the first record, naming the segment
+     */
+    static LogSegment create(Path dir, long start) throws IOException {
+        var segment = new LogSegment(dir.resolve(String.format("%020d", start) + SUFFIX), start);
+        segment.data = FileChannel.open(segment.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segment.entries = FileChannel.open(segment.index, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment for reading.
+     */
+    static LogSegment open(Path path) throws IOException {
+        var name = path.getFileName().toString();
+        var segment = new LogSegment(path, Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+        segment.load();
+        return segment;
+    }
+
+    private void load() throws IOException {
+        var length = Files.size(path);
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (Files.exists(index)) {
+                var bytes = ByteBuffer.wrap(Files.readAllBytes(index));
+                while (bytes.remaining() >= ENTRY) {
+                    var firstTs = bytes.getLong();
+                    var lastTs = bytes.getLong();
+                    var offset = bytes.getLong();
+                    var end = offset == size ? blockEnd(channel, offset, length) : -1;
+                    if (end < 0) {
+                        break;
+                    }
+                    add(firstTs, lastTs, offset, end - offset);
+                }
+            }
+            var header = ByteBuffer.allocate(HEADER);
+            while (true) {
+                var end = blockEnd(channel, size, length);
+                if (end < 0) {
+                    break;
+                }
+                header.clear();
+                channel.read(header, size);
+                add(header.getLong(8), header.getLong(16), size, end - size);
+            }
+        }
+    }
+
+    /**
+     * Reads the end of the block at an offset from its header.
+     *
+     * @return the end offset, or -1 if no whole block starts there
+     */
+    private static long blockEnd(FileChannel channel, long offset, long length) throws IOException {
+        if (offset + HEADER > length) {
+            return -1;
+        }
+        var header = ByteBuffer.allocate(4);
+        channel.read(header, offset);
+        var compressed = header.getInt(0);
+        var end = offset + HEADER + compressed;
+        return compressed >= 0 && end <= length ? end : -1;
+    }
+
+    private void add(long firstTs, long lastTs, long offset, long length) {
+        if (count == first.length) {
+            first = Arrays.copyOf(first, count * 2);
+            last = Arrays.copyOf(last, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        first[count] = firstTs;
+        last[count] = lastTs;
+        offsets[count] = offset;
+        count++;
+        size = offset + length;
+    }
+
+    /**
+     * Appends a block and indexes it.
+     *
+     * @param compressed the deflated records
+     * @param length the number of compressed bytes
+     * @param raw the length of the records before compression
+     * @param firstTs the timestamp of the first record
+     * @param lastTs the timestamp of the last record
+     */
+    void append(byte[] compressed, int length, int raw, long firstTs, long lastTs) throws IOException {
+        var header = ByteBuffer.allocate(HEADER).putInt(length).putInt(raw).putLong(firstTs).putLong(lastTs).flip();
+        var offset = size;
+        var position = offset;
+        while (header.hasRemaining()) {
+            position += data.write(header, position);
+        }
+        var body = ByteBuffer.wrap(compressed, 0, length);
+        while (body.hasRemaining()) {
+            position += data.write(body, position);
+        }
+        var entry = ByteBuffer.allocate(ENTRY).putLong(firstTs).putLong(lastTs).putLong(offset).flip();
+        entries.write(entry, (long) count * ENTRY);
+        lock.lock();
+        try {
+            add(firstTs, lastTs, offset, HEADER + length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops appending, closing the files. Called by the appending thread.
+     */
+    void seal() throws IOException {
+        if (data != null) {
+            data.close();
+            entries.close();
+            data = null;
+            entries = null;
+        }
+    }
+
+    Blocks blocks() {
+        lock.lock();
+        try {
+            return new Blocks(first, last, offsets, count, size);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long lastTimestamp() {
+        lock.lock();
+        try {
+            return count == 0 ? start : last[count - 1];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long start() {
+        return start;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Maps the indexed part of the segment into memory.
+     */
+    MappedByteBuffer map(long size) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Inflates the records of the block at an offset of a mapped segment.
+     */
+    static byte[] inflate(MappedByteBuffer mapped, long offset, Inflater inflater) throws IOException {
+        var position = Math.toIntExact(offset);
+        var compressed = mapped.getInt(position);
+        var raw = new byte[mapped.getInt(position + 4)];
+        inflater.reset();
+        inflater.setInput(mapped.slice(position + HEADER, compressed));
+        try {
+            var inflated = 0;
+            while (inflated < raw.length && !inflater.finished()) {
+                var read = inflater.inflate(raw, inflated, raw.length - inflated);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += read;
+            }
+            if (inflated != raw.length) {
+                throw new IOException("truncated log block at " + offset);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt log block at " + offset, e);
+        }
+        return raw;
+    }
+
+    void delete() throws IOException {
+        seal();
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(index);
+    }
+}
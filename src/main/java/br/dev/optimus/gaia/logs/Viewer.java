@@ -0,0 +1,175 @@
+package br.dev.optimus.gaia.logs;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Delivers chunks to one client at the pace it requests them.
+ *
+ * Chunks arriving while the client has no outstanding demand wait in a queue
+ * bounded in bytes. Once it is full further chunks are skipped, and the
+ * client gets a {@link LogChunk#GAP} chunk counting them before the next one
+ * it receives, so a slow client costs a bounded amount of memory and never
+ * slows the stream down for the others.
+ */
+final class Viewer implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super LogChunk> subscriber;
+    private final long limit;
+    private final Consumer<Viewer> onCancel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final ArrayDeque<LogChunk> queue = new ArrayDeque<>();
+    private long queued;
+    private long requested;
+    private long skipped;
+    private boolean done;
+    private Throwable failure;
+    private boolean terminated;
+    private volatile boolean cancelled;
+
+    Viewer(Flow.Subscriber<? super LogChunk> subscriber, long limit, Consumer<Viewer> onCancel) {
+        this.subscriber = subscriber;
+        this.limit = limit;
+        this.onCancel = onCancel;
+    }
+
+    void offer(LogChunk chunk) {
+        add(chunk);
+        drain();
+    }
+
+    /**
+     * Queues a chunk without handing it to the subscriber, which
+     * {@link #drain} does, so it can be called holding another lock.
+     */
+    void add(LogChunk chunk) {
+        lock.lock();
+        try {
+            if (done) {
+                return;
+            }
+            if (queued + chunk.data().length > limit && !queue.isEmpty()) {
+                skipped += chunk.data().length;
+                return;
+            }
+            if (skipped > 0) {
+                queue.add(LogChunk.gap(skipped));
+                skipped = 0;
+            }
+            queue.add(chunk);
+            queued += chunk.data().length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void complete() {
+        end(null);
+        drain();
+    }
+
+    void fail(Throwable failure) {
+        end(failure);
+        drain();
+    }
+
+    /**
+     * Queues the end of the stream, after the chunks queued so far, without
+     * signalling it, which {@link #drain} does.
+     *
+     * @param failure the error to end with, or null to complete
+     */
+    void end(Throwable failure) {
+        lock.lock();
+        try {
+            if (done) {
+                return;
+            }
+            done = true;
+            this.failure = failure;
+            if (skipped > 0) {
+                queue.add(LogChunk.gap(skipped));
+                skipped = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            cancel();
+            subscriber.onError(new IllegalArgumentException("request must be positive"));
+            return;
+        }
+        lock.lock();
+        try {
+            requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            onCancel.accept(this);
+        }
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Hands queued chunks to the subscriber while it has demand, from a
+     * single thread at a time.
+     */
+    void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        var missed = 1;
+        do {
+            while (!cancelled) {
+                LogChunk next = null;
+                var terminate = false;
+                lock.lock();
+                try {
+                    if (requested > 0 && !queue.isEmpty()) {
+                        next = queue.poll();
+                        requested--;
+                        if (next.stream() != LogChunk.GAP) {
+                            queued -= next.data().length;
+                        }
+                    } else if (queue.isEmpty() && done && !terminated) {
+                        terminated = true;
+                        terminate = true;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (next != null) {
+                    subscriber.onNext(next);
+                } else {
+                    if (terminate) {
+                        if (failure == null) {
+                            subscriber.onComplete();
+                        } else {
+                            subscriber.onError(failure);
+                        }
+                    }
+                    break;
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
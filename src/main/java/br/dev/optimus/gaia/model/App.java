@@ -26,10 +26,14 @@ public class App {
     private UUID id;
     @Column(name = "container")
     private String container;
+    @JdbcTypeCode(value = SqlTypes.JSON)
+    private List<String> containers;
     @Column(unique = true)
     private String name;
-    @Column(unique = true)
     private int port;
+    @Column(name = "container_port")
+    @JsonProperty("container_port")
+    private int containerPort;
     private String image;
     private int replicas;
     @JdbcTypeCode(value = SqlTypes.JSON)
@@ -51,6 +55,7 @@ public class App {
     public record DTO(String container,
                       String name,
                       int port,
+                      @JsonProperty("container_port") int containerPort,
                       String image,
                       int replicas,
                       List<String> environments,
@@ -63,8 +68,10 @@ public class App {
     public static class Builder {
 
         private String container;
+        private List<String> containers;
         private String name;
         private int port;
+        private int containerPort;
         private String image;
         private int replicas;
         private List<String> environments;
@@ -77,6 +84,11 @@ public class App {
             return this;
         }
 
+        public Builder containers(List<String> containers) {
+            this.containers = containers;
+            return this;
+        }
+
         public Builder name(String name) {
             this.name = name.toLowerCase();
             return this;
@@ -87,6 +99,11 @@ public class App {
             return this;
         }
 
+        public Builder containerPort(int containerPort) {
+            this.containerPort = containerPort;
+            return this;
+        }
+
         public Builder image(String image) {
             this.image = image.toLowerCase();
             return this;
@@ -127,8 +144,10 @@ public class App {
 
     public App(Builder builder) {
         this.container = builder.container;
+        this.containers = builder.containers;
         this.name = builder.name;
         this.port = builder.port;
+        this.containerPort = builder.containerPort;
         this.image = builder.image;
         this.replicas = builder.replicas;
         this.environments = builder.environments;
@@ -157,6 +176,14 @@ public class App {
         this.container = container;
     }
 
+    public List<String> getContainers() {
+        return containers;
+    }
+
+    public void setContainers(List<String> containers) {
+        this.containers = containers;
+    }
+
     public String getName() {
         return name;
     }
@@ -173,6 +200,14 @@ public class App {
         this.port = port;
     }
 
+    public int getContainerPort() {
+        return containerPort;
+    }
+
+    public void setContainerPort(int containerPort) {
+        this.containerPort = containerPort;
+    }
+
     public String getImage() {
         return image;
     }
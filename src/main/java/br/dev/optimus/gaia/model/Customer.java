@@ -51,7 +51,7 @@ public class Customer {
         private boolean active;
 
         public Builder name(String name) {
-            this.name = name.toUpperCase();
+            this.name = name == null ? null : name.toUpperCase();
             return this;
         }
 
@@ -61,7 +61,7 @@ public class Customer {
         }
 
         public Builder email(String email) {
-            this.email = email.toLowerCase();
+            this.email = email == null ? null : email.toLowerCase();
             return this;
         }
 
@@ -171,6 +171,25 @@ public class Customer {
         this.active = builder.active;
     }
 
+    /**
+     * Creates a customer holding stored values as they are, without the
+     * normalization applied by the builder and the setters.
+     */
+    public Customer(Long id, String name, String phone, String email, String document, String address,
+                    Set<Contact> contacts, boolean active, long createdAt, long updatedAt, long deletedAt) {
+        this.id = id;
+        this.name = name;
+        this.phone = phone;
+        this.email = email;
+        this.document = document;
+        this.address = address;
+        this.contacts = contacts;
+        this.active = active;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.deletedAt = deletedAt;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
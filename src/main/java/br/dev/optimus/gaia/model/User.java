@@ -1,7 +1,6 @@
 package br.dev.optimus.gaia.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import io.quarkus.elytron.security.common.BcryptUtil;
 import jakarta.persistence.*;
 
 @Entity
@@ -82,8 +81,8 @@ public class User {
             return this;
         }
 
-        public Builder password(String password) {
-            this.password = BcryptUtil.bcryptHash(password);
+        public Builder passwordHash(String passwordHash) {
+            this.password = passwordHash;
             return this;
         }
 
@@ -187,8 +186,8 @@ public class User {
         return password;
     }
 
-    public void setPassword(String password) {
-        this.password = BcryptUtil.bcryptHash(password);
+    public void setPasswordHash(String passwordHash) {
+        this.password = passwordHash;
     }
 
     public boolean isVisible() {
@@ -4,14 +4,20 @@ import java.time.Instant;
 import java.util.UUID;
 
 import br.dev.optimus.gaia.model.App;
-import br.dev.optimus.gaia.request.DockerRequest;
-import br.dev.optimus.gaia.service.DockerService;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.NotFoundException;
 
 @ApplicationScoped
 public class AppRepository implements PanacheRepositoryBase<App, UUID> {
 
+    public App get(UUID id) {
+        return find("id = ?1 and deletedAt = 0", id).firstResultOptional()
+                .orElseThrow(() -> new NotFoundException("app not found"));
+    }
+
+    @Transactional
     public void create(App app) {
         var now = Instant.now().getEpochSecond();
         app.setCreatedAt(now);
@@ -19,16 +25,4 @@ public class AppRepository implements PanacheRepositoryBase<App, UUID> {
         persist(app);
     }
 
-    public void create(App.DTO dto, DockerService service) {
-        var request = new DockerRequest.ContainerCreate(dto.image(), null, dto.environments(), dto.volumes(), null);
-        var response = service.createContainer(dto.name(), request);
-        var data = App.builder()
-                .name(dto.name())
-                .image(dto.image())
-                .container(response.id())
-                .environments(dto.environments())
-                .volumes(dto.volumes())
-                .build();
-    }
-    
 }
@@ -0,0 +1,64 @@
+package br.dev.optimus.gaia.repository;
+
+import java.util.ArrayList;
+
+import br.dev.optimus.gaia.request.BulkRequest;
+import br.dev.optimus.gaia.response.BulkResponse;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import io.quarkus.panache.common.Parameters;
+import jakarta.ws.rs.BadRequestException;
+
+/**
+ * Set-based updates over the rows selected by a {@link BulkRequest}.
+ *
+ * Runs a single {@code UPDATE} per chunk of IDs instead of loading and
+ * flushing each entity, so very large ID lists never exceed the bind
+ * parameter limits of the database. Every updated row also gets its
+ * {@code updatedAt} set, so incremental dumps and listings see the change.
+ */
+final class Bulk {
+
+    static final int CHUNK = 1000;
+
+    private Bulk() {
+    }
+
+    /**
+     * Updates the selected rows.
+     *
+     * @param repository the repository of the entity to update
+     * @param set the HQL assignments, which may use the {@code :now} parameter
+     * @param condition the HQL condition every updated row must satisfy
+     * @param now the value of the {@code :now} parameter, and the new
+     * {@code updatedAt}
+     * @param request the rows to update
+     * @return the number of updated rows
+     * @throws BadRequestException if the request selects no criteria
+     */
+    static <ID> BulkResponse update(PanacheRepositoryBase<?, ID> repository, String set, String condition, long now,
+                                    BulkRequest<ID> request) {
+        if (request == null || request.isEmpty()) {
+            throw new BadRequestException("ids or a filter is required");
+        }
+        var query = new StringBuilder(set).append(", updatedAt = :now where ").append(condition);
+        var params = Parameters.with("now", now);
+        if (request.updatedBefore() != null) {
+            query.append(" and updatedAt < :updatedBefore");
+            params.and("updatedBefore", request.updatedBefore());
+        }
+        if (request.createdBefore() != null) {
+            query.append(" and createdAt < :createdBefore");
+            params.and("createdBefore", request.createdBefore());
+        }
+        if (request.ids() == null || request.ids().isEmpty()) {
+            return new BulkResponse(repository.update(query.toString(), params));
+        }
+        query.append(" and id in :ids");
+        var ids = new ArrayList<>(request.ids());
+        var affected = 0L;
+        for (var i = 0; i < ids.size(); i += CHUNK) {
+            affected += repository.update(query.toString(), params.and("ids", ids.subList(i, Math.min(i + CHUNK, ids.size()))));
+        }
+        return new BulkResponse(affected);
+    }
+}
@@ -0,0 +1,87 @@
+package br.dev.optimus.gaia.repository;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reader and writer.
+ *
+ * Fields may be quoted with {@code "}, in which case they may contain
+ * separators, line breaks and doubled quotes.
+ */
+final class Csv {
+
+    private Csv() {
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @param reader the reader to consume, which should be buffered
+     * @return the fields of the record, or null at the end of the input
+     * @throws IOException if reading fails
+     */
+    static List<String> read(Reader reader) throws IOException {
+        var fields = new ArrayList<String>();
+        var field = new StringBuilder();
+        var quoted = false;
+        var c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    var n = reader.read();
+                    if (n == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Appends a field quoted for PostgreSQL {@code COPY ... (FORMAT csv)}.
+     * Null values are written as an empty unquoted field, which COPY reads as
+     * NULL.
+     *
+     * @param out the buffer to append to
+     * @param value the value of the field
+     */
+    static void write(StringBuilder out, Object value) {
+        if (value == null) {
+            return;
+        }
+        var text = value.toString();
+        out.append('"');
+        for (var i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
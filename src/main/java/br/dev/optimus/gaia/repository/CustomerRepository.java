@@ -1,17 +1,108 @@
 package br.dev.optimus.gaia.repository;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import br.dev.optimus.gaia.model.Customer;
+import br.dev.optimus.gaia.request.BulkRequest;
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.response.BulkResponse;
+import br.dev.optimus.gaia.response.ImportResponse;
+import br.dev.optimus.gaia.response.PageResponse;
+import br.dev.optimus.gaia.search.CustomerChanged;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.transaction.Transactional;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.ServerErrorException;
+import jakarta.ws.rs.core.Response;
 
 @ApplicationScoped
 public class CustomerRepository implements PanacheRepository<Customer> {
 
+    private static final Keyset<Customer> KEYSET = Keyset.<Customer>of(Customer::getId, Long::valueOf)
+            .key("name", "name", value -> value, Customer::getName)
+            .key("created_at", "createdAt", Long::valueOf, Customer::getCreatedAt)
+            .key("updated_at", "updatedAt", Long::valueOf, Customer::getUpdatedAt);
+    private static final Pattern DOCUMENT_PATTERN = Pattern.compile("^\\d+");
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$");
+    static final TypeReference<Set<Customer.Contact>> CONTACTS = new TypeReference<>() {
+    };
+    private static final String IMPORT_COLUMNS = "name, phone, email, document, address, contacts, active, created_at, updated_at, deleted_at";
+    private static final int IMPORT_BATCH = 1000;
+    private static final int COPY_BUFFER = 1 << 16;
+    private static final int SEARCH_LIMIT = 100;
+
+    private static final String DUMP_COLUMNS = "id, name, phone, email, document, address, contacts, active, created_at, updated_at, deleted_at";
+
+    private record ImportRow(int row, Customer customer) {
+    }
+
+    private final Event<CustomerChanged> changes;
+
+    public CustomerRepository(Event<CustomerChanged> changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Output formats of {@link #dump(DumpFormat, Long, Long, OutputStream)}.
+     */
+    public enum DumpFormat {
+        CSV("text/csv"),
+        NDJSON("application/x-ndjson");
+
+        private final String mediaType;
+
+        DumpFormat(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public String mediaType() {
+            return mediaType;
+        }
+
+        /**
+         * Parses a format name, ignoring case.
+         *
+         * @param name the name of the format
+         * @return the format
+         * @throws BadRequestException if the name is not a known format
+         */
+        public static DumpFormat of(String name) {
+            for (var format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new BadRequestException("format must be csv or ndjson");
+        }
+    }
+
     /**
      * Retrieves a list of all customers that have not been deleted.
      *
@@ -21,6 +112,146 @@ public class CustomerRepository implements PanacheRepository<Customer> {
         return find("deletedAt = 0").list();
     }
 
+    /**
+     * Retrieves one page of the customers that have not been deleted.
+     *
+     * The page starts right after the row identified by the request cursor,
+     * so each page costs a single range scan regardless of its depth.
+     *
+     * @param request the cursor, limit and sort of the page
+     * @return the page of customers and the cursor of the next one
+     * @throws BadRequestException if the sort key or the cursor is invalid
+     */
+    public PageResponse<Customer> page(PageRequest request) {
+        return KEYSET.page(this::find, "deletedAt = 0", request);
+    }
+
+    /**
+     * Writes all customers that have not been deleted to the output as
+     * newline delimited JSON, ordered by ID.
+     *
+     * Rows are streamed from the database as they are written, so the
+     * customers are never held in memory all at once.
+     *
+     * @param mapper the mapper used to serialize each customer
+     * @param output the stream to write to
+     * @throws IOException if writing to the output fails
+     */
+    @Transactional
+    public void export(ObjectMapper mapper, OutputStream output) throws IOException {
+        Ndjson.write(find("deletedAt = 0", Sort.by("id")), getEntityManager(), mapper, output);
+    }
+
+    /**
+     * Checks that a dump of the given bounds can run, so that the caller can
+     * reject it before committing to a response.
+     *
+     * @param updatedSince the lower bound of the dump, or null
+     * @param updatedUntil the upper bound of the dump, or null
+     * @throws BadRequestException if the bounds are inverted
+     * @throws ServerErrorException if the database is not PostgreSQL
+     */
+    @Transactional
+    public void checkDump(Long updatedSince, Long updatedUntil) {
+        if (updatedSince != null && updatedUntil != null && updatedSince > updatedUntil) {
+            throw new BadRequestException("updated_since must not be after updated_until");
+        }
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                throw new ServerErrorException("customer dump requires PostgreSQL", Response.Status.NOT_IMPLEMENTED);
+            }
+        });
+    }
+
+    /**
+     * Copies the customers that have not been deleted straight from the
+     * database connection into the output, ordered by ID.
+     *
+     * Runs {@code COPY (SELECT ...) TO STDOUT}, so rows are never materialized
+     * as entities. CSV output has a header line. NDJSON output is built by
+     * PostgreSQL with {@code row_to_json} and copied with quote and delimiter
+     * characters that never appear in JSON text, so no escaping is applied.
+     *
+     * The output is usually already committed to a response by the time this
+     * runs, so the bounds and the database should be checked beforehand with
+     * {@link #checkDump(Long, Long)}.
+     *
+     * @param format the output format
+     * @param updatedSince if not null, only customers updated at or after this
+     * epoch second are copied
+     * @param updatedUntil if not null, only customers updated before this epoch
+     * second are copied
+     * @param output the stream to write to
+     * @throws IOException if writing to the output fails
+     */
+    @Transactional
+    public void dump(DumpFormat format, Long updatedSince, Long updatedUntil, OutputStream output) throws IOException {
+        var select = new StringBuilder("select ").append(DUMP_COLUMNS).append(" from customers where deleted_at = 0");
+        if (updatedSince != null) {
+            select.append(" and updated_at >= ").append(updatedSince);
+        }
+        if (updatedUntil != null) {
+            select.append(" and updated_at < ").append(updatedUntil);
+        }
+        select.append(" order by id");
+        var sql = switch (format) {
+            case CSV -> "copy (" + select + ") to stdout (format csv, header)";
+            case NDJSON -> "copy (select row_to_json(c) from (" + select + ") c) to stdout "
+                    + "(format csv, quote e'\\x01', delimiter e'\\x02')";
+        };
+        try {
+            getEntityManager().unwrap(Session.class).doWork(connection -> {
+                try {
+                    connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, output);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Finds the customers that have not been deleted and have a contact with
+     * the given email and phone, ordered by ID.
+     *
+     * The lookup is a JSONB containment query on {@code contacts}, answered by
+     * the {@code jsonb_path_ops} GIN index, so it does not scan the table.
+     * Values must match exactly as stored. When both are given they must
+     * belong to the same contact.
+     *
+     * @param email the email of the contact, may be null
+     * @param phone the phone of the contact, may be null
+     * @param mapper the mapper used to build the containment document
+     * @return at most 100 matching customers
+     * @throws BadRequestException if neither email nor phone is given
+     */
+    @SuppressWarnings("unchecked")
+    public List<Customer> searchContact(String email, String phone, ObjectMapper mapper) {
+        var contact = new HashMap<String, String>();
+        if (email != null && !email.isBlank()) {
+            contact.put("email", email.trim());
+        }
+        if (phone != null && !phone.isBlank()) {
+            contact.put("phone", phone.trim());
+        }
+        if (contact.isEmpty()) {
+            throw new BadRequestException("email or phone is required");
+        }
+        String filter;
+        try {
+            filter = mapper.writeValueAsString(List.of(contact));
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("invalid contact filter");
+        }
+        return getEntityManager()
+                .createNativeQuery("select * from customers where deleted_at = 0 "
+                        + "and contacts @> cast(:filter as jsonb) order by id limit " + SEARCH_LIMIT, Customer.class)
+                .setParameter("filter", filter)
+                .getResultList();
+    }
+
     /**
      * Retrieves a customer by ID, if it has not been deleted.
      *
@@ -89,8 +320,25 @@ public class CustomerRepository implements PanacheRepository<Customer> {
      * @param customer the customer object to validate
      */
     private void validate(Customer customer) {
-        var documentRegex = "^\\d+";
-        var emailRegex = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
+        validateFields(customer);
+        if (customer.getId() == null) {
+            if (existsByName(customer.getName())) {
+                throw new BadRequestException("name already exists");
+            }
+        } else {
+            if (existsByName(customer.getName(), customer.getId())) {
+                throw new BadRequestException("name already exists");
+            }
+        }
+    }
+
+    /**
+     * Validates the fields of a customer object without querying the database.
+     *
+     * @param customer the customer object to validate
+     * @throws BadRequestException if a field is missing or invalid
+     */
+    static void validateFields(Customer customer) {
         if (customer.getName() == null || customer.getName().isBlank()) {
             throw new BadRequestException("name is required");
         }
@@ -100,13 +348,13 @@ public class CustomerRepository implements PanacheRepository<Customer> {
         if (customer.getEmail() == null || customer.getEmail().isBlank()) {
             throw new BadRequestException("email is required");
         }
-        if (!customer.getEmail().matches(emailRegex)) {
+        if (!EMAIL_PATTERN.matcher(customer.getEmail()).matches()) {
             throw new BadRequestException("email is invalid");
         }
         if (customer.getDocument() == null || customer.getDocument().isBlank()) {
             throw new BadRequestException("document is required");
         }
-        if (!customer.getDocument().matches(documentRegex)) {
+        if (!DOCUMENT_PATTERN.matcher(customer.getDocument()).matches()) {
             throw new BadRequestException("document is invalid");
         }
         if (customer.getAddress() == null || customer.getAddress().isBlank()) {
@@ -115,15 +363,6 @@ public class CustomerRepository implements PanacheRepository<Customer> {
         if (customer.getContacts() == null || customer.getContacts().isEmpty()) {
             throw new BadRequestException("contacts is required");
         }
-        if (customer.getId() == null) {
-            if (existsByName(customer.getName())) {
-                throw new BadRequestException("name already exists");
-            }
-        } else {
-            if (existsByName(customer.getName(), customer.getId())) {
-                throw new BadRequestException("name already exists");
-            }
-        }
     }
 
     /**
@@ -142,6 +381,7 @@ public class CustomerRepository implements PanacheRepository<Customer> {
         customer.setCreatedAt(now);
         customer.setUpdatedAt(now);
         persist(customer);
+        changes.fire(CustomerChanged.of(customer));
     }
 
     /**
@@ -182,6 +422,7 @@ public class CustomerRepository implements PanacheRepository<Customer> {
         var now = Instant.now().getEpochSecond();
         customer.setUpdatedAt(now);
         persist(customer);
+        changes.fire(CustomerChanged.of(customer));
     }
 
     /**
@@ -220,6 +461,7 @@ public class CustomerRepository implements PanacheRepository<Customer> {
         var customer = get(id);
         customer.setDeletedAt(Instant.now().getEpochSecond());
         persist(customer);
+        changes.fire(CustomerChanged.of(customer));
     }
 
     /**
@@ -235,6 +477,296 @@ public class CustomerRepository implements PanacheRepository<Customer> {
         var customer = getDeleted(id);
         customer.setDeletedAt(0);
         persist(customer);
+        changes.fire(CustomerChanged.of(customer));
         return customer;
     }
+
+    /**
+     * Soft deletes the customers selected by the request in bulk.
+     *
+     * Runs a single UPDATE per chunk of IDs instead of loading each customer.
+     *
+     * @param request the IDs and filters selecting the customers
+     * @return the number of deleted customers
+     * @throws BadRequestException if the request selects nothing
+     */
+    public BulkResponse bulkDelete(BulkRequest<Long> request) {
+        var response = Bulk.update(this, "deletedAt = :now", "deletedAt = 0", Instant.now().getEpochSecond(), request);
+        changes.fire(CustomerChanged.all());
+        return response;
+    }
+
+    /**
+     * Restores the deleted customers selected by the request in bulk.
+     *
+     * @param request the IDs and filters selecting the customers
+     * @return the number of restored customers
+     * @throws BadRequestException if the request selects nothing
+     */
+    public BulkResponse bulkRestore(BulkRequest<Long> request) {
+        var response = Bulk.update(this, "deletedAt = 0", "deletedAt != 0", Instant.now().getEpochSecond(), request);
+        changes.fire(CustomerChanged.all());
+        return response;
+    }
+
+    /**
+     * Imports customers from newline delimited JSON, one customer DTO per line.
+     * A line that is not a JSON object, such as {@code null}, is rejected as a
+     * row error.
+     *
+     * @param input the rows to import
+     * @param mapper the mapper used to read each row and write the contacts
+     * @return the number of imported rows and the rejected ones
+     * @throws IOException if reading the input fails
+     * @see #load(int, List, List, ObjectMapper)
+     */
+    public ImportResponse importNdjson(Reader input, ObjectMapper mapper) throws IOException {
+        var reader = mapper.readerFor(Customer.DTO.class);
+        var lines = new BufferedReader(input);
+        var rows = new ArrayList<ImportRow>();
+        var errors = new ArrayList<ImportResponse.Error>();
+        var count = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            count++;
+            JsonNode node;
+            try {
+                node = mapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                errors.add(new ImportResponse.Error(count, "row is not valid JSON"));
+                continue;
+            }
+            if (!node.isObject()) {
+                errors.add(new ImportResponse.Error(count, "row is not a JSON object"));
+                continue;
+            }
+            try {
+                accept(count, reader.readValue(node), rows, errors);
+            } catch (IOException e) {
+                errors.add(new ImportResponse.Error(count, "row is not a valid customer"));
+            }
+        }
+        return load(count, rows, errors, mapper);
+    }
+
+    /**
+     * Imports customers from CSV.
+     *
+     * The first record is a header naming the columns: name, phone, email,
+     * document, address, contacts and, optionally, active. The contacts column
+     * holds the JSON array of contacts.
+     *
+     * @param input the rows to import
+     * @param mapper the mapper used to read and write the contacts
+     * @return the number of imported rows and the rejected ones
+     * @throws IOException if reading the input fails
+     * @throws BadRequestException if the header is missing a required column
+     * @see #load(int, List, List, ObjectMapper)
+     */
+    public ImportResponse importCsv(Reader input, ObjectMapper mapper) throws IOException {
+        var reader = new BufferedReader(input);
+        var header = Csv.read(reader);
+        if (header == null) {
+            throw new BadRequestException("csv header is required");
+        }
+        var columns = new HashMap<String, Integer>();
+        for (var i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).strip().toLowerCase(), i);
+        }
+        for (var column : List.of("name", "phone", "email", "document", "address", "contacts")) {
+            if (!columns.containsKey(column)) {
+                throw new BadRequestException("csv column " + column + " is required");
+            }
+        }
+        var rows = new ArrayList<ImportRow>();
+        var errors = new ArrayList<ImportResponse.Error>();
+        var count = 0;
+        List<String> fields;
+        while ((fields = Csv.read(reader)) != null) {
+            if (fields.size() == 1 && fields.getFirst().isBlank()) {
+                continue;
+            }
+            count++;
+            if (fields.size() != header.size()) {
+                errors.add(new ImportResponse.Error(count, "row has " + fields.size() + " columns, expected " + header.size()));
+                continue;
+            }
+            Set<Customer.Contact> contacts;
+            try {
+                var value = fields.get(columns.get("contacts"));
+                contacts = value.isBlank() ? null : mapper.readValue(value, CONTACTS);
+            } catch (JsonProcessingException e) {
+                errors.add(new ImportResponse.Error(count, "contacts is not valid JSON"));
+                continue;
+            }
+            var active = columns.containsKey("active") && Boolean.parseBoolean(fields.get(columns.get("active")).strip());
+            accept(count, new Customer.DTO(
+                    fields.get(columns.get("name")),
+                    fields.get(columns.get("phone")),
+                    fields.get(columns.get("email")),
+                    fields.get(columns.get("document")),
+                    fields.get(columns.get("address")),
+                    contacts,
+                    active), rows, errors);
+        }
+        return load(count, rows, errors, mapper);
+    }
+
+    private void accept(int row, Customer.DTO dto, List<ImportRow> rows, List<ImportResponse.Error> errors) {
+        var customer = Customer.builder()
+                .name(dto.name())
+                .phone(dto.phone())
+                .email(dto.email())
+                .document(dto.document())
+                .address(dto.address())
+                .contacts(dto.contacts())
+                .active(dto.active())
+                .build();
+        try {
+            validateFields(customer);
+            rows.add(new ImportRow(row, customer));
+        } catch (BadRequestException e) {
+            errors.add(new ImportResponse.Error(row, e.getMessage()));
+        }
+    }
+
+    /**
+     * Inserts the rows that passed field validation.
+     *
+     * Rejects rows whose name repeats within the import or already exists in
+     * the database, checking the whole batch in a single query, then loads the
+     * remaining rows with {@code COPY ... FROM STDIN} on PostgreSQL or with
+     * JDBC batch inserts on other databases.
+     *
+     * @param received the number of rows read from the request
+     * @param rows the rows that passed field validation
+     * @param errors the rows rejected so far
+     * @param mapper the mapper used to write the contacts
+     * @return the number of imported rows and the rejected ones
+     */
+    private ImportResponse load(int received, List<ImportRow> rows, List<ImportResponse.Error> errors, ObjectMapper mapper) {
+        var names = new HashSet<String>();
+        var unique = new ArrayList<ImportRow>(rows.size());
+        for (var row : rows) {
+            if (names.add(row.customer().getName())) {
+                unique.add(row);
+            } else {
+                errors.add(new ImportResponse.Error(row.row(), "name is duplicated in the import"));
+            }
+        }
+        var existing = existingNames(names);
+        var customers = new ArrayList<Customer>(unique.size());
+        for (var row : unique) {
+            if (existing.contains(row.customer().getName())) {
+                errors.add(new ImportResponse.Error(row.row(), "name already exists"));
+            } else {
+                customers.add(row.customer());
+            }
+        }
+        errors.sort(Comparator.comparingInt(ImportResponse.Error::row));
+        var imported = customers.isEmpty() ? 0 : insert(customers, mapper);
+        if (imported > 0) {
+            changes.fire(CustomerChanged.all());
+        }
+        return new ImportResponse(received, imported, errors);
+    }
+
+    private Set<String> existingNames(Set<String> names) {
+        if (names.isEmpty()) {
+            return Set.of();
+        }
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            var existing = new HashSet<String>();
+            try (var statement = connection.prepareStatement("select name from customers where name = any (?)")) {
+                statement.setArray(1, connection.createArrayOf("varchar", names.toArray()));
+                try (var result = statement.executeQuery()) {
+                    while (result.next()) {
+                        existing.add(result.getString(1));
+                    }
+                }
+            }
+            return existing;
+        });
+    }
+
+    private long insert(List<Customer> customers, ObjectMapper mapper) {
+        var now = Instant.now().getEpochSecond();
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                return copy(connection.unwrap(PGConnection.class), customers, mapper, now);
+            }
+            return batch(connection, customers, mapper, now);
+        });
+    }
+
+    private static long copy(PGConnection connection, List<Customer> customers, ObjectMapper mapper, long now)
+            throws SQLException {
+        var copy = connection.getCopyAPI().copyIn("copy customers (" + IMPORT_COLUMNS + ") from stdin (format csv)");
+        try {
+            var buffer = new StringBuilder(COPY_BUFFER);
+            for (var customer : customers) {
+                Csv.write(buffer, customer.getName());
+                Csv.write(buffer.append(','), customer.getPhone());
+                Csv.write(buffer.append(','), customer.getEmail());
+                Csv.write(buffer.append(','), customer.getDocument());
+                Csv.write(buffer.append(','), customer.getAddress());
+                Csv.write(buffer.append(','), json(mapper, customer.getContacts()));
+                buffer.append(',').append(customer.isActive())
+                        .append(',').append(now)
+                        .append(',').append(now)
+                        .append(",0\n");
+                if (buffer.length() >= COPY_BUFFER) {
+                    var bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+                    copy.writeToCopy(bytes, 0, bytes.length);
+                    buffer.setLength(0);
+                }
+            }
+            var bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+            return copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    private static long batch(Connection connection, List<Customer> customers, ObjectMapper mapper, long now)
+            throws SQLException {
+        var sql = "insert into customers (" + IMPORT_COLUMNS + ") values (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+        try (var statement = connection.prepareStatement(sql)) {
+            var pending = 0;
+            for (var customer : customers) {
+                statement.setString(1, customer.getName());
+                statement.setString(2, customer.getPhone());
+                statement.setString(3, customer.getEmail());
+                statement.setString(4, customer.getDocument());
+                statement.setString(5, customer.getAddress());
+                statement.setBytes(6, json(mapper, customer.getContacts()).getBytes(StandardCharsets.UTF_8));
+                statement.setBoolean(7, customer.isActive());
+                statement.setLong(8, now);
+                statement.setLong(9, now);
+                statement.addBatch();
+                if (++pending == IMPORT_BATCH) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+        return customers.size();
+    }
+
+    private static String json(ObjectMapper mapper, Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
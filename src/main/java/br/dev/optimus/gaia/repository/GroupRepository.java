@@ -1,20 +1,46 @@
 package br.dev.optimus.gaia.repository;
 
+import br.dev.optimus.gaia.cache.NearCache;
 import br.dev.optimus.gaia.model.Group;
+import br.dev.optimus.gaia.request.BulkRequest;
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.response.BulkResponse;
+import br.dev.optimus.gaia.response.PageResponse;
+import br.dev.optimus.gaia.security.PermissionRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Instant;
 import java.util.List;
 
 @ApplicationScoped
 public class GroupRepository implements PanacheRepositoryBase<Group, Integer> {
+    private static final Keyset<Group> KEYSET = Keyset.<Group>of(Group::getId, Integer::valueOf)
+            .key("name", "name", value -> value, Group::getName);
+    private final NearCache cache;
+
+    public GroupRepository(NearCache cache) {
+        this.cache = cache;
+    }
+
     private void validate(Group.DTO dto, Integer id) {
         if (dto.name() == null || dto.name().isBlank()) {
             throw new BadRequestException("group name is required");
         }
+        if (dto.permissions() != null) {
+            for (var permission : dto.permissions()) {
+                if (!PermissionRegistry.isDeclared(permission)) {
+                    throw new BadRequestException("group permission " + permission + " does not exist");
+                }
+            }
+        }
         if (id != null && nameExists(dto.name(), id)) {
             throw new BadRequestException("group name already exists");
         }
@@ -39,16 +65,43 @@ public class GroupRepository implements PanacheRepositoryBase<Group, Integer> {
         return find("visible and deletedAt = 0").list();
     }
 
+    public PageResponse<Group> page(PageRequest request) {
+        return KEYSET.page(this::find, "visible and deletedAt = 0", request);
+    }
+
+    @Transactional
+    public void export(ObjectMapper mapper, OutputStream output) throws IOException {
+        Ndjson.write(find("visible and deletedAt = 0", Sort.by("id")), getEntityManager(), mapper, output);
+    }
+
+    /**
+     * Retrieves a group from the near cache, loading it on a miss. The
+     * returned group is shared and must not be modified.
+     */
     public Group get(Integer id) {
+        return cache.group(id, key -> detach(load(key)));
+    }
+
+    private Group load(Integer id) {
         return find("id = ?1 and deletedAt = 0", id)
                 .firstResultOptional()
                 .orElseThrow(() -> new NotFoundException("group not found"));
     }
 
     public Group findByName(String name) {
-        return find("name = ?1 and deletedAt = 0", name)
+        return cache.groupByName(name, key -> find("name = ?1 and deletedAt = 0", key)
                 .firstResultOptional()
-                .orElse(null);
+                .map(this::detach)
+                .orElse(null));
+    }
+
+    /**
+     * Detaches a group before it is shared through the near cache, so that it
+     * is never flushed, or lazily loaded, by the session that loaded it.
+     */
+    private Group detach(Group group) {
+        getEntityManager().detach(group);
+        return group;
     }
 
     public void create(Group group) {
@@ -62,6 +115,7 @@ public class GroupRepository implements PanacheRepositoryBase<Group, Integer> {
         var now = Instant.now().getEpochSecond();
         group.setUpdatedAt(now);
         persist(group);
+        cache.invalidateGroup(group.getId());
     }
 
     public Group create(Group.DTO dto) {
@@ -76,7 +130,7 @@ public class GroupRepository implements PanacheRepositoryBase<Group, Integer> {
     
     public Group update(Integer id, Group.DTO dto) {
         validate(dto, id);
-        var data = get(id);
+        var data = load(id);
         data.setName(dto.name());
         data.setPermissions(dto.permissions());
         data.setLocked(dto.locked());
@@ -85,15 +139,27 @@ public class GroupRepository implements PanacheRepositoryBase<Group, Integer> {
     }
     
     public void delete(Integer id) {
-        var group = get(id);
+        var group = load(id);
         group.setDeletedAt(Instant.now().getEpochSecond());
         update(group);
     }
     
     public Group restore(Integer id) {
-        var data = get(id);
+        var data = load(id);
         data.setDeletedAt(0);
         update(data);
         return data;
     }
+
+    public BulkResponse bulkDelete(BulkRequest<Integer> request) {
+        var response = Bulk.update(this, "deletedAt = :now", "editable and deletedAt = 0", Instant.now().getEpochSecond(), request);
+        cache.invalidateAll();
+        return response;
+    }
+
+    public BulkResponse bulkRestore(BulkRequest<Integer> request) {
+        var response = Bulk.update(this, "deletedAt = 0", "deletedAt != 0", Instant.now().getEpochSecond(), request);
+        cache.invalidateAll();
+        return response;
+    }
 }
@@ -0,0 +1,62 @@
+package br.dev.optimus.gaia.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Converts between {@code jsonb} values of the reactive client and the types
+ * mapped by the entities.
+ */
+final class Jsonb {
+
+    private Jsonb() {
+    }
+
+    /**
+     * Reads a {@code jsonb} column value.
+     *
+     * @param mapper the mapper used to read the value
+     * @param value the value returned by the reactive client
+     * @param type the type to read
+     * @return the value, or null if the column is null
+     * @throws IllegalStateException if the value does not match the type
+     */
+    static <T> T read(ObjectMapper mapper, Object value, TypeReference<T> type) {
+        if (value == null) {
+            return null;
+        }
+        var json = switch (value) {
+            case JsonArray array -> array.encode();
+            case JsonObject object -> object.encode();
+            default -> Json.encode(value);
+        };
+        try {
+            return mapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("jsonb value does not match " + type.getType(), e);
+        }
+    }
+
+    /**
+     * Converts a value into a {@code jsonb} parameter of the reactive client.
+     *
+     * @param mapper the mapper used to write the value
+     * @param value the value to write
+     * @return the parameter, or null if the value is null
+     */
+    static Object write(ObjectMapper mapper, Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Json.decodeValue(mapper.writeValueAsString(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package br.dev.optimus.gaia.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.response.PageResponse;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import io.quarkus.panache.common.Sort;
+import jakarta.ws.rs.BadRequestException;
+
+/**
+ * Keyset (seek) pagination over the rows of an entity ordered by one of its
+ * columns and then by id.
+ *
+ * Each page is fetched with a range predicate on the sort key and id of the
+ * last row of the previous page, so the cost of a page does not depend on how
+ * deep the cursor is. The cursor handed to clients is the base64url encoding
+ * of {@code key:direction:id:value}.
+ *
+ * @param <E> the type of the rows, an entity or a projection of it
+ */
+final class Keyset<E> {
+
+    private static final String ID = "id";
+
+    private record Key<E>(String field, Function<String, Object> parser, Function<E, Object> getter) {
+    }
+
+    private final Function<E, Object> idGetter;
+    private final Function<String, Object> idParser;
+    private final Map<String, Key<E>> keys = new LinkedHashMap<>();
+
+    private Keyset(Function<E, Object> idGetter, Function<String, Object> idParser) {
+        this.idGetter = idGetter;
+        this.idParser = idParser;
+    }
+
+    /**
+     * Creates a keyset sorted by id only.
+     *
+     * @param idGetter extracts the id of a row
+     * @param idParser parses an id encoded in a cursor
+     * @return the keyset
+     */
+    static <E> Keyset<E> of(Function<E, Object> idGetter, Function<String, Object> idParser) {
+        var keyset = new Keyset<E>(idGetter, idParser);
+        keyset.keys.put(ID, new Key<>(ID, idParser, idGetter));
+        return keyset;
+    }
+
+    /**
+     * Registers an additional sort key.
+     *
+     * @param name the name accepted in the {@code sort} parameter
+     * @param field the entity field the key is mapped to
+     * @param parser parses a value encoded in a cursor
+     * @param getter extracts the value of the field from a row
+     * @return this keyset
+     */
+    Keyset<E> key(String name, String field, Function<String, Object> parser, Function<E, Object> getter) {
+        keys.put(name, new Key<>(field, parser, getter));
+        return this;
+    }
+
+    /**
+     * Runs a query built by the keyset, usually a repository's
+     * {@code find(String, Sort, Map)}, optionally followed by a projection.
+     */
+    @FunctionalInterface
+    interface Finder<E> {
+        PanacheQuery<E> find(String query, Sort sort, Map<String, Object> params);
+    }
+
+    /**
+     * Fetches one page of the rows matching the given filter.
+     *
+     * @param finder runs the page query
+     * @param filter the HQL condition every row must satisfy
+     * @param request the page request
+     * @return the page, with the cursor of the next one when more rows follow
+     * @throws BadRequestException if the sort key or the cursor is invalid
+     */
+    PageResponse<E> page(Finder<E> finder, String filter, PageRequest request) {
+        var name = ID;
+        var descending = false;
+        if (request.sort() != null) {
+            descending = request.sort().startsWith("-");
+            name = descending ? request.sort().substring(1) : request.sort();
+        }
+        var key = keys.get(name);
+        if (key == null) {
+            throw new BadRequestException("sort must be one of " + String.join(", ", keys.keySet()));
+        }
+        var direction = descending ? Sort.Direction.Descending : Sort.Direction.Ascending;
+        var sort = Sort.by(key.field(), direction);
+        if (!ID.equals(name)) {
+            sort = sort.and(ID, direction);
+        }
+
+        var query = new StringBuilder(filter);
+        var params = new HashMap<String, Object>();
+        if (request.cursor() != null) {
+            var cursor = decode(request.cursor(), name, descending);
+            var op = descending ? "<" : ">";
+            try {
+                params.put("id", idParser.apply(cursor[2]));
+                if (!ID.equals(name)) {
+                    params.put("value", key.parser().apply(cursor[3]));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("cursor is invalid");
+            }
+            if (ID.equals(name)) {
+                query.append(" and id ").append(op).append(" :id");
+            } else {
+                query.append(" and (").append(key.field()).append(' ').append(op).append(" :value or (")
+                        .append(key.field()).append(" = :value and id ").append(op).append(" :id))");
+            }
+        }
+
+        var rows = finder.find(query.toString(), sort, params)
+                .range(0, request.limit())
+                .list();
+        String next = null;
+        if (rows.size() > request.limit()) {
+            rows = rows.subList(0, request.limit());
+            var last = rows.getLast();
+            next = encode(name, descending, idGetter.apply(last), key.getter().apply(last));
+        }
+        return new PageResponse<>(rows, next);
+    }
+
+    static String encode(String name, boolean descending, Object id, Object value) {
+        var raw = name + ":" + (descending ? "desc" : "asc") + ":" + id + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String[] decode(String cursor, String name, boolean descending) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 4);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("cursor is invalid");
+        }
+        if (parts.length != 4) {
+            throw new BadRequestException("cursor is invalid");
+        }
+        if (!parts[0].equals(name) || !parts[1].equals(descending ? "desc" : "asc")) {
+            throw new BadRequestException("cursor does not match sort");
+        }
+        return parts;
+    }
+}
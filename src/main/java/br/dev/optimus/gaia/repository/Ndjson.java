@@ -0,0 +1,84 @@
+package br.dev.optimus.gaia.repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+import org.hibernate.jpa.HibernateHints;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Writes the rows of a query as newline delimited JSON.
+ *
+ * Rows are pulled through a scrollable result with a bounded fetch size and
+ * entities are detached from the persistence context once written, so memory
+ * use stays flat regardless of the number of rows. The first row is flushed
+ * as soon as it is written and the following ones once per fetch. Must be
+ * called within a transaction so the JDBC driver honours the fetch size.
+ */
+final class Ndjson {
+
+    static final int FETCH_SIZE = 500;
+
+    private Ndjson() {
+    }
+
+    /**
+     * Streams the entities returned by the query into the output, detaching
+     * each one once written.
+     *
+     * @param query the query to stream
+     * @param em the entity manager the query is bound to
+     * @param mapper the mapper used to serialize each row
+     * @param output the stream to write to
+     * @throws IOException if writing to the output fails
+     */
+    static <E> void write(PanacheQuery<E> query, EntityManager em, ObjectMapper mapper, OutputStream output)
+            throws IOException {
+        write(query, em::detach, mapper, output);
+    }
+
+    /**
+     * Streams the projections returned by the query into the output.
+     *
+     * @param query the query to stream
+     * @param mapper the mapper used to serialize each row
+     * @param output the stream to write to
+     * @throws IOException if writing to the output fails
+     */
+    static <E> void write(PanacheQuery<E> query, ObjectMapper mapper, OutputStream output) throws IOException {
+        write(query, row -> {
+        }, mapper, output);
+    }
+
+    private static <E> void write(PanacheQuery<E> query, Consumer<E> release, ObjectMapper mapper, OutputStream output)
+            throws IOException {
+        var writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (var generator = mapper.getFactory().createGenerator(output);
+             var rows = query.withHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                     .withHint(HibernateHints.HINT_READ_ONLY, true)
+                     .stream()) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            var count = 0;
+            for (var it = rows.iterator(); it.hasNext(); ) {
+                var row = it.next();
+                writer.writeValue(generator, row);
+                release.accept(row);
+                if (++count == 1 || count % FETCH_SIZE == 0) {
+                    generator.flush();
+                }
+            }
+            if (count > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package br.dev.optimus.gaia.repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.model.Customer;
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.response.PageResponse;
+import br.dev.optimus.gaia.search.CustomerChanged;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.NotFoundException;
+
+/**
+ * Non-blocking counterpart of {@link CustomerRepository} for the CRUD
+ * operations, running SQL on the reactive PostgreSQL client so no worker
+ * thread waits on the database.
+ *
+ * Validation and results match the blocking repository. Only available when
+ * {@code gaia.persistence.reactive.enabled} is set at build time.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "gaia.persistence.reactive.enabled", stringValue = "true")
+public class ReactiveCustomerRepository {
+
+    private static final String COLUMNS = "id, name, phone, email, document, address, contacts, active, created_at, updated_at, deleted_at";
+    private static final String SELECT = "select " + COLUMNS + " from customers";
+    private static final SqlKeyset<Customer> KEYSET = SqlKeyset.<Customer>of("id", Customer::getId, Long::valueOf)
+            .key("name", "name", value -> value, Customer::getName)
+            .key("created_at", "created_at", Long::valueOf, Customer::getCreatedAt)
+            .key("updated_at", "updated_at", Long::valueOf, Customer::getUpdatedAt);
+
+    private final Pool pool;
+    private final ObjectMapper mapper;
+    private final Event<CustomerChanged> changes;
+
+    public ReactiveCustomerRepository(Pool pool, ObjectMapper mapper, Event<CustomerChanged> changes) {
+        this.pool = pool;
+        this.mapper = mapper;
+        this.changes = changes;
+    }
+
+    /**
+     * Retrieves one page of the customers that have not been deleted.
+     *
+     * @param request the cursor, limit and sort of the page
+     * @return the page of customers and the cursor of the next one
+     * @throws BadRequestException if the sort key or the cursor is invalid
+     */
+    public Uni<PageResponse<Customer>> page(PageRequest request) {
+        return KEYSET.page((sql, params) -> pool.preparedQuery(sql).execute(params).map(this::customers),
+                SELECT, "deleted_at = 0", request);
+    }
+
+    /**
+     * Retrieves a customer by ID, if it has not been deleted.
+     *
+     * @param id the ID of the customer to retrieve
+     * @return the customer, or a {@link NotFoundException} if it has been
+     * deleted or does not exist
+     */
+    public Uni<Customer> get(Long id) {
+        return one(pool, SELECT + " where id = $1 and deleted_at = 0", Tuple.of(id));
+    }
+
+    /**
+     * Creates a customer from the DTO, with the same validation as
+     * {@link CustomerRepository#create(Customer.DTO)}.
+     *
+     * @param dto the customer DTO to be created
+     * @return the created customer
+     * @throws BadRequestException if validation fails
+     */
+    public Uni<Customer> create(Customer.DTO dto) {
+        var customer = Customer.builder()
+                .name(dto.name())
+                .phone(dto.phone())
+                .email(dto.email())
+                .document(dto.document())
+                .address(dto.address())
+                .contacts(dto.contacts())
+                .build();
+        CustomerRepository.validateFields(customer);
+        var now = Instant.now().getEpochSecond();
+        return pool.withTransaction(connection -> nameExists(connection, customer.getName(), null)
+                        .chain(() -> connection.preparedQuery("insert into customers (name, phone, email, document, address, "
+                                        + "contacts, active, created_at, updated_at, deleted_at) "
+                                        + "values ($1, $2, $3, $4, $5, $6, $7, $8, $8, 0) returning " + COLUMNS)
+                                .execute(Tuple.from(Arrays.asList(customer.getName(), customer.getPhone(), customer.getEmail(),
+                                        customer.getDocument(), customer.getAddress(),
+                                        Jsonb.write(mapper, customer.getContacts()), customer.isActive(), now)))))
+                .map(rows -> customer(rows.iterator().next()))
+                .invoke(created -> changes.fire(CustomerChanged.of(created)));
+    }
+
+    /**
+     * Updates a customer from the DTO, with the same validation as
+     * {@link CustomerRepository#update(Long, Customer.DTO)}.
+     *
+     * @param id the ID of the customer to be updated
+     * @param dto the customer DTO to be used for updating
+     * @return the updated customer
+     * @throws BadRequestException if validation fails
+     * @throws NotFoundException if the customer has been deleted or does not
+     * exist
+     */
+    public Uni<Customer> update(Long id, Customer.DTO dto) {
+        var customer = Customer.builder()
+                .name(dto.name())
+                .phone(dto.phone())
+                .email(dto.email())
+                .document(dto.document())
+                .address(dto.address())
+                .contacts(dto.contacts())
+                .build();
+        CustomerRepository.validateFields(customer);
+        var now = Instant.now().getEpochSecond();
+        return pool.withTransaction(connection -> one(connection, SELECT + " where id = $1 and deleted_at = 0 for update", Tuple.of(id))
+                        .chain(() -> nameExists(connection, customer.getName(), id))
+                        .chain(() -> connection.preparedQuery("update customers set name = $2, phone = $3, email = $4, "
+                                        + "document = $5, address = $6, contacts = $7, updated_at = $8 where id = $1 returning " + COLUMNS)
+                                .execute(Tuple.from(Arrays.asList(id, customer.getName(), customer.getPhone(), customer.getEmail(),
+                                        customer.getDocument(), customer.getAddress(),
+                                        Jsonb.write(mapper, customer.getContacts()), now)))))
+                .map(rows -> customer(rows.iterator().next()))
+                .invoke(updated -> changes.fire(CustomerChanged.of(updated)));
+    }
+
+    /**
+     * Soft deletes a customer.
+     *
+     * @param id the ID of the customer to be deleted
+     * @return nothing, or a {@link NotFoundException} if it has already been
+     * deleted or does not exist
+     */
+    public Uni<Void> delete(Long id) {
+        return one(pool, "update customers set deleted_at = $2 where id = $1 and deleted_at = 0 returning " + COLUMNS,
+                Tuple.of(id, Instant.now().getEpochSecond()))
+                .invoke(deleted -> changes.fire(CustomerChanged.of(deleted)))
+                .replaceWithVoid();
+    }
+
+    /**
+     * Restores a customer, whether or not it has been deleted.
+     *
+     * @param id the ID of the customer to be restored
+     * @return the restored customer, or a {@link NotFoundException} if it does
+     * not exist
+     */
+    public Uni<Customer> restore(Long id) {
+        return one(pool, "update customers set deleted_at = 0 where id = $1 returning " + COLUMNS, Tuple.of(id))
+                .invoke(restored -> changes.fire(CustomerChanged.of(restored)));
+    }
+
+    private Uni<Void> nameExists(SqlClient client, String name, Long id) {
+        var sql = id == null
+                ? "select 1 from customers where name = $1"
+                : "select 1 from customers where name = $1 and id != $2";
+        return client.preparedQuery(sql).execute(id == null ? Tuple.of(name) : Tuple.of(name, id))
+                .invoke(rows -> {
+                    if (rows.size() > 0) {
+                        throw new BadRequestException("name already exists");
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    private Uni<Customer> one(SqlClient client, String sql, Tuple params) {
+        return client.preparedQuery(sql).execute(params).map(rows -> {
+            if (rows.size() == 0) {
+                throw new NotFoundException("customer not found");
+            }
+            return customer(rows.iterator().next());
+        });
+    }
+
+    private List<Customer> customers(RowSet<Row> rows) {
+        var customers = new ArrayList<Customer>(rows.size());
+        for (var row : rows) {
+            customers.add(customer(row));
+        }
+        return customers;
+    }
+
+    /**
+     * Maps a row as stored, like Hibernate does for the blocking repository,
+     * so null columns are kept and values are not normalized again.
+     */
+    private Customer customer(Row row) {
+        return new Customer(row.getLong("id"), row.getString("name"), row.getString("phone"), row.getString("email"),
+                row.getString("document"), row.getString("address"),
+                Jsonb.read(mapper, row.getValue("contacts"), CustomerRepository.CONTACTS), row.getBoolean("active"),
+                row.getLong("created_at"), row.getLong("updated_at"), row.getLong("deleted_at"));
+    }
+}
@@ -0,0 +1,157 @@
+package br.dev.optimus.gaia.repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.cache.NearCache;
+import br.dev.optimus.gaia.model.Group;
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.response.PageResponse;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.NotFoundException;
+
+/**
+ * Non-blocking counterpart of {@link GroupRepository} for the CRUD operations.
+ *
+ * Reads go to the database rather than the near cache. Writes publish the
+ * cache invalidation from their own transaction, so every instance drops the
+ * group once it commits. Only available when
+ * {@code gaia.persistence.reactive.enabled} is set at build time.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "gaia.persistence.reactive.enabled", stringValue = "true")
+public class ReactiveGroupRepository {
+
+    private static final String COLUMNS = "id, name, permissions, visible, editable, locked, created_at, updated_at, deleted_at";
+    private static final String SELECT = "select " + COLUMNS + " from groups";
+    private static final TypeReference<Set<String>> PERMISSIONS = new TypeReference<>() {
+    };
+    private static final SqlKeyset<Group> KEYSET = SqlKeyset.<Group>of("id", Group::getId, Integer::valueOf)
+            .key("name", "name", value -> value, Group::getName);
+
+    private final Pool pool;
+    private final ObjectMapper mapper;
+
+    public ReactiveGroupRepository(Pool pool, ObjectMapper mapper) {
+        this.pool = pool;
+        this.mapper = mapper;
+    }
+
+    public Uni<PageResponse<Group>> page(PageRequest request) {
+        return KEYSET.page((sql, params) -> pool.preparedQuery(sql).execute(params).map(this::groups),
+                SELECT, "visible and deleted_at = 0", request);
+    }
+
+    public Uni<Group> get(Integer id) {
+        return one(pool, SELECT + " where id = $1 and deleted_at = 0", Tuple.of(id));
+    }
+
+    public Uni<Group> create(Group.DTO dto) {
+        validate(dto);
+        var now = Instant.now().getEpochSecond();
+        var group = Group.builder()
+                .name(dto.name())
+                .permissions(dto.permissions())
+                .locked(dto.locked()).build();
+        return pool.withTransaction(connection -> nameExists(connection, dto.name(), null)
+                .chain(() -> one(connection, "insert into groups (name, permissions, visible, editable, locked, "
+                                + "created_at, updated_at, deleted_at) values ($1, $2, $3, $4, $5, $6, $6, 0) returning " + COLUMNS,
+                        Tuple.from(Arrays.asList(group.getName(), Jsonb.write(mapper, group.getPermissions()),
+                                group.isVisible(), group.isEditable(), group.isLocked(), now)))));
+    }
+
+    public Uni<Group> update(Integer id, Group.DTO dto) {
+        validate(dto);
+        var now = Instant.now().getEpochSecond();
+        return pool.withTransaction(connection -> nameExists(connection, dto.name(), id)
+                .chain(() -> one(connection, "update groups set name = $2, permissions = $3, locked = $4, updated_at = $5 "
+                                + "where id = $1 and deleted_at = 0 returning " + COLUMNS,
+                        Tuple.from(Arrays.asList(id, dto.name(), Jsonb.write(mapper, dto.permissions()), dto.locked(), now))))
+                .call(group -> invalidate(connection, id)));
+    }
+
+    public Uni<Void> delete(Integer id) {
+        var now = Instant.now().getEpochSecond();
+        return pool.withTransaction(connection -> one(connection, "update groups set deleted_at = $2, updated_at = $2 "
+                        + "where id = $1 and deleted_at = 0 returning " + COLUMNS, Tuple.of(id, now))
+                .call(group -> invalidate(connection, id)))
+                .replaceWithVoid();
+    }
+
+    public Uni<Group> restore(Integer id) {
+        var now = Instant.now().getEpochSecond();
+        return pool.withTransaction(connection -> one(connection, "update groups set deleted_at = 0, updated_at = $2 "
+                        + "where id = $1 returning " + COLUMNS, Tuple.of(id, now))
+                .call(group -> invalidate(connection, id)));
+    }
+
+    private static void validate(Group.DTO dto) {
+        if (dto.name() == null || dto.name().isBlank()) {
+            throw new BadRequestException("group name is required");
+        }
+    }
+
+    private Uni<Void> nameExists(SqlClient client, String name, Integer id) {
+        var sql = id == null
+                ? "select 1 from groups where name = $1"
+                : "select 1 from groups where name = $1 and id != $2";
+        return client.preparedQuery(sql).execute(id == null ? Tuple.of(name) : Tuple.of(name, id))
+                .invoke(rows -> {
+                    if (rows.size() > 0) {
+                        throw new BadRequestException("group name already exists");
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    private Uni<Void> invalidate(SqlClient client, Integer id) {
+        return client.preparedQuery("select pg_notify($1, $2)")
+                .execute(Tuple.of(NearCache.CHANNEL, NearCache.groupPayload(id)))
+                .replaceWithVoid();
+    }
+
+    private Uni<Group> one(SqlClient client, String sql, Tuple params) {
+        return client.preparedQuery(sql).execute(params).map(rows -> {
+            if (rows.size() == 0) {
+                throw new NotFoundException("group not found");
+            }
+            return group(rows.iterator().next());
+        });
+    }
+
+    private List<Group> groups(RowSet<Row> rows) {
+        var groups = new ArrayList<Group>(rows.size());
+        for (var row : rows) {
+            groups.add(group(row));
+        }
+        return groups;
+    }
+
+    private Group group(Row row) {
+        var group = new Group();
+        group.setId(row.getInteger("id"));
+        group.setName(row.getString("name"));
+        group.setPermissions(Jsonb.read(mapper, row.getValue("permissions"), PERMISSIONS));
+        group.setVisible(row.getBoolean("visible"));
+        group.setEditable(row.getBoolean("editable"));
+        group.setLocked(row.getBoolean("locked"));
+        group.setCreatedAt(row.getLong("created_at"));
+        group.setUpdatedAt(row.getLong("updated_at"));
+        group.setDeletedAt(row.getLong("deleted_at"));
+        return group;
+    }
+}
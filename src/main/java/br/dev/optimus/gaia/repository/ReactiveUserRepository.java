@@ -0,0 +1,222 @@
+package br.dev.optimus.gaia.repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import br.dev.optimus.gaia.cache.NearCache;
+import br.dev.optimus.gaia.model.User;
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.response.PageResponse;
+import br.dev.optimus.gaia.response.UserResponse;
+import br.dev.optimus.gaia.service.PasswordHasher;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.NotFoundException;
+
+/**
+ * Non-blocking counterpart of {@link UserRepository} for the CRUD operations.
+ *
+ * Users are read as {@link UserResponse} projections joined with their group.
+ * Passwords are hashed on the {@link PasswordHasher} pool before the
+ * transaction starts, so no connection is held while bcrypt runs. Only
+ * available when {@code gaia.persistence.reactive.enabled} is set at build
+ * time.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "gaia.persistence.reactive.enabled", stringValue = "true")
+public class ReactiveUserRepository {
+
+    private static final String SELECT = "select u.id, u.group_id, g.name as group_name, u.name, u.phone, u.job_title, "
+            + "u.email, u.username, u.visible, u.editable, u.locked, u.created_at, u.updated_at, u.deleted_at "
+            + "from users u left join groups g on g.id = u.group_id";
+    private static final SqlKeyset<UserResponse> KEYSET = SqlKeyset.<UserResponse>of("u.id", UserResponse::id, Long::valueOf)
+            .key("name", "u.name", value -> value, UserResponse::name)
+            .key("username", "u.username", value -> value, UserResponse::username)
+            .key("created_at", "u.created_at", Long::valueOf, UserResponse::createdAt);
+
+    private final Pool pool;
+    private final PasswordHasher hasher;
+
+    public ReactiveUserRepository(Pool pool, PasswordHasher hasher) {
+        this.pool = pool;
+        this.hasher = hasher;
+    }
+
+    public Uni<PageResponse<UserResponse>> page(PageRequest request) {
+        return KEYSET.page((sql, params) -> pool.preparedQuery(sql).execute(params).map(ReactiveUserRepository::users),
+                SELECT, "u.visible and u.deleted_at = 0", request);
+    }
+
+    public Uni<UserResponse> view(Long id) {
+        return pool.preparedQuery(SELECT + " where u.id = $1 and u.deleted_at = 0").execute(Tuple.of(id))
+                .map(ReactiveUserRepository::one);
+    }
+
+    public Uni<UserResponse> create(User.DTO dto) {
+        if (dto.password() == null || dto.password().isBlank()) {
+            throw new BadRequestException("user password is required");
+        }
+        validate(dto);
+        var user = User.builder()
+                .name(dto.name())
+                .phone(dto.phone())
+                .jobTitle(dto.jobTitle())
+                .email(dto.email())
+                .username(dto.username())
+                .locked(dto.locked()).build();
+        var now = Instant.now().getEpochSecond();
+        return Uni.createFrom().completionStage(() -> hasher.hashAsync(dto.password()))
+                .chain(hash -> pool.withTransaction(connection -> groupExists(connection, dto.groupId())
+                        .chain(() -> unique(connection, user.getUsername(), user.getEmail(), null))
+                        .chain(() -> connection.preparedQuery("insert into users (group_id, name, phone, job_title, email, "
+                                        + "username, password, visible, editable, locked, created_at, updated_at, deleted_at) "
+                                        + "values ($1, $2, $3, $4, $5, $6, $7, $8, $9, $10, $11, $11, 0) returning id")
+                                .execute(Tuple.from(Arrays.asList(dto.groupId(), user.getName(), user.getPhone(),
+                                        user.getJobTitle(), user.getEmail(), user.getUsername(), hash, user.isVisible(),
+                                        user.isEditable(), user.isLocked(), now))))
+                        .chain(rows -> view(connection, rows.iterator().next().getLong("id")))));
+    }
+
+    public Uni<UserResponse> update(Long id, User.DTO dto) {
+        validate(dto);
+        var hash = dto.password() == null
+                ? Uni.createFrom().<String>nullItem()
+                : Uni.createFrom().completionStage(() -> hasher.hashAsync(dto.password()));
+        var now = Instant.now().getEpochSecond();
+        return hash.chain(password -> pool.withTransaction(connection -> groupExists(connection, dto.groupId())
+                .chain(() -> unique(connection, dto.username(), dto.email(), id))
+                .chain(() -> connection.preparedQuery("update users set group_id = $2, name = $3, phone = $4, "
+                                + "job_title = $5, email = $6, username = $7, password = coalesce($8, password), "
+                                + "locked = $9, updated_at = $10 where id = $1 and deleted_at = 0")
+                        .execute(Tuple.from(Arrays.asList(id, dto.groupId(), dto.name(), dto.phone(), dto.jobTitle(),
+                                dto.email(), dto.username(), password, dto.locked(), now))))
+                .chain(rows -> touched(connection, rows, id))));
+    }
+
+    public Uni<Void> delete(Long id) {
+        var now = Instant.now().getEpochSecond();
+        return pool.withTransaction(connection -> connection
+                        .preparedQuery("update users set deleted_at = $2, updated_at = $2 where id = $1 and deleted_at = 0")
+                        .execute(Tuple.of(id, now))
+                        .chain(rows -> touched(connection, rows, id)))
+                .replaceWithVoid();
+    }
+
+    public Uni<UserResponse> restore(Long id) {
+        var now = Instant.now().getEpochSecond();
+        return pool.withTransaction(connection -> connection
+                .preparedQuery("update users set deleted_at = 0, updated_at = $2 where id = $1")
+                .execute(Tuple.of(id, now))
+                .chain(rows -> touched(connection, rows, id)));
+    }
+
+    /**
+     * Checks the same fields as {@link UserRepository} before touching the
+     * database.
+     */
+    private static void validate(User.DTO dto) {
+        if (dto.groupId() == null) {
+            throw new BadRequestException("user group is required");
+        }
+        if (dto.password() != null && dto.password().length() < 6) {
+            throw new BadRequestException("user password must be at least 6 characters");
+        }
+        if (dto.password() != null && !dto.password().equals(dto.passwordConfirm())) {
+            throw new BadRequestException("user passwords do not match");
+        }
+        if (dto.name() == null || dto.name().isBlank()) {
+            throw new BadRequestException("user name is required");
+        }
+        if (dto.username() == null || dto.username().isBlank()) {
+            throw new BadRequestException("user username is required");
+        }
+        if (dto.email() == null || dto.email().isBlank()) {
+            throw new BadRequestException("user email is required");
+        }
+    }
+
+    private static Uni<Void> groupExists(SqlClient client, Integer groupId) {
+        return client.preparedQuery("select 1 from groups where id = $1 and deleted_at = 0")
+                .execute(Tuple.of(groupId))
+                .invoke(rows -> {
+                    if (rows.size() == 0) {
+                        throw new NotFoundException("group not found");
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    private static Uni<Void> unique(SqlClient client, String username, String email, Long id) {
+        return client.preparedQuery("select username = $1 as username, email = $2 as email from users "
+                        + "where (username = $1 or email = $2) and deleted_at = 0 and id != $3")
+                .execute(Tuple.of(username, email, id == null ? 0L : id))
+                .invoke(rows -> {
+                    for (var row : rows) {
+                        if (row.getBoolean("username")) {
+                            throw new BadRequestException("user username already exists");
+                        }
+                        throw new BadRequestException("user email already exists");
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    /**
+     * Publishes the cache invalidation of an updated user and reads it back.
+     */
+    private static Uni<UserResponse> touched(SqlClient client, RowSet<Row> rows, Long id) {
+        if (rows.rowCount() == 0) {
+            return Uni.createFrom().failure(new NotFoundException("user not found"));
+        }
+        return client.preparedQuery("select pg_notify($1, $2)")
+                .execute(Tuple.of(NearCache.CHANNEL, NearCache.userPayload(id)))
+                .chain(() -> view(client, id));
+    }
+
+    private static Uni<UserResponse> view(SqlClient client, Long id) {
+        return client.preparedQuery(SELECT + " where u.id = $1").execute(Tuple.of(id))
+                .map(ReactiveUserRepository::one);
+    }
+
+    private static UserResponse one(RowSet<Row> rows) {
+        if (rows.size() == 0) {
+            throw new NotFoundException("user not found");
+        }
+        return user(rows.iterator().next());
+    }
+
+    private static List<UserResponse> users(RowSet<Row> rows) {
+        var users = new ArrayList<UserResponse>(rows.size());
+        for (var row : rows) {
+            users.add(user(row));
+        }
+        return users;
+    }
+
+    private static UserResponse user(Row row) {
+        return new UserResponse(
+                row.getLong("id"),
+                row.getInteger("group_id"),
+                row.getString("group_name"),
+                row.getString("name"),
+                row.getString("phone"),
+                row.getString("job_title"),
+                row.getString("email"),
+                row.getString("username"),
+                row.getBoolean("visible"),
+                row.getBoolean("editable"),
+                row.getBoolean("locked"),
+                row.getLong("created_at"),
+                row.getLong("updated_at"),
+                row.getLong("deleted_at"));
+    }
+}
@@ -0,0 +1,134 @@
+package br.dev.optimus.gaia.repository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.response.PageResponse;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.ws.rs.BadRequestException;
+
+/**
+ * The SQL counterpart of {@link Keyset}, for repositories running native
+ * queries on the reactive client. Cursors are encoded the same way, so a
+ * cursor returned by either one is accepted by the other.
+ *
+ * @param <E> the type of the rows
+ */
+final class SqlKeyset<E> {
+
+    private static final String ID = "id";
+
+    private record Key<E>(String column, Function<String, Object> parser, Function<E, Object> getter) {
+    }
+
+    private final Function<E, Object> idGetter;
+    private final Function<String, Object> idParser;
+    private final Map<String, Key<E>> keys = new LinkedHashMap<>();
+
+    private SqlKeyset(String idColumn, Function<E, Object> idGetter, Function<String, Object> idParser) {
+        this.idGetter = idGetter;
+        this.idParser = idParser;
+        keys.put(ID, new Key<>(idColumn, idParser, idGetter));
+    }
+
+    /**
+     * Creates a keyset sorted by id only.
+     *
+     * @param idColumn the id column, qualified when the query joins tables
+     * @param idGetter extracts the id of a row
+     * @param idParser parses an id encoded in a cursor
+     * @return the keyset
+     */
+    static <E> SqlKeyset<E> of(String idColumn, Function<E, Object> idGetter, Function<String, Object> idParser) {
+        return new SqlKeyset<>(idColumn, idGetter, idParser);
+    }
+
+    /**
+     * Registers an additional sort key.
+     *
+     * @param name the name accepted in the {@code sort} parameter
+     * @param column the column the key is mapped to
+     * @param parser parses a value encoded in a cursor
+     * @param getter extracts the value of the column from a row
+     * @return this keyset
+     */
+    SqlKeyset<E> key(String name, String column, Function<String, Object> parser, Function<E, Object> getter) {
+        keys.put(name, new Key<>(column, parser, getter));
+        return this;
+    }
+
+    /**
+     * Runs a query built by the keyset with its positional parameters.
+     */
+    @FunctionalInterface
+    interface Finder<E> {
+        Uni<List<E>> find(String sql, Tuple params);
+    }
+
+    /**
+     * Fetches one page of the rows matching the given filter.
+     *
+     * @param finder runs the page query
+     * @param select the select and from clauses
+     * @param filter the condition every row must satisfy
+     * @param request the page request
+     * @return the page, with the cursor of the next one when more rows follow
+     * @throws BadRequestException if the sort key or the cursor is invalid
+     */
+    Uni<PageResponse<E>> page(Finder<E> finder, String select, String filter, PageRequest request) {
+        var name = ID;
+        var descending = false;
+        if (request.sort() != null) {
+            descending = request.sort().startsWith("-");
+            name = descending ? request.sort().substring(1) : request.sort();
+        }
+        var key = keys.get(name);
+        if (key == null) {
+            throw new BadRequestException("sort must be one of " + String.join(", ", keys.keySet()));
+        }
+        var id = keys.get(ID).column();
+        var direction = descending ? " desc" : " asc";
+        var op = descending ? " < " : " > ";
+
+        var sql = new StringBuilder(select).append(" where ").append(filter);
+        var params = Tuple.tuple();
+        if (request.cursor() != null) {
+            var cursor = Keyset.decode(request.cursor(), name, descending);
+            try {
+                params.addValue(idParser.apply(cursor[2]));
+                if (!ID.equals(name)) {
+                    params.addValue(key.parser().apply(cursor[3]));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("cursor is invalid");
+            }
+            if (ID.equals(name)) {
+                sql.append(" and ").append(id).append(op).append("$1");
+            } else {
+                sql.append(" and (").append(key.column()).append(op).append("$2 or (")
+                        .append(key.column()).append(" = $2 and ").append(id).append(op).append("$1))");
+            }
+        }
+        sql.append(" order by ");
+        if (!ID.equals(name)) {
+            sql.append(key.column()).append(direction).append(", ");
+        }
+        sql.append(id).append(direction).append(" limit ").append(request.limit() + 1);
+
+        var sortName = name;
+        var sortDescending = descending;
+        return finder.find(sql.toString(), params).map(rows -> {
+            if (rows.size() <= request.limit()) {
+                return new PageResponse<>(rows, null);
+            }
+            var page = rows.subList(0, request.limit());
+            var last = page.getLast();
+            return new PageResponse<>(page,
+                    Keyset.encode(sortName, sortDescending, idGetter.apply(last), key.getter().apply(last)));
+        });
+    }
+}
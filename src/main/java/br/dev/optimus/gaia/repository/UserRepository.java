@@ -1,25 +1,64 @@
 package br.dev.optimus.gaia.repository;
 
+import br.dev.optimus.gaia.cache.NearCache;
 import br.dev.optimus.gaia.model.User;
+import br.dev.optimus.gaia.request.BulkRequest;
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.response.BulkResponse;
+import br.dev.optimus.gaia.response.PageResponse;
+import br.dev.optimus.gaia.response.UserResponse;
+import br.dev.optimus.gaia.service.PasswordHasher;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 @ApplicationScoped
 public class UserRepository implements PanacheRepository<User> {
+    private static final Keyset<UserResponse> KEYSET = Keyset.<UserResponse>of(UserResponse::id, Long::valueOf)
+            .key("name", "name", value -> value, UserResponse::name)
+            .key("username", "username", value -> value, UserResponse::username)
+            .key("created_at", "createdAt", Long::valueOf, UserResponse::createdAt);
     private final GroupRepository groupRepository;
+    private final NearCache cache;
+    private final PasswordHasher hasher;
 
-    public UserRepository(GroupRepository groupRepository) {
+    public UserRepository(GroupRepository groupRepository, NearCache cache, PasswordHasher hasher) {
         this.groupRepository = groupRepository;
+        this.cache = cache;
+        this.hasher = hasher;
     }
 
-    public List<User> list() {
-        return find("visible and deletedAt = 0").list();
+    public List<UserResponse> list() {
+        return find("visible and deletedAt = 0", Sort.by("id"))
+                .project(UserResponse.class)
+                .list();
+    }
+
+    public PageResponse<UserResponse> page(PageRequest request) {
+        return KEYSET.page((query, sort, params) -> find(query, sort, params).project(UserResponse.class),
+                "visible and deletedAt = 0", request);
+    }
+
+    @Transactional
+    public void export(ObjectMapper mapper, OutputStream output) throws IOException {
+        Ndjson.write(find("visible and deletedAt = 0", Sort.by("id")).project(UserResponse.class), mapper, output);
+    }
+
+    public UserResponse view(Long id) {
+        return find("id = ?1 and deletedAt = 0", id)
+                .project(UserResponse.class)
+                .firstResultOptional()
+                .orElseThrow(() -> new NotFoundException("user not found"));
     }
 
     public User get(Long id) {
@@ -28,9 +67,23 @@ public class UserRepository implements PanacheRepository<User> {
                 .orElseThrow(() -> new NotFoundException("user not found"));
     }
 
+    /**
+     * Retrieves a user from the near cache, loading it on a miss. The returned
+     * user is shared and must not be modified.
+     */
     public Optional<User> findByUsername(String username) {
-        return find("username = ?1 and deletedAt = 0", username)
-                .firstResultOptional();
+        return cache.userByUsername(username, key -> find("username = ?1 and deletedAt = 0", key)
+                .firstResultOptional()
+                .map(this::detach));
+    }
+
+    /**
+     * Detaches a user before it is shared through the near cache, so that it
+     * is never flushed, or lazily loaded, by the session that loaded it.
+     */
+    private User detach(User user) {
+        getEntityManager().detach(user);
+        return user;
     }
 
     public Optional<User> findByEmail(String email) {
@@ -39,7 +92,7 @@ public class UserRepository implements PanacheRepository<User> {
     }
 
     public Optional<User> findByUsernameOrEmail(String username, String email) {
-        return find("username = ?1 or email = ?2 and deletedAt = 0", username, email)
+        return find("(username = ?1 or email = ?2) and deletedAt = 0", username, email)
                 .firstResultOptional();
     }
 
@@ -107,6 +160,7 @@ public class UserRepository implements PanacheRepository<User> {
         var now = Instant.now().getEpochSecond();
         user.setUpdatedAt(now);
         persist(user);
+        cache.invalidateUser(user.getId());
     }
 
     public User create(User.DTO dto) {
@@ -130,7 +184,7 @@ public class UserRepository implements PanacheRepository<User> {
                 .jobTitle(dto.jobTitle())
                 .email(dto.email())
                 .username(dto.username())
-                .password(dto.password())
+                .passwordHash(hasher.hash(dto.password()))
                 .locked(dto.locked()).build();
         create(data);
         return data;
@@ -155,7 +209,7 @@ public class UserRepository implements PanacheRepository<User> {
         data.setJobTitle(dto.jobTitle());
         data.setEmail(dto.email());
         data.setUsername(dto.username());
-        if (dto.password() != null) data.setPassword(dto.password());
+        if (dto.password() != null) data.setPasswordHash(hasher.hash(dto.password()));
         data.setLocked(dto.locked());
         update(data);
         return data;
@@ -174,4 +228,16 @@ public class UserRepository implements PanacheRepository<User> {
         return data;
     }
 
+    public BulkResponse bulkDelete(BulkRequest<Long> request) {
+        var response = Bulk.update(this, "deletedAt = :now", "editable and deletedAt = 0", Instant.now().getEpochSecond(), request);
+        cache.invalidateAll();
+        return response;
+    }
+
+    public BulkResponse bulkRestore(BulkRequest<Long> request) {
+        var response = Bulk.update(this, "deletedAt = 0", "deletedAt != 0", Instant.now().getEpochSecond(), request);
+        cache.invalidateAll();
+        return response;
+    }
+
 }
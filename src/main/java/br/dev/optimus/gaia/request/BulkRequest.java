@@ -0,0 +1,25 @@
+package br.dev.optimus.gaia.request;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Selects the rows of a bulk operation. When several criteria are given a row
+ * must match all of them.
+ *
+ * @param ids the IDs of the rows, or null to select by the filters only
+ * @param updatedBefore if not null, selects rows last updated before this
+ * epoch second
+ * @param createdBefore if not null, selects rows created before this epoch
+ * second
+ */
+public record BulkRequest<ID>(
+        List<ID> ids,
+        @JsonProperty("updated_before") Long updatedBefore,
+        @JsonProperty("created_before") Long createdBefore) {
+
+    public boolean isEmpty() {
+        return (ids == null || ids.isEmpty()) && updatedBefore == null && createdBefore == null;
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class DockerRequest {
     public record ContainerCreate(
@@ -11,6 +12,17 @@ public class DockerRequest {
             @JsonProperty("Cmd") List<String> cmd,
             @JsonProperty("Env") List<String> env,
             @JsonProperty("Volumes") List<HashMap<String, String>> volumes,
-            @JsonProperty("NetworkingConfig") HashMap<String, Object> endpoints
+            @JsonProperty("NetworkingConfig") HashMap<String, Object> endpoints,
+            @JsonProperty("Labels") Map<String, String> labels,
+            @JsonProperty("ExposedPorts") Map<String, Map<String, Object>> exposedPorts,
+            @JsonProperty("HostConfig") HostConfig hostConfig
+    ){}
+
+    public record HostConfig(
+            @JsonProperty("PortBindings") Map<String, List<PortBinding>> portBindings
+    ){}
+
+    public record PortBinding(
+            @JsonProperty("HostPort") String hostPort
     ){}
 }
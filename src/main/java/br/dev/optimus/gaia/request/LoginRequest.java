@@ -0,0 +1,10 @@
+package br.dev.optimus.gaia.request;
+
+/**
+ * Credentials of a login.
+ *
+ * @param username the username or email of the user
+ * @param password the plain text password
+ */
+public record LoginRequest(String username, String password) {
+}
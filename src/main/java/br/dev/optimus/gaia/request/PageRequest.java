@@ -0,0 +1,25 @@
+package br.dev.optimus.gaia.request;
+
+import java.util.Objects;
+
+/**
+ * Query parameters of a keyset paginated listing.
+ *
+ * @param cursor the opaque cursor returned as {@code next} by the previous
+ * page, or null for the first page
+ * @param limit the maximum number of rows to return, or null for the default
+ * @param sort the sort key, prefixed with {@code -} for descending order, or
+ * null to sort by id
+ */
+public record PageRequest(String cursor, Integer limit, String sort) {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    public PageRequest {
+        limit = Math.min(Math.max(Objects.requireNonNullElse(limit, DEFAULT_LIMIT), 1), MAX_LIMIT);
+        if (sort != null && sort.isBlank()) {
+            sort = null;
+        }
+    }
+}
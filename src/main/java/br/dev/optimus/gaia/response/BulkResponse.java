@@ -0,0 +1,9 @@
+package br.dev.optimus.gaia.response;
+
+/**
+ * Outcome of a bulk operation.
+ *
+ * @param affected the number of rows changed
+ */
+public record BulkResponse(long affected) {
+}
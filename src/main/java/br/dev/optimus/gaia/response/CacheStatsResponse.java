@@ -0,0 +1,12 @@
+package br.dev.optimus.gaia.response;
+
+/**
+ * Counters of an in-process cache.
+ *
+ * @param hits the number of lookups served from the cache
+ * @param misses the number of lookups that went to the database
+ * @param evictions the number of entries evicted by size or expiration
+ * @param size the approximate number of entries
+ */
+public record CacheStatsResponse(long hits, long misses, long evictions, long size) {
+}
@@ -0,0 +1,23 @@
+package br.dev.optimus.gaia.response;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import.
+ *
+ * @param received the number of rows read from the request
+ * @param imported the number of rows inserted
+ * @param errors the rows that were rejected and why
+ */
+public record ImportResponse(int received, long imported, List<ImportResponse.Error> errors) {
+
+    /**
+     * A rejected row.
+     *
+     * @param row the 1-based position of the row in the request, not counting
+     * the CSV header
+     * @param message why the row was rejected
+     */
+    public record Error(int row, String message) {
+    }
+}
@@ -0,0 +1,21 @@
+package br.dev.optimus.gaia.response;
+
+import java.time.Instant;
+
+import br.dev.optimus.gaia.logs.LogChunk;
+
+/**
+ * A piece of container output.
+ *
+ * @param time when the output was written, or null if unknown
+ * @param stream stdout, stderr, or gap when output was skipped because the
+ * client fell behind
+ * @param text the output, possibly several lines or part of one
+ */
+public record LogResponse(Instant time, String stream, String text) {
+
+    public static LogResponse of(LogChunk chunk) {
+        var time = chunk.time() == 0 ? null : Instant.ofEpochSecond(0, chunk.time());
+        return new LogResponse(time, chunk.streamName(), chunk.text());
+    }
+}
@@ -0,0 +1,12 @@
+package br.dev.optimus.gaia.response;
+
+import java.util.List;
+
+/**
+ * A page of a keyset paginated listing.
+ *
+ * @param data the rows of this page
+ * @param next the cursor of the following page, or null if this is the last one
+ */
+public record PageResponse<T>(List<T> data, String next) {
+}
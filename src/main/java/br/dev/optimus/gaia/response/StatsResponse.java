@@ -0,0 +1,38 @@
+package br.dev.optimus.gaia.response;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Resource usage of the containers of an app over a time range.
+ *
+ * @param app the app ID
+ * @param range the requested range, in seconds
+ * @param resolution the width of each point, in seconds
+ * @param containers one series per container
+ */
+public record StatsResponse(UUID app, long range, long resolution, List<Series> containers) {
+
+    /**
+     * Points of one container, oldest first, as parallel arrays. Each point
+     * averages the samples taken during its interval.
+     *
+     * @param container the container ID
+     * @param memoryLimit the latest memory limit, in bytes
+     * @param time the epoch second at which each interval starts
+     * @param cpu the CPU usage, in percent of one core
+     * @param memory the memory in use, excluding the page cache, in bytes
+     * @param rx the bytes received per second over all networks
+     * @param tx the bytes sent per second over all networks
+     */
+    public record Series(String container,
+                         @JsonProperty("memory_limit") long memoryLimit,
+                         long[] time,
+                         float[] cpu,
+                         long[] memory,
+                         float[] rx,
+                         float[] tx) {
+    }
+}
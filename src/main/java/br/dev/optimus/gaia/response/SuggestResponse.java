@@ -0,0 +1,12 @@
+package br.dev.optimus.gaia.response;
+
+/**
+ * A customer matching a typeahead query.
+ *
+ * @param id the ID of the customer
+ * @param name the name of the customer
+ * @param email the email of the customer
+ * @param document the document of the customer
+ */
+public record SuggestResponse(long id, String name, String email, String document) {
+}
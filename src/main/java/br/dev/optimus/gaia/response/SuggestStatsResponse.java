@@ -0,0 +1,23 @@
+package br.dev.optimus.gaia.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * State of the customer typeahead index.
+ *
+ * @param ready false until the first build completes
+ * @param customers the number of indexed customers
+ * @param keys the number of keys in the compacted sorted arrays
+ * @param pending the number of keys added since the last compaction
+ * @param memory the estimated heap used by the index, in bytes
+ * @param builtAt the epoch second of the last build from the database
+ * @param buildMillis how long the last build took
+ */
+public record SuggestStatsResponse(boolean ready,
+                                   int customers,
+                                   int keys,
+                                   int pending,
+                                   long memory,
+                                   @JsonProperty("built_at") long builtAt,
+                                   @JsonProperty("build_millis") long buildMillis) {
+}
@@ -0,0 +1,52 @@
+package br.dev.optimus.gaia.response;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Pinning and carrier thread usage of the virtual thread scheduler.
+ *
+ * @param virtualThreads whether blocking endpoints run on virtual threads
+ * @param pinning the pinning events recorded since startup
+ * @param carriers the carrier threads of the scheduler
+ */
+public record ThreadDiagnosticsResponse(@JsonProperty("virtual_threads") boolean virtualThreads,
+                                        Pinning pinning,
+                                        Carriers carriers) {
+
+    /**
+     * Virtual threads that blocked while pinned to their carrier for longer
+     * than the threshold.
+     *
+     * @param threshold the minimum pinned duration recorded, in milliseconds
+     * @param count the number of events
+     * @param totalMillis the sum of their durations
+     * @param maxMillis the longest one
+     * @param stacks the most frequent stacks, most frequent first
+     */
+    public record Pinning(long threshold,
+                          long count,
+                          @JsonProperty("total_millis") double totalMillis,
+                          @JsonProperty("max_millis") double maxMillis,
+                          List<Stack> stacks) {
+    }
+
+    /**
+     * A stack that pinned a virtual thread.
+     *
+     * @param frames the top frames of the stack
+     * @param count how many times it was recorded
+     */
+    public record Stack(List<String> frames, long count) {
+    }
+
+    /**
+     * @param parallelism the target number of carrier threads
+     * @param live the number of carrier threads currently alive
+     * @param utilization the share of the carriers' time spent on CPU since
+     * the previous report, between 0 and 1
+     */
+    public record Carriers(int parallelism, int live, double utilization) {
+    }
+}
@@ -0,0 +1,12 @@
+package br.dev.optimus.gaia.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A signed access token.
+ *
+ * @param token the JWT, to be sent as {@code Authorization: Bearer <token>}
+ * @param expiresAt the epoch second the token expires at
+ */
+public record TokenResponse(String token, @JsonProperty("expires_at") long expiresAt) {
+}
@@ -0,0 +1,26 @@
+package br.dev.optimus.gaia.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.quarkus.hibernate.orm.panache.common.ProjectedFieldName;
+
+/**
+ * Read-only projection of a user and the id and name of its group, selected
+ * with a single joined query instead of loading the user and group entities.
+ */
+public record UserResponse(
+        Long id,
+        @ProjectedFieldName("group.id") @JsonProperty("group_id") Integer groupId,
+        @ProjectedFieldName("group.name") @JsonProperty("group_name") String groupName,
+        String name,
+        String phone,
+        @JsonProperty("job_title") String jobTitle,
+        String email,
+        String username,
+        boolean visible,
+        boolean editable,
+        boolean locked,
+        @JsonProperty("created_at") long createdAt,
+        @JsonProperty("updated_at") long updatedAt,
+        @JsonProperty("deleted_at") long deletedAt) {
+}
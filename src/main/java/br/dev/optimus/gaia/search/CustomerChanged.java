@@ -0,0 +1,26 @@
+package br.dev.optimus.gaia.search;
+
+import br.dev.optimus.gaia.model.Customer;
+
+/**
+ * Fired by the customer repository whenever customers are written, and
+ * observed once the transaction commits.
+ *
+ * @param id the ID of the changed customer, or null when any number of
+ * customers may have changed, e.g. after a bulk update or an import
+ * @param name the name of the customer
+ * @param email the email of the customer
+ * @param document the document of the customer
+ * @param live false if the customer is deleted
+ */
+public record CustomerChanged(Long id, String name, String email, String document, boolean live) {
+
+    public static CustomerChanged of(Customer customer) {
+        return new CustomerChanged(customer.getId(), customer.getName(), customer.getEmail(),
+                customer.getDocument(), customer.getDeletedAt() == 0);
+    }
+
+    public static CustomerChanged all() {
+        return new CustomerChanged(null, null, null, null, true);
+    }
+}
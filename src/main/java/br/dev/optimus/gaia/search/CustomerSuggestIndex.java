@@ -0,0 +1,422 @@
+package br.dev.optimus.gaia.search;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.dev.optimus.gaia.response.SuggestResponse;
+import br.dev.optimus.gaia.response.SuggestStatsResponse;
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ServiceUnavailableException;
+
+/**
+ * In-process prefix index over the name, email and document of the customers
+ * that have not been deleted.
+ *
+ * Keys are lower cased, stripped of accents and kept in a sorted array next to
+ * a parallel array of customer IDs, so a lookup is a binary search followed by
+ * a short scan. Writes committed after the last build go to a small sorted
+ * delta that is merged into new arrays in the background once it grows past
+ * an eighth of them. Lookups never lock: stale keys left behind by updates
+ * and deletes are skipped by checking them against the current customer.
+ *
+ * The index is built from the database at startup and can be rebuilt on
+ * demand. It only sees the writes made through this instance.
+ */
+@ApplicationScoped
+public class CustomerSuggestIndex {
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+    private static final Logger log = LoggerFactory.getLogger(CustomerSuggestIndex.class);
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final int COMPACT_MIN = 1024;
+    private static final int FETCH_SIZE = 5000;
+
+    private record Doc(long id, String name, String email, String document, String[] keys) {
+
+        boolean has(String key) {
+            for (var k : keys) {
+                if (k.equals(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private record Entry(String key, long id) {
+    }
+
+    private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::key).thenComparingLong(Entry::id);
+
+    private record Snapshot(String[] keys, long[] ids) {
+        static final Snapshot EMPTY = new Snapshot(new String[0], new long[0]);
+    }
+
+    private final AgroalDataSource dataSource;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().daemon().name("customer-suggest").factory());
+    private final ReentrantLock building = new ReentrantLock();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ConcurrentSkipListSet<Entry> delta = new ConcurrentSkipListSet<>(ORDER);
+    private final AtomicInteger deltaSize = new AtomicInteger();
+    private final AtomicLong docBytes = new AtomicLong();
+    private volatile Map<Long, Doc> docs = new ConcurrentHashMap<>();
+    private volatile Snapshot base = Snapshot.EMPTY;
+    private volatile boolean ready;
+    private volatile long builtAt;
+    private volatile long buildMillis;
+    private List<CustomerChanged> replay;
+
+    public CustomerSuggestIndex(AgroalDataSource dataSource, MeterRegistry registry) {
+        this.dataSource = dataSource;
+        registry.gauge("gaia.suggest.keys", this, index -> index.base.ids().length + index.deltaSize.get());
+        registry.gauge("gaia.suggest.memory", this, CustomerSuggestIndex::memory);
+    }
+
+    /**
+     * Finds the customers whose name, email or document starts with the query,
+     * ordered by the matching key.
+     *
+     * @param query the prefix typed by the user
+     * @param limit the maximum number of customers to return, null for the
+     * default
+     * @return the matching customers
+     * @throws BadRequestException if the query is blank or the limit is out of
+     * range
+     * @throws ServiceUnavailableException if the index is still being built
+     */
+    public List<SuggestResponse> suggest(String query, Integer limit) {
+        var prefix = normalize(query);
+        if (prefix == null) {
+            throw new BadRequestException("q is required");
+        }
+        var max = limit == null ? DEFAULT_LIMIT : limit;
+        if (max < 1 || max > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (!ready) {
+            throw new ServiceUnavailableException("customer index is being built");
+        }
+        var docs = this.docs;
+        var base = this.base;
+        var found = new LinkedHashMap<Long, Doc>();
+        var i = lowerBound(base.keys(), prefix);
+        var pending = delta.tailSet(new Entry(prefix, Long.MIN_VALUE)).iterator();
+        var next = pending.hasNext() ? pending.next() : null;
+        while (found.size() < max) {
+            var fromBase = i < base.keys().length && base.keys()[i].startsWith(prefix);
+            var fromDelta = next != null && next.key().startsWith(prefix);
+            String key;
+            long id;
+            if (fromBase && (!fromDelta || base.keys()[i].compareTo(next.key()) <= 0)) {
+                key = base.keys()[i];
+                id = base.ids()[i++];
+            } else if (fromDelta) {
+                key = next.key();
+                id = next.id();
+                next = pending.hasNext() ? pending.next() : null;
+            } else {
+                break;
+            }
+            var doc = docs.get(id);
+            if (doc != null && doc.has(key)) {
+                found.putIfAbsent(id, doc);
+            }
+        }
+        return found.values().stream()
+                .map(doc -> new SuggestResponse(doc.id(), doc.name(), doc.email(), doc.document()))
+                .toList();
+    }
+
+    public SuggestStatsResponse stats() {
+        return new SuggestStatsResponse(ready, docs.size(), base.ids().length, deltaSize.get(), memory(),
+                builtAt, buildMillis);
+    }
+
+    /**
+     * Rebuilds the index from the database. Writes committed while the
+     * customers are read are applied again once the new index is in place.
+     *
+     * @throws ServiceUnavailableException if the database cannot be read
+     */
+    public void rebuild() {
+        building.lock();
+        try {
+            var start = System.nanoTime();
+            synchronized (this) {
+                replay = new ArrayList<>();
+            }
+            Map<Long, Doc> loaded;
+            try {
+                loaded = load();
+            } catch (SQLException e) {
+                synchronized (this) {
+                    replay = null;
+                }
+                throw new ServiceUnavailableException("customer index could not be built: " + e.getMessage());
+            }
+            var snapshot = snapshot(loaded.values().stream()
+                    .flatMap(doc -> Arrays.stream(doc.keys()).map(key -> new Entry(key, doc.id())))
+                    .sorted(ORDER)
+                    .toList());
+            var loadedBytes = loaded.values().stream().mapToLong(CustomerSuggestIndex::bytes).sum();
+            synchronized (this) {
+                docs = loaded;
+                docBytes.set(loadedBytes);
+                base = snapshot;
+                delta.clear();
+                deltaSize.set(0);
+                var changes = replay;
+                replay = null;
+                changes.forEach(this::apply);
+            }
+            builtAt = Instant.now().getEpochSecond();
+            buildMillis = (System.nanoTime() - start) / 1_000_000;
+            ready = true;
+            log.info("customer index built with {} customers in {} ms", loaded.size(), buildMillis);
+        } finally {
+            building.unlock();
+        }
+    }
+
+    void changed(@Observes(during = TransactionPhase.AFTER_SUCCESS) CustomerChanged change) {
+        if (change.id() == null) {
+            if (rebuilding.compareAndSet(false, true)) {
+                executor.execute(() -> {
+                    rebuilding.set(false);
+                    rebuildQuietly();
+                });
+            }
+            return;
+        }
+        apply(change);
+    }
+
+    private synchronized void apply(CustomerChanged change) {
+        if (replay != null) {
+            replay.add(change);
+        }
+        if (!change.live()) {
+            forget(docs.remove(change.id()));
+            return;
+        }
+        var doc = doc(change.id(), change.name(), change.email(), change.document());
+        forget(docs.put(doc.id(), doc));
+        docBytes.addAndGet(bytes(doc));
+        for (var key : doc.keys()) {
+            if (delta.add(new Entry(key, doc.id()))) {
+                deltaSize.incrementAndGet();
+            }
+        }
+        if (deltaSize.get() > Math.max(COMPACT_MIN, base.ids().length / 8) && compacting.compareAndSet(false, true)) {
+            executor.execute(this::compact);
+        }
+    }
+
+    private void forget(Doc doc) {
+        if (doc != null) {
+            docBytes.addAndGet(-bytes(doc));
+        }
+    }
+
+    /**
+     * Merges the delta into new sorted arrays, dropping the keys of deleted
+     * and updated customers, whether they come from the base or the delta.
+     * Delta entries added while merging are kept for the next compaction, and
+     * so is a dropped entry whose key came back meanwhile.
+     */
+    private void compact() {
+        try {
+            Snapshot current;
+            List<Entry> pending;
+            Map<Long, Doc> live;
+            synchronized (this) {
+                current = base;
+                pending = new ArrayList<>(delta);
+                live = docs;
+            }
+            var merged = new ArrayList<Entry>(current.ids().length + pending.size());
+            var dropped = new HashSet<Entry>();
+            var j = 0;
+            for (var i = 0; i < current.ids().length; i++) {
+                var entry = new Entry(current.keys()[i], current.ids()[i]);
+                while (j < pending.size() && ORDER.compare(pending.get(j), entry) < 0) {
+                    merge(pending.get(j++), live, merged, dropped);
+                }
+                if (j < pending.size() && ORDER.compare(pending.get(j), entry) == 0) {
+                    continue;
+                }
+                if (live(entry, live)) {
+                    merged.add(entry);
+                }
+            }
+            while (j < pending.size()) {
+                merge(pending.get(j++), live, merged, dropped);
+            }
+            var snapshot = snapshot(merged);
+            synchronized (this) {
+                if (base == current) {
+                    base = snapshot;
+                    for (var entry : pending) {
+                        if ((!dropped.contains(entry) || !live(entry, docs)) && delta.remove(entry)) {
+                            deltaSize.decrementAndGet();
+                        }
+                    }
+                }
+            }
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private static void merge(Entry entry, Map<Long, Doc> live, List<Entry> merged, Set<Entry> dropped) {
+        if (live(entry, live)) {
+            merged.add(entry);
+        } else {
+            dropped.add(entry);
+        }
+    }
+
+    private static boolean live(Entry entry, Map<Long, Doc> docs) {
+        var doc = docs.get(entry.id());
+        return doc != null && doc.has(entry.key());
+    }
+
+    private Map<Long, Doc> load() throws SQLException {
+        var loaded = new ConcurrentHashMap<Long, Doc>();
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (var statement = connection.prepareStatement(
+                    "select id, name, email, document from customers where deleted_at = 0")) {
+                statement.setFetchSize(FETCH_SIZE);
+                try (var result = statement.executeQuery()) {
+                    while (result.next()) {
+                        var doc = doc(result.getLong(1), result.getString(2), result.getString(3), result.getString(4));
+                        loaded.put(doc.id(), doc);
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+        return loaded;
+    }
+
+    private static Snapshot snapshot(List<Entry> entries) {
+        var keys = new String[entries.size()];
+        var ids = new long[entries.size()];
+        for (var i = 0; i < keys.length; i++) {
+            keys[i] = entries.get(i).key();
+            ids[i] = entries.get(i).id();
+        }
+        return new Snapshot(keys, ids);
+    }
+
+    private static Doc doc(long id, String name, String email, String document) {
+        var keys = new ArrayList<String>(3);
+        for (var value : new String[]{name, email, document}) {
+            var key = normalize(value);
+            if (key != null && !keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        return new Doc(id, name, email, document, keys.toArray(String[]::new));
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        var key = SPACES.matcher(value.strip()).replaceAll(" ");
+        key = MARKS.matcher(Normalizer.normalize(key, Normalizer.Form.NFD)).replaceAll("");
+        key = key.toLowerCase(Locale.ROOT);
+        return key.isEmpty() ? null : key;
+    }
+
+    private static int lowerBound(String[] keys, String prefix) {
+        var low = 0;
+        var high = keys.length;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Estimates the heap held by the index, assuming compressed references
+     * and compact strings: 16 byte headers, 4 byte references and one byte
+     * per character. The customers are counted as they are added and removed,
+     * so this is constant time.
+     */
+    private long memory() {
+        var base = this.base;
+        return 32L + 4L * base.keys().length + 8L * base.ids().length + docBytes.get() + 64L * deltaSize.get();
+    }
+
+    private static long bytes(Doc doc) {
+        var bytes = 48 + 32 + 16 + 4L * doc.keys().length;
+        bytes += string(doc.name()) + string(doc.email()) + string(doc.document());
+        for (var key : doc.keys()) {
+            bytes += string(key);
+        }
+        return bytes;
+    }
+
+    private static long string(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("customer index build failed", e);
+        }
+    }
+
+    void start(@Observes StartupEvent event) {
+        executor.execute(this::rebuildQuietly);
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        executor.shutdownNow();
+    }
+}
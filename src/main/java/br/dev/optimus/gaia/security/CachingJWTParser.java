@@ -0,0 +1,85 @@
+package br.dev.optimus.gaia.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.smallrye.jwt.auth.principal.JWTParser;
+import io.smallrye.jwt.auth.principal.ParseException;
+import jakarta.annotation.Priority;
+import jakarta.decorator.Decorator;
+import jakarta.decorator.Delegate;
+import jakarta.enterprise.inject.Any;
+import jakarta.inject.Inject;
+
+/**
+ * Caches the tokens verified by the JWT parser, keyed by the SHA-256 of the
+ * raw token, so a client reusing a token pays for signature verification
+ * once. Entries expire with the token itself, or after
+ * {@code gaia.auth.token-cache-ttl} if that comes first.
+ */
+@Decorator
+@Priority(10)
+public abstract class CachingJWTParser implements JWTParser {
+
+    private final JWTParser delegate;
+    private final Cache<String, JsonWebToken> tokens;
+
+    @Inject
+    public CachingJWTParser(@Delegate @Any JWTParser delegate,
+                            @ConfigProperty(name = "gaia.auth.token-cache-size", defaultValue = "10000") long size,
+                            @ConfigProperty(name = "gaia.auth.token-cache-ttl", defaultValue = "PT5M") Duration ttl) {
+        this.delegate = delegate;
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfter(new Expiry<String, JsonWebToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, JsonWebToken token, long currentTime) {
+                        var remaining = Duration.between(Instant.now(), Instant.ofEpochSecond(token.getExpirationTime()));
+                        return Math.max(0, Math.min(remaining.toNanos(), ttl.toNanos()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JsonWebToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JsonWebToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public JsonWebToken parse(String token) throws ParseException {
+        var key = sha256(token);
+        var cached = tokens.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        var parsed = delegate.parse(token);
+        tokens.put(key, parsed);
+        return parsed;
+    }
+
+    private static String sha256(String token) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
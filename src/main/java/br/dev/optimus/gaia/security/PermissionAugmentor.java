@@ -0,0 +1,47 @@
+package br.dev.optimus.gaia.security;
+
+import java.security.Permission;
+import java.security.Principal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.quarkus.security.StringPermission;
+import io.quarkus.security.identity.AuthenticationRequestContext;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.security.identity.SecurityIdentityAugmentor;
+import io.quarkus.security.runtime.QuarkusSecurityIdentity;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Answers {@code @PermissionsAllowed} checks with the bitset compiled from
+ * the identity's roles, i.e. the permissions carried by its token.
+ *
+ * The bitset is compiled once per principal. Principals come from the cache
+ * of verified tokens, so a token reused across requests is compiled once.
+ */
+@ApplicationScoped
+public class PermissionAugmentor implements SecurityIdentityAugmentor {
+
+    private final Cache<Principal, Permissions> compiled = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(10_000)
+            .build();
+
+    @Override
+    public Uni<SecurityIdentity> augment(SecurityIdentity identity, AuthenticationRequestContext context) {
+        if (identity.isAnonymous()) {
+            return Uni.createFrom().item(identity);
+        }
+        var permissions = compiled.get(identity.getPrincipal(), principal -> PermissionRegistry.compile(identity.getRoles()));
+        return Uni.createFrom().item(QuarkusSecurityIdentity.builder(identity)
+                .addPermissionChecker(permission -> Uni.createFrom().item(check(permissions, permission)))
+                .build());
+    }
+
+    private static boolean check(Permissions permissions, Permission permission) {
+        return permission instanceof StringPermission
+                && permissions.implies(PermissionRegistry.mask(permission.getName()));
+    }
+}
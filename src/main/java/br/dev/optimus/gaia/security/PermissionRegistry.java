@@ -0,0 +1,120 @@
+package br.dev.optimus.gaia.security;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps permission names to bit indexes and compiles sets of names into
+ * {@link Permissions} bitsets.
+ *
+ * Only the permissions declared here have an index, fixed by their order.
+ * Any other name is unknown: it is ignored when compiling, and checking it is
+ * only granted to {@code root}. Implications are expanded at compile time:
+ * {@code root} grants everything and {@code admin} grants every resource
+ * permission.
+ */
+public final class PermissionRegistry {
+
+    public static final String ROOT = "root";
+    public static final String ADMIN = "admin";
+    public static final String NOBODY = "nobody";
+    public static final String CUSTOMER = "customer";
+    public static final String USER = "user";
+    public static final String GROUP = "group";
+    public static final String APP = "app";
+    public static final String CACHE = "cache";
+    public static final String DIAGNOSTICS = "diagnostics";
+
+    private static final List<String> DECLARED = List.of(ROOT, ADMIN, NOBODY, CUSTOMER, USER, GROUP, APP, CACHE, DIAGNOSTICS);
+    private static final Map<String, List<String>> IMPLIES = Map.of(
+            ADMIN, List.of(CUSTOMER, USER, GROUP, APP, CACHE, DIAGNOSTICS));
+
+    private static final Map<String, Integer> INDEXES;
+    private static final Map<String, Permissions> MASKS;
+
+    static {
+        var indexes = new HashMap<String, Integer>();
+        var masks = new HashMap<String, Permissions>();
+        for (var name : DECLARED) {
+            indexes.put(name, indexes.size());
+            masks.put(name, new Permissions(set(new long[0], indexes.get(name)), false));
+        }
+        INDEXES = Map.copyOf(indexes);
+        MASKS = Map.copyOf(masks);
+    }
+
+    private PermissionRegistry() {
+    }
+
+    /**
+     * Checks whether a permission is declared.
+     *
+     * @param name the name of the permission
+     * @return true if it has a bit index
+     */
+    public static boolean isDeclared(String name) {
+        return INDEXES.containsKey(name);
+    }
+
+    /**
+     * Returns the bit index of a declared permission.
+     *
+     * @param name the name of the permission
+     * @return its bit index, or -1 if it is not declared
+     */
+    public static int index(String name) {
+        return INDEXES.getOrDefault(name, -1);
+    }
+
+    /**
+     * Returns the bitset required to hold a single permission, without
+     * expanding its implications. An unknown permission requires every
+     * permission, so only {@code root} holds it.
+     *
+     * @param name the name of the permission
+     * @return the required bitset
+     */
+    public static Permissions mask(String name) {
+        return MASKS.getOrDefault(name, Permissions.ALL);
+    }
+
+    /**
+     * Compiles a set of permission names into a bitset, expanding the
+     * permissions they imply. Names that are not declared are ignored.
+     *
+     * @param names the names of the granted permissions, may be null
+     * @return the compiled bitset
+     */
+    public static Permissions compile(Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return Permissions.NONE;
+        }
+        if (names.contains(ROOT)) {
+            return Permissions.ALL;
+        }
+        var words = new long[DECLARED.size() / Long.SIZE + 1];
+        for (var name : names) {
+            var index = index(name);
+            if (index < 0) {
+                continue;
+            }
+            words = set(words, index);
+            for (var implied : IMPLIES.getOrDefault(name, List.of())) {
+                words = set(words, index(implied));
+            }
+        }
+        return new Permissions(words, false);
+    }
+
+    private static long[] set(long[] words, int index) {
+        var word = index / Long.SIZE;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, word + 1);
+        }
+        words[word] |= 1L << (index % Long.SIZE);
+        return words;
+    }
+}
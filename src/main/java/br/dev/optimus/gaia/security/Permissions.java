@@ -0,0 +1,46 @@
+package br.dev.optimus.gaia.security;
+
+/**
+ * An immutable set of permissions compiled into a bitset by
+ * {@link PermissionRegistry}.
+ *
+ * Checking whether a set grants another is a mask-and-compare over a few
+ * longs, with no string hashing or set lookups. A set compiled from
+ * {@code root} grants every permission, including ones that are not declared.
+ */
+public final class Permissions {
+
+    public static final Permissions NONE = new Permissions(new long[0], false);
+    static final Permissions ALL = new Permissions(new long[0], true);
+
+    private final long[] words;
+    private final boolean all;
+
+    Permissions(long[] words, boolean all) {
+        this.words = words;
+        this.all = all;
+    }
+
+    /**
+     * Checks whether this set grants every permission in the required set.
+     *
+     * @param required the permissions to check
+     * @return true if all of them are granted
+     */
+    public boolean implies(Permissions required) {
+        if (all) {
+            return true;
+        }
+        if (required.all) {
+            return false;
+        }
+        var mask = required.words;
+        for (var i = 0; i < mask.length; i++) {
+            var granted = i < words.length ? words[i] : 0L;
+            if ((granted & mask[i]) != mask[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+package br.dev.optimus.gaia.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import br.dev.optimus.gaia.model.User;
+import br.dev.optimus.gaia.repository.UserRepository;
+import br.dev.optimus.gaia.request.LoginRequest;
+import br.dev.optimus.gaia.response.TokenResponse;
+import io.smallrye.jwt.build.Jwt;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.NotAuthorizedException;
+
+/**
+ * Issues signed JWTs carrying the permissions of the user's group as the
+ * {@code groups} claim, so authorization is decided from verified claims
+ * without reading users or groups on each request.
+ *
+ * Unknown logins are checked against a throwaway hash, so every failed login
+ * costs one bcrypt verify and the response time does not tell which logins
+ * exist.
+ */
+@ApplicationScoped
+public class AuthService {
+
+    private final UserRepository userRepository;
+    private final PasswordHasher hasher;
+    private final String issuer;
+    private final Duration ttl;
+    private final String dummyHash;
+
+    public AuthService(UserRepository userRepository,
+                       PasswordHasher hasher,
+                       @ConfigProperty(name = "mp.jwt.verify.issuer") String issuer,
+                       @ConfigProperty(name = "gaia.auth.token-ttl", defaultValue = "PT1H") Duration ttl) {
+        this.userRepository = userRepository;
+        this.hasher = hasher;
+        this.issuer = issuer;
+        this.ttl = ttl;
+        this.dummyHash = hasher.hash(UUID.randomUUID().toString());
+    }
+
+    /**
+     * Verifies the credentials and issues a token for the user.
+     *
+     * @param request the username or email and the password
+     * @return the signed token
+     * @throws BadRequestException if a credential is missing
+     * @throws NotAuthorizedException if the credentials are invalid, or the
+     *         user is locked or deleted
+     */
+    public TokenResponse login(LoginRequest request) {
+        if (request == null || request.username() == null || request.username().isBlank()) {
+            throw new BadRequestException("username is required");
+        }
+        if (request.password() == null || request.password().isBlank()) {
+            throw new BadRequestException("password is required");
+        }
+        var login = request.username().toLowerCase();
+        var found = userRepository.findByUsernameOrEmail(login, login);
+        var hash = found.map(User::getPassword).orElse(null);
+        var verified = hasher.verify(request.password(), hash != null ? hash : dummyHash);
+        var user = found
+                .filter(data -> hash != null && verified && !data.isLocked() && data.getDeletedAt() == 0)
+                .orElseThrow(() -> new NotAuthorizedException("invalid credentials", "Bearer"));
+        var group = user.getGroup();
+        var expiresAt = Instant.now().plus(ttl);
+        var token = Jwt.issuer(issuer)
+                .subject(String.valueOf(user.getId()))
+                .upn(user.getUsername())
+                .groups(Objects.requireNonNullElse(group.getPermissions(), Set.of()))
+                .claim("group", group.getName())
+                .expiresAt(expiresAt)
+                .sign();
+        return new TokenResponse(token, expiresAt.getEpochSecond());
+    }
+}
@@ -3,7 +3,9 @@ package br.dev.optimus.gaia.service;
 import br.dev.optimus.gaia.dto.ContainerDTO;
 import br.dev.optimus.gaia.request.DockerRequest;
 import br.dev.optimus.gaia.response.DockerResponse;
+import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.QueryParam;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
@@ -20,6 +22,30 @@ public interface DockerService {
     JsonNode getInfo();
 
     @POST
-    @Path("/container/create")
+    @Path("/containers/create")
     DockerResponse.ContainerCreate createContainer(@QueryParam("name") String name, DockerRequest.ContainerCreate request);
+
+    @GET
+    @Path("/containers/json")
+    JsonNode listContainers(@QueryParam("all") boolean all, @QueryParam("filters") String filters);
+
+    @GET
+    @Path("/containers/{id}/json")
+    JsonNode inspectContainer(@PathParam("id") String id);
+
+    @POST
+    @Path("/containers/{id}/start")
+    void startContainer(@PathParam("id") String id);
+
+    @DELETE
+    @Path("/containers/{id}")
+    void removeContainer(@PathParam("id") String id, @QueryParam("force") boolean force);
+
+    @POST
+    @Path("/images/create")
+    String pullImage(@QueryParam("fromImage") String image, @QueryParam("tag") String tag);
+
+    @GET
+    @Path("/images/{name}/json")
+    JsonNode inspectImage(@PathParam("name") String name);
 }
@@ -0,0 +1,137 @@
+package br.dev.optimus.gaia.service;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.elytron.security.common.BcryptUtil;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.ServiceUnavailableException;
+
+/**
+ * Hashes and verifies bcrypt passwords on a dedicated, bounded pool.
+ *
+ * Each bcrypt call costs tens to hundreds of milliseconds of CPU, so running
+ * it on the request worker pool lets a burst of user writes stall unrelated
+ * requests. The pool has at most {@code gaia.password.threads} threads and
+ * {@code gaia.password.queue-size} waiting tasks; once both are taken callers
+ * get a 503 right away instead of queueing without bound.
+ */
+@ApplicationScoped
+public class PasswordHasher {
+
+    private final int cost;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(@ConfigProperty(name = "gaia.password.bcrypt-cost", defaultValue = "10") int cost,
+                          @ConfigProperty(name = "gaia.password.threads", defaultValue = "0") int threads,
+                          @ConfigProperty(name = "gaia.password.queue-size", defaultValue = "64") int queueSize,
+                          MeterRegistry registry) {
+        this.cost = cost;
+        var size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        var count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    var thread = new Thread(runnable, "password-hasher-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.hashTimer = Timer.builder("gaia.password.hash").description("bcrypt hash latency").register(registry);
+        this.verifyTimer = Timer.builder("gaia.password.verify").description("bcrypt verify latency").register(registry);
+        this.waitTimer = Timer.builder("gaia.password.queue.wait").description("time spent queued before hashing").register(registry);
+        this.rejected = Counter.builder("gaia.password.rejected").description("tasks rejected by a saturated pool").register(registry);
+        registry.gauge("gaia.password.queue.size", executor.getQueue(), Collection::size);
+    }
+
+    /**
+     * Hashes a password with the configured bcrypt cost.
+     *
+     * @param password the plain text password
+     * @return the bcrypt hash
+     * @throws ServiceUnavailableException if the pool is saturated
+     */
+    public String hash(String password) {
+        return submit(hashTimer, () -> BcryptUtil.bcryptHash(password, cost));
+    }
+
+    /**
+     * Checks a password against a bcrypt hash.
+     *
+     * @param password the plain text password
+     * @param hash the bcrypt hash
+     * @return true if the password matches the hash
+     * @throws ServiceUnavailableException if the pool is saturated
+     */
+    public boolean verify(String password, String hash) {
+        return submit(verifyTimer, () -> BcryptUtil.matches(password, hash));
+    }
+
+    /**
+     * Hashes a password without blocking the caller, for callers running on
+     * an event loop.
+     *
+     * @param password the plain text password
+     * @return the bcrypt hash, or a failed stage with a
+     * {@link ServiceUnavailableException} if the pool is saturated
+     */
+    public CompletionStage<String> hashAsync(String password) {
+        return submitAsync(hashTimer, () -> BcryptUtil.bcryptHash(password, cost));
+    }
+
+    private <T> T submit(Timer timer, Callable<T> task) {
+        try {
+            return submitAsync(timer, task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(1L, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T> CompletableFuture<T> submitAsync(Timer timer, Callable<T> task) {
+        var queuedAt = System.nanoTime();
+        var future = new CompletableFuture<T>();
+        try {
+            executor.execute(() -> {
+                waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    future.complete(timer.recordCallable(task));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(new ServiceUnavailableException(1L, e));
+        }
+        return future;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,61 @@
+package br.dev.optimus.gaia.service;
+
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import br.dev.optimus.gaia.request.DockerRequest;
+import br.dev.optimus.gaia.response.DockerResponse;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.QueryParam;
+
+/**
+ * Non-blocking counterpart of {@link DockerService}, for callers that must
+ * not hold a thread while the daemon answers, or that fan several calls out
+ * at once.
+ */
+@RegisterRestClient(configKey = "docker")
+public interface ReactiveDockerService {
+
+    @GET
+    @Path("/info")
+    Uni<JsonNode> getInfo();
+
+    @POST
+    @Path("/containers/create")
+    Uni<DockerResponse.ContainerCreate> createContainer(@QueryParam("name") String name, DockerRequest.ContainerCreate request);
+
+    @GET
+    @Path("/containers/json")
+    Uni<JsonNode> listContainers(@QueryParam("all") boolean all, @QueryParam("filters") String filters);
+
+    @GET
+    @Path("/containers/{id}/json")
+    Uni<JsonNode> inspectContainer(@PathParam("id") String id);
+
+    @POST
+    @Path("/containers/{id}/start")
+    Uni<Void> startContainer(@PathParam("id") String id);
+
+    @DELETE
+    @Path("/containers/{id}")
+    Uni<Void> removeContainer(@PathParam("id") String id, @QueryParam("force") boolean force);
+
+    /**
+     * Pulls an image. The daemon answers with its progress, one JSON object
+     * per line, and reports a failed pull in an {@code error} member of the
+     * last one rather than in the status.
+     */
+    @POST
+    @Path("/images/create")
+    Uni<String> pullImage(@QueryParam("fromImage") String image, @QueryParam("tag") String tag);
+
+    @GET
+    @Path("/images/{name}/json")
+    Uni<JsonNode> inspectImage(@PathParam("name") String name);
+}
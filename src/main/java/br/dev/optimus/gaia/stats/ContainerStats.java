@@ -0,0 +1,107 @@
+package br.dev.optimus.gaia.stats;
+
+import br.dev.optimus.gaia.response.StatsResponse;
+
+/**
+ * Stats history of one container, downsampled into tiers of one second, one
+ * minute and one hour. Every sample is recorded in each tier; the tier a read
+ * uses is the finest one covering the requested range.
+ */
+final class ContainerStats {
+
+    private static final int[] WIDTHS = {1, 60, 3600};
+    private static final int[] CAPACITIES = {600, 1440, 720};
+
+    private final String container;
+    private final StatsRing[] tiers = new StatsRing[WIDTHS.length];
+    private volatile long memoryLimit;
+    private long lastNanos;
+    private long lastRx = -1;
+    private long lastTx = -1;
+
+    ContainerStats(String container) {
+        this.container = container;
+        for (var i = 0; i < WIDTHS.length; i++) {
+            tiers[i] = new StatsRing(WIDTHS[i], CAPACITIES[i]);
+        }
+    }
+
+    /**
+     * Records a sample. Network counters are cumulative and turned into rates
+     * against the previous sample; a counter going backwards means the
+     * container restarted, and is taken as a new starting point.
+     *
+     * @param nanos the monotonic time of the sample
+     * @param second the epoch second of the sample
+     * @param cpu the CPU usage, in percent of one core
+     * @param memory the memory in use, in bytes
+     * @param memoryLimit the memory limit, in bytes
+     * @param rxBytes the bytes received since the container started
+     * @param txBytes the bytes sent since the container started
+     */
+    void record(long nanos, long second, double cpu, long memory, long memoryLimit, long rxBytes, long txBytes) {
+        var rx = 0.0;
+        var tx = 0.0;
+        var elapsed = (nanos - lastNanos) / 1e9;
+        if (lastRx >= 0 && elapsed > 0 && rxBytes >= lastRx && txBytes >= lastTx) {
+            rx = (rxBytes - lastRx) / elapsed;
+            tx = (txBytes - lastTx) / elapsed;
+        }
+        lastNanos = nanos;
+        lastRx = rxBytes;
+        lastTx = txBytes;
+        this.memoryLimit = memoryLimit;
+        synchronized (this) {
+            for (var tier : tiers) {
+                tier.add(second, cpu, memory, rx, tx);
+            }
+        }
+    }
+
+    /**
+     * Forgets the network counters, so the next sample after a reconnect is
+     * not compared with one from before it.
+     */
+    void reset() {
+        lastRx = -1;
+        lastTx = -1;
+    }
+
+    /**
+     * The width of the tier used to serve a range, in seconds.
+     */
+    static int resolution(long range) {
+        for (var i = 0; i < WIDTHS.length; i++) {
+            if ((long) WIDTHS[i] * CAPACITIES[i] >= range) {
+                return WIDTHS[i];
+            }
+        }
+        return WIDTHS[WIDTHS.length - 1];
+    }
+
+    /**
+     * The longest range held, in seconds.
+     */
+    static long maxRange() {
+        return (long) WIDTHS[WIDTHS.length - 1] * CAPACITIES[CAPACITIES.length - 1];
+    }
+
+    synchronized StatsResponse.Series read(int resolution, long from) {
+        for (var tier : tiers) {
+            if (tier.width() == resolution) {
+                var points = tier.read(from);
+                return new StatsResponse.Series(container, memoryLimit, points.time(), points.cpu(), points.memory(),
+                        points.rx(), points.tx());
+            }
+        }
+        throw new IllegalArgumentException("no tier of " + resolution + " seconds");
+    }
+
+    long memory() {
+        var memory = 0L;
+        for (var tier : tiers) {
+            memory += tier.memory();
+        }
+        return memory;
+    }
+}
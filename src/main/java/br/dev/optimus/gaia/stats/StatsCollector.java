@@ -0,0 +1,261 @@
+package br.dev.optimus.gaia.stats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.docker.AppContainers;
+import br.dev.optimus.gaia.docker.ContainerStateCache;
+import br.dev.optimus.gaia.docker.DockerStreams;
+import br.dev.optimus.gaia.response.StatsResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.WebApplicationException;
+
+/**
+ * Collects CPU, memory and network usage of the app containers in the
+ * background and serves their recent history from memory.
+ *
+ * Each container of the apps that have not been deleted, as listed by
+ * {@link AppContainers}, gets a virtual thread holding a streaming
+ * {@code /containers/{id}/stats} request open, which the daemon answers with
+ * a sample about every second. Containers the state cache
+ * knows to be stopped are not streamed until they run again.
+ *
+ * Reads never reach the database or the daemon.
+ */
+@ApplicationScoped
+public class StatsCollector {
+
+    public static final String DEFAULT_RANGE = "5m";
+    private static final Logger log = LoggerFactory.getLogger(StatsCollector.class);
+    private static final Pattern RANGE = Pattern.compile("(\\d{1,7})([smhd])");
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final DockerStreams streams;
+    private final ContainerStateCache states;
+    private final AppContainers apps;
+    private final ObjectMapper mapper;
+    private final boolean enabled;
+    private final Duration refresh;
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    public StatsCollector(DockerStreams streams, ContainerStateCache states, AppContainers apps, ObjectMapper mapper,
+                          @ConfigProperty(name = "gaia.stats.enabled", defaultValue = "true") boolean enabled,
+                          @ConfigProperty(name = "gaia.apps.refresh", defaultValue = "PT10S") Duration refresh,
+                          MeterRegistry registry) {
+        this.streams = streams;
+        this.states = states;
+        this.apps = apps;
+        this.mapper = mapper;
+        this.enabled = enabled;
+        this.refresh = refresh;
+        registry.gauge("gaia.stats.containers", watches, Map::size);
+        registry.gauge("gaia.stats.memory", this, collector -> collector.watches.values().stream()
+                .mapToLong(watch -> watch.stats.memory()).sum());
+    }
+
+    /**
+     * Retrieves the usage of the containers of an app.
+     *
+     * @param app the app ID
+     * @param range how far back to go, as a number followed by s, m, h or d;
+     * null for the default of five minutes
+     * @return one series per container, at the finest resolution holding the
+     * whole range
+     * @throws BadRequestException if the range is malformed or longer than
+     * the history kept
+     * @throws NotFoundException if the app is unknown or deleted
+     */
+    public StatsResponse stats(UUID app, String range) {
+        var seconds = parse(range == null ? DEFAULT_RANGE : range);
+        var containers = apps.containers(app).orElseThrow(() -> new NotFoundException("app not found"));
+        var resolution = ContainerStats.resolution(seconds);
+        var now = Instant.now().getEpochSecond();
+        var from = now - seconds - Math.floorMod(now - seconds, resolution);
+        var series = new ArrayList<StatsResponse.Series>(containers.size());
+        for (var container : containers) {
+            var watch = watches.get(container);
+            if (watch != null) {
+                series.add(watch.stats.read(resolution, from));
+            }
+        }
+        return new StatsResponse(app, seconds, resolution, series);
+    }
+
+    private static long parse(String range) {
+        var matcher = RANGE.matcher(range);
+        if (!matcher.matches()) {
+            throw new BadRequestException("range must be a number followed by s, m, h or d");
+        }
+        var seconds = Long.parseLong(matcher.group(1)) * switch (matcher.group(2)) {
+            case "s" -> 1;
+            case "m" -> 60;
+            case "h" -> 3600;
+            default -> 86400;
+        };
+        if (seconds < 1 || seconds > ContainerStats.maxRange()) {
+            throw new BadRequestException("range must be between 1s and " + ContainerStats.maxRange() / 86400 + "d");
+        }
+        return seconds;
+    }
+
+    /**
+     * Starts a stream for each new app container and stops those no longer
+     * referenced.
+     */
+    void sync(@Observes AppContainers.Refreshed refreshed) {
+        if (!running) {
+            return;
+        }
+        for (var container : refreshed.containers()) {
+            watches.computeIfAbsent(container, Watch::new);
+        }
+        watches.values().removeIf(watch -> {
+            if (refreshed.containers().contains(watch.container)) {
+                return false;
+            }
+            watch.stop();
+            return true;
+        });
+    }
+
+    /**
+     * A stats stream of one container, read on its own virtual thread.
+     */
+    private final class Watch {
+
+        final String container;
+        final ContainerStats stats;
+        final Thread thread;
+        volatile boolean active = true;
+        volatile InputStream in;
+
+        Watch(String container) {
+            this.container = container;
+            this.stats = new ContainerStats(container);
+            this.thread = Thread.ofVirtual().name("stats-" + container).start(this::run);
+        }
+
+        private void run() {
+            var backoff = MIN_BACKOFF;
+            while (running && active) {
+                var state = states.state(container);
+                if (state.isPresent() && !state.get().running()) {
+                    if (!pause(refresh)) {
+                        return;
+                    }
+                    continue;
+                }
+                try (var body = streams.open("/containers/" + container + "/stats?stream=true")) {
+                    in = body;
+                    stats.reset();
+                    read(body);
+                    backoff = MIN_BACKOFF;
+                } catch (WebApplicationException e) {
+                    log.debug("no stats for container {}: {}", container, e.getMessage());
+                    backoff = refresh;
+                } catch (IOException | RuntimeException e) {
+                    if (!running || !active) {
+                        return;
+                    }
+                    log.debug("stats stream of container {} dropped", container, e);
+                } finally {
+                    in = null;
+                }
+                if (!pause(backoff)) {
+                    return;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+            }
+        }
+
+        private void read(InputStream body) throws IOException {
+            try (var parser = mapper.getFactory().createParser(body)) {
+                JsonToken token;
+                while (active && (token = parser.nextToken()) != null) {
+                    if (token == JsonToken.START_OBJECT) {
+                        sample(mapper.readTree(parser));
+                    }
+                }
+            }
+        }
+
+        private void sample(JsonNode sample) {
+            var cpu = sample.path("cpu_stats");
+            var precpu = sample.path("precpu_stats");
+            var cpuDelta = cpu.path("cpu_usage").path("total_usage").asLong() - precpu.path("cpu_usage").path("total_usage").asLong();
+            var systemDelta = cpu.path("system_cpu_usage").asLong() - precpu.path("system_cpu_usage").asLong();
+            var cpus = cpu.path("online_cpus").asInt(cpu.path("cpu_usage").path("percpu_usage").size());
+            var percent = cpuDelta > 0 && systemDelta > 0 ? (double) cpuDelta / systemDelta * Math.max(cpus, 1) * 100 : 0;
+            var memory = sample.path("memory_stats");
+            var cache = memory.path("stats").has("inactive_file")
+                    ? memory.path("stats").path("inactive_file").asLong()
+                    : memory.path("stats").path("cache").asLong();
+            var rx = 0L;
+            var tx = 0L;
+            for (var network : sample.path("networks")) {
+                rx += network.path("rx_bytes").asLong();
+                tx += network.path("tx_bytes").asLong();
+            }
+            stats.record(System.nanoTime(), Instant.now().getEpochSecond(), percent,
+                    Math.max(memory.path("usage").asLong() - cache, 0), memory.path("limit").asLong(), rx, tx);
+        }
+
+        private boolean pause(Duration duration) {
+            try {
+                Thread.sleep(duration);
+                return true;
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+
+        void stop() {
+            active = false;
+            var body = in;
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    // the thread is exiting anyway
+                }
+            }
+            thread.interrupt();
+        }
+    }
+
+    void start(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        sync(new AppContainers.Refreshed(apps.containers()));
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        running = false;
+        watches.values().forEach(Watch::stop);
+    }
+}
@@ -0,0 +1,115 @@
+package br.dev.optimus.gaia.stats;
+
+/**
+ * Fixed-size ring of stats points, each averaging the samples that fall in an
+ * interval of {@code width} seconds. Values live in primitive arrays, so
+ * recording a sample allocates nothing. Not thread safe.
+ */
+final class StatsRing {
+
+    /**
+     * Points read from a ring, oldest first.
+     */
+    record Points(long[] time, float[] cpu, long[] memory, float[] rx, float[] tx) {
+    }
+
+    private final int width;
+    private final long[] time;
+    private final float[] cpu;
+    private final long[] memory;
+    private final float[] rx;
+    private final float[] tx;
+    private int head;
+    private int size;
+    private long bucket = Long.MIN_VALUE;
+    private int count;
+    private double cpuSum;
+    private double memorySum;
+    private double rxSum;
+    private double txSum;
+
+    StatsRing(int width, int capacity) {
+        this.width = width;
+        this.time = new long[capacity];
+        this.cpu = new float[capacity];
+        this.memory = new long[capacity];
+        this.rx = new float[capacity];
+        this.tx = new float[capacity];
+    }
+
+    int width() {
+        return width;
+    }
+
+    void add(long second, double cpu, long memory, double rx, double tx) {
+        var start = second - Math.floorMod(second, width);
+        if (start < bucket) {
+            return;
+        }
+        if (start != bucket) {
+            close();
+            bucket = start;
+        }
+        count++;
+        cpuSum += cpu;
+        memorySum += memory;
+        rxSum += rx;
+        txSum += tx;
+    }
+
+    /**
+     * Reads the points starting at or after {@code from}, including the
+     * interval still being filled.
+     */
+    Points read(long from) {
+        var capacity = time.length;
+        var open = count > 0 && bucket >= from ? 1 : 0;
+        var skip = 0;
+        while (skip < size && time[(head - size + skip + capacity) % capacity] < from) {
+            skip++;
+        }
+        var length = size - skip + open;
+        var points = new Points(new long[length], new float[length], new long[length], new float[length], new float[length]);
+        for (var i = 0; i < size - skip; i++) {
+            var slot = (head - size + skip + i + capacity) % capacity;
+            points.time()[i] = time[slot];
+            points.cpu()[i] = cpu[slot];
+            points.memory()[i] = memory[slot];
+            points.rx()[i] = rx[slot];
+            points.tx()[i] = tx[slot];
+        }
+        if (open == 1) {
+            points.time()[length - 1] = bucket;
+            points.cpu()[length - 1] = (float) (cpuSum / count);
+            points.memory()[length - 1] = (long) (memorySum / count);
+            points.rx()[length - 1] = (float) (rxSum / count);
+            points.tx()[length - 1] = (float) (txSum / count);
+        }
+        return points;
+    }
+
+    private void close() {
+        if (count == 0) {
+            return;
+        }
+        time[head] = bucket;
+        cpu[head] = (float) (cpuSum / count);
+        memory[head] = (long) (memorySum / count);
+        rx[head] = (float) (rxSum / count);
+        tx[head] = (float) (txSum / count);
+        head = (head + 1) % time.length;
+        size = Math.min(size + 1, time.length);
+        count = 0;
+        cpuSum = 0;
+        memorySum = 0;
+        rxSum = 0;
+        txSum = 0;
+    }
+
+    /**
+     * The heap held by the arrays, in bytes.
+     */
+    long memory() {
+        return (long) time.length * (Long.BYTES * 2 + Float.BYTES * 3);
+    }
+}
@@ -0,0 +1,58 @@
+create table if not exists groups (
+    id integer generated by default as identity primary key,
+    name varchar(255) unique,
+    permissions jsonb,
+    visible boolean not null,
+    editable boolean not null,
+    locked boolean not null,
+    created_at bigint not null,
+    updated_at bigint not null,
+    deleted_at bigint not null
+);
+
+create table if not exists users (
+    id bigint generated by default as identity primary key,
+    group_id integer references groups (id),
+    name varchar(255),
+    phone varchar(255),
+    job_title varchar(255),
+    email varchar(255) unique,
+    username varchar(255) unique,
+    password varchar(255),
+    visible boolean not null,
+    editable boolean not null,
+    locked boolean not null,
+    created_at bigint not null,
+    updated_at bigint not null,
+    deleted_at bigint not null
+);
+
+create table if not exists customers (
+    id bigint generated by default as identity primary key,
+    name varchar(255) unique,
+    phone varchar(255),
+    email varchar(255),
+    document varchar(255),
+    address varchar(255),
+    contacts jsonb,
+    active boolean not null,
+    created_at bigint not null,
+    updated_at bigint not null,
+    deleted_at bigint not null
+);
+
+create table if not exists apps (
+    id uuid primary key,
+    container varchar(255),
+    name varchar(255) unique,
+    port integer not null unique,
+    image varchar(255),
+    replicas integer not null,
+    environments jsonb,
+    volumes jsonb,
+    listening boolean not null,
+    active boolean not null,
+    created_at bigint not null,
+    updated_at bigint not null,
+    deleted_at bigint not null
+);
@@ -0,0 +1,23 @@
+-- Every lookup and listing filters on deleted_at = 0, so the indexes below
+-- only cover live rows. Listings are keyset paginated on (sort key, id).
+
+create index if not exists users_username_live_idx on users (username) where deleted_at = 0;
+create index if not exists users_email_live_idx on users (email) where deleted_at = 0;
+create index if not exists users_group_id_idx on users (group_id);
+create index if not exists users_list_id_idx on users (id) where visible and deleted_at = 0;
+create index if not exists users_list_name_idx on users (name, id) where visible and deleted_at = 0;
+create index if not exists users_list_username_idx on users (username, id) where visible and deleted_at = 0;
+create index if not exists users_list_created_at_idx on users (created_at, id) where visible and deleted_at = 0;
+
+create index if not exists groups_name_live_idx on groups (name) where deleted_at = 0;
+create index if not exists groups_list_id_idx on groups (id) where visible and deleted_at = 0;
+create index if not exists groups_list_name_idx on groups (name, id) where visible and deleted_at = 0;
+
+create index if not exists customers_email_live_idx on customers (email) where deleted_at = 0;
+create index if not exists customers_list_id_idx on customers (id) where deleted_at = 0;
+create index if not exists customers_list_name_idx on customers (name, id) where deleted_at = 0;
+create index if not exists customers_list_created_at_idx on customers (created_at, id) where deleted_at = 0;
+create index if not exists customers_list_updated_at_idx on customers (updated_at, id) where deleted_at = 0;
+
+create index if not exists apps_name_live_idx on apps (name) where deleted_at = 0;
+create index if not exists apps_list_id_idx on apps (id) where deleted_at = 0;
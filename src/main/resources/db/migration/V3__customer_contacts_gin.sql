@@ -0,0 +1,8 @@
+-- Contact lookups are containment queries (contacts @> '[{"email": ...}]'),
+-- which jsonb_path_ops answers with a smaller index than the default opclass.
+-- Databases baselined from a Hibernate generated schema may still hold the
+-- column as json, so it is converted first.
+
+alter table customers alter column contacts type jsonb using contacts::jsonb;
+
+create index if not exists customers_contacts_idx on customers using gin (contacts jsonb_path_ops) where deleted_at = 0;
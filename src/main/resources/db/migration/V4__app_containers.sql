@@ -0,0 +1,6 @@
+-- An app runs one container per replica. container keeps the first one, the
+-- one its logs are read from, and containers lists all of them.
+
+alter table apps add column if not exists containers jsonb;
+
+update apps set containers = jsonb_build_array(container) where containers is null and container is not null;
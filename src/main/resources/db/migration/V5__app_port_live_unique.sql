@@ -0,0 +1,21 @@
+-- Apps are soft deleted, so a unique constraint over every row would keep the
+-- port of a deleted app taken forever. Only live apps need distinct ports.
+-- Databases baselined from a Hibernate generated schema may name the
+-- constraint differently, so it is looked up rather than dropped by name.
+
+do $$
+declare
+    name text;
+begin
+    for name in
+        select c.conname
+        from pg_constraint c
+        join pg_attribute a on a.attrelid = c.conrelid and a.attnum = any (c.conkey)
+        where c.conrelid = 'apps'::regclass and c.contype = 'u' and a.attname = 'port' and array_length(c.conkey, 1) = 1
+    loop
+        execute format('alter table apps drop constraint %I', name);
+    end loop;
+end
+$$;
+
+create unique index if not exists apps_port_live_idx on apps (port) where deleted_at = 0;
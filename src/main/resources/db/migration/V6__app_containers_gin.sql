@@ -0,0 +1,4 @@
+-- Container state changes find their apps by replica (containers ?| array),
+-- which the default jsonb opclass answers from the index.
+
+create index if not exists apps_containers_idx on apps using gin (containers) where deleted_at = 0;
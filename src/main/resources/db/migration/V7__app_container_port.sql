@@ -0,0 +1,5 @@
+-- The port the containers of an app listen on, published on the app port of
+-- the host. Apps deployed before have 0, as their containers were created
+-- listening on the app port itself.
+
+alter table apps add column if not exists container_port integer not null default 0;
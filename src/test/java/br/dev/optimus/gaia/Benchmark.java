@@ -0,0 +1,54 @@
+package br.dev.optimus.gaia;
+
+import java.util.function.IntToLongFunction;
+
+/**
+ * A small stand-in for JMH, which the build does not depend on: runs an
+ * operation in warmup rounds, then in measured rounds, and reports the best
+ * round. Results are folded into a sink so the JIT cannot drop the work.
+ *
+ * Benchmark tests only run with {@code -Dgaia.benchmark=true}, see
+ * {@link #ENABLED}.
+ */
+public final class Benchmark {
+
+    public static final String ENABLED = "gaia.benchmark";
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 5;
+    private static volatile long sink;
+
+    private Benchmark() {
+    }
+
+    /**
+     * Measures an operation.
+     *
+     * @param name the name reported with the result
+     * @param operations the number of operations of each round
+     * @param operation the operation, given the index of the call
+     * @return the best time per operation, in nanoseconds
+     */
+    public static double run(String name, int operations, IntToLongFunction operation) {
+        for (var round = 0; round < WARMUP_ROUNDS; round++) {
+            round(operations, operation);
+        }
+        var best = Long.MAX_VALUE;
+        for (var round = 0; round < ROUNDS; round++) {
+            best = Math.min(best, round(operations, operation));
+        }
+        var nanos = (double) best / operations;
+        System.out.printf("%s: %.2f ns/op%n", name, nanos);
+        return nanos;
+    }
+
+    private static long round(int operations, IntToLongFunction operation) {
+        var result = 0L;
+        var start = System.nanoTime();
+        for (var i = 0; i < operations; i++) {
+            result += operation.applyAsLong(i);
+        }
+        var elapsed = System.nanoTime() - start;
+        sink += result;
+        return elapsed;
+    }
+}
@@ -0,0 +1,259 @@
+package br.dev.optimus.gaia;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.agroal.api.AgroalDataSource;
+
+/**
+ * An in-memory stand-in for the datasource, for components that talk plain
+ * JDBC: every statement is recorded and answered by a {@link Handler}, and
+ * query results are read by column index, or by label for the statements
+ * given {@link #columns}.
+ *
+ * Only the calls the application makes are implemented; anything else fails
+ * with {@link UnsupportedOperationException}.
+ */
+public final class StubDatabase {
+
+    /**
+     * Answers a statement.
+     */
+    @FunctionalInterface
+    public interface Handler {
+
+        /**
+         * @param sql the statement
+         * @param parameters the parameters bound to it, in order
+         * @return the rows of a query, or one row holding the update count
+         */
+        List<Object[]> execute(String sql, List<Object> parameters) throws SQLException;
+    }
+
+    /**
+     * A statement that was run, with its parameters.
+     */
+    public record Executed(String sql, List<Object> parameters) {
+    }
+
+    private final Handler handler;
+    private final List<Executed> executed = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger aborted = new AtomicInteger();
+    private final Map<String, List<String>> columns = new ConcurrentHashMap<>();
+
+    public StubDatabase(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Names the columns of the queries containing the given text, so their
+     * results can be read by label.
+     *
+     * @return this database
+     */
+    public StubDatabase columns(String text, String... labels) {
+        columns.put(text, List.of(labels));
+        return this;
+    }
+
+    public AgroalDataSource dataSource() {
+        return proxy(AgroalDataSource.class, (method, args) -> switch (method) {
+            case "getConnection" -> connection();
+            case "close" -> null;
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    /**
+     * @return the statements run so far, in order
+     */
+    public List<Executed> executed() {
+        synchronized (executed) {
+            return List.copyOf(executed);
+        }
+    }
+
+    /**
+     * @return the statements run so far that contain the given text
+     */
+    public List<Executed> executed(String text) {
+        return executed().stream().filter(statement -> statement.sql().contains(text)).toList();
+    }
+
+    /**
+     * @return the number of connections handed out and not closed
+     */
+    public int openConnections() {
+        return open.get();
+    }
+
+    /**
+     * @return the number of connections aborted
+     */
+    public int abortedConnections() {
+        return aborted.get();
+    }
+
+    private Connection connection() {
+        open.incrementAndGet();
+        var closed = new boolean[1];
+        var autoCommit = new boolean[]{true};
+        return proxy(Connection.class, (method, args) -> switch (method) {
+            case "prepareStatement" -> statement((String) args[0]);
+            case "createStatement" -> statement(null);
+            case "createArrayOf" -> array((String) args[0], (Object[]) args[1]);
+            case "isValid" -> !closed[0];
+            case "isClosed" -> closed[0];
+            case "close" -> {
+                if (!closed[0]) {
+                    closed[0] = true;
+                    open.decrementAndGet();
+                }
+                yield null;
+            }
+            case "abort" -> {
+                aborted.incrementAndGet();
+                yield null;
+            }
+            case "getAutoCommit" -> autoCommit[0];
+            case "setAutoCommit" -> {
+                autoCommit[0] = (boolean) args[0];
+                yield null;
+            }
+            case "commit", "rollback", "setReadOnly", "setTransactionIsolation", "clearWarnings" -> null;
+            case "isWrapperFor" -> false;
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    /**
+     * An array parameter, recorded as the list of its elements when bound.
+     */
+    private static Array array(String type, Object[] elements) {
+        return proxy(Array.class, (method, args) -> switch (method) {
+            case "getArray" -> elements.clone();
+            case "getBaseTypeName" -> type;
+            case "free" -> null;
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private PreparedStatement statement(String prepared) {
+        var parameters = new ArrayList<>();
+        var batch = new ArrayList<List<Object>>();
+        return proxy(PreparedStatement.class, (method, args) -> switch (method) {
+            case "setInt", "setLong", "setString", "setBoolean", "setBytes", "setObject", "setArray" -> {
+                var index = (int) args[0];
+                while (parameters.size() < index) {
+                    parameters.add(null);
+                }
+                parameters.set(index - 1, args[1] instanceof Array array ? Arrays.asList((Object[]) array.getArray()) : args[1]);
+                yield null;
+            }
+            case "addBatch" -> {
+                batch.add(List.copyOf(parameters));
+                parameters.clear();
+                yield null;
+            }
+            case "executeBatch" -> {
+                var counts = new int[batch.size()];
+                for (var i = 0; i < counts.length; i++) {
+                    counts[i] = count(execute(prepared, batch.get(i)));
+                }
+                batch.clear();
+                yield counts;
+            }
+            case "executeQuery" -> {
+                var sql = args == null ? prepared : (String) args[0];
+                yield results(labels(sql), execute(sql, parameters));
+            }
+            case "executeUpdate" -> count(execute(args == null ? prepared : (String) args[0], parameters));
+            case "execute" -> {
+                execute(args == null ? prepared : (String) args[0], parameters);
+                yield false;
+            }
+            case "setFetchSize", "setQueryTimeout", "close", "clearParameters" -> null;
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private List<Object[]> execute(String sql, List<Object> parameters) throws SQLException {
+        executed.add(new Executed(sql, List.copyOf(parameters)));
+        var rows = handler.execute(sql, parameters);
+        return rows == null ? List.of() : rows;
+    }
+
+    private static int count(List<Object[]> rows) {
+        return rows.isEmpty() ? 0 : ((Number) rows.getFirst()[0]).intValue();
+    }
+
+    private List<String> labels(String sql) {
+        return columns.entrySet().stream()
+                .filter(entry -> sql.contains(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(List.of());
+    }
+
+    private static ResultSet results(List<String> labels, List<Object[]> rows) {
+        var cursor = new int[]{-1};
+        var wasNull = new boolean[1];
+        return proxy(ResultSet.class, (method, args) -> {
+            if (method.equals("next")) {
+                return ++cursor[0] < rows.size();
+            }
+            if (method.equals("close")) {
+                return null;
+            }
+            if (method.equals("wasNull")) {
+                return wasNull[0];
+            }
+            var column = args[0] instanceof String label ? labels.indexOf(label) : (int) args[0] - 1;
+            if (column < 0) {
+                throw new SQLException("no column " + args[0]);
+            }
+            var value = rows.get(cursor[0])[column];
+            wasNull[0] = value == null;
+            return switch (method) {
+                case "getObject" -> args.length > 1 && value != null ? ((Class<?>) args[1]).cast(value) : value;
+                case "getString" -> value == null ? null : value.toString();
+                case "getLong" -> value == null ? 0L : ((Number) value).longValue();
+                case "getInt" -> value == null ? 0 : ((Number) value).intValue();
+                case "getBoolean" -> value != null && (boolean) value;
+                default -> throw new UnsupportedOperationException(method);
+            };
+        });
+    }
+
+    @FunctionalInterface
+    private interface Method {
+        Object invoke(String name, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, Method method) {
+        InvocationHandler handler = (proxy, invoked, args) -> {
+            if (invoked.getDeclaringClass() == Object.class) {
+                return switch (invoked.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + "@stub";
+                };
+            }
+            return method.invoke(invoked.getName(), args);
+        };
+        return type.cast(Proxy.newProxyInstance(StubDatabase.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -0,0 +1,75 @@
+package br.dev.optimus.gaia.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import br.dev.optimus.gaia.Benchmark;
+import br.dev.optimus.gaia.model.Group;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Serves {@value #REQUESTS} near cache misses whose load stands in for a
+ * slow database round trip of {@value #BACKEND_MILLIS} ms, first on a
+ * platform thread pool sized like the Quarkus worker pool, then on a virtual
+ * thread per request, and counts the virtual threads pinned meanwhile.
+ */
+@EnabledIfSystemProperty(named = Benchmark.ENABLED, matches = "true")
+class NearCacheBenchmarkTest {
+
+    private static final int REQUESTS = 10_000;
+    private static final int BACKEND_MILLIS = 20;
+    private static final int WORKERS = Math.max(20, 8 * Runtime.getRuntime().availableProcessors());
+
+    @Test
+    void virtualThreadsAgainstWorkerPool() throws Exception {
+        var pinned = new AtomicInteger();
+        try (var recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO);
+            recording.onEvent("jdk.VirtualThreadPinned", event -> pinned.incrementAndGet());
+            recording.startAsync();
+
+            var platform = run(Executors.newFixedThreadPool(WORKERS));
+            var virtual = run(Executors.newVirtualThreadPerTaskExecutor());
+            Thread.sleep(2000);
+            System.out.printf("platform pool of %d: %d requests/s%n", WORKERS, platform);
+            System.out.printf("virtual threads: %d requests/s, %d pinned%n", virtual, pinned.get());
+        }
+        assertEquals(0, pinned.get());
+    }
+
+    private static long run(ExecutorService executor) throws Exception {
+        var cache = new NearCache(null, null, Duration.ofMinutes(5), REQUESTS);
+        try (executor) {
+            var start = System.nanoTime();
+            var requests = new ArrayList<Future<Group>>(REQUESTS);
+            for (var i = 0; i < REQUESTS; i++) {
+                var id = i;
+                requests.add(executor.submit(() -> cache.group(id, NearCacheBenchmarkTest::load)));
+            }
+            for (var request : requests) {
+                request.get();
+            }
+            return REQUESTS * 1_000_000_000L / (System.nanoTime() - start);
+        }
+    }
+
+    private static Group load(Integer id) {
+        try {
+            Thread.sleep(BACKEND_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        var group = Group.builder().name("group-" + id).build();
+        group.setId(id);
+        return group;
+    }
+}
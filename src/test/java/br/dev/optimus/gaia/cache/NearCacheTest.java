@@ -0,0 +1,79 @@
+package br.dev.optimus.gaia.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import br.dev.optimus.gaia.model.Group;
+
+class NearCacheTest {
+
+    private final NearCache cache = new NearCache(null, null, Duration.ofMinutes(5), 100);
+
+    @Test
+    void loadsWithoutHoldingAMonitor() {
+        var threads = ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isObjectMonitorUsageSupported());
+
+        var monitors = new AtomicInteger(-1);
+        cache.group(1, id -> {
+            monitors.set(threads.getThreadInfo(new long[]{Thread.currentThread().threadId()}, true, false)[0]
+                    .getLockedMonitors().length);
+            return group(id);
+        });
+
+        assertEquals(0, monitors.get());
+    }
+
+    @Test
+    void loadsOnceThenServesTheCachedEntry() {
+        var loads = new AtomicInteger();
+
+        var first = cache.group(1, id -> {
+            loads.incrementAndGet();
+            return group(id);
+        });
+        var second = cache.group(1, id -> {
+            loads.incrementAndGet();
+            return group(id);
+        });
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().get("groups_by_id").hits());
+    }
+
+    @Test
+    void doesNotCacheMissingEntries() {
+        var loads = new AtomicInteger();
+
+        assertNull(cache.groupByName("missing", name -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(Optional.empty(), cache.userByUsername("missing", username -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        }));
+        cache.groupByName("missing", name -> {
+            loads.incrementAndGet();
+            return null;
+        });
+
+        assertEquals(3, loads.get());
+    }
+
+    private static Group group(Integer id) {
+        var group = Group.builder().name("group-" + id).build();
+        group.setId(id);
+        return group;
+    }
+}
@@ -0,0 +1,133 @@
+package br.dev.optimus.gaia.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import br.dev.optimus.gaia.model.Group;
+import br.dev.optimus.gaia.model.User;
+import br.dev.optimus.gaia.repository.GroupRepository;
+import br.dev.optimus.gaia.repository.UserRepository;
+import br.dev.optimus.gaia.service.PasswordHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+
+class InitConfigTest {
+
+    private final PasswordHasher hasher = new PasswordHasher(4, 1, 4, new SimpleMeterRegistry());
+    private final List<Group> groups = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+    private final List<User> updated = new ArrayList<>();
+    private final GroupRepository groupRepository = new GroupRepository(null) {
+        @Override
+        public List<Group> list() {
+            return groups;
+        }
+
+        @Override
+        public void create(Group group) {
+            groups.add(group);
+        }
+
+        @Override
+        public Group findByName(String name) {
+            return groups.stream().filter(group -> group.getName().equals(name)).findFirst().orElse(null);
+        }
+    };
+    private final UserRepository userRepository = new UserRepository(groupRepository, null, hasher) {
+        @Override
+        public void create(User user) {
+            users.add(user);
+        }
+
+        @Override
+        public void update(User user) {
+            updated.add(user);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public PanacheQuery<User> find(String query, Object... params) {
+            assertEquals("username = ?1 and deletedAt = 0", query);
+            var found = users.stream().filter(user -> user.getUsername().equals(params[0])).findFirst();
+            return (PanacheQuery<User>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{PanacheQuery.class}, (proxy, method, args) -> {
+                        if (!method.getName().equals("firstResultOptional")) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return found;
+                    });
+        }
+    };
+
+    @Test
+    void seedsUsersWithoutPasswordsWhenNoneIsConfigured() {
+        init(Optional.empty());
+
+        assertEquals(List.of("root", "nobody", "admin"), groups.stream().map(Group::getName).toList());
+        assertEquals(List.of("root", "admin"), users.stream().map(User::getUsername).toList());
+        for (var user : users) {
+            assertNull(user.getPassword(), user.getUsername());
+            assertTrue(user.isLocked(), user.getUsername());
+        }
+        assertEquals(List.of(), updated);
+    }
+
+    @Test
+    void setsTheBootstrapPasswordOnRootAndUnlocksIt() {
+        init(Optional.of("bootstrap"));
+
+        var root = users.getFirst();
+        assertTrue(hasher.verify("bootstrap", root.getPassword()));
+        assertFalse(root.isLocked());
+        assertEquals(List.of(root), updated);
+        assertNull(users.getLast().getPassword());
+        assertTrue(users.getLast().isLocked());
+    }
+
+    @Test
+    void replacesTheFormerDefaultPassword() {
+        groups.add(Group.builder().name("admin").build());
+        users.add(root(hasher.hash("root"), true));
+
+        init(Optional.empty());
+
+        assertNull(users.getFirst().getPassword());
+        assertTrue(users.getFirst().isLocked());
+
+        init(Optional.of("bootstrap"));
+
+        assertTrue(hasher.verify("bootstrap", users.getFirst().getPassword()));
+        assertFalse(users.getFirst().isLocked());
+        assertEquals(1, groups.size());
+    }
+
+    @Test
+    void keepsAPasswordSetThroughTheApi() {
+        groups.add(Group.builder().name("admin").build());
+        var hash = hasher.hash("changed");
+        users.add(root(hash, false));
+
+        init(Optional.of("bootstrap"));
+
+        assertEquals(hash, users.getFirst().getPassword());
+        assertEquals(List.of(), updated);
+    }
+
+    private void init(Optional<String> bootstrapPassword) {
+        new InitConfig(groupRepository, userRepository, hasher, bootstrapPassword).init(null);
+    }
+
+    private static User root(String hash, boolean locked) {
+        return User.builder().name("root").email("root@change.me").username("root")
+                .passwordHash(hash).locked(locked).build();
+    }
+}
@@ -0,0 +1,147 @@
+package br.dev.optimus.gaia.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import br.dev.optimus.gaia.StubDatabase;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.NotificationOptions;
+import jakarta.enterprise.util.TypeLiteral;
+
+class AppContainersTest {
+
+    private static final UUID WEB = UUID.randomUUID();
+    private static final UUID API = UUID.randomUUID();
+
+    private final Observer observer = new Observer();
+    private final AtomicReference<StubDatabase.Handler> query = new AtomicReference<>();
+    private final StubDatabase database = new StubDatabase((sql, parameters) -> query.get().execute(sql, parameters))
+            .columns("from apps a", "id", "container");
+    private final AppContainers containers = new AppContainers(database.dataSource(), Duration.ofSeconds(10), observer);
+
+    @Test
+    void loadsTheContainersOfEveryAppAndFires() {
+        query.set(rows(new Object[]{WEB, "web-0"}, new Object[]{WEB, "web-1"}, new Object[]{API, "api-0"}));
+
+        containers.refresh();
+
+        assertEquals(Optional.of(List.of("web-0", "web-1")), containers.containers(WEB));
+        assertEquals(Set.of("web-0", "web-1", "api-0"), containers.containers());
+        assertEquals(List.of(Set.of("web-0", "web-1", "api-0")), observer.fired);
+        assertEquals(0, database.openConnections());
+    }
+
+    @Test
+    void keepsTheCurrentContainersWhenTheDatabaseFails() {
+        query.set(rows(new Object[]{WEB, "web-0"}));
+        containers.refresh();
+        query.set((sql, parameters) -> {
+            throw new SQLException("connection refused");
+        });
+
+        containers.refresh();
+
+        assertEquals(Set.of("web-0"), containers.containers());
+        assertEquals(1, observer.fired.size());
+    }
+
+    @Test
+    void queriesWithoutHoldingUpOtherReloads() throws InterruptedException {
+        var blocked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        query.set((sql, parameters) -> {
+            blocked.countDown();
+            await(release);
+            return List.<Object[]>of(new Object[]{WEB, "stale"});
+        });
+        var slow = Thread.ofPlatform().start(containers::refresh);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        query.set(rows(new Object[]{WEB, "web-0"}));
+        var fast = Thread.ofPlatform().start(containers::refresh);
+        assertTrue(fast.join(Duration.ofSeconds(5)), "a reload waited for another one's query");
+        release.countDown();
+        assertTrue(slow.join(Duration.ofSeconds(5)));
+
+        assertEquals(Set.of("web-0"), containers.containers());
+        assertEquals(List.of(Set.of("web-0")), observer.fired);
+    }
+
+    @Test
+    void firesWithoutHoldingAMonitor() {
+        query.set(rows(new Object[]{WEB, "web-0"}));
+
+        containers.refresh();
+
+        assertEquals(List.of(0), observer.monitors);
+    }
+
+    private static StubDatabase.Handler rows(Object[]... rows) {
+        return (sql, parameters) -> List.of(rows);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records the events fired and the monitors held by the firing thread.
+     */
+    private static final class Observer implements Event<AppContainers.Refreshed> {
+
+        final List<Set<String>> fired = new CopyOnWriteArrayList<>();
+        final List<Integer> monitors = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void fire(AppContainers.Refreshed event) {
+            var thread = ManagementFactory.getThreadMXBean().getThreadInfo(new long[]{Thread.currentThread().threadId()}, true, false)[0];
+            monitors.add(thread.getLockedMonitors().length);
+            fired.add(event.containers());
+        }
+
+        @Override
+        public <U extends AppContainers.Refreshed> CompletionStage<U> fireAsync(U event) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <U extends AppContainers.Refreshed> CompletionStage<U> fireAsync(U event, NotificationOptions options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Event<AppContainers.Refreshed> select(Annotation... qualifiers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <U extends AppContainers.Refreshed> Event<U> select(Class<U> subtype, Annotation... qualifiers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <U extends AppContainers.Refreshed> Event<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
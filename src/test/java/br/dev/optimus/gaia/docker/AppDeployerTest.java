@@ -0,0 +1,336 @@
+package br.dev.optimus.gaia.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.StubDatabase;
+import br.dev.optimus.gaia.model.App;
+import br.dev.optimus.gaia.repository.AppRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.NotificationOptions;
+import jakarta.enterprise.util.TypeLiteral;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.WebApplicationException;
+
+class AppDeployerTest {
+
+    private static final Duration STEP = Duration.ofMillis(200);
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<App> saved = new CopyOnWriteArrayList<>();
+    private final StubDatabase database = new StubDatabase((sql, parameters) -> List.of());
+    private StubDockerDaemon daemon;
+    private UnixSocketDockerService blocking;
+    private UnixSocketReactiveDockerService docker;
+    private PortAllocator ports;
+    private AppDeployer deployer;
+    private volatile String failing;
+    /** The ports the images expose. */
+    private volatile String exposed = "{\"80/tcp\":{}}";
+    /** The ports of the apps saved by another instance. */
+    private volatile Set<Integer> elsewhere = Set.of();
+
+    @BeforeEach
+    void start() throws IOException {
+        daemon = new StubDockerDaemon(directory, this::handle);
+        blocking = new UnixSocketDockerService(daemon.socket(), 16, Duration.ofSeconds(1), Duration.ofSeconds(30), registry, mapper);
+        docker = new UnixSocketReactiveDockerService(blocking);
+        ports = new PortAllocator(database.dataSource(), 20000, 20009, Duration.ofMinutes(5), registry);
+        var repository = new AppRepository() {
+            @Override
+            public void create(App app) {
+                if (elsewhere.contains(app.getPort())) {
+                    throw new IllegalStateException(new SQLException(
+                            "duplicate key value violates unique constraint \"apps_port_live_idx\"", "23505"));
+                }
+                saved.add(app);
+            }
+        };
+        var containers = new AppContainers(database.dataSource(), Duration.ofSeconds(10), new NoEvent());
+        var images = new ImagePuller(docker, mapper, Duration.ofMinutes(5), 100, Duration.ofMinutes(1), registry);
+        deployer = new AppDeployer(docker, new FanOut(10), repository, containers, images, ports, Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        ports.stop(null);
+        docker.close();
+        blocking.close();
+        daemon.close();
+    }
+
+    @Test
+    void deploysTheReplicasInParallel() {
+        var start = System.nanoTime();
+        var app = deployer.deploy(dto("web", 8080, 10));
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        var names = IntStream.range(0, 10).mapToObj(index -> index == 0 ? "web" : "web-" + index).toList();
+        assertEquals(names.stream().map(name -> "id-" + name).toList(), app.getContainers());
+        assertEquals("id-web", app.getContainer());
+        assertEquals(List.of(app), saved);
+        assertEquals(1, daemon.requests("POST", "/images/create").size());
+        // a create and a start per replica, one after the other
+        var serial = STEP.multipliedBy(2 * 10);
+        assertTrue(elapsed.compareTo(serial.dividedBy(4)) < 0, "took " + elapsed.toMillis() + " ms, serially " + serial.toMillis());
+    }
+
+    @Test
+    void publishesThePortTheImageExposesOnTheAppPortFromTheFirstReplica() throws IOException {
+        var app = deployer.deploy(dto("web", 8080, 3));
+
+        assertEquals(80, app.getContainerPort());
+        assertPublished("80/tcp", 3);
+        assertEquals(AppDeployer.spec(app("web", 8080, 80)), label(0));
+    }
+
+    @Test
+    void publishesTheGivenContainerPort() throws IOException {
+        exposed = "{\"80/tcp\":{},\"443/tcp\":{},\"53/udp\":{}}";
+
+        var app = deployer.deploy(dto("web", 8080, 3000, 2));
+
+        assertEquals(3000, app.getContainerPort());
+        assertPublished("3000/tcp", 2);
+    }
+
+    @Test
+    void takesTheOnlyTcpPortOfTheImage() {
+        exposed = "{\"53/udp\":{},\"53/tcp\":{}}";
+
+        assertEquals(53, deployer.deploy(dto("dns", 8080, 1)).getContainerPort());
+    }
+
+    @Test
+    void rejectsAnImageExposingNoPortWithoutAContainerPort() {
+        exposed = "{}";
+
+        var error = assertThrows(BadRequestException.class, () -> deployer.deploy(dto("web", 0, 1)));
+
+        assertEquals("image nginx exposes no port, container_port is required", error.getMessage());
+        assertEquals(List.of(), daemon.requests("POST", "/containers/create"));
+        assertEquals(List.of(), saved);
+        assertEquals(20000, ports.allocate());
+    }
+
+    @Test
+    void rejectsAnImageExposingSeveralPortsWithoutAContainerPort() {
+        exposed = "{\"80/tcp\":{},\"443/tcp\":{}}";
+
+        var error = assertThrows(BadRequestException.class, () -> deployer.deploy(dto("web", 8080, 1)));
+
+        assertEquals("image nginx exposes several ports [80, 443], container_port is required", error.getMessage());
+        assertEquals(List.of(), daemon.requests("POST", "/containers/create"));
+        assertThrows(BadRequestException.class, () -> deployer.deploy(dto("web", 8080, 65536, 1)));
+    }
+
+    @Test
+    void listensOnTheAppPortForAppsWithoutAContainerPort() throws IOException {
+        var legacy = app("web", 8080, 0);
+
+        assertNotEquals(AppDeployer.spec(legacy), AppDeployer.spec(app("web", 8080, 8080)));
+        var body = mapper.readTree(mapper.writeValueAsString(AppDeployer.request(legacy, 0)));
+        assertEquals("8080", body.path("HostConfig").path("PortBindings").path("8080/tcp").path(0).path("HostPort").asText());
+    }
+
+    @Test
+    void allocatesAPortWhenNoneIsGiven() {
+        var app = deployer.deploy(dto("web", 0, 1));
+
+        assertEquals(20000, app.getPort());
+    }
+
+    @Test
+    void allocatesAnotherPortWhenAnotherInstanceTookIt() {
+        elsewhere = Set.of(20000, 20001);
+
+        var app = deployer.deploy(dto("web", 0, 2));
+
+        assertEquals(20002, app.getPort());
+        assertEquals(List.of(app), saved);
+        // the containers of each attempt are removed before the next one
+        assertEquals(4, daemon.requests().stream().filter(request -> request.method().equals("DELETE")).count());
+        // the ports taken elsewhere stay reserved here
+        assertEquals(20003, ports.allocate());
+    }
+
+    @Test
+    void rejectsAGivenPortTakenByAnotherInstance() {
+        elsewhere = Set.of(20005);
+
+        var conflict = assertThrows(ClientErrorException.class, () -> deployer.deploy(dto("web", 20005, 1)));
+
+        assertEquals(409, conflict.getResponse().getStatus());
+        assertEquals(1, daemon.requests("POST", "/containers/create").size());
+        assertEquals(List.of(), saved);
+    }
+
+    @Test
+    void givesUpWhenEveryAttemptedPortIsTaken() {
+        elsewhere = Set.of(20000, 20001, 20002, 20003);
+
+        var conflict = assertThrows(ClientErrorException.class, () -> deployer.deploy(dto("web", 0, 1)));
+
+        assertEquals(409, conflict.getResponse().getStatus());
+        assertEquals(3, daemon.requests("POST", "/containers/create").size());
+        assertEquals(List.of(), saved);
+    }
+
+    @Test
+    void removesEveryContainerWhenAReplicaFails() {
+        failing = "id-web-3";
+
+        assertThrows(WebApplicationException.class, () -> deployer.deploy(dto("web", 0, 5)));
+
+        var removed = daemon.requests().stream()
+                .filter(request -> request.method().equals("DELETE"))
+                .map(StubDockerDaemon.Request::path)
+                .sorted()
+                .toList();
+        assertEquals(List.of("/containers/id-web", "/containers/id-web-1", "/containers/id-web-2", "/containers/id-web-3",
+                "/containers/id-web-4"), removed);
+        assertEquals(List.of(), saved);
+        // the port of the failed deploy is free again
+        assertEquals(20000, ports.allocate());
+    }
+
+    @Test
+    void rejectsAPortInUse() {
+        deployer.deploy(dto("web", 20005, 1));
+
+        var conflict = assertThrows(ClientErrorException.class, () -> deployer.deploy(dto("api", 20005, 1)));
+
+        assertEquals(409, conflict.getResponse().getStatus());
+        assertEquals(1, daemon.requests("POST", "/containers/create").size());
+    }
+
+    private void assertPublished(String port, int replicas) throws IOException {
+        var created = daemon.requests("POST", "/containers/create");
+        for (var request : created) {
+            var body = mapper.readTree(request.text());
+            var first = request.query("name").equals("web");
+            assertEquals(List.of(port), names(body.path("ExposedPorts").fieldNames()), request.text());
+            assertEquals(List.of(port), names(body.path("HostConfig").path("PortBindings").fieldNames()), request.text());
+            var bindings = body.path("HostConfig").path("PortBindings").path(port);
+            assertEquals(1, bindings.size(), request.text());
+            assertEquals(first ? "8080" : "", bindings.path(0).path("HostPort").asText(), request.text());
+        }
+        assertEquals(replicas, created.size());
+    }
+
+    private String label(int index) throws IOException {
+        var request = daemon.requests("POST", "/containers/create").get(index);
+        return mapper.readTree(request.text()).path("Labels").path(AppDeployer.SPEC_LABEL).asText();
+    }
+
+    private static List<String> names(Iterator<String> names) {
+        var list = new ArrayList<String>();
+        names.forEachRemaining(list::add);
+        return list;
+    }
+
+    private StubDockerDaemon.Response handle(StubDockerDaemon.Request request) {
+        var path = request.path();
+        if (path.equals("/images/create")) {
+            return StubDockerDaemon.Response.json("{\"status\":\"Status: Image is up to date for nginx:latest\"}");
+        }
+        if (path.startsWith("/images/")) {
+            return StubDockerDaemon.Response.json("{\"Id\":\"sha256:1\",\"RepoDigests\":[],\"Size\":1,\"Config\":{\"ExposedPorts\":" + exposed + "}}");
+        }
+        if (path.equals("/containers/create")) {
+            sleep(STEP);
+            return StubDockerDaemon.Response.json("{\"Id\":\"id-" + request.query("name") + "\",\"Warnings\":[]}");
+        }
+        var id = path.split("/")[2];
+        if (path.endsWith("/start")) {
+            sleep(STEP);
+            return id.equals(failing) ? StubDockerDaemon.Response.error(500, "port is already allocated")
+                    : StubDockerDaemon.Response.status(204);
+        }
+        if (request.method().equals("DELETE")) {
+            return StubDockerDaemon.Response.status(204);
+        }
+        return StubDockerDaemon.Response.json("{\"Id\":\"" + id + "\",\"State\":{\"Status\":\"running\",\"Running\":true}}");
+    }
+
+    private static App.DTO dto(String name, int port, int replicas) {
+        return dto(name, port, 0, replicas);
+    }
+
+    private static App.DTO dto(String name, int port, int containerPort, int replicas) {
+        return new App.DTO(null, name, port, containerPort, "nginx", replicas, List.of("MODE=test"), List.of(), false, true);
+    }
+
+    private static App app(String name, int port, int containerPort) {
+        return App.builder().name(name).port(port).containerPort(containerPort).image("nginx")
+                .environments(List.of("MODE=test")).volumes(List.of()).build();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static final class NoEvent implements Event<AppContainers.Refreshed> {
+
+        @Override
+        public void fire(AppContainers.Refreshed event) {
+        }
+
+        @Override
+        public <U extends AppContainers.Refreshed> CompletionStage<U> fireAsync(U event) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <U extends AppContainers.Refreshed> CompletionStage<U> fireAsync(U event, NotificationOptions options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Event<AppContainers.Refreshed> select(Annotation... qualifiers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <U extends AppContainers.Refreshed> Event<U> select(Class<U> subtype, Annotation... qualifiers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <U extends AppContainers.Refreshed> Event<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package br.dev.optimus.gaia.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.StubDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ContainerStateCacheTest {
+
+    private static final String LISTING = """
+            [{"Id":"c1","Names":["/web"],"State":"created","Status":"Created"},
+             {"Id":"c2","Names":["/api"],"State":"running","Status":"Up 2 minutes (healthy)"}]""";
+    private static final String EVENTS = String.join("\n",
+            event("start", "c1", "web", 10),
+            event("health_status: healthy", "c1", "web", 11),
+            event("exec_start: sh", "c1", "web", 12),
+            event("die", "c2", "api", 13),
+            event("create", "c3", "job", 14),
+            event("destroy", "c3", "job", 15),
+            event("stop", "c1", "web", 9),
+            "{\"Type\":\"network\",\"Action\":\"connect\",\"Actor\":{\"ID\":\"n1\"},\"timeNano\":16}");
+
+    @TempDir
+    Path directory;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final StubDatabase database = new StubDatabase((sql, parameters) -> List.<Object[]>of(new Object[]{0}));
+    private StubDockerDaemon daemon;
+    private UnixSocketDockerService docker;
+    private ContainerStateCache cache;
+
+    @BeforeEach
+    void start() throws IOException {
+        daemon = new StubDockerDaemon(directory, request -> {
+            if (request.path().equals("/containers/json")) {
+                return StubDockerDaemon.Response.json(LISTING);
+            }
+            if (daemon.requests("GET", "/events").size() > 1) {
+                // the replay after a reconnect waits for the test to end
+                await(release);
+                return StubDockerDaemon.Response.json("").chunked(1);
+            }
+            return StubDockerDaemon.Response.json(EVENTS).chunked(7);
+        });
+        var mapper = new ObjectMapper();
+        var registry = new SimpleMeterRegistry();
+        docker = new UnixSocketDockerService(daemon.socket(), 4, Duration.ofSeconds(1), Duration.ofSeconds(30), registry, mapper);
+        cache = new ContainerStateCache(docker, new UnixSocketDockerStreams(docker, mapper), database.dataSource(), mapper,
+                true, Duration.ofMillis(50), registry);
+        cache.start(null);
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        release.countDown();
+        cache.stop(null);
+        docker.close();
+        daemon.close();
+    }
+
+    @Test
+    void followsEventsSplitAcrossChunks() {
+        waitFor(() -> cache.state("c2").map(ContainerState::state).orElse("").equals("exited") && cache.state("c3").isEmpty());
+
+        assertEquals(Optional.of(new ContainerState("c1", "web", "running", "healthy", 11)), cache.state("c1"));
+        assertEquals(Optional.of(new ContainerState("c2", "api", "exited", "healthy", 13)), cache.state("c2"));
+        assertEquals(2, cache.states().size());
+        var subscribed = daemon.requests("GET", "/events").getFirst();
+        assertTrue(subscribed.query("since") != null && subscribed.query("filters") != null, subscribed.target());
+    }
+
+    @Test
+    void writesTheLatestStateOfEachContainerInBatches() {
+        waitFor(() -> Map.of("c1", List.of(true, true), "c2", List.of(false, false), "c3", List.of(false, false))
+                .equals(written()));
+
+        for (var update : database.executed("update apps")) {
+            var containers = (List<?>) update.parameters().get(1);
+            assertEquals(containers.size(), containers.stream().distinct().count(), "a container was written twice in one batch");
+        }
+        assertTrue(database.executed("update apps").size() < 7, "wrote " + database.executed("update apps").size() + " batches");
+    }
+
+    @Test
+    void recomputesEachAppFromAllOfItsReplicas() {
+        waitFor(() -> Map.of("c1", List.of(true, true), "c2", List.of(false, false), "c3", List.of(false, false))
+                .equals(written()));
+
+        var updates = database.executed("update apps");
+        var sql = updates.getFirst().sql();
+        assertTrue(sql.contains("on r.containers ?? c.container") && sql.contains("r.containers ??| ?::text[]"), sql);
+        assertTrue(sql.contains("bool_or(c.active) as active, bool_or(c.listening) as listening"), sql);
+        for (var update : updates) {
+            var containers = (List<?>) update.parameters().get(1);
+            var changed = (List<?>) update.parameters().get(4);
+            assertTrue(containers.containsAll(changed), update.parameters().toString());
+        }
+        // the running replica is sent along even when only another one changed
+        var last = (List<?>) updates.getLast().parameters().get(1);
+        assertTrue(last.containsAll(List.of("c1", "c2")), last.toString());
+    }
+
+    /**
+     * The latest active and listening flags written for each container.
+     */
+    private Map<String, List<Boolean>> written() {
+        var written = new HashMap<String, List<Boolean>>();
+        for (var update : database.executed("update apps")) {
+            var containers = (List<?>) update.parameters().get(1);
+            var active = (List<?>) update.parameters().get(2);
+            var listening = (List<?>) update.parameters().get(3);
+            for (var i = 0; i < containers.size(); i++) {
+                written.put((String) containers.get(i), List.of((Boolean) active.get(i), (Boolean) listening.get(i)));
+            }
+        }
+        return written;
+    }
+
+    private static String event(String action, String id, String name, long time) {
+        return "{\"status\":\"" + action + "\",\"id\":\"" + id + "\",\"Type\":\"container\",\"Action\":\"" + action
+                + "\",\"Actor\":{\"ID\":\"" + id + "\",\"Attributes\":{\"image\":\"nginx\",\"name\":\"" + name
+                + "\"}},\"scope\":\"local\",\"time\":" + time / 1_000_000_000L + ",\"timeNano\":" + time + "}";
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package br.dev.optimus.gaia.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.ServerErrorException;
+
+class ImagePullerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final String INSPECTED = """
+            {"Id":"sha256:abc","RepoDigests":["nginx@sha256:def"],"Size":1024,"Config":{"ExposedPorts":{"80/tcp":{}}}}""";
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private StubDockerDaemon daemon;
+    private UnixSocketDockerService blocking;
+    private UnixSocketReactiveDockerService docker;
+    private ImagePuller images;
+
+    @BeforeEach
+    void start() throws IOException {
+        daemon = new StubDockerDaemon(directory, request -> {
+            if (request.path().equals("/images/create")) {
+                await(release);
+                return StubDockerDaemon.Response.json("{\"status\":\"Pulling from library/nginx\"}\n"
+                        + "{\"status\":\"Status: Downloaded newer image for nginx:latest\"}\n");
+            }
+            return StubDockerDaemon.Response.json(INSPECTED);
+        });
+        blocking = new UnixSocketDockerService(daemon.socket(), 32, Duration.ofSeconds(1), Duration.ofSeconds(30), registry,
+                new ObjectMapper());
+        docker = new UnixSocketReactiveDockerService(blocking);
+        images = new ImagePuller(docker, new ObjectMapper(), Duration.ofMinutes(5), 100, Duration.ofMinutes(1), registry);
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        release.countDown();
+        docker.close();
+        blocking.close();
+        daemon.close();
+    }
+
+    @Test
+    void sharesOnePullBetweenConcurrentCallers() {
+        var pulls = IntStream.range(0, 20).mapToObj(i -> images.pull("nginx")).toList();
+        var all = Uni.join().all(pulls).andFailFast().subscribeAsCompletionStage();
+        release.countDown();
+
+        var pulled = all.toCompletableFuture().orTimeout(TIMEOUT.toSeconds(), TimeUnit.SECONDS).join();
+
+        assertEquals(20, pulled.size());
+        pulled.forEach(image -> assertEquals(new ImagePuller.Image("sha256:abc", "nginx@sha256:def", 1024, List.of("80/tcp")), image));
+        var requests = daemon.requests("POST", "/images/create");
+        assertEquals(1, requests.size());
+        assertEquals("nginx", requests.getFirst().query("fromImage"));
+        assertEquals("latest", requests.getFirst().query("tag"));
+        assertEquals(1, daemon.requests("GET", "/images/nginx/json").size());
+        assertEquals(1, registry.get("gaia.images.pulls").counter().count());
+    }
+
+    @Test
+    void keepsThePulledImageUntilInvalidated() {
+        release.countDown();
+        images.pull("nginx:1.27").await().atMost(TIMEOUT);
+        images.pull("nginx:1.27").await().atMost(TIMEOUT);
+        assertEquals(1, daemon.requests("POST", "/images/create").size());
+        assertEquals("1.27", daemon.requests("POST", "/images/create").getFirst().query("tag"));
+
+        images.invalidate("nginx:1.27");
+        images.pull("nginx:1.27").await().atMost(TIMEOUT);
+
+        assertEquals(2, daemon.requests("POST", "/images/create").size());
+    }
+
+    @Test
+    void keepsTheSharedPullRunningWhenOneCallerCancels() {
+        var cancelled = images.pull("nginx").subscribe().with(image -> { }, failure -> { });
+        var waiting = images.pull("nginx").subscribeAsCompletionStage();
+        cancelled.cancel();
+        release.countDown();
+
+        var image = waiting.toCompletableFuture().orTimeout(TIMEOUT.toSeconds(), TimeUnit.SECONDS).join();
+
+        assertEquals("sha256:abc", image.id());
+        assertEquals(1, daemon.requests("POST", "/images/create").size());
+    }
+
+    @Test
+    void failsOnAnErrorReportedInTheProgressAndDoesNotKeepIt() {
+        release.countDown();
+        daemon.handler(request -> request.path().equals("/images/create")
+                ? StubDockerDaemon.Response.json("{\"status\":\"Pulling\"}\n{\"error\":\"manifest unknown\"}\n")
+                : StubDockerDaemon.Response.error(404, "No such image: nginx:missing"));
+
+        var failure = assertThrows(ServerErrorException.class, () -> images.pull("nginx:missing").await().atMost(TIMEOUT));
+        assertTrue(failure.getMessage().contains("manifest unknown"), failure.getMessage());
+        assertThrows(ServerErrorException.class, () -> images.pull("nginx:missing").await().atMost(TIMEOUT));
+
+        assertEquals(2, daemon.requests("POST", "/images/create").size());
+    }
+
+    @Test
+    void usesTheLocalImageWhenThePullFails() {
+        release.countDown();
+        daemon.handler(request -> request.path().equals("/images/create")
+                ? StubDockerDaemon.Response.error(404, "pull access denied for local/app")
+                : StubDockerDaemon.Response.json(INSPECTED));
+
+        var image = images.pull("local/app").await().atMost(TIMEOUT);
+
+        assertEquals("sha256:abc", image.id());
+    }
+
+    @Test
+    void pullsADigestWithoutATag() {
+        release.countDown();
+        images.pull("nginx@sha256:def").await().atMost(TIMEOUT);
+
+        var request = daemon.requests("POST", "/images/create").getFirst();
+        assertEquals("nginx@sha256:def", request.query("fromImage"));
+        assertEquals(null, request.query("tag"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
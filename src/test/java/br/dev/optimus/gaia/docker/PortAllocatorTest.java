@@ -0,0 +1,160 @@
+package br.dev.optimus.gaia.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import br.dev.optimus.gaia.StubDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.ServiceUnavailableException;
+
+class PortAllocatorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<PortAllocator> allocators = new ArrayList<>();
+
+    @AfterEach
+    void stop() {
+        allocators.forEach(allocator -> allocator.stop(null));
+    }
+
+    @Test
+    void allocatesEveryPortOnceThenRunsOut() {
+        var ports = allocator(List.of(), 20000, 20069, Duration.ofMinutes(5));
+        var allocated = new ArrayList<Integer>();
+
+        for (var i = 0; i < 70; i++) {
+            allocated.add(ports.allocate());
+        }
+
+        assertEquals(70, Set.copyOf(allocated).size());
+        assertTrue(allocated.stream().allMatch(port -> port >= 20000 && port <= 20069), allocated.toString());
+        assertThrows(ServiceUnavailableException.class, ports::allocate);
+        assertEquals(70, used());
+    }
+
+    @Test
+    void neverHandsOutAPortTwiceUnderConcurrentDeploys() throws InterruptedException {
+        var ports = allocator(List.of(), 20000, 29999, Duration.ofMinutes(5));
+        var allocated = ConcurrentHashMap.<Integer>newKeySet();
+        var duplicates = ConcurrentHashMap.<Integer>newKeySet();
+        var go = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for (var t = 0; t < 16; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                await(go);
+                for (var i = 0; i < 625; i++) {
+                    var port = ports.allocate();
+                    if (!allocated.add(port)) {
+                        duplicates.add(port);
+                    }
+                }
+            }));
+        }
+        go.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(Set.of(), duplicates);
+        assertEquals(10000, allocated.size());
+        assertThrows(ServiceUnavailableException.class, ports::allocate);
+    }
+
+    @Test
+    void skipsTheLivePortsAtStartup() {
+        var database = new StubDatabase((sql, parameters) -> List.of(new Object[]{20000}, new Object[]{20002}));
+        var ports = allocator(database, 20000, 20009, Duration.ofMinutes(5));
+
+        ports.start(null);
+
+        assertEquals(20001, ports.allocate());
+        assertEquals(20003, ports.allocate());
+        assertFalse(ports.claim(20002));
+        assertEquals(List.of(20000, 20009), database.executed("from apps").getFirst().parameters());
+        assertEquals(0, database.openConnections());
+    }
+
+    @Test
+    void claimsAGivenPortOnce() {
+        var ports = allocator(List.of(), 20000, 20009, Duration.ofMinutes(5));
+
+        assertTrue(ports.claim(20000));
+        assertFalse(ports.claim(20000));
+        // outside the range, left to the unique index
+        assertTrue(ports.claim(8080));
+        assertTrue(ports.claim(8080));
+        assertEquals(20001, ports.allocate());
+        assertEquals(2, used());
+    }
+
+    @Test
+    void cancellingFreesThePortAtOnce() {
+        var ports = allocator(List.of(), 20000, 20000, Duration.ofMinutes(5));
+        var port = ports.allocate();
+
+        ports.cancel(port);
+
+        assertEquals(port, ports.allocate());
+    }
+
+    @Test
+    void releasingFreesThePortAfterTheCooldown() throws InterruptedException {
+        var ports = allocator(List.of(), 20000, 20000, Duration.ofMillis(200));
+        var port = ports.allocate();
+
+        ports.release(port);
+
+        assertThrows(ServiceUnavailableException.class, ports::allocate);
+        var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (used() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(port, ports.allocate());
+    }
+
+    @Test
+    void tellsAPortTakenByAnotherInstance() {
+        var taken = new SQLException("duplicate key value violates unique constraint \"apps_port_live_idx\"", "23505");
+        var otherIndex = new SQLException("duplicate key value violates unique constraint \"apps_name_key\"", "23505");
+
+        assertTrue(PortAllocator.taken(new IllegalStateException(new RuntimeException(taken))));
+        assertFalse(PortAllocator.taken(new IllegalStateException(otherIndex)));
+        assertFalse(PortAllocator.taken(new SQLException("apps_port_live_idx", "40001")));
+        assertFalse(PortAllocator.taken(new IllegalStateException()));
+    }
+
+    private PortAllocator allocator(List<Object[]> live, int first, int last, Duration cooldown) {
+        return allocator(new StubDatabase((sql, parameters) -> live), first, last, cooldown);
+    }
+
+    private PortAllocator allocator(StubDatabase database, int first, int last, Duration cooldown) {
+        var allocator = new PortAllocator(database.dataSource(), first, last, cooldown, registry);
+        allocators.add(allocator);
+        return allocator;
+    }
+
+    private int used() {
+        return (int) registry.get("gaia.ports.used").gauge().value();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package br.dev.optimus.gaia.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import br.dev.optimus.gaia.StubDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ReconcilerTest {
+
+    private static final UUID WEB = UUID.randomUUID();
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, ObjectNode> running = new ConcurrentHashMap<>();
+    private volatile boolean lockFree = true;
+    private volatile boolean unlockFails;
+    private final StubDatabase database = new StubDatabase(this::execute)
+            .columns("from apps where", "id", "name", "port", "container_port", "image", "replicas", "environments", "volumes")
+            .columns("from apps a", "id", "container");
+    private StubDockerDaemon daemon;
+    private UnixSocketDockerService blocking;
+    private UnixSocketReactiveDockerService docker;
+    private Reconciler reconciler;
+
+    @BeforeEach
+    void start() throws IOException {
+        daemon = new StubDockerDaemon(directory, this::handle);
+        blocking = new UnixSocketDockerService(daemon.socket(), 16, Duration.ofSeconds(1), Duration.ofSeconds(30), registry, mapper);
+        docker = new UnixSocketReactiveDockerService(blocking);
+        var containers = new AppContainers(database.dataSource(), Duration.ofSeconds(10), new AppDeployerTest.NoEvent());
+        reconciler = new Reconciler(database.dataSource(), docker, new FanOut(10), containers, mapper, registry, true,
+                Duration.ofMillis(100), Duration.ZERO);
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        reconciler.stop(null);
+        docker.close();
+        blocking.close();
+        daemon.close();
+    }
+
+    @Test
+    void createsMissingReplicasAndRemovesTheContainersOfDeletedApps() {
+        running.put("id-old", container("id-old", "gone", 0, 1000));
+
+        reconciler.start(null);
+
+        waitFor(() -> !database.executed("update apps set").isEmpty());
+        assertEquals(List.of("id-web"), List.copyOf(running.keySet()));
+        assertEquals("running", running.get("id-web").path("State").asText());
+        assertEquals(1, daemon.requests("DELETE", "/containers/id-old").size());
+        var update = database.executed("update apps set").getFirst().parameters();
+        assertEquals(List.of("id-web", "[\"id-web\"]", WEB), List.of(update.get(0), update.get(1), update.get(3)));
+    }
+
+    @Test
+    void releasesTheLockBeforeHandingItsConnectionBack() {
+        reconciler.start(null);
+        waitFor(() -> leader() == 1);
+
+        reconciler.stop(null);
+
+        var statements = database.executed().stream()
+                .map(StubDatabase.Executed::sql)
+                .filter(sql -> sql.contains("advisory"))
+                .toList();
+        assertEquals("select pg_advisory_unlock(?)", statements.getLast());
+        assertEquals(List.of(Reconciler.LOCK), database.executed("pg_advisory_unlock").getFirst().parameters());
+        assertEquals(0, database.openConnections());
+        assertEquals(0, database.abortedConnections());
+        assertEquals(0, leader());
+    }
+
+    @Test
+    void dropsTheConnectionWhenTheLockCannotBeReleased() {
+        unlockFails = true;
+        reconciler.start(null);
+        waitFor(() -> leader() == 1);
+
+        reconciler.stop(null);
+
+        assertEquals(1, database.abortedConnections());
+        assertEquals(0, database.openConnections());
+    }
+
+    @Test
+    void leavesTheContainersAloneWhileAnotherInstanceLeads() {
+        lockFree = false;
+        running.put("id-old", container("id-old", "gone", 0, 1000));
+
+        reconciler.start(null);
+        waitFor(() -> database.executed("pg_try_advisory_lock").size() >= 3);
+        reconciler.stop(null);
+
+        assertEquals(List.of(), daemon.requests());
+        assertEquals(List.of(), database.executed("from apps"));
+        assertEquals(List.of(), database.executed("pg_advisory_unlock"));
+        assertEquals(0, database.openConnections());
+    }
+
+    private List<Object[]> execute(String sql, List<Object> parameters) throws SQLException {
+        if (sql.contains("pg_try_advisory_lock")) {
+            return List.<Object[]>of(new Object[]{lockFree});
+        }
+        if (sql.contains("pg_advisory_unlock")) {
+            if (unlockFails) {
+                throw new SQLException("An I/O error occurred while sending to the backend.", "08006");
+            }
+            return List.<Object[]>of(new Object[]{true});
+        }
+        if (sql.contains("from apps where")) {
+            return List.<Object[]>of(new Object[]{WEB, "web", 20000, 80, "nginx", 1, "[\"MODE=test\"]", "[]"});
+        }
+        return List.of();
+    }
+
+    private StubDockerDaemon.Response handle(StubDockerDaemon.Request request) {
+        var path = request.path();
+        if (path.equals("/containers/json")) {
+            return StubDockerDaemon.Response.json(mapper.createArrayNode().addAll(running.values()).toString());
+        }
+        if (path.equals("/containers/create")) {
+            var name = request.query("name");
+            var created = container("id-" + name, name, 0, Instant.now().getEpochSecond());
+            created.put("State", "created");
+            running.put("id-" + name, created);
+            return StubDockerDaemon.Response.json("{\"Id\":\"id-" + name + "\",\"Warnings\":[]}");
+        }
+        var id = path.split("/")[2];
+        if (path.endsWith("/start")) {
+            running.get(id).put("State", "running");
+            return StubDockerDaemon.Response.status(204);
+        }
+        if (request.method().equals("DELETE")) {
+            running.remove(id);
+            return StubDockerDaemon.Response.status(204);
+        }
+        return StubDockerDaemon.Response.error(404, "no such container");
+    }
+
+    private ObjectNode container(String id, String app, int replica, long created) {
+        var container = mapper.createObjectNode()
+                .put("Id", id)
+                .put("Image", "nginx")
+                .put("State", "running")
+                .put("Created", created);
+        container.putObject("Labels")
+                .put(AppDeployer.APP_LABEL, app)
+                .put(AppDeployer.REPLICA_LABEL, String.valueOf(replica));
+        return container;
+    }
+
+    private int leader() {
+        return (int) registry.get("gaia.reconcile.leader").gauge().value();
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
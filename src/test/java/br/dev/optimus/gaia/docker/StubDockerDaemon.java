@@ -0,0 +1,265 @@
+package br.dev.optimus.gaia.docker;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.URLDecoder;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * An in-process Docker daemon listening on a Unix domain socket. It speaks
+ * just enough HTTP/1.1 for {@link UnixSocketHttpClient}: requests are read in
+ * order on each connection, kept, and answered by a handler, with keep-alive
+ * and optionally chunked responses.
+ */
+final class StubDockerDaemon implements AutoCloseable {
+
+    /**
+     * A request received by the daemon.
+     *
+     * @param connection the number of the connection it came on, from 1
+     * @param method the HTTP method
+     * @param target the path and query
+     * @param body the request body, empty when there is none
+     * @param buffered the bytes already received after this request, which
+     * are more than zero when requests were pipelined behind it
+     */
+    record Request(int connection, String method, String target, byte[] body, int buffered) {
+
+        String path() {
+            var query = target.indexOf('?');
+            return query < 0 ? target : target.substring(0, query);
+        }
+
+        String query(String name) {
+            var query = target.indexOf('?');
+            if (query < 0) {
+                return null;
+            }
+            for (var parameter : target.substring(query + 1).split("&")) {
+                var equals = parameter.indexOf('=');
+                if (parameter.substring(0, equals).equals(name)) {
+                    return URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8);
+                }
+            }
+            return null;
+        }
+
+        String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A response of the daemon.
+     *
+     * @param status the status code
+     * @param body the JSON body
+     * @param chunk the size of the chunks the body is sent in, or 0 to send
+     * it with a content length
+     */
+    record Response(int status, String body, int chunk) {
+
+        static Response json(String body) {
+            return new Response(200, body, 0);
+        }
+
+        static Response status(int status) {
+            return new Response(status, "", 0);
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, "{\"message\":\"" + message + "\"}", 0);
+        }
+
+        Response chunked(int chunk) {
+            return new Response(status, body, chunk);
+        }
+    }
+
+    private final Path socket;
+    private final ServerSocketChannel server;
+    private final List<Request> requests = Collections.synchronizedList(new ArrayList<>());
+    private final List<SocketChannel> clients = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private volatile Function<Request, Response> handler;
+
+    StubDockerDaemon(Path directory, Function<Request, Response> handler) throws IOException {
+        this.socket = directory.resolve("docker-" + System.nanoTime() + ".sock");
+        this.handler = handler;
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        Thread.ofVirtual().name("stub-docker-accept").start(this::accept);
+    }
+
+    Path socket() {
+        return socket;
+    }
+
+    void handler(Function<Request, Response> handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * @return the requests received so far, in order
+     */
+    List<Request> requests() {
+        synchronized (requests) {
+            return List.copyOf(requests);
+        }
+    }
+
+    /**
+     * @return the requests received so far with the given method and path
+     */
+    List<Request> requests(String method, String path) {
+        return requests().stream().filter(request -> request.method().equals(method) && request.path().equals(path)).toList();
+    }
+
+    /**
+     * @return the number of connections accepted so far
+     */
+    int connections() {
+        return connections.get();
+    }
+
+    /**
+     * @return the number of connections closed so far, by either side
+     */
+    int closed() {
+        return closed.get();
+    }
+
+    /**
+     * Closes every open connection, like a daemon dropping idle keep-alive
+     * connections.
+     */
+    void dropConnections() {
+        synchronized (clients) {
+            clients.forEach(StubDockerDaemon::close);
+            clients.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        dropConnections();
+        Files.deleteIfExists(socket);
+    }
+
+    private void accept() {
+        while (server.isOpen()) {
+            try {
+                var client = server.accept();
+                clients.add(client);
+                var connection = connections.incrementAndGet();
+                Thread.ofVirtual().name("stub-docker-" + connection).start(() -> serve(client, connection));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(SocketChannel client, int connection) {
+        try (client) {
+            var in = new BufferedInputStream(Channels.newInputStream(client), 65536);
+            var out = Channels.newOutputStream(client);
+            while (true) {
+                var request = read(in, connection);
+                if (request == null) {
+                    return;
+                }
+                requests.add(request);
+                write(out, handler.apply(request));
+            }
+        } catch (IOException e) {
+            // the client or the test closed the connection
+        } finally {
+            closed.incrementAndGet();
+        }
+    }
+
+    private static Request read(InputStream in, int connection) throws IOException {
+        var requestLine = line(in);
+        if (requestLine == null) {
+            return null;
+        }
+        var parts = requestLine.split(" ");
+        var headers = new HashMap<String, String>();
+        String line;
+        while ((line = line(in)) != null && !line.isEmpty()) {
+            var colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).strip().toLowerCase(Locale.ROOT), line.substring(colon + 1).strip());
+        }
+        var length = Integer.parseInt(headers.getOrDefault("content-length", "0"));
+        var body = in.readNBytes(length);
+        return new Request(connection, parts[0], parts[1], body, in.available());
+    }
+
+    private static void write(OutputStream out, Response response) throws IOException {
+        var body = response.body().getBytes(StandardCharsets.UTF_8);
+        var head = new StringBuilder("HTTP/1.1 ").append(response.status()).append(" Stub\r\n")
+                .append("Content-Type: application/json\r\n");
+        var bytes = new ByteArrayOutputStream();
+        if (response.status() == 204 || response.status() == 304) {
+            head.append("\r\n");
+            bytes.writeBytes(head.toString().getBytes(StandardCharsets.US_ASCII));
+        } else if (response.chunk() > 0) {
+            head.append("Transfer-Encoding: chunked\r\n\r\n");
+            bytes.writeBytes(head.toString().getBytes(StandardCharsets.US_ASCII));
+            for (var offset = 0; offset < body.length; offset += response.chunk()) {
+                var size = Math.min(response.chunk(), body.length - offset);
+                bytes.writeBytes((Integer.toHexString(size) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                bytes.write(body, offset, size);
+                bytes.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+            }
+            bytes.writeBytes("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else {
+            head.append("Content-Length: ").append(body.length).append("\r\n\r\n");
+            bytes.writeBytes(head.toString().getBytes(StandardCharsets.US_ASCII));
+            bytes.writeBytes(body);
+        }
+        out.write(bytes.toByteArray());
+        out.flush();
+    }
+
+    private static String line(InputStream in) throws IOException {
+        var line = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                var text = line.toString(StandardCharsets.US_ASCII);
+                return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+            }
+            line.write(c);
+        }
+        return null;
+    }
+
+    private static void close(SocketChannel client) {
+        try {
+            client.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+    }
+}
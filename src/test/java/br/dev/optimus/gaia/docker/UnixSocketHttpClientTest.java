@@ -0,0 +1,152 @@
+package br.dev.optimus.gaia.docker;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.request.DockerRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UnixSocketHttpClientTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private StubDockerDaemon daemon;
+    private UnixSocketHttpClient client;
+
+    @BeforeEach
+    void start() throws IOException {
+        daemon = new StubDockerDaemon(directory, request -> StubDockerDaemon.Response.json("\"" + request.target() + "\""));
+        client = new UnixSocketHttpClient(daemon.socket(), 4, Duration.ofSeconds(1), Duration.ofSeconds(30), registry);
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        client.close();
+        daemon.close();
+    }
+
+    @Test
+    void reusesKeepAliveConnections() throws IOException {
+        for (var i = 0; i < 5; i++) {
+            assertEquals("\"/info\"", text(client.send(UnixSocketHttpClient.Request.get("/info"))));
+        }
+
+        assertEquals(1, daemon.connections());
+        assertEquals(1, registry.counter("gaia.docker.pool.opened").count());
+        assertEquals(4, registry.counter("gaia.docker.pool.reused").count());
+    }
+
+    @Test
+    void retriesSafeRequestsOnStaleConnections() throws IOException {
+        client.send(UnixSocketHttpClient.Request.get("/info"));
+        daemon.dropConnections();
+
+        var response = client.send(UnixSocketHttpClient.Request.get("/version"));
+
+        assertEquals(200, response.status());
+        assertEquals("\"/version\"", text(response));
+        assertEquals(2, daemon.connections());
+        assertEquals(1, registry.counter("gaia.docker.pool.retried").count());
+    }
+
+    @Test
+    void doesNotRetryUnsafeRequestsOnStaleConnections() throws IOException {
+        client.send(UnixSocketHttpClient.Request.get("/info"));
+        daemon.dropConnections();
+
+        assertThrows(IOException.class, () -> client.send(UnixSocketHttpClient.Request.post("/containers/create", new byte[0])));
+
+        assertEquals(0, registry.counter("gaia.docker.pool.retried").count());
+        assertTrue(daemon.requests("POST", "/containers/create").isEmpty());
+    }
+
+    @Test
+    void pipelinesSafeRequestsAndReadsResponsesInOrder() throws IOException {
+        var requests = IntStream.range(0, 10).mapToObj(i -> UnixSocketHttpClient.Request.get("/containers/" + i + "/json")).toList();
+
+        var responses = client.pipeline(requests);
+
+        for (var i = 0; i < requests.size(); i++) {
+            assertEquals("\"/containers/" + i + "/json\"", text(responses.get(i)));
+        }
+        var received = daemon.requests();
+        assertEquals(1, daemon.connections());
+        assertEquals(10, received.size());
+        assertTrue(received.getFirst().buffered() > 0, "the requests were not sent back to back");
+    }
+
+    @Test
+    void refusesToPipelineUnsafeRequests() {
+        var requests = List.of(UnixSocketHttpClient.Request.get("/info"),
+                UnixSocketHttpClient.Request.delete("/containers/web"));
+
+        assertThrows(IllegalArgumentException.class, () -> client.pipeline(requests));
+    }
+
+    @Test
+    void decodesChunkedBodiesAndKeepsTheConnection() throws IOException {
+        var body = "\"" + "x".repeat(20_000) + "\"";
+        daemon.handler(request -> StubDockerDaemon.Response.json(body).chunked(777));
+
+        var first = client.send(UnixSocketHttpClient.Request.get("/images/json"));
+        var second = client.send(UnixSocketHttpClient.Request.get("/images/json"));
+
+        assertEquals(body, text(first));
+        assertEquals(body, text(second));
+        assertEquals(1, daemon.connections());
+    }
+
+    @Test
+    void streamsChunkedBodiesOnAConnectionOfTheirOwn() throws IOException {
+        var body = "{\"status\":\"start\"}\n{\"status\":\"die\"}\n";
+        daemon.handler(request -> StubDockerDaemon.Response.json(body).chunked(5));
+        client.send(UnixSocketHttpClient.Request.get("/info"));
+
+        try (var stream = client.open(UnixSocketHttpClient.Request.get("/events"))) {
+            assertEquals(200, stream.status());
+            assertArrayEquals(body.getBytes(StandardCharsets.UTF_8), stream.body().readAllBytes());
+        }
+        assertEquals(2, daemon.connections());
+    }
+
+    @Test
+    void createsContainersThroughTheContainersCreateEndpoint() throws IOException {
+        daemon.handler(request -> StubDockerDaemon.Response.json("{\"Id\":\"abc123\",\"Warnings\":[]}"));
+        var docker = new UnixSocketDockerService(daemon.socket(), 4, Duration.ofSeconds(1), Duration.ofSeconds(30),
+                new SimpleMeterRegistry(), new ObjectMapper());
+
+        try {
+            var created = docker.createContainer("web",
+                    new DockerRequest.ContainerCreate("nginx", null, null, null, null, null, null, null));
+
+            assertEquals("abc123", created.id());
+            var request = daemon.requests("POST", "/containers/create").getFirst();
+            assertEquals("web", request.query("name"));
+            assertTrue(request.text().contains("\"Image\":\"nginx\""));
+        } finally {
+            docker.close();
+        }
+    }
+
+    private static String text(UnixSocketHttpClient.Response response) {
+        return new String(response.body(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,130 @@
+package br.dev.optimus.gaia.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.WebApplicationException;
+
+class UnixSocketReactiveDockerServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private StubDockerDaemon daemon;
+    private UnixSocketDockerService blocking;
+    private UnixSocketReactiveDockerService docker;
+
+    @BeforeEach
+    void start() throws IOException {
+        daemon = new StubDockerDaemon(directory, request -> StubDockerDaemon.Response.json("{}"));
+        blocking = new UnixSocketDockerService(daemon.socket(), 8, Duration.ofSeconds(1), Duration.ofSeconds(30),
+                registry, new ObjectMapper());
+        docker = new UnixSocketReactiveDockerService(blocking);
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        docker.close();
+        blocking.close();
+        daemon.close();
+    }
+
+    @Test
+    void fansOutCallsInParallel() {
+        daemon.handler(request -> {
+            sleep(200);
+            var id = request.path().split("/")[2];
+            return StubDockerDaemon.Response.json("{\"Id\":\"" + id + "\"}");
+        });
+        var ids = IntStream.range(0, 8).mapToObj(i -> "c" + i).toList();
+
+        var start = System.nanoTime();
+        var inspected = new FanOut(8).all(ids, docker::inspectContainer).await().atMost(TIMEOUT);
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertEquals(ids, inspected.stream().map(container -> container.path("Id").asText()).toList());
+        assertTrue(elapsed.compareTo(Duration.ofMillis(8 * 200 / 2)) < 0, "took " + elapsed.toMillis() + " ms");
+        assertEquals(8, daemon.connections());
+    }
+
+    @Test
+    void surfacesDaemonErrorsWithTheirStatus() {
+        daemon.handler(request -> StubDockerDaemon.Response.error(404, "No such container: web"));
+
+        var failure = assertThrows(WebApplicationException.class,
+                () -> docker.inspectContainer("web").await().atMost(TIMEOUT));
+
+        assertEquals(404, failure.getResponse().getStatus());
+        assertEquals("No such container: web", failure.getMessage());
+    }
+
+    @Test
+    void cancellingACallClosesItsConnection() throws InterruptedException {
+        var received = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        daemon.handler(request -> {
+            if (request.path().equals("/containers/slow/json")) {
+                received.countDown();
+                await(release);
+            }
+            return StubDockerDaemon.Response.json("{}");
+        });
+        docker.getInfo().await().atMost(TIMEOUT);
+
+        var call = docker.inspectContainer("slow").subscribe().with(item -> { }, failure -> { });
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        call.cancel();
+
+        // the stub notices the close only once its handler returns
+        waitFor(() -> registry.get("gaia.docker.pool.open").gauge().value() == 0);
+        release.countDown();
+        waitFor(() -> daemon.closed() == 1);
+
+        docker.getInfo().await().atMost(TIMEOUT);
+        assertEquals(2, daemon.connections());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
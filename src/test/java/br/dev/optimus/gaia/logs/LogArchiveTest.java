@@ -0,0 +1,196 @@
+package br.dev.optimus.gaia.logs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LogArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void makesOutputSearchableOnceItsBlockIsWritten() throws IOException {
+        var archive = LogArchive.open(dir, 4096, 1 << 20);
+        append(archive, 10, LogChunk.STDOUT, "starting");
+        append(archive, 20, LogChunk.STDERR, "warning: low memory");
+        assertEquals(List.of(), read(archive, 0, Long.MAX_VALUE, null, 100));
+
+        archive.flush();
+
+        assertEquals(List.of("10 stdout starting", "20 stderr warning: low memory"), read(archive, 0, Long.MAX_VALUE, null, 100));
+        assertEquals(20, archive.lastTimestamp());
+        archive.close();
+    }
+
+    @Test
+    void readsTheRecordsWithinTheRangeThatContainTheText() throws IOException {
+        var archive = LogArchive.open(dir, 128, 1 << 20);
+        for (var time = 1; time <= 100; time++) {
+            append(archive, time, LogChunk.STDOUT, (time % 10 == 0 ? "error " : "request ") + time);
+        }
+        archive.flush();
+
+        assertEquals(List.of("41 stdout request 41", "42 stdout request 42"), read(archive, 41, 42, null, 100));
+        assertEquals(List.of("30 stdout error 30", "40 stdout error 40", "50 stdout error 50"), read(archive, 25, 55, "error", 100));
+        assertEquals(List.of("1 stdout request 1", "2 stdout request 2"), read(archive, 0, Long.MAX_VALUE, null, 2));
+        archive.close();
+    }
+
+    @Test
+    void keepsARecordLargerThanABlock() throws IOException {
+        var archive = LogArchive.open(dir, 64, 1 << 20);
+        var large = "x".repeat(1000);
+        append(archive, 1, LogChunk.STDOUT, "small");
+        append(archive, 2, LogChunk.STDOUT, large);
+        archive.flush();
+
+        assertEquals(List.of("1 stdout small", "2 stdout " + large), read(archive, 0, Long.MAX_VALUE, null, 100));
+        archive.close();
+    }
+
+    @Test
+    void reopensTheSegmentsWrittenBefore() throws IOException {
+        var archive = LogArchive.open(dir, 64, 256);
+        for (var time = 1; time <= 200; time++) {
+            append(archive, time, LogChunk.STDOUT, "line " + time);
+        }
+        archive.close();
+        assertTrue(segments() > 1, "expected several segments, got " + segments());
+
+        var reopened = LogArchive.open(dir, 64, 256);
+        assertEquals(200, reopened.lastTimestamp());
+        append(reopened, 201, LogChunk.STDOUT, "line 201");
+        reopened.flush();
+
+        var lines = read(reopened, 0, Long.MAX_VALUE, null, 1000);
+        assertEquals(LongStream.rangeClosed(1, 201).mapToObj(time -> time + " stdout line " + time).toList(), lines);
+        reopened.close();
+    }
+
+    @Test
+    void deletesOldAndOversizedSealedSegmentsButNotTheActiveOne() throws IOException {
+        var archive = LogArchive.open(dir, 64, 256);
+        for (var time = 1; time <= 200; time++) {
+            append(archive, time, LogChunk.STDOUT, "line " + time);
+        }
+        archive.flush();
+        var before = segments();
+
+        assertTrue(archive.retain(100, Long.MAX_VALUE) > 0);
+        var kept = read(archive, 0, Long.MAX_VALUE, null, 1000);
+        assertTrue(Long.parseLong(kept.getFirst().split(" ")[0]) <= 100, "deleted a segment holding records after the cutoff");
+        assertEquals("200 stdout line 200", kept.getLast());
+        assertTrue(segments() < before);
+
+        archive.retain(0, 0);
+        assertEquals(1, segments());
+        assertEquals("200 stdout line 200", read(archive, 0, Long.MAX_VALUE, null, 1000).getLast());
+        archive.close();
+    }
+
+    @Test
+    void skipsTheSegmentsDeletedWhileReading() throws IOException {
+        var archive = LogArchive.open(dir, 64, 256);
+        for (var time = 1; time <= 200; time++) {
+            append(archive, time, LogChunk.STDOUT, "line " + time);
+        }
+        archive.flush();
+        var retained = new AtomicBoolean();
+        var lines = new ArrayList<Long>();
+
+        archive.read(0, Long.MAX_VALUE, null, 1000, chunk -> {
+            lines.add(chunk.time());
+            if (retained.compareAndSet(false, true)) {
+                try {
+                    assertTrue(archive.retain(0, 0) > 1);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+
+        assertEquals(1, segments());
+        // the segment being read when it was deleted, then the active one
+        assertEquals(1, lines.getFirst());
+        assertEquals(200, lines.getLast());
+        assertTrue(lines.size() < 200, "read " + lines.size() + " records");
+        archive.close();
+    }
+
+    @Test
+    void readsWhileAnotherThreadAppendsAndFlushes() throws Exception {
+        var archive = LogArchive.open(dir, 256, 4096);
+        var records = 5000;
+        var writing = new AtomicBoolean(true);
+        var failure = new AtomicReference<Throwable>();
+        var writer = Thread.ofVirtual().start(() -> {
+            try {
+                for (var time = 1; time <= records; time++) {
+                    append(archive, time, LogChunk.STDOUT, "line " + time);
+                }
+            } catch (IOException e) {
+                failure.set(e);
+            } finally {
+                writing.set(false);
+            }
+        });
+        var flusher = Thread.ofVirtual().start(() -> {
+            while (writing.get()) {
+                try {
+                    archive.flush();
+                    Thread.sleep(1);
+                } catch (IOException e) {
+                    failure.set(e);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        var seen = 0L;
+        while (writing.get()) {
+            for (var line : read(archive, seen + 1, Long.MAX_VALUE, null, records)) {
+                assertEquals((seen + 1) + " stdout line " + (seen + 1), line);
+                seen++;
+            }
+        }
+        writer.join();
+        flusher.join();
+        archive.flush();
+
+        assertEquals(null, failure.get());
+        assertEquals(records, read(archive, 0, Long.MAX_VALUE, null, records * 2).size());
+        archive.close();
+    }
+
+    private static void append(LogArchive archive, long time, int stream, String text) throws IOException {
+        var data = ("<" + text + ">").getBytes(StandardCharsets.UTF_8);
+        archive.append(time, stream, data, 1, data.length - 2);
+    }
+
+    private static List<String> read(LogArchive archive, long since, long until, String grep, int limit) throws IOException {
+        var lines = new ArrayList<String>();
+        archive.read(since, until, grep, limit,
+                chunk -> lines.add(chunk.time() + " " + chunk.streamName() + " " + chunk.text()));
+        return lines;
+    }
+
+    private long segments() throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.filter(path -> path.toString().endsWith(LogSegment.SUFFIX)).count();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package br.dev.optimus.gaia.logs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LogDemuxerTest {
+
+    @Test
+    void splitsFramesByStream() throws IOException {
+        var stream = frames(frame(1, "starting\n"), frame(2, "warning: low memory\n"), frame(1, "listening on 8080\n"));
+
+        var chunks = demux(new ByteArrayInputStream(stream), 64, false);
+
+        assertEquals(List.of("stdout:starting\n", "stderr:warning: low memory\n", "stdout:listening on 8080\n"), texts(chunks));
+    }
+
+    @Test
+    void parsesFramesArrivingAByteAtATime() throws IOException {
+        var lines = new ArrayList<byte[]>();
+        var expected = new ArrayList<String>();
+        for (var i = 0; i < 50; i++) {
+            var line = "line " + i + "\n";
+            lines.add(frame(i % 2 + 1, line));
+            expected.add((i % 2 == 0 ? "stdout:" : "stderr:") + line);
+        }
+
+        var chunks = demux(new Trickle(frames(lines.toArray(byte[][]::new))), 16, false);
+
+        assertEquals(expected, texts(chunks));
+    }
+
+    @Test
+    void readsFramesLargerThanTheBuffer() throws IOException {
+        var large = "x".repeat(1000) + "\n";
+        var stream = frames(frame(1, "before\n"), frame(1, large), frame(2, "after\n"));
+
+        var chunks = demux(new Trickle(stream), 32, false);
+
+        assertEquals(List.of("stdout:before\n", "stdout:" + large, "stderr:after\n"), texts(chunks));
+    }
+
+    @Test
+    void skipsEmptyFrames() throws IOException {
+        var chunks = demux(new ByteArrayInputStream(frames(frame(1, ""), frame(1, "ok\n"))), 64, false);
+
+        assertEquals(List.of("stdout:ok\n"), texts(chunks));
+    }
+
+    @Test
+    void failsOnAStreamEndingMidFrame() {
+        var stream = frame(1, "truncated\n");
+        var truncated = Arrays.copyOf(stream, stream.length - 3);
+
+        assertThrows(EOFException.class, () -> demux(new ByteArrayInputStream(truncated), 64, false));
+        assertThrows(EOFException.class, () -> demux(new ByteArrayInputStream(Arrays.copyOf(stream, 5)), 64, false));
+    }
+
+    @Test
+    void passesTtyOutputThroughAsStdout() throws IOException {
+        var raw = "plain \u001b[32mcolored\u001b[0m output\n".getBytes(StandardCharsets.UTF_8);
+
+        var chunks = demux(new ByteArrayInputStream(raw), 64, true);
+
+        assertEquals(1, chunks.size());
+        assertEquals(LogChunk.STDOUT, chunks.getFirst().stream());
+        assertArrayEquals(raw, chunks.getFirst().data());
+    }
+
+    private static List<LogChunk> demux(InputStream in, int buffer, boolean tty) throws IOException {
+        var chunks = new ArrayList<LogChunk>();
+        new LogDemuxer(in, new byte[buffer]).demux(tty, chunks::add);
+        return chunks;
+    }
+
+    private static List<String> texts(List<LogChunk> chunks) {
+        return chunks.stream().map(chunk -> chunk.streamName() + ":" + chunk.text()).toList();
+    }
+
+    private static byte[] frame(int stream, String payload) {
+        var data = payload.getBytes(StandardCharsets.UTF_8);
+        var frame = new byte[8 + data.length];
+        frame[0] = (byte) stream;
+        frame[4] = (byte) (data.length >>> 24);
+        frame[5] = (byte) (data.length >>> 16);
+        frame[6] = (byte) (data.length >>> 8);
+        frame[7] = (byte) data.length;
+        System.arraycopy(data, 0, frame, 8, data.length);
+        return frame;
+    }
+
+    private static byte[] frames(byte[]... frames) {
+        var out = new ByteArrayOutputStream();
+        Arrays.stream(frames).forEach(out::writeBytes);
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns at most one byte per read, like a socket under load.
+     */
+    private static final class Trickle extends InputStream {
+
+        private final ByteArrayInputStream in;
+
+        Trickle(byte[] data) {
+            this.in = new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public int read() {
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return in.read(b, off, Math.min(len, 1));
+        }
+    }
+}
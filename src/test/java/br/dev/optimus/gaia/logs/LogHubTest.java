@@ -0,0 +1,210 @@
+package br.dev.optimus.gaia.logs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.service.DockerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LogHubTest {
+
+    private final List<String> opened = new CopyOnWriteArrayList<>();
+    private final List<Upstream> upstreams = new CopyOnWriteArrayList<>();
+    private final LogHub hub = new LogHub(docker(), target -> {
+        var upstream = new Upstream();
+        opened.add(target);
+        upstreams.add(upstream);
+        return upstream;
+    }, 1024 * 1024, 64 * 1024, new SimpleMeterRegistry());
+
+    @AfterEach
+    void stop() {
+        hub.close();
+    }
+
+    @Test
+    void sharesOneUpstreamBetweenTheViewersOfAContainer() throws IOException {
+        var viewers = new ArrayList<Recorder>();
+        for (var i = 0; i < 10; i++) {
+            var viewer = new Recorder(null);
+            hub.follow("c1").subscribe().withSubscriber(viewer);
+            viewers.add(viewer);
+        }
+        waitFor(() -> upstreams.size() == 1);
+
+        var upstream = upstreams.getFirst();
+        upstream.write(1, "one\n");
+        upstream.write(2, "two\n");
+        upstream.end();
+
+        for (var viewer : viewers) {
+            assertTrue(await(viewer.done), "a viewer did not complete");
+            assertEquals(List.of("stdout:one\n", "stderr:two\n"), viewer.received);
+        }
+        assertEquals(List.of("/containers/c1/logs?stdout=true&stderr=true&follow=true&tail=" + LogHub.DEFAULT_TAIL), opened);
+    }
+
+    @Test
+    void letsViewersJoinWhileAnotherIsSlowToTakeAChunk() throws IOException {
+        var release = new CountDownLatch(1);
+        var slow = new Recorder(release);
+        hub.follow("c1").subscribe().withSubscriber(slow);
+        waitFor(() -> upstreams.size() == 1);
+        var upstream = upstreams.getFirst();
+        upstream.write(1, "one\n");
+        assertTrue(await(slow.blocked));
+
+        var joining = new Recorder(null);
+        Thread.ofVirtual().start(() -> hub.follow("c1").subscribe().withSubscriber(joining));
+
+        waitFor(() -> joining.received.equals(List.of("stdout:one\n")));
+        release.countDown();
+        upstream.write(1, "two\n");
+        upstream.end();
+        assertTrue(await(slow.done) && await(joining.done));
+        assertEquals(List.of("stdout:one\n", "stdout:two\n"), slow.received);
+        assertEquals(List.of("stdout:one\n", "stdout:two\n"), joining.received);
+    }
+
+    @Test
+    void closesTheUpstreamWhenTheLastViewerLeaves() {
+        var first = new Recorder(null);
+        var second = new Recorder(null);
+        hub.follow("c1").subscribe().withSubscriber(first);
+        hub.follow("c1").subscribe().withSubscriber(second);
+        waitFor(() -> upstreams.size() == 1);
+
+        first.subscription.cancel();
+        assertEquals(false, upstreams.getFirst().closed);
+        second.subscription.cancel();
+        waitFor(() -> upstreams.getFirst().closed);
+
+        hub.follow("c1").subscribe().withSubscriber(new Recorder(null));
+        waitFor(() -> upstreams.size() == 2);
+    }
+
+    private static DockerService docker() {
+        var mapper = new ObjectMapper();
+        return (DockerService) Proxy.newProxyInstance(LogHubTest.class.getClassLoader(), new Class<?>[]{DockerService.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "inspectContainer" -> mapper.readTree("{\"Config\":{\"Tty\":false}}");
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * A log response body written by the test, in the multiplexed framing.
+     */
+    private static final class Upstream extends FilterInputStream {
+
+        private final PipedOutputStream out = new PipedOutputStream();
+        volatile boolean closed;
+
+        Upstream() {
+            super(new PipedInputStream(64 * 1024));
+            try {
+                out.connect((PipedInputStream) in);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void write(int stream, String text) throws IOException {
+            var data = text.getBytes(StandardCharsets.UTF_8);
+            out.write(new byte[]{(byte) stream, 0, 0, 0, 0, 0, 0, (byte) data.length});
+            out.write(data);
+            out.flush();
+        }
+
+        void end() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+
+    /**
+     * Takes every chunk, optionally blocking in the first one until released.
+     */
+    private static final class Recorder implements Flow.Subscriber<LogChunk> {
+
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final CountDownLatch release;
+        volatile Flow.Subscription subscription;
+
+        Recorder(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(LogChunk item) {
+            received.add(item.streamName() + ":" + item.text());
+            if (release != null && blocked.getCount() > 0) {
+                blocked.countDown();
+                await(release);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package br.dev.optimus.gaia.logs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ViewerTest {
+
+    private final Recorder recorder = new Recorder();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private final Viewer viewer = new Viewer(recorder, 10, ignored -> cancelled.incrementAndGet());
+
+    @Test
+    void deliversOnlyWhatWasRequested() {
+        viewer.offer(chunk("aaaa"));
+        viewer.offer(chunk("bb"));
+        assertEquals(List.of(), recorder.received);
+
+        viewer.request(1);
+        assertEquals(List.of("aaaa"), recorder.received);
+
+        viewer.request(5);
+        viewer.offer(chunk("c"));
+        assertEquals(List.of("aaaa", "bb", "c"), recorder.received);
+    }
+
+    @Test
+    void skipsOutputBeyondTheLimitAndReportsTheGap() {
+        for (var chunk : List.of("1111", "2222", "3333", "4444", "5555")) {
+            viewer.offer(chunk(chunk));
+        }
+        viewer.offer(chunk("6"));
+        viewer.complete();
+
+        viewer.request(Long.MAX_VALUE);
+
+        assertEquals(List.of("1111", "2222", "12 bytes skipped", "6"), recorder.received);
+        assertTrue(recorder.completed);
+    }
+
+    @Test
+    void reportsTheGapBeforeTheNextChunkOnceTheClientCatchesUp() {
+        viewer.offer(chunk("1111"));
+        viewer.offer(chunk("2222"));
+        viewer.offer(chunk("3333"));
+
+        viewer.request(2);
+        viewer.offer(chunk("4444"));
+        viewer.request(2);
+
+        assertEquals(List.of("1111", "2222", "4 bytes skipped", "4444"), recorder.received);
+    }
+
+    @Test
+    void queuesAtMostTheLimitForAClientThatNeverReads() {
+        for (var i = 0; i < 100_000; i++) {
+            viewer.offer(chunk("xyz"));
+        }
+        viewer.complete();
+
+        viewer.request(Long.MAX_VALUE);
+
+        assertEquals(List.of("xyz", "xyz", "xyz", (99_997 * 3) + " bytes skipped"), recorder.received);
+    }
+
+    @Test
+    void keepsAChunkLargerThanTheLimitWhenNothingIsQueued() {
+        viewer.offer(chunk("a chunk longer than ten bytes"));
+        viewer.request(1);
+
+        assertEquals(List.of("a chunk longer than ten bytes"), recorder.received);
+    }
+
+    @Test
+    void endsWithTheFailureAfterTheQueuedChunks() {
+        viewer.offer(chunk("last"));
+        viewer.fail(new IllegalStateException("upstream closed"));
+        assertEquals(null, recorder.failure);
+
+        viewer.request(1);
+
+        assertEquals(List.of("last"), recorder.received);
+        assertInstanceOf(IllegalStateException.class, recorder.failure);
+    }
+
+    @Test
+    void cancelsOnANonPositiveRequest() {
+        viewer.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, recorder.failure);
+        assertEquals(1, cancelled.get());
+        assertTrue(viewer.isCancelled());
+    }
+
+    @Test
+    void stopsDeliveringOnceCancelled() {
+        viewer.offer(chunk("one"));
+        viewer.cancel();
+        viewer.cancel();
+        viewer.request(1);
+
+        assertEquals(List.of(), recorder.received);
+        assertEquals(1, cancelled.get());
+    }
+
+    private static LogChunk chunk(String text) {
+        return new LogChunk(0, LogChunk.STDOUT, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class Recorder implements Flow.Subscriber<LogChunk> {
+
+        final List<String> received = new CopyOnWriteArrayList<>();
+        volatile boolean completed;
+        volatile Throwable failure;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+        }
+
+        @Override
+        public void onNext(LogChunk item) {
+            received.add(item.text());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failure = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package br.dev.optimus.gaia.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import br.dev.optimus.gaia.model.Customer;
+import br.dev.optimus.gaia.request.BulkRequest;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import io.quarkus.panache.common.Parameters;
+import jakarta.ws.rs.BadRequestException;
+
+class BulkTest {
+
+    private static final Pattern PARAMETER = Pattern.compile(":(\\w+)");
+
+    private record Update(String query, Map<String, Object> params) {
+    }
+
+    private final List<Update> updates = new ArrayList<>();
+    private final PanacheRepositoryBase<Customer, Long> repository = new PanacheRepositoryBase<>() {
+        @Override
+        public int update(String query, Parameters params) {
+            // like Hibernate, which rejects both unbound and unknown parameters
+            var names = PARAMETER.matcher(query).results().map(match -> match.group(1)).collect(Collectors.toSet());
+            assertEquals(names, params.map().keySet(), query);
+            updates.add(new Update(query, new HashMap<>(params.map())));
+            return params.map().get("ids") instanceof List<?> ids ? ids.size() : 7;
+        }
+    };
+
+    @Test
+    void deletesByIdsInChunks() {
+        var ids = LongStream.rangeClosed(1, Bulk.CHUNK * 2 + 1).boxed().toList();
+
+        var response = Bulk.update(repository, "deletedAt = :now", "deletedAt = 0", 100, new BulkRequest<>(ids, null, null));
+
+        assertEquals(ids.size(), response.affected());
+        assertEquals(3, updates.size());
+        for (var update : updates) {
+            assertEquals("deletedAt = :now, updatedAt = :now where deletedAt = 0 and id in :ids", update.query());
+            assertEquals(100L, update.params().get("now"));
+        }
+        assertEquals(ids, updates.stream().flatMap(update -> ((List<?>) update.params().get("ids")).stream()).toList());
+    }
+
+    @Test
+    void deletesByFilter() {
+        var response = Bulk.update(repository, "deletedAt = :now", "editable and deletedAt = 0", 100,
+                new BulkRequest<Long>(null, 50L, 40L));
+
+        assertEquals(7, response.affected());
+        assertEquals(List.of(new Update(
+                "deletedAt = :now, updatedAt = :now where editable and deletedAt = 0"
+                        + " and updatedAt < :updatedBefore and createdAt < :createdBefore",
+                Map.of("now", 100L, "updatedBefore", 50L, "createdBefore", 40L))), updates);
+    }
+
+    @Test
+    void restoresByIdsAndTouchesTheRows() {
+        var response = Bulk.update(repository, "deletedAt = 0", "deletedAt != 0", 100,
+                new BulkRequest<>(List.of(1L, 2L), null, 50L));
+
+        assertEquals(2, response.affected());
+        assertEquals(List.of(new Update(
+                "deletedAt = 0, updatedAt = :now where deletedAt != 0 and createdAt < :createdBefore and id in :ids",
+                Map.of("now", 100L, "createdBefore", 50L, "ids", List.of(1L, 2L)))), updates);
+    }
+
+    @Test
+    void restoresByFilter() {
+        Bulk.update(repository, "deletedAt = 0", "deletedAt != 0", 100, new BulkRequest<Long>(List.of(), 50L, null));
+
+        assertEquals(List.of(new Update("deletedAt = 0, updatedAt = :now where deletedAt != 0 and updatedAt < :updatedBefore",
+                Map.of("now", 100L, "updatedBefore", 50L))), updates);
+    }
+
+    @Test
+    void requiresACriterion() {
+        assertThrows(BadRequestException.class,
+                () -> Bulk.update(repository, "deletedAt = 0", "deletedAt != 0", 100, new BulkRequest<Long>(List.of(), null, null)));
+        assertThrows(BadRequestException.class, () -> Bulk.update(repository, "deletedAt = 0", "deletedAt != 0", 100, null));
+        assertEquals(Set.of(), Set.copyOf(updates));
+    }
+}
@@ -0,0 +1,71 @@
+package br.dev.optimus.gaia.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CsvTest {
+
+    @Test
+    void readsPlainRecords() throws IOException {
+        assertEquals(List.of(List.of("name", "phone"), List.of("ACME", "555"), List.of("", "")),
+                records("name,phone\nACME,555\n,\n"));
+    }
+
+    @Test
+    void readsQuotedSeparatorsLineBreaksAndQuotes() throws IOException {
+        assertEquals(List.of(List.of("a,b", "line\nbreak", "say \"hi\"", "")),
+                records("\"a,b\",\"line\nbreak\",\"say \"\"hi\"\"\",\"\"\n"));
+    }
+
+    @Test
+    void readsCrlfAndALastRecordWithoutLineBreak() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), records("a,b\r\nc,d"));
+    }
+
+    @Test
+    void endsWithNull() throws IOException {
+        var reader = new BufferedReader(new StringReader("a\n"));
+
+        assertEquals(List.of("a"), Csv.read(reader));
+        assertNull(Csv.read(reader));
+        assertNull(Csv.read(new BufferedReader(new StringReader(""))));
+    }
+
+    @Test
+    void writesQuotedFieldsAndNullsAsEmpty() {
+        var out = new StringBuilder();
+
+        Csv.write(out, "say \"hi\", bye");
+        Csv.write(out.append(','), null);
+        Csv.write(out.append(','), 42);
+
+        assertEquals("\"say \"\"hi\"\", bye\",,\"42\"", out.toString());
+    }
+
+    @Test
+    void readsBackWhatItWrites() throws IOException {
+        var value = "multi\nline, \"quoted\"\r\n";
+        var out = new StringBuilder();
+        Csv.write(out, value);
+
+        assertEquals(List.of(value), Csv.read(new BufferedReader(new StringReader(out.toString()))));
+    }
+
+    private static List<List<String>> records(String text) throws IOException {
+        var reader = new BufferedReader(new StringReader(text));
+        var records = new ArrayList<List<String>>();
+        List<String> record;
+        while ((record = Csv.read(reader)) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,397 @@
+package br.dev.optimus.gaia.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.hibernate.jdbc.ReturningWork;
+import org.hibernate.jdbc.Work;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.CopyOut;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Encoding;
+import org.postgresql.core.QueryExecutor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.RecordingEvent;
+import br.dev.optimus.gaia.StubDatabase;
+import br.dev.optimus.gaia.model.Customer;
+import br.dev.optimus.gaia.request.BulkRequest;
+import br.dev.optimus.gaia.response.ImportResponse;
+import br.dev.optimus.gaia.search.CustomerChanged;
+import io.quarkus.panache.common.Parameters;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ServerErrorException;
+
+class CustomerRepositoryTest {
+
+    private static final String HEADER = "name,phone,email,document,address,contacts,active\n";
+    private static final Pattern PARAMETER = Pattern.compile(":(\\w+)");
+    private static final String DUMPED = "id,name\n1,ACME\n";
+    private static final String CONTACTS = "\"[{\"\"name\"\":\"\"Ann\"\",\"\"email\"\":\"\"ann@acme.com\"\"}]\"";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final RecordingEvent<CustomerChanged> changes = new RecordingEvent<>();
+    private volatile Set<String> existing = Set.of();
+    /** Whether connections are PostgreSQL ones, which import through COPY. */
+    private volatile boolean postgresql;
+    private final List<String> copies = new ArrayList<>();
+    private final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+    private final List<String> updates = new ArrayList<>();
+    private final List<String> searches = new ArrayList<>();
+    private final List<Map<String, Object>> searchParameters = new ArrayList<>();
+    private final List<Customer> found = List.of(new Customer());
+    private final StubDatabase database = new StubDatabase((sql, parameters) -> {
+        if (sql.startsWith("select name from customers")) {
+            @SuppressWarnings("unchecked")
+            var names = (List<Object>) parameters.getFirst();
+            return names.stream().filter(existing::contains).map(name -> new Object[]{name}).toList();
+        }
+        return List.<Object[]>of(new Object[]{1});
+    });
+    private final CustomerRepository repository = new CustomerRepository(changes) {
+        @Override
+        public EntityManager getEntityManager() {
+            return entityManager();
+        }
+
+        @Override
+        public int update(String query, Parameters params) {
+            var names = PARAMETER.matcher(query).results().map(match -> match.group(1)).collect(Collectors.toSet());
+            if (!names.equals(params.map().keySet())) {
+                throw new IllegalArgumentException("parameters " + params.map().keySet() + " do not match " + query);
+            }
+            updates.add(query);
+            return 3;
+        }
+    };
+
+    @Test
+    void importsCsvRowsAndReportsTheRejectedOnes() throws IOException {
+        existing = Set.of("GLOBEX");
+        var csv = HEADER
+                + "acme,555,Ann@Acme.com,123,Main St," + CONTACTS + ",true\n"
+                + "too,few\n"
+                + "initech,555,ann@initech.com,123,Main St,[not json,true\n"
+                + "hooli,555,not an email,123,Main St," + CONTACTS + ",true\n"
+                + "\n"
+                + "ACME,555,ann@acme.com,123,Main St," + CONTACTS + ",false\n"
+                + "globex,555,ann@globex.com,123,Main St," + CONTACTS + ",false\n"
+                + "umbrella,555,ann@umbrella.com,456,\"Main St, 1\"," + CONTACTS + ",false\n";
+
+        var response = repository.importCsv(new StringReader(csv), mapper);
+
+        assertEquals(7, response.received());
+        assertEquals(2, response.imported());
+        assertEquals(List.of(
+                new ImportResponse.Error(2, "row has 2 columns, expected 7"),
+                new ImportResponse.Error(3, "contacts is not valid JSON"),
+                new ImportResponse.Error(4, "email is invalid"),
+                new ImportResponse.Error(5, "name is duplicated in the import"),
+                new ImportResponse.Error(6, "name already exists")), response.errors());
+        var inserted = database.executed("insert into customers");
+        assertEquals(List.of("ACME", "UMBRELLA"), inserted.stream().map(row -> row.parameters().getFirst()).toList());
+        var acme = inserted.getFirst().parameters();
+        assertEquals(List.of("555", "ann@acme.com", "123", "Main St"), acme.subList(1, 5));
+        assertEquals(mapper.readTree("[{\"name\":\"Ann\",\"phone\":null,\"email\":\"ann@acme.com\",\"job_title\":null}]"),
+                mapper.readTree(new String((byte[]) acme.get(5), StandardCharsets.UTF_8)));
+        assertEquals(true, acme.get(6));
+        assertEquals("Main St, 1", inserted.getLast().parameters().get(4));
+        assertEquals(List.of(CustomerChanged.all()), changes.fired());
+        assertEquals(0, database.openConnections());
+    }
+
+    @Test
+    void copiesTheAcceptedRowsOnPostgresql() throws IOException {
+        postgresql = true;
+        existing = Set.of("GLOBEX");
+        var csv = HEADER
+                + "acme,555,ann@acme.com,123,\"Main St, \"\"1\"\"\"," + CONTACTS + ",true\n"
+                + "globex,555,ann@globex.com,123,Main St," + CONTACTS + ",false\n"
+                + "hooli,555,,123,Main St," + CONTACTS + ",false\n";
+
+        var response = repository.importCsv(new StringReader(csv), mapper);
+
+        assertEquals(1, response.imported());
+        assertEquals(List.of(new ImportResponse.Error(2, "name already exists"), new ImportResponse.Error(3, "email is required")),
+                response.errors());
+        assertEquals(List.of("copy customers (name, phone, email, document, address, contacts, active, created_at, updated_at, "
+                + "deleted_at) from stdin (format csv)"), copies);
+        var rows = new BufferedReader(new StringReader(copied.toString(StandardCharsets.UTF_8)));
+        var row = Csv.read(rows);
+        assertEquals(List.of("ACME", "555", "ann@acme.com", "123", "Main St, \"1\""), row.subList(0, 5));
+        assertEquals("true", row.get(6));
+        assertEquals(row.get(7), row.get(8));
+        assertEquals("0", row.get(9));
+        assertNull(Csv.read(rows));
+        assertEquals(List.of(), database.executed("insert into customers"));
+    }
+
+    @Test
+    void requiresTheCsvHeaderColumns() {
+        var missing = assertThrows(BadRequestException.class,
+                () -> repository.importCsv(new StringReader("name,phone,email,document,address\n"), mapper));
+
+        assertEquals("csv column contacts is required", missing.getMessage());
+        assertThrows(BadRequestException.class, () -> repository.importCsv(new StringReader(""), mapper));
+    }
+
+    @Test
+    void importsNdjsonRowsAndReportsTheRejectedOnes() throws IOException {
+        var contacts = "[{\"name\":\"Ann\",\"email\":\"ann@acme.com\"}]";
+        var ndjson = "{\"name\":\"acme\",\"phone\":\"555\",\"email\":\"ann@acme.com\",\"document\":\"123\","
+                + "\"address\":\"Main St\",\"contacts\":" + contacts + "}\n"
+                + "{not json\n"
+                + "\n"
+                + "null\n"
+                + "{\"name\":[1]}\n"
+                + "{\"name\":\"hooli\",\"phone\":\"555\",\"email\":\"ann@hooli.com\",\"document\":\"abc\","
+                + "\"address\":\"Main St\",\"contacts\":" + contacts + "}\n";
+
+        var response = repository.importNdjson(new StringReader(ndjson), mapper);
+
+        assertEquals(5, response.received());
+        assertEquals(1, response.imported());
+        assertEquals(List.of(
+                new ImportResponse.Error(2, "row is not valid JSON"),
+                new ImportResponse.Error(3, "row is not a JSON object"),
+                new ImportResponse.Error(4, "row is not a valid customer"),
+                new ImportResponse.Error(5, "document is invalid")), response.errors());
+    }
+
+    @Test
+    void insertsNothingWhenEveryRowIsRejected() throws IOException {
+        var response = repository.importNdjson(new StringReader("null\n"), mapper);
+
+        assertEquals(0, response.imported());
+        assertEquals(List.of(), database.executed());
+        assertEquals(List.of(), changes.fired());
+    }
+
+    @Test
+    void checksTheDumpBoundsAndDatabaseBeforeStreaming() {
+        postgresql = true;
+        repository.checkDump(null, null);
+        repository.checkDump(100L, 100L);
+
+        var inverted = assertThrows(BadRequestException.class, () -> repository.checkDump(200L, 100L));
+
+        assertEquals("updated_since must not be after updated_until", inverted.getMessage());
+        postgresql = false;
+        var notPostgresql = assertThrows(ServerErrorException.class, () -> repository.checkDump(null, null));
+        assertEquals(501, notPostgresql.getResponse().getStatus());
+        assertEquals(0, database.openConnections());
+    }
+
+    @Test
+    void dumpsTheLiveCustomersWithinTheBounds() throws IOException {
+        postgresql = true;
+        var output = new ByteArrayOutputStream();
+
+        repository.dump(CustomerRepository.DumpFormat.CSV, 100L, 200L, output);
+        repository.dump(CustomerRepository.DumpFormat.NDJSON, null, 200L, OutputStream.nullOutputStream());
+        repository.dump(CustomerRepository.DumpFormat.CSV, 100L, null, OutputStream.nullOutputStream());
+
+        assertEquals(DUMPED, output.toString(StandardCharsets.UTF_8));
+        var select = "select id, name, phone, email, document, address, contacts, active, created_at, updated_at, deleted_at "
+                + "from customers where deleted_at = 0";
+        assertEquals(List.of(
+                "copy (" + select + " and updated_at >= 100 and updated_at < 200 order by id) to stdout (format csv, header)",
+                "copy (select row_to_json(c) from (" + select + " and updated_at < 200 order by id) c) to stdout "
+                        + "(format csv, quote e'\\x01', delimiter e'\\x02')",
+                "copy (" + select + " and updated_at >= 100 order by id) to stdout (format csv, header)"), copies);
+    }
+
+    @Test
+    void parsesTheDumpFormat() {
+        assertEquals(CustomerRepository.DumpFormat.NDJSON, CustomerRepository.DumpFormat.of("NDJson"));
+        assertEquals("text/csv", CustomerRepository.DumpFormat.of("csv").mediaType());
+        assertThrows(BadRequestException.class, () -> CustomerRepository.DumpFormat.of("xml"));
+        assertThrows(BadRequestException.class, () -> CustomerRepository.DumpFormat.of(null));
+    }
+
+    @Test
+    void deletesAndRestoresInBulk() {
+        assertEquals(3, repository.bulkDelete(new BulkRequest<>(List.of(1L, 2L, 3L), null, null)).affected());
+        assertEquals(3, repository.bulkDelete(new BulkRequest<Long>(null, 100L, null)).affected());
+        assertEquals(3, repository.bulkRestore(new BulkRequest<>(List.of(1L, 2L, 3L), null, null)).affected());
+        assertEquals(3, repository.bulkRestore(new BulkRequest<Long>(null, null, 100L)).affected());
+
+        assertEquals(List.of(
+                "deletedAt = :now, updatedAt = :now where deletedAt = 0 and id in :ids",
+                "deletedAt = :now, updatedAt = :now where deletedAt = 0 and updatedAt < :updatedBefore",
+                "deletedAt = 0, updatedAt = :now where deletedAt != 0 and id in :ids",
+                "deletedAt = 0, updatedAt = :now where deletedAt != 0 and createdAt < :createdBefore"), updates);
+        assertEquals(List.of(CustomerChanged.all(), CustomerChanged.all(), CustomerChanged.all(), CustomerChanged.all()),
+                changes.fired());
+    }
+
+    @Test
+    void searchesContactsByContainment() {
+        assertEquals(found, repository.searchContact(" ann@acme.com ", null, mapper));
+        repository.searchContact("ann@acme.com", "555", mapper);
+        repository.searchContact("", "555", mapper);
+
+        assertEquals(List.of("select * from customers where deleted_at = 0 and contacts @> cast(:filter as jsonb)"
+                + " order by id limit 100"), searches.stream().distinct().toList());
+        // one contact holding every given field, so the array containment needs them on the same contact
+        assertEquals(List.of(
+                List.of(Map.of("email", "ann@acme.com")),
+                List.of(Map.of("email", "ann@acme.com", "phone", "555")),
+                List.of(Map.of("phone", "555"))),
+                searchParameters.stream().map(parameters -> readFilter((String) parameters.get("filter"))).toList());
+        assertEquals(Set.of("filter"), searchParameters.getFirst().keySet());
+    }
+
+    @Test
+    void requiresAnEmailOrPhoneToSearchContacts() {
+        assertEquals("email or phone is required", assertThrows(BadRequestException.class,
+                () -> repository.searchContact(null, " ", mapper)).getMessage());
+        assertEquals(List.of(), searches);
+    }
+
+    private Object readFilter(String filter) {
+        try {
+            return mapper.readValue(filter, List.class);
+        } catch (IOException e) {
+            throw new AssertionError(filter, e);
+        }
+    }
+
+    private EntityManager entityManager() {
+        var session = proxy(Session.class, (method, args) -> switch (method) {
+            case "doWork" -> {
+                try (var connection = connection()) {
+                    ((Work) args[0]).execute(connection);
+                }
+                yield null;
+            }
+            case "doReturningWork" -> {
+                try (var connection = connection()) {
+                    yield ((ReturningWork<?>) args[0]).execute(connection);
+                }
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+        return proxy(EntityManager.class, (method, args) -> switch (method) {
+            case "unwrap" -> session;
+            case "createNativeQuery" -> {
+                assertEquals(Customer.class, args[1]);
+                searches.add((String) args[0]);
+                var parameters = new HashMap<String, Object>();
+                searchParameters.add(parameters);
+                var query = new Query[1];
+                query[0] = proxy(Query.class, (queryMethod, queryArgs) -> switch (queryMethod) {
+                    case "setParameter" -> {
+                        parameters.put((String) queryArgs[0], queryArgs[1]);
+                        yield query[0];
+                    }
+                    case "getResultList" -> found;
+                    default -> throw new UnsupportedOperationException(queryMethod);
+                });
+                yield query[0];
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private Connection connection() throws SQLException {
+        var connection = database.dataSource().getConnection();
+        if (!postgresql) {
+            return connection;
+        }
+        var base = proxy(BaseConnection.class, (method, args) -> switch (method) {
+            case "getEncoding" -> Encoding.defaultEncoding();
+            case "getAutoCommit" -> true;
+            case "getQueryExecutor" -> proxy(QueryExecutor.class, (executorMethod, executorArgs) -> {
+                if (!executorMethod.equals("startCopy")) {
+                    throw new UnsupportedOperationException(executorMethod);
+                }
+                var sql = (String) executorArgs[0];
+                copies.add(sql);
+                return sql.contains("to stdout") ? copyOut() : copyIn();
+            });
+            default -> throw new UnsupportedOperationException(method);
+        });
+        var copyApi = new CopyManager(base);
+        var pg = proxy(PGConnection.class, (method, args) -> switch (method) {
+            case "getCopyAPI" -> copyApi;
+            default -> throw new UnsupportedOperationException(method);
+        });
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, invoked, args) -> switch (invoked.getName()) {
+                    case "isWrapperFor" -> args[0] == PGConnection.class;
+                    case "unwrap" -> pg;
+                    default -> {
+                        try {
+                            yield invoked.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+
+    private CopyIn copyIn() {
+        return proxy(CopyIn.class, (method, args) -> switch (method) {
+            case "writeToCopy" -> {
+                copied.write((byte[]) args[0], (int) args[1], (int) args[2]);
+                yield null;
+            }
+            case "endCopy" -> copied.toString(StandardCharsets.UTF_8).lines().count();
+            case "isActive" -> false;
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private CopyOut copyOut() {
+        var sent = new boolean[1];
+        return proxy(CopyOut.class, (method, args) -> switch (method) {
+            case "readFromCopy" -> {
+                if (sent[0]) {
+                    yield null;
+                }
+                sent[0] = true;
+                yield DUMPED.getBytes(StandardCharsets.UTF_8);
+            }
+            case "getHandledRowCount" -> 1L;
+            case "isActive" -> false;
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    @FunctionalInterface
+    private interface Method {
+        Object invoke(String name, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, Method method) {
+        return type.cast(Proxy.newProxyInstance(CustomerRepositoryTest.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, invoked, args) -> method.invoke(invoked.getName(), args)));
+    }
+}
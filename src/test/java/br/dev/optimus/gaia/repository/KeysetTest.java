@@ -0,0 +1,152 @@
+package br.dev.optimus.gaia.repository;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import br.dev.optimus.gaia.request.PageRequest;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import io.quarkus.panache.common.Sort;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.BadRequestException;
+
+class KeysetTest {
+
+    private record Row(Long id, String name) {
+    }
+
+    private final Keyset<Row> keyset = Keyset.<Row>of(Row::id, Long::valueOf)
+            .key("name", "name", value -> value, Row::name);
+    private final SqlKeyset<Row> sqlKeyset = SqlKeyset.<Row>of("id", Row::id, Long::valueOf)
+            .key("name", "name", value -> value, Row::name);
+    private final List<Row> rows = LongStream.rangeClosed(1, 10).mapToObj(id -> new Row(id, "name:" + id)).toList();
+    private String query;
+    private Sort sort;
+    private Map<String, Object> params;
+    private final List<int[]> ranges = new ArrayList<>();
+
+    @Test
+    void fetchesOneRowMoreThanTheLimitToTellWhetherMoreFollow() {
+        var page = keyset.page(this::find, "deletedAt = 0", new PageRequest(null, 3, null));
+
+        assertEquals(rows.subList(0, 3), page.data());
+        // the range is inclusive, so 4 rows
+        assertArrayEquals(new int[]{0, 3}, ranges.getFirst());
+        assertEquals("deletedAt = 0", query);
+        assertEquals(Map.of(), params);
+        assertArrayEquals(new String[]{"id", "asc", "3", "3"}, Keyset.decode(page.next(), "id", false));
+    }
+
+    @Test
+    void endsWhenThePageIsNotFull() {
+        var page = keyset.page(this::find, "deletedAt = 0", new PageRequest(null, 10, null));
+
+        assertEquals(rows, page.data());
+        assertNull(page.next());
+    }
+
+    @Test
+    void seeksPastTheCursorOnTheSortKeyThenTheId() {
+        var cursor = Keyset.encode("name", true, 7, "name:7");
+
+        keyset.page(this::find, "deletedAt = 0", new PageRequest(cursor, 3, "-name"));
+
+        assertEquals("deletedAt = 0 and (name < :value or (name = :value and id < :id))", query);
+        assertEquals(Map.of("id", 7L, "value", "name:7"), params);
+        assertEquals(List.of("name", "id"), sort.getColumns().stream().map(Sort.Column::getName).toList());
+        assertEquals(List.of(Sort.Direction.Descending, Sort.Direction.Descending),
+                sort.getColumns().stream().map(Sort.Column::getDirection).toList());
+    }
+
+    @Test
+    void seeksOnTheIdAlone() {
+        keyset.page(this::find, "deletedAt = 0", new PageRequest(Keyset.encode("id", false, 3, 3), 3, null));
+
+        assertEquals("deletedAt = 0 and id > :id", query);
+        assertEquals(Map.of("id", 3L), params);
+        assertEquals(List.of("id"), sort.getColumns().stream().map(Sort.Column::getName).toList());
+    }
+
+    @Test
+    void encodesValuesHoldingTheSeparator() {
+        var page = keyset.page(this::find, "deletedAt = 0", new PageRequest(null, 2, "name"));
+
+        assertArrayEquals(new String[]{"name", "asc", "2", "name:2"}, Keyset.decode(page.next(), "name", false));
+    }
+
+    @Test
+    void rejectsCursorsOfAnotherSortOrMalformed() {
+        var byName = Keyset.encode("name", false, 7, "name:7");
+
+        assertEquals("cursor does not match sort", assertThrows(BadRequestException.class,
+                () -> keyset.page(this::find, "true", new PageRequest(byName, 3, "-name"))).getMessage());
+        assertEquals("cursor is invalid", assertThrows(BadRequestException.class,
+                () -> keyset.page(this::find, "true", new PageRequest("not base64!", 3, null))).getMessage());
+        assertEquals("cursor is invalid", assertThrows(BadRequestException.class,
+                () -> keyset.page(this::find, "true", new PageRequest(Keyset.encode("id", false, "x", "x"), 3, null))).getMessage());
+        assertEquals("cursor is invalid", assertThrows(BadRequestException.class,
+                () -> keyset.page(this::find, "true", new PageRequest(encode("id:asc:1"), 3, null))).getMessage());
+        assertThrows(BadRequestException.class, () -> keyset.page(this::find, "true", new PageRequest(null, 3, "email")));
+    }
+
+    @Test
+    void clampsTheLimit() {
+        assertEquals(PageRequest.DEFAULT_LIMIT, new PageRequest(null, null, null).limit());
+        assertEquals(1, new PageRequest(null, 0, null).limit());
+        assertEquals(PageRequest.MAX_LIMIT, new PageRequest(null, 100_000, null).limit());
+        assertNull(new PageRequest(null, null, " ").sort());
+    }
+
+    @Test
+    void pagesNativeQueriesTheSameWay() {
+        var cursor = Keyset.encode("name", false, 2, "name:2");
+        var sql = new String[1];
+
+        var page = sqlKeyset.page((text, tuple) -> {
+            sql[0] = text;
+            assertEquals(2, tuple.size());
+            assertEquals(2L, tuple.getValue(0));
+            assertEquals("name:2", tuple.getValue(1));
+            return Uni.createFrom().item(rows.subList(2, 6));
+        }, "select id, name from t", "deleted_at = 0", new PageRequest(cursor, 3, "name")).await().indefinitely();
+
+        assertEquals("select id, name from t where deleted_at = 0 and (name > $2 or (name = $2 and id > $1))"
+                + " order by name asc, id asc limit 4", sql[0]);
+        assertEquals(rows.subList(2, 5), page.data());
+        assertArrayEquals(new String[]{"name", "asc", "5", "name:5"}, Keyset.decode(page.next(), "name", false));
+    }
+
+    @SuppressWarnings("unchecked")
+    private PanacheQuery<Row> find(String query, Sort sort, Map<String, Object> params) {
+        this.query = query;
+        this.sort = sort;
+        this.params = params;
+        var range = new int[]{0, Integer.MAX_VALUE - 1};
+        return (PanacheQuery<Row>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PanacheQuery.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "range" -> {
+                        range[0] = (int) args[0];
+                        range[1] = (int) args[1];
+                        ranges.add(range.clone());
+                        yield proxy;
+                    }
+                    case "list" -> rows.subList(range[0], Math.min(range[1] + 1, rows.size()));
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,122 @@
+package br.dev.optimus.gaia.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import jakarta.persistence.EntityManager;
+
+class NdjsonTest {
+
+    private record Row(int id, String name) {
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Object> hints = new HashMap<>();
+    private final List<Object> detached = new ArrayList<>();
+    private final Output output = new Output();
+    private boolean streamClosed;
+
+    @Test
+    void writesOneObjectPerLine() throws IOException {
+        Ndjson.write(query(rows(3)), mapper, output);
+
+        assertEquals("{\"id\":0,\"name\":\"row 0\"}\n{\"id\":1,\"name\":\"row 1\"}\n{\"id\":2,\"name\":\"row 2\"}\n",
+                output.text());
+        assertTrue(streamClosed);
+        assertFalse(output.closed, "the response stream is closed by its owner");
+    }
+
+    @Test
+    void writesNothingForNoRows() throws IOException {
+        Ndjson.write(query(List.of()), mapper, output);
+
+        assertEquals("", output.text());
+    }
+
+    @Test
+    void flushesTheFirstRowAtOnceThenOncePerFetch() throws IOException {
+        var rows = rows(Ndjson.FETCH_SIZE * 2 + 1);
+
+        Ndjson.write(query(rows), mapper, output);
+
+        // the rows out by each flush, before the final one on close
+        assertEquals(List.of(1, Ndjson.FETCH_SIZE, Ndjson.FETCH_SIZE * 2), output.flushedRows.subList(0, 3));
+        assertEquals(rows.size(), output.text().lines().count());
+        assertEquals(Map.of(HibernateHints.HINT_FETCH_SIZE, Ndjson.FETCH_SIZE, HibernateHints.HINT_READ_ONLY, true), hints);
+    }
+
+    @Test
+    void detachesEveryEntityItWrites() throws IOException {
+        var rows = rows(3);
+        var em = (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{EntityManager.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("detach")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    detached.add(args[0]);
+                    return null;
+                });
+
+        Ndjson.write(query(rows), em, mapper, output);
+
+        assertEquals(rows, detached);
+    }
+
+    private static List<Row> rows(int count) {
+        return IntStream.range(0, count).mapToObj(id -> new Row(id, "row " + id)).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private PanacheQuery<Row> query(List<Row> rows) {
+        return (PanacheQuery<Row>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PanacheQuery.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "withHint" -> {
+                        hints.put((String) args[0], args[1]);
+                        yield proxy;
+                    }
+                    case "stream" -> rows.stream().onClose(() -> streamClosed = true);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        private final List<Integer> flushedRows = new ArrayList<>();
+        private boolean closed;
+
+        @Override
+        public void flush() {
+            var text = text();
+            var rows = (int) text.chars().filter(c -> c == '}').count();
+            if (flushedRows.isEmpty() || flushedRows.getLast() != rows) {
+                flushedRows.add(rows);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        String text() {
+            return toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package br.dev.optimus.gaia.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.RecordingEvent;
+import br.dev.optimus.gaia.model.Customer;
+import br.dev.optimus.gaia.request.PageRequest;
+import br.dev.optimus.gaia.search.CustomerChanged;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowIterator;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Tuple;
+import jakarta.ws.rs.BadRequestException;
+
+class ReactiveCustomerRepositoryTest {
+
+    private record Query(String sql, List<Object> params) {
+    }
+
+    private final List<Query> queries = new ArrayList<>();
+    private BiFunction<String, List<Object>, List<Map<String, Object>>> database = (sql, params) -> List.of();
+    private final RecordingEvent<CustomerChanged> changes = new RecordingEvent<>();
+    private final ReactiveCustomerRepository repository =
+            new ReactiveCustomerRepository(Pool.newInstance(pool()), new ObjectMapper(), changes);
+
+    @Test
+    void readsRowsAsStored() {
+        database = (sql, params) -> List.of(row(1L, "ACME", null), row(2L, "Beta Ltda", "ann@acme.com"));
+
+        var customer = repository.get(1L).await().indefinitely();
+
+        assertEquals("ACME", customer.getName());
+        assertNull(customer.getEmail());
+        assertEquals("Ann", customer.getContacts().iterator().next().getName());
+        assertEquals(100L, customer.getCreatedAt());
+
+        queries.clear();
+        var page = repository.page(new PageRequest(null, 10, null)).await().indefinitely();
+        assertEquals(List.of("ACME", "Beta Ltda"), page.data().stream().map(Customer::getName).toList());
+        assertEquals(Arrays.asList(null, "ann@acme.com"), page.data().stream().map(Customer::getEmail).toList());
+    }
+
+    @Test
+    void updatesWithTheNormalizedValues() {
+        database = (sql, params) -> {
+            if (sql.startsWith("select 1")) {
+                return List.of();
+            }
+            if (sql.startsWith("update")) {
+                return List.of(row(1L, (String) params.get(1), (String) params.get(3)));
+            }
+            return List.of(row(1L, "OLD", "old@acme.com"));
+        };
+
+        var updated = repository.update(1L, dto("acme", "Ann@ACME.com")).await().indefinitely();
+
+        assertEquals(3, queries.size());
+        assertEquals(List.of(1L), queries.get(0).params());
+        assertEquals(List.of("ACME", 1L), queries.get(1).params());
+        var bound = queries.get(2).params();
+        assertEquals(List.of(1L, "ACME", "555", "ann@acme.com", "123", "Main St"), bound.subList(0, 6));
+        assertEquals("ACME", updated.getName());
+        assertEquals("ann@acme.com", updated.getEmail());
+        assertEquals(List.of(CustomerChanged.of(updated)), changes.fired());
+    }
+
+    @Test
+    void rejectsAMissingNameBeforeQuerying() {
+        var error = assertThrows(BadRequestException.class, () -> repository.update(1L, dto(null, "ann@acme.com")));
+
+        assertEquals("name is required", error.getMessage());
+        assertEquals(List.of(), queries);
+    }
+
+    private static Customer.DTO dto(String name, String email) {
+        return new Customer.DTO(name, "555", email, "123", "Main St",
+                Set.of(new Customer.Contact("Ann", "555", "ann@acme.com", null)), true);
+    }
+
+    private static Map<String, Object> row(Long id, String name, String email) {
+        var row = new HashMap<String, Object>();
+        row.put("id", id);
+        row.put("name", name);
+        row.put("phone", "555");
+        row.put("email", email);
+        row.put("document", "123");
+        row.put("address", "Main St");
+        row.put("contacts", new JsonArray().add(new JsonObject().put("name", "Ann")));
+        row.put("active", true);
+        row.put("created_at", 100L);
+        row.put("updated_at", 200L);
+        row.put("deleted_at", 0L);
+        return row;
+    }
+
+    private io.vertx.sqlclient.Pool pool() {
+        var connection = proxy(SqlConnection.class, (method, args) -> switch (method) {
+            case "preparedQuery" -> query((String) args[0]);
+            default -> throw new UnsupportedOperationException(method);
+        });
+        return proxy(io.vertx.sqlclient.Pool.class, (method, args) -> switch (method) {
+            case "preparedQuery" -> query((String) args[0]);
+            case "withTransaction" -> {
+                @SuppressWarnings("unchecked")
+                var function = (Function<SqlConnection, Future<Object>>) args[0];
+                @SuppressWarnings("unchecked")
+                var handler = (Handler<io.vertx.core.AsyncResult<Object>>) args[1];
+                function.apply(connection).onComplete(handler);
+                yield null;
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private PreparedQuery<RowSet<Row>> query(String sql) {
+        @SuppressWarnings("unchecked")
+        PreparedQuery<RowSet<Row>> query = proxy(PreparedQuery.class, (method, args) -> {
+            if (!method.equals("execute") || args.length != 2) {
+                throw new UnsupportedOperationException(method);
+            }
+            var tuple = (Tuple) args[0];
+            var params = IntStream.range(0, tuple.size()).mapToObj(tuple::getValue).toList();
+            queries.add(new Query(sql, params));
+            @SuppressWarnings("unchecked")
+            var handler = (Handler<io.vertx.core.AsyncResult<RowSet<Row>>>) args[1];
+            handler.handle(Future.succeededFuture(rows(database.apply(sql, params))));
+            return null;
+        });
+        return query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RowSet<Row> rows(List<Map<String, Object>> rows) {
+        return proxy(RowSet.class, (method, args) -> switch (method) {
+            case "size", "rowCount" -> rows.size();
+            case "iterator" -> {
+                Iterator<Map<String, Object>> iterator = rows.iterator();
+                yield proxy(RowIterator.class, (iteratorMethod, iteratorArgs) -> switch (iteratorMethod) {
+                    case "hasNext" -> iterator.hasNext();
+                    case "next" -> row(iterator.next());
+                    default -> throw new UnsupportedOperationException(iteratorMethod);
+                });
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private static Row row(Map<String, Object> values) {
+        return proxy(Row.class, (method, args) -> switch (method) {
+            case "getValue", "getString", "getLong", "getBoolean" -> {
+                if (!values.containsKey(args[0])) {
+                    throw new IllegalArgumentException("no column " + args[0]);
+                }
+                yield values.get(args[0]);
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    @FunctionalInterface
+    private interface Method {
+        Object invoke(String name, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, Method method) {
+        return type.cast(Proxy.newProxyInstance(ReactiveCustomerRepositoryTest.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, invoked, args) -> method.invoke(invoked.getName(), args == null ? new Object[0] : args)));
+    }
+}
@@ -0,0 +1,152 @@
+package br.dev.optimus.gaia.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import br.dev.optimus.gaia.Benchmark;
+import io.agroal.api.AgroalDataSource;
+import io.agroal.api.configuration.supplier.AgroalDataSourceConfigurationSupplier;
+import io.agroal.api.security.NamePrincipal;
+import io.agroal.api.security.SimplePassword;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Tuple;
+import io.vertx.pgclient.PgBuilder;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.sqlclient.PoolOptions;
+
+/**
+ * Compares the blocking stack, JDBC on an Agroal pool with a virtual thread
+ * per client, against the reactive PostgreSQL client, both with the same
+ * number of connections, under {@value #CLIENTS} concurrent clients each
+ * reading {@value #REQUESTS} pages of customers.
+ *
+ * Needs a PostgreSQL with the application schema, given by
+ * {@code -Dgaia.benchmark.jdbc-url}, {@code -Dgaia.benchmark.username} and
+ * {@code -Dgaia.benchmark.password}; it is skipped when none is reachable.
+ */
+@EnabledIfSystemProperty(named = Benchmark.ENABLED, matches = "true")
+class ReactivePersistenceBenchmarkTest {
+
+    private static final int CLIENTS = 2000;
+    private static final int REQUESTS = 20;
+    private static final int CONNECTIONS = 20;
+    private static final String PAGE = "select id, name, email from customers where deleted_at = 0 and id > $1 order by id limit 20";
+
+    private final String url = System.getProperty("gaia.benchmark.jdbc-url", "jdbc:postgresql://localhost:5432/gaia");
+    private final String username = System.getProperty("gaia.benchmark.username", "postgres");
+    private final String password = System.getProperty("gaia.benchmark.password", "postgres");
+
+    private record Result(long millis, long p50, long p99) {
+    }
+
+    @Test
+    void blockingAgainstReactive() throws Exception {
+        try (var connection = DriverManager.getConnection(url, username, password)) {
+            assumeTrue(connection.isValid(5));
+        } catch (SQLException e) {
+            assumeTrue(false, "no PostgreSQL at " + url + ": " + e.getMessage());
+        }
+        var blocking = blocking();
+        var reactive = reactive();
+        System.out.printf("blocking: %d ms, p50 %d us, p99 %d us%n", blocking.millis(), blocking.p50(), blocking.p99());
+        System.out.printf("reactive: %d ms, p50 %d us, p99 %d us%n", reactive.millis(), reactive.p50(), reactive.p99());
+    }
+
+    private Result blocking() throws Exception {
+        var config = new AgroalDataSourceConfigurationSupplier()
+                .connectionPoolConfiguration(pool -> pool
+                        .maxSize(CONNECTIONS)
+                        .acquisitionTimeout(Duration.ofMinutes(1))
+                        .connectionFactoryConfiguration(factory -> factory
+                                .jdbcUrl(url)
+                                .principal(new NamePrincipal(username))
+                                .credential(new SimplePassword(password))));
+        var latencies = new AtomicLongArray(CLIENTS * REQUESTS);
+        try (var dataSource = AgroalDataSource.from(config);
+             var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var start = System.nanoTime();
+            var clients = new ArrayList<Future<?>>();
+            for (var client = 0; client < CLIENTS; client++) {
+                var first = client * REQUESTS;
+                clients.add(executor.submit(() -> {
+                    for (var request = 0; request < REQUESTS; request++) {
+                        var began = System.nanoTime();
+                        try (var connection = dataSource.getConnection();
+                             var statement = connection.prepareStatement(PAGE.replace("$1", "?"))) {
+                            statement.setLong(1, request * 20L);
+                            try (var rows = statement.executeQuery()) {
+                                while (rows.next()) {
+                                    rows.getLong(1);
+                                }
+                            }
+                        }
+                        latencies.set(first + request, System.nanoTime() - began);
+                    }
+                    return null;
+                }));
+            }
+            for (var client : clients) {
+                client.get();
+            }
+            return result(start, latencies);
+        }
+    }
+
+    private Result reactive() {
+        var vertx = Vertx.vertx();
+        var pool = Pool.newInstance(PgBuilder.pool()
+                .with(new PoolOptions().setMaxSize(CONNECTIONS).setMaxWaitQueueSize(-1))
+                .connectingTo(PgConnectOptions.fromUri(url.substring("jdbc:".length()))
+                        .setUser(username)
+                        .setPassword(password))
+                .using(vertx)
+                .build());
+        var latencies = new AtomicLongArray(CLIENTS * REQUESTS);
+        try {
+            var start = System.nanoTime();
+            var clients = new ArrayList<Uni<Void>>();
+            for (var client = 0; client < CLIENTS; client++) {
+                var first = client * REQUESTS;
+                clients.add(Multi.createFrom().range(0, REQUESTS)
+                        .onItem().transformToUniAndConcatenate(request -> {
+                            var began = System.nanoTime();
+                            return pool.preparedQuery(PAGE).execute(Tuple.of(request * 20L))
+                                    .invoke(rows -> latencies.set(first + request, System.nanoTime() - began));
+                        })
+                        .collect().last()
+                        .replaceWithVoid());
+            }
+            var done = Uni.join().all(clients).andFailFast().await().atMost(Duration.ofMinutes(10));
+            assertEquals(CLIENTS, done.size());
+            return result(start, latencies);
+        } finally {
+            pool.closeAndAwait();
+            vertx.close().toCompletionStage().toCompletableFuture().join();
+        }
+    }
+
+    private static Result result(long start, AtomicLongArray latencies) {
+        var millis = (System.nanoTime() - start) / 1_000_000;
+        var sorted = new long[latencies.length()];
+        for (var i = 0; i < sorted.length; i++) {
+            sorted[i] = latencies.get(i) / 1000;
+        }
+        Arrays.sort(sorted);
+        return new Result(millis, sorted[sorted.length / 2], sorted[(int) (sorted.length * 0.99)]);
+    }
+}
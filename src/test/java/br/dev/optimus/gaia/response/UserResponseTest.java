@@ -0,0 +1,63 @@
+package br.dev.optimus.gaia.response;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.model.Group;
+import br.dev.optimus.gaia.model.User;
+import io.quarkus.hibernate.orm.panache.common.ProjectedFieldName;
+
+class UserResponseTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void projectsFieldsOfTheUserAndItsGroup() throws NoSuchFieldException {
+        // Panache reads the names from the parameters of the canonical constructor
+        var components = UserResponse.class.getRecordComponents();
+        var parameters = UserResponse.class.getDeclaredConstructors()[0].getParameters();
+        assertEquals(components.length, parameters.length);
+        for (var i = 0; i < components.length; i++) {
+            var component = components[i];
+            var projected = parameters[i].getAnnotation(ProjectedFieldName.class);
+            var path = projected == null ? component.getName() : projected.value();
+            Class<?> type = User.class;
+            for (var name : path.split("\\.")) {
+                type = type.getDeclaredField(name).getType();
+            }
+            assertEquals(component.getType(), type, path);
+        }
+    }
+
+    @Test
+    void serializesLikeTheUserWithItsGroupFlattenedAndNoPassword() {
+        var group = Group.builder().name("ADMIN").build();
+        group.setId(2);
+        var user = User.builder().group(group).name("ann").phone("555").jobTitle("dev").email("Ann@Acme.com")
+                .username("Ann").passwordHash("$2a$10$hash").build();
+        user.setId(1L);
+        var response = new UserResponse(1L, 2, "ADMIN", "ANN", "555", "dev", "ann@acme.com", "ann", true, true, false, 10, 20, 0);
+
+        var expected = new HashSet<String>();
+        mapper.valueToTree(user).fieldNames().forEachRemaining(expected::add);
+        expected.remove("group");
+        expected.addAll(Set.of("group_id", "group_name"));
+        var actual = new HashSet<String>();
+        var json = mapper.valueToTree(response);
+        json.fieldNames().forEachRemaining(actual::add);
+
+        assertEquals(expected, actual);
+        assertFalse(actual.contains("password"));
+        assertEquals(2, json.get("group_id").asInt());
+        assertEquals("ADMIN", json.get("group_name").asText());
+        assertEquals("dev", json.get("job_title").asText());
+        assertEquals(10, json.get("created_at").asLong());
+    }
+}
@@ -0,0 +1,83 @@
+package br.dev.optimus.gaia.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import br.dev.optimus.gaia.StubDatabase;
+import br.dev.optimus.gaia.response.SuggestResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CustomerSuggestIndexTest {
+
+    private static final int CUSTOMERS = 20;
+    private static final int WRITES = 1500;
+
+    private CustomerSuggestIndex index;
+
+    @BeforeEach
+    void build() {
+        var rows = new ArrayList<Object[]>();
+        for (long id = 1; id <= CUSTOMERS; id++) {
+            rows.add(new Object[]{id, "Customer " + id, "customer" + id + "@example.com", "doc-" + id});
+        }
+        var database = new StubDatabase((sql, parameters) -> rows);
+        index = new CustomerSuggestIndex(database.dataSource(), new SimpleMeterRegistry());
+        index.rebuild();
+    }
+
+    @AfterEach
+    void stop() {
+        index.stop(null);
+    }
+
+    @Test
+    void findsCustomersByPrefix() {
+        var found = index.suggest("CUSTOMER 1", 50).stream().map(SuggestResponse::id).toList();
+
+        assertEquals(List.of(1L, 10L, 11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L), found);
+    }
+
+    @Test
+    void compactionDropsDeltaEntriesOfRemovedCustomers() throws InterruptedException {
+        var memory = index.stats().memory();
+        // holding the monitor keeps the compaction from starting until every write is in the delta
+        synchronized (index) {
+            for (long id = 1000; id < 1000 + WRITES; id++) {
+                index.changed(new CustomerChanged(id, "Temporary " + id, null, null, true));
+            }
+            for (long id = 1000; id < 1000 + WRITES; id++) {
+                index.changed(new CustomerChanged(id, null, null, null, false));
+            }
+        }
+        var deadline = System.nanoTime() + 5_000_000_000L;
+        while (index.stats().pending() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        var stats = index.stats();
+        assertEquals(0, stats.pending());
+        assertEquals(CUSTOMERS * 3, stats.keys());
+        assertEquals(CUSTOMERS, stats.customers());
+        assertEquals(memory, stats.memory());
+        assertTrue(index.suggest("temporary", 50).isEmpty());
+    }
+
+    @Test
+    void countsMemoryAsCustomersChange() {
+        var memory = index.stats().memory();
+
+        index.changed(new CustomerChanged(1L, "A much longer name than before", "customer1@example.com", "doc-1", true));
+        var grown = index.stats().memory();
+        index.changed(new CustomerChanged(1L, null, null, null, false));
+
+        assertTrue(grown > memory);
+        assertTrue(index.stats().memory() < memory);
+    }
+}
@@ -0,0 +1,58 @@
+package br.dev.optimus.gaia.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class PermissionRegistryTest {
+
+    @Test
+    void grantsOnlyTheCompiledPermissions() {
+        var permissions = PermissionRegistry.compile(Set.of(PermissionRegistry.CUSTOMER));
+
+        assertTrue(permissions.implies(PermissionRegistry.mask(PermissionRegistry.CUSTOMER)));
+        assertFalse(permissions.implies(PermissionRegistry.mask(PermissionRegistry.USER)));
+        assertFalse(permissions.implies(PermissionRegistry.mask(PermissionRegistry.ADMIN)));
+    }
+
+    @Test
+    void adminImpliesEveryResourcePermission() {
+        var permissions = PermissionRegistry.compile(Set.of(PermissionRegistry.ADMIN));
+
+        for (var name : List.of(PermissionRegistry.CUSTOMER, PermissionRegistry.USER, PermissionRegistry.GROUP,
+                PermissionRegistry.APP, PermissionRegistry.CACHE, PermissionRegistry.DIAGNOSTICS)) {
+            assertTrue(permissions.implies(PermissionRegistry.mask(name)), name);
+        }
+        assertFalse(permissions.implies(PermissionRegistry.mask(PermissionRegistry.ROOT)));
+    }
+
+    @Test
+    void rootGrantsEverythingIncludingUnknownPermissions() {
+        var permissions = PermissionRegistry.compile(Set.of(PermissionRegistry.ROOT));
+
+        assertTrue(permissions.implies(PermissionRegistry.mask(PermissionRegistry.DIAGNOSTICS)));
+        assertTrue(permissions.implies(PermissionRegistry.mask("billing")));
+    }
+
+    @Test
+    void doesNotRegisterUnknownPermissions() {
+        var permissions = PermissionRegistry.compile(Set.of("billing", PermissionRegistry.APP));
+
+        assertFalse(PermissionRegistry.isDeclared("billing"));
+        assertEquals(-1, PermissionRegistry.index("billing"));
+        assertTrue(permissions.implies(PermissionRegistry.mask(PermissionRegistry.APP)));
+        assertFalse(permissions.implies(PermissionRegistry.mask("billing")));
+        assertFalse(PermissionRegistry.compile(Set.of(PermissionRegistry.ADMIN)).implies(PermissionRegistry.mask("billing")));
+    }
+
+    @Test
+    void grantsNothingWithoutPermissions() {
+        assertFalse(PermissionRegistry.compile(null).implies(PermissionRegistry.mask(PermissionRegistry.NOBODY)));
+        assertFalse(PermissionRegistry.compile(Set.of()).implies(PermissionRegistry.mask(PermissionRegistry.NOBODY)));
+    }
+}
@@ -0,0 +1,52 @@
+package br.dev.optimus.gaia.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import br.dev.optimus.gaia.Benchmark;
+
+/**
+ * Compares the bitset check against the set-based check it replaced: a
+ * lookup of the required permission, and of every permission implying it, in
+ * the group's permission names.
+ */
+@EnabledIfSystemProperty(named = Benchmark.ENABLED, matches = "true")
+class PermissionsBenchmarkTest {
+
+    private static final int OPERATIONS = 1_000_000;
+    private static final List<Set<String>> GROUPS = List.of(
+            Set.of(PermissionRegistry.CUSTOMER),
+            Set.of(PermissionRegistry.ADMIN),
+            Set.of(PermissionRegistry.USER, PermissionRegistry.GROUP, PermissionRegistry.APP),
+            Set.of(PermissionRegistry.NOBODY));
+    private static final List<String> REQUIRED = List.of(PermissionRegistry.CUSTOMER, PermissionRegistry.APP,
+            PermissionRegistry.DIAGNOSTICS);
+
+    @Test
+    void bitsetAgainstSet() {
+        var compiled = GROUPS.stream().map(PermissionRegistry::compile).toList();
+        var masks = REQUIRED.stream().map(PermissionRegistry::mask).toList();
+
+        var sets = Benchmark.run("set", OPERATIONS, i ->
+                setCheck(GROUPS.get(i % GROUPS.size()), REQUIRED.get(i % REQUIRED.size())) ? 1 : 0);
+        var bitsets = Benchmark.run("bitset", OPERATIONS, i ->
+                compiled.get(i % GROUPS.size()).implies(masks.get(i % REQUIRED.size())) ? 1 : 0);
+        System.out.printf("bitset is %.1fx the speed of set%n", sets / bitsets);
+
+        for (var i = 0; i < GROUPS.size() * REQUIRED.size(); i++) {
+            assertEquals(setCheck(GROUPS.get(i % GROUPS.size()), REQUIRED.get(i % REQUIRED.size())),
+                    compiled.get(i % GROUPS.size()).implies(masks.get(i % REQUIRED.size())));
+        }
+    }
+
+    private static boolean setCheck(Set<String> granted, String required) {
+        return granted.contains(PermissionRegistry.ROOT)
+                || granted.contains(required)
+                || granted.contains(PermissionRegistry.ADMIN) && !required.equals(PermissionRegistry.NOBODY);
+    }
+}
@@ -0,0 +1,148 @@
+package br.dev.optimus.gaia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.dev.optimus.gaia.model.Group;
+import br.dev.optimus.gaia.model.User;
+import br.dev.optimus.gaia.repository.UserRepository;
+import br.dev.optimus.gaia.request.LoginRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.NotAuthorizedException;
+
+class AuthServiceTest {
+
+    private static final String SIGN_KEY = "smallrye.jwt.sign.key.location";
+
+    private final List<String> verified = new ArrayList<>();
+    private final PasswordHasher hasher = new PasswordHasher(4, 1, 4, new SimpleMeterRegistry()) {
+        @Override
+        public boolean verify(String password, String hash) {
+            verified.add(hash);
+            return super.verify(password, hash);
+        }
+    };
+    private final String hash = hasher.hash("secret");
+    private final List<String> logins = new ArrayList<>();
+    private User user;
+    private final UserRepository users = new UserRepository(null, null, hasher) {
+        @Override
+        public Optional<User> findByUsernameOrEmail(String username, String email) {
+            logins.add(username);
+            return Optional.ofNullable(user).filter(data -> data.getUsername().equals(username));
+        }
+    };
+    private final AuthService service = new AuthService(users, hasher, "gaia", Duration.ofMinutes(5));
+
+    @BeforeAll
+    static void signWithTheDevKey() {
+        System.setProperty(SIGN_KEY, "jwt/dev-private.pem");
+    }
+
+    @AfterAll
+    static void clearKey() {
+        System.clearProperty(SIGN_KEY);
+    }
+
+    @AfterEach
+    void stop() {
+        hasher.shutdown();
+    }
+
+    @Test
+    void issuesATokenWithTheGroupPermissions() throws Exception {
+        user = user(false, 0);
+
+        var response = service.login(new LoginRequest("John", "secret"));
+
+        assertEquals(List.of("john"), logins);
+        var payload = response.token().split("\\.")[1];
+        var claims = new ObjectMapper().readTree(Base64.getUrlDecoder().decode(payload));
+        assertEquals("gaia", claims.get("iss").asText());
+        assertEquals("7", claims.get("sub").asText());
+        assertEquals("john", claims.get("upn").asText());
+        assertEquals("admin", claims.get("group").asText());
+        assertEquals("users:read", claims.get("groups").get(0).asText());
+        assertEquals(response.expiresAt(), claims.get("exp").asLong());
+    }
+
+    @Test
+    void rejectsAWrongPassword() {
+        user = user(false, 0);
+
+        assertUnauthorized("wrong");
+        assertEquals(List.of(hash), verified);
+    }
+
+    @Test
+    void rejectsLockedAndDeletedUsersWithTheSameAnswer() {
+        user = user(true, 0);
+        assertUnauthorized("secret");
+
+        user = user(false, 100);
+        assertUnauthorized("secret");
+    }
+
+    @Test
+    void rejectsUsersWithoutPassword() {
+        user = user(false, 0);
+        user.setPasswordHash(null);
+
+        assertUnauthorized("secret");
+        assertEquals(1, verified.size());
+    }
+
+    @Test
+    void verifiesADummyHashForUnknownLogins() {
+        assertUnauthorized("secret");
+
+        // the same bcrypt work as a known login, so timing tells nothing
+        assertEquals(1, verified.size());
+        assertTrue(verified.getFirst().startsWith("$2a$04$"), verified.getFirst());
+        assertNotEquals(hash, verified.getFirst());
+    }
+
+    @Test
+    void requiresBothCredentials() {
+        assertThrows(BadRequestException.class, () -> service.login(null));
+        assertThrows(BadRequestException.class, () -> service.login(new LoginRequest(" ", "secret")));
+        assertThrows(BadRequestException.class, () -> service.login(new LoginRequest("john", "")));
+        assertEquals(List.of(), logins);
+    }
+
+    private void assertUnauthorized(String password) {
+        var error = assertThrows(NotAuthorizedException.class, () -> service.login(new LoginRequest("john", password)));
+        assertEquals("invalid credentials", error.getMessage());
+        assertEquals(List.of("Bearer"), error.getChallenges());
+    }
+
+    private User user(boolean locked, long deletedAt) {
+        var data = User.builder()
+                .group(Group.builder().name("admin").permissions("users:read").build())
+                .name("John")
+                .email("john@example.com")
+                .username("john")
+                .passwordHash(hash)
+                .locked(locked)
+                .build();
+        data.setId(7L);
+        data.setDeletedAt(deletedAt);
+        return data;
+    }
+}
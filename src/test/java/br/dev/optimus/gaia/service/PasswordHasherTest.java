@@ -0,0 +1,73 @@
+package br.dev.optimus.gaia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.ServiceUnavailableException;
+
+class PasswordHasherTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void stop() {
+        hasher.shutdown();
+    }
+
+    @Test
+    void hashesAndVerifies() {
+        hasher = new PasswordHasher(4, 2, 4, registry);
+
+        var hash = hasher.hash("secret");
+
+        assertTrue(hash.startsWith("$2a$04$"), hash);
+        assertTrue(hasher.verify("secret", hash));
+        assertFalse(hasher.verify("Secret", hash));
+        assertEquals(hash.length(), hasher.hashAsync("secret").toCompletableFuture().join().length());
+        assertEquals(2, registry.get("gaia.password.hash").timer().count());
+        assertEquals(2, registry.get("gaia.password.verify").timer().count());
+    }
+
+    @Test
+    void rejectsRightAwayWithA503OnceThePoolAndQueueAreFull() {
+        // slow enough that the first hash is still running when the third arrives
+        hasher = new PasswordHasher(14, 1, 1, registry);
+        var running = hasher.hashAsync("first");
+        var queued = hasher.hashAsync("second");
+
+        var start = System.nanoTime();
+        var rejected = assertThrows(CompletionException.class, () -> hasher.hashAsync("third").toCompletableFuture().join());
+        var blocking = assertThrows(ServiceUnavailableException.class, () -> hasher.verify("fourth", "$2a$04$x"));
+        var elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        var unavailable = assertInstanceOf(ServiceUnavailableException.class, rejected.getCause());
+        assertEquals(503, unavailable.getResponse().getStatus());
+        assertEquals("1", unavailable.getResponse().getHeaderString("Retry-After"));
+        assertEquals(503, blocking.getResponse().getStatus());
+        assertTrue(elapsedMillis < 500, "waited " + elapsedMillis + " ms to be rejected");
+        assertEquals(2, registry.get("gaia.password.rejected").counter().count());
+        assertEquals(1, registry.get("gaia.password.queue.size").gauge().value());
+        assertTrue(running.toCompletableFuture().join().startsWith("$2a$14$"));
+        assertTrue(queued.toCompletableFuture().join().startsWith("$2a$14$"));
+    }
+
+    @Test
+    void hashesAsynchronouslyWithoutBlockingTheCaller() {
+        hasher = new PasswordHasher(12, 1, 1, registry);
+
+        var hash = hasher.hashAsync("secret").toCompletableFuture();
+
+        assertFalse(hash.isDone());
+        assertTrue(hasher.verify("secret", hash.join()));
+    }
+}
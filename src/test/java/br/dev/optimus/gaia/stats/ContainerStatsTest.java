@@ -0,0 +1,58 @@
+package br.dev.optimus.gaia.stats;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class ContainerStatsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void servesARangeFromTheFinestTierCoveringIt() {
+        assertEquals(1, ContainerStats.resolution(1));
+        assertEquals(1, ContainerStats.resolution(600));
+        assertEquals(60, ContainerStats.resolution(601));
+        assertEquals(60, ContainerStats.resolution(86_400));
+        assertEquals(3600, ContainerStats.resolution(86_401));
+        assertEquals(3600, ContainerStats.resolution(ContainerStats.maxRange()));
+        assertEquals(3600, ContainerStats.resolution(ContainerStats.maxRange() * 2));
+        assertEquals(3600L * 720, ContainerStats.maxRange());
+    }
+
+    @Test
+    void recordsEverySampleInEachTier() {
+        var stats = new ContainerStats("c1");
+        stats.record(0, 3600, 10, 100, 1000, 0, 0);
+        stats.record(SECOND, 3601, 30, 300, 2000, 0, 0);
+
+        var seconds = stats.read(1, 0);
+        assertEquals("c1", seconds.container());
+        assertEquals(2000, seconds.memoryLimit());
+        assertArrayEquals(new long[]{3600, 3601}, seconds.time());
+        assertArrayEquals(new float[]{10, 30}, seconds.cpu());
+        assertArrayEquals(new long[]{3600}, stats.read(60, 0).time());
+        assertArrayEquals(new float[]{20}, stats.read(60, 0).cpu());
+        assertArrayEquals(new long[]{200}, stats.read(3600, 0).memory());
+        assertThrows(IllegalArgumentException.class, () -> stats.read(5, 0));
+    }
+
+    @Test
+    void turnsNetworkCountersIntoRates() {
+        var stats = new ContainerStats("c1");
+        stats.record(0, 10, 0, 0, 0, 1000, 500);
+        stats.record(2 * SECOND, 11, 0, 0, 0, 3000, 1500);
+        // a counter going backwards is a restart, taken as a new start
+        stats.record(3 * SECOND, 12, 0, 0, 0, 100, 100);
+        stats.record(4 * SECOND, 13, 0, 0, 0, 300, 200);
+        stats.reset();
+        stats.record(5 * SECOND, 14, 0, 0, 0, 9000, 9000);
+
+        var series = stats.read(1, 0);
+
+        assertArrayEquals(new float[]{0, 1000, 0, 200, 0}, series.rx());
+        assertArrayEquals(new float[]{0, 500, 0, 100, 0}, series.tx());
+    }
+}
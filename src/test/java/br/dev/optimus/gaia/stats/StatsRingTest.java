@@ -0,0 +1,78 @@
+package br.dev.optimus.gaia.stats;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class StatsRingTest {
+
+    @Test
+    void averagesTheSamplesOfEachInterval() {
+        var ring = new StatsRing(60, 4);
+        ring.add(120, 10, 100, 1, 2);
+        ring.add(150, 30, 300, 3, 4);
+        ring.add(185, 50, 500, 5, 6);
+
+        var points = ring.read(0);
+
+        assertArrayEquals(new long[]{120, 180}, points.time());
+        assertArrayEquals(new float[]{20, 50}, points.cpu());
+        assertArrayEquals(new long[]{200, 500}, points.memory());
+        assertArrayEquals(new float[]{2, 5}, points.rx());
+        assertArrayEquals(new float[]{3, 6}, points.tx());
+    }
+
+    @Test
+    void readsTheOpenIntervalAndSkipsOlderPoints() {
+        var ring = new StatsRing(1, 4);
+        ring.add(10, 1, 1, 0, 0);
+        ring.add(11, 2, 2, 0, 0);
+        ring.add(12, 3, 3, 0, 0);
+
+        // 12 is still being filled
+        assertArrayEquals(new long[]{10, 11, 12}, ring.read(0).time());
+        assertArrayEquals(new long[]{11, 12}, ring.read(11).time());
+        assertArrayEquals(new long[]{12}, ring.read(12).time());
+        assertArrayEquals(new long[]{}, ring.read(13).time());
+        assertArrayEquals(new long[]{}, new StatsRing(1, 4).read(0).time());
+    }
+
+    @Test
+    void overwritesTheOldestPointsOnceFull() {
+        var ring = new StatsRing(1, 3);
+        for (var second = 0; second < 10; second++) {
+            ring.add(second, second, second, 0, 0);
+        }
+
+        var points = ring.read(0);
+
+        // the three closed intervals left, then the open one
+        assertArrayEquals(new long[]{6, 7, 8, 9}, points.time());
+        assertArrayEquals(new float[]{6, 7, 8, 9}, points.cpu());
+        assertArrayEquals(new long[]{8, 9}, ring.read(8).time());
+    }
+
+    @Test
+    void dropsSamplesOlderThanTheOpenInterval() {
+        var ring = new StatsRing(10, 4);
+        ring.add(25, 4, 4, 0, 0);
+        ring.add(12, 100, 100, 0, 0);
+        ring.add(29, 8, 8, 0, 0);
+
+        var points = ring.read(0);
+
+        assertArrayEquals(new long[]{20}, points.time());
+        assertArrayEquals(new float[]{6}, points.cpu());
+    }
+
+    @Test
+    void alignsIntervalsOnTheEpoch() {
+        var ring = new StatsRing(3600, 2);
+        ring.add(7199, 1, 1, 0, 0);
+        ring.add(7200, 3, 3, 0, 0);
+
+        assertArrayEquals(new long[]{3600, 7200}, ring.read(0).time());
+        assertEquals(2 * (Long.BYTES * 2 + Float.BYTES * 3), ring.memory());
+    }
+}